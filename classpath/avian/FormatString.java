@@ -384,7 +384,6 @@ public final class FormatString {
     appendify(a, val, flags, width, precision);
   }
 
-  // FIXME: this is broken for octal formats with negative values
   static void convertLong(
         final Appendable a,
         final Long arg, 
@@ -392,16 +391,7 @@ public final class FormatString {
         final int width, 
         final int precision,
         final int radix) throws IOException {
-    final String val;
-    final Long n = arg;
-    final long longValue = n.longValue();
-    if (radix == 10 || longValue > -1) {
-      val = Long.toString(longValue, radix);
-    } else {
-      final long upper = 0xFFFFFFFFL&(longValue>>31);
-      final long lower = 0xFFFFFFFFL&(longValue);
-      val = Long.toString(upper, radix) + Long.toString(lower, radix);
-    }
+    final String val = integerString(arg.longValue(), radix);
     appendify(a, val, flags, width, precision);
   }
  
@@ -412,24 +402,30 @@ public final class FormatString {
         final int width, 
         final int precision,
         final int radix) throws IOException {
-    final String val;
-    final Number n = (Number) arg;
-    final long longValue = n.longValue();
-    final long modifier;
-    if (arg instanceof Integer) modifier = 0xFFFFFFFFL+1; else
-    if (arg instanceof Short)   modifier = 0xFFFFL+1;     else
-    if (arg instanceof Byte)    modifier = 0xFFL+1;               
+    final long mask;
+    if (arg instanceof Integer) mask = 0xFFFFFFFFL; else
+    if (arg instanceof Short)   mask = 0xFFFFL;     else
+    if (arg instanceof Byte)    mask = 0xFFL;
     else throw new IllegalFormatException(
       "not an integer number: " + (arg != null ? arg.getClass() : null)
     );
-    if (radix != 10 && longValue < 0) {
-      val = Long.toString(longValue + modifier, radix);
-    } else {
-      val = Long.toString(longValue, radix);
-    }
+    final long longValue = ((Number) arg).longValue();
+    // octal and hexadecimal print the two's complement bits of the
+    // value at its own width, so negative values are masked to it
+    final String val
+      = integerString(radix == 10 ? longValue : longValue & mask, radix);
     appendify(a, val, flags, width, precision);
   }
 
+  // decimal values are signed, and octal and hexadecimal ones unsigned
+  private static String integerString(long v, int radix) {
+    switch (radix) {
+      case 8:  return Numbers.toUnsignedString(v, 3);
+      case 16: return Numbers.toUnsignedString(v, 4);
+      default: return Numbers.toString(v);
+    }
+  }
+
   // FIXME: I'm lazy, so hexidecimal exponential isn't implemented, sorry - bcg
   static void convertFloat(
         final Appendable a,
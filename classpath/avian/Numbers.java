@@ -0,0 +1,1104 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package avian;
+
+/**
+ * Number formatting and parsing shared by the wrapper classes,
+ * StringBuilder, PrintStream and FormatString.
+ * <p>
+ * Decimal integers are written two digits at a time from a lookup
+ * table, and power-of-two radixes by shifting.  The appendTo methods
+ * write straight into a caller's char[] or byte[] and return the
+ * offset just past the last character written; callers can size their
+ * buffers using {@link #decimalLength} or the Max*Length constants.
+ * </p>
+ * <p>
+ * Floating point values are printed as the shortest decimal which
+ * rounds back to the same value, using the Ryu algorithm (Ulf Adams,
+ * "Ryu: Fast Float-to-String Conversion", PLDI 2018).  The tables of
+ * powers of five it needs are computed exactly the first time a value
+ * needs them.
+ * </p>
+ */
+public class Numbers {
+  // "-9223372036854775808"
+  public static final int MaxLongLength = 20;
+  // "-2.2250738585072014E-308"
+  public static final int MaxDoubleLength = 24;
+  // "-1.17549435E-38"
+  public static final int MaxFloatLength = 15;
+
+  private static final byte[] Digits = {
+    '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd',
+    'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r',
+    's', 't', 'u', 'v', 'w', 'x', 'y', 'z'
+  };
+
+  // "00", "01", ..., "99"
+  private static final byte[] DigitPairs = new byte[200];
+
+  static {
+    for (int i = 0; i < 100; ++i) {
+      DigitPairs[i * 2] = (byte) ('0' + (i / 10));
+      DigitPairs[(i * 2) + 1] = (byte) ('0' + (i % 10));
+    }
+  }
+
+  // 10^0 through 10^22, all of which are exact doubles
+  private static final double[] PowersOfTen = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+    1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // 10^0 through 10^10, all of which are exact floats
+  private static final float[] FloatPowersOfTen = {
+    1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+  };
+
+  private static final int DoubleMantissaBits = 52;
+  private static final int DoubleBias = 1023;
+  private static final int FloatMantissaBits = 23;
+  private static final int FloatBias = 127;
+
+  private static final int Pow5BitCount = 125;
+  private static final int Pow5InverseBitCount = 125;
+  private static final int FloatPow5BitCount = Pow5BitCount - 64;
+  private static final int FloatPow5InverseBitCount
+    = Pow5InverseBitCount - 64;
+
+  /**
+   * Returns the number of characters needed to write the specified
+   * value in decimal.
+   */
+  public static int decimalLength(long v) {
+    // count using the negated value, which unlike the absolute value
+    // can represent Long.MIN_VALUE
+    long n = v < 0 ? v : -v;
+    int digits = 1;
+    for (long p = -10; digits < 19 && n <= p; p *= 10) {
+      ++ digits;
+    }
+    return v < 0 ? digits + 1 : digits;
+  }
+
+  public static int appendTo(long v, char[] buffer, int offset) {
+    int end = offset + decimalLength(v);
+    int i = end;
+
+    // work with the negated value, as in decimalLength, and switch to
+    // cheaper int arithmetic once it fits
+    long n = v < 0 ? v : -v;
+    while (n < Integer.MIN_VALUE) {
+      long q = n / 100;
+      int r = (int) ((q * 100) - n) * 2;
+      n = q;
+      buffer[--i] = (char) DigitPairs[r + 1];
+      buffer[--i] = (char) DigitPairs[r];
+    }
+
+    int m = (int) n;
+    while (m <= -100) {
+      int q = m / 100;
+      int r = ((q * 100) - m) * 2;
+      m = q;
+      buffer[--i] = (char) DigitPairs[r + 1];
+      buffer[--i] = (char) DigitPairs[r];
+    }
+
+    if (m <= -10) {
+      int r = -m * 2;
+      buffer[--i] = (char) DigitPairs[r + 1];
+      buffer[--i] = (char) DigitPairs[r];
+    } else {
+      buffer[--i] = (char) ('0' - m);
+    }
+
+    if (v < 0) {
+      buffer[--i] = '-';
+    }
+
+    return end;
+  }
+
+  public static int appendTo(long v, byte[] buffer, int offset) {
+    int end = offset + decimalLength(v);
+    int i = end;
+
+    long n = v < 0 ? v : -v;
+    while (n < Integer.MIN_VALUE) {
+      long q = n / 100;
+      int r = (int) ((q * 100) - n) * 2;
+      n = q;
+      buffer[--i] = DigitPairs[r + 1];
+      buffer[--i] = DigitPairs[r];
+    }
+
+    int m = (int) n;
+    while (m <= -100) {
+      int q = m / 100;
+      int r = ((q * 100) - m) * 2;
+      m = q;
+      buffer[--i] = DigitPairs[r + 1];
+      buffer[--i] = DigitPairs[r];
+    }
+
+    if (m <= -10) {
+      int r = -m * 2;
+      buffer[--i] = DigitPairs[r + 1];
+      buffer[--i] = DigitPairs[r];
+    } else {
+      buffer[--i] = (byte) ('0' - m);
+    }
+
+    if (v < 0) {
+      buffer[--i] = '-';
+    }
+
+    return end;
+  }
+
+  public static String toString(long v) {
+    byte[] buffer = new byte[decimalLength(v)];
+    appendTo(v, buffer, 0);
+    return new String(buffer, 0, buffer.length, false);
+  }
+
+  public static String toString(long v, int radix) {
+    if (radix == 10) {
+      return toString(v);
+    }
+
+    byte[] buffer = new byte[65];
+    int i = buffer.length;
+    long n = v < 0 ? v : -v;
+    do {
+      buffer[--i] = Digits[(int) -(n % radix)];
+      n /= radix;
+    } while (n != 0);
+
+    if (v < 0) {
+      buffer[--i] = '-';
+    }
+
+    return new String(buffer, i, buffer.length - i);
+  }
+
+  /**
+   * Returns the unsigned representation of the specified value in
+   * radix 2^shift, e.g. hexadecimal for a shift of four.
+   */
+  public static String toUnsignedString(long v, int shift) {
+    int bits = 64;
+    while (bits > shift && (v >>> (bits - 1)) == 0) {
+      -- bits;
+    }
+
+    int mask = (1 << shift) - 1;
+    byte[] buffer = new byte[(bits + shift - 1) / shift];
+    for (int i = buffer.length - 1; i >= 0; --i) {
+      buffer[i] = Digits[(int) v & mask];
+      v >>>= shift;
+    }
+
+    return new String(buffer, 0, buffer.length, false);
+  }
+
+  public static String toString(double v) {
+    byte[] buffer = new byte[MaxDoubleLength];
+    return new String(buffer, 0, appendTo(v, buffer, 0), false);
+  }
+
+  public static String toString(float v) {
+    byte[] buffer = new byte[MaxFloatLength];
+    return new String(buffer, 0, appendTo(v, buffer, 0), false);
+  }
+
+  public static int appendTo(double v, char[] buffer, int offset) {
+    return appendDouble(v, buffer, offset);
+  }
+
+  public static int appendTo(double v, byte[] buffer, int offset) {
+    return appendDouble(v, buffer, offset);
+  }
+
+  public static int appendTo(float v, char[] buffer, int offset) {
+    return appendFloat(v, buffer, offset);
+  }
+
+  public static int appendTo(float v, byte[] buffer, int offset) {
+    return appendFloat(v, buffer, offset);
+  }
+
+  /**
+   * Parses the specified string as a signed integer in the specified
+   * radix, throwing NumberFormatException if it is malformed or lies
+   * outside [min, max].
+   */
+  public static long parseLong(String s, int radix, long min, long max) {
+    if (s == null) {
+      throw new NumberFormatException("null");
+    }
+
+    if (radix < 2 || radix > 36) {
+      throw new NumberFormatException("radix " + radix + " not in [2,36]");
+    }
+
+    int length = s.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0) {
+      char c = s.charAt(0);
+      if (c == '-') {
+        negative = true;
+        ++ i;
+      } else if (c == '+') {
+        ++ i;
+      }
+    }
+
+    if (i == length) {
+      throw new NumberFormatException(s);
+    }
+
+    // accumulate negatively so that the most negative value fits
+    long limit = negative ? min : -max;
+    long multiplyLimit = limit / radix;
+    long result = 0;
+    for (; i < length; ++i) {
+      char c = s.charAt(i);
+      int digit;
+      if (c >= '0' && c <= '9') {
+        digit = c - '0';
+        if (digit >= radix) {
+          digit = -1;
+        }
+      } else {
+        digit = Character.digit(c, radix);
+      }
+
+      if (digit < 0 || result < multiplyLimit) {
+        throw new NumberFormatException(s);
+      }
+
+      result *= radix;
+      if (result < limit + digit) {
+        throw new NumberFormatException(s);
+      }
+      result -= digit;
+    }
+
+    return negative ? result : -result;
+  }
+
+  /**
+   * Parses the specified string if it is a plain decimal number, with
+   * an optional sign, fraction and exponent, which can be converted
+   * exactly using a single correctly rounded multiplication or
+   * division by a power of ten (W. D. Clinger, "How to Read Floating
+   * Point Numbers Accurately", PLDI 1990).
+   *
+   * @return the value, or NaN if the string must be parsed some other
+   *         way
+   */
+  public static double parseSimpleDouble(String s) {
+    int length = s.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+      negative = s.charAt(0) == '-';
+      ++ i;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int significantDigits = 0;
+    int fractionDigits = 0;
+    boolean point = false;
+    for (; i < length; ++i) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        ++ digits;
+        if (point) {
+          ++ fractionDigits;
+        }
+        if (mantissa != 0 || c != '0') {
+          if (++ significantDigits > 15) {
+            return Double.NaN;
+          }
+          mantissa = (mantissa * 10) + (c - '0');
+        }
+      } else if (c == '.' && ! point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+
+    if (digits == 0) {
+      return Double.NaN;
+    }
+
+    int exponent = 0;
+    if (i < length) {
+      char c = s.charAt(i++);
+      if ((c != 'e' && c != 'E') || i == length) {
+        return Double.NaN;
+      }
+
+      boolean negativeExponent = false;
+      c = s.charAt(i);
+      if (c == '-' || c == '+') {
+        negativeExponent = c == '-';
+        if (++ i == length) {
+          return Double.NaN;
+        }
+      }
+
+      // more than four digits could overflow, and won't be simple
+      if (length - i > 4) {
+        return Double.NaN;
+      }
+
+      for (; i < length; ++i) {
+        c = s.charAt(i);
+        if (c < '0' || c > '9') {
+          return Double.NaN;
+        }
+        exponent = (exponent * 10) + (c - '0');
+      }
+
+      if (negativeExponent) {
+        exponent = -exponent;
+      }
+    }
+
+    exponent -= fractionDigits;
+
+    double value;
+    if (mantissa == 0) {
+      value = 0;
+    } else if (exponent == 0) {
+      value = mantissa;
+    } else if (exponent > 0 && exponent < PowersOfTen.length) {
+      value = mantissa * PowersOfTen[exponent];
+    } else if (exponent < 0 && -exponent < PowersOfTen.length) {
+      value = mantissa / PowersOfTen[-exponent];
+    } else {
+      return Double.NaN;
+    }
+
+    return negative ? -value : value;
+  }
+
+  /**
+   * Like {@link #parseSimpleDouble}, but for floats, whose mantissas
+   * must fit in 24 bits.
+   */
+  public static float parseSimpleFloat(String s) {
+    int length = s.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+      negative = s.charAt(0) == '-';
+      ++ i;
+    }
+
+    int mantissa = 0;
+    int digits = 0;
+    int significantDigits = 0;
+    int fractionDigits = 0;
+    boolean point = false;
+    for (; i < length; ++i) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        ++ digits;
+        if (point) {
+          ++ fractionDigits;
+        }
+        if (mantissa != 0 || c != '0') {
+          // seven digits always fit in 24 bits
+          if (++ significantDigits > 7) {
+            return Float.NaN;
+          }
+          mantissa = (mantissa * 10) + (c - '0');
+        }
+      } else if (c == '.' && ! point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+
+    if (digits == 0) {
+      return Float.NaN;
+    }
+
+    int exponent = 0;
+    if (i < length) {
+      char c = s.charAt(i++);
+      if ((c != 'e' && c != 'E') || i == length) {
+        return Float.NaN;
+      }
+
+      boolean negativeExponent = false;
+      c = s.charAt(i);
+      if (c == '-' || c == '+') {
+        negativeExponent = c == '-';
+        if (++ i == length) {
+          return Float.NaN;
+        }
+      }
+
+      if (length - i > 4) {
+        return Float.NaN;
+      }
+
+      for (; i < length; ++i) {
+        c = s.charAt(i);
+        if (c < '0' || c > '9') {
+          return Float.NaN;
+        }
+        exponent = (exponent * 10) + (c - '0');
+      }
+
+      if (negativeExponent) {
+        exponent = -exponent;
+      }
+    }
+
+    exponent -= fractionDigits;
+
+    float value;
+    if (mantissa == 0) {
+      value = 0;
+    } else if (exponent == 0) {
+      value = mantissa;
+    } else if (exponent > 0 && exponent < FloatPowersOfTen.length) {
+      value = mantissa * FloatPowersOfTen[exponent];
+    } else if (exponent < 0 && -exponent < FloatPowersOfTen.length) {
+      value = mantissa / FloatPowersOfTen[-exponent];
+    } else {
+      return Float.NaN;
+    }
+
+    return negative ? -value : value;
+  }
+
+  private static int appendTo(String s, Object buffer, int offset) {
+    int length = s.length();
+    if (buffer instanceof char[]) {
+      s.getChars(0, length, (char[]) buffer, offset);
+    } else {
+      byte[] bytes = (byte[]) buffer;
+      for (int i = 0; i < length; ++i) {
+        bytes[offset + i] = (byte) s.charAt(i);
+      }
+    }
+    return offset + length;
+  }
+
+  // floor(log2(5^e)) + 1, for 0 <= e <= 1700
+  private static int pow5Bits(int e) {
+    return ((e * 1217359) >>> 19) + 1;
+  }
+
+  // floor(log10(2^e)), for 0 <= e <= 1650
+  private static int log10Pow2(int e) {
+    return (e * 78913) >>> 18;
+  }
+
+  // floor(log10(5^e)), for 0 <= e <= 2620
+  private static int log10Pow5(int e) {
+    return (e * 732923) >>> 20;
+  }
+
+  private static boolean multipleOfPowerOf5(long value, int p) {
+    int count = 0;
+    while (value % 5 == 0) {
+      value /= 5;
+      ++ count;
+    }
+    return count >= p;
+  }
+
+  private static boolean multipleOfPowerOf2(long value, int p) {
+    return (value & ((1L << p) - 1)) == 0;
+  }
+
+  // returns the high 64 bits of the unsigned product of a and b
+  private static long multiplyHigh(long a, long b) {
+    long aLow = a & 0xFFFFFFFFL;
+    long aHigh = a >>> 32;
+    long bLow = b & 0xFFFFFFFFL;
+    long bHigh = b >>> 32;
+
+    long lowLow = aLow * bLow;
+    long highLow = aHigh * bLow;
+    long lowHigh = aLow * bHigh;
+    long highHigh = aHigh * bHigh;
+
+    long cross = (lowLow >>> 32) + (highLow & 0xFFFFFFFFL) + lowHigh;
+    return highHigh + (highLow >>> 32) + (cross >>> 32);
+  }
+
+  // returns (m * (high * 2^64 + low)) >> shift, where shift >= 64
+  private static long multiplyShift(long m, long low, long high, int shift) {
+    long productLow = multiplyHigh(m, low);
+    long sumLow = productLow + (m * high);
+    long sumHigh = multiplyHigh(m, high)
+      + ((sumLow ^ Long.MIN_VALUE) < (productLow ^ Long.MIN_VALUE) ? 1 : 0);
+
+    shift -= 64;
+    if (shift == 0) {
+      return sumLow;
+    } else if (shift < 64) {
+      return (sumLow >>> shift) | (sumHigh << (64 - shift));
+    } else {
+      return sumHigh >>> (shift - 64);
+    }
+  }
+
+  // returns (m * factor) >> shift for an unsigned factor, where
+  // m < 2^32 and shift > 32
+  private static long multiplyShift32(long m, long factor, int shift) {
+    long sum = ((m * (factor & 0xFFFFFFFFL)) >>> 32) + (m * (factor >>> 32));
+    return sum >>> (shift - 32);
+  }
+
+  /**
+   * Writes the two digit decimal closest to m2 times the specified
+   * unit times 10^exponent.
+   * <p>
+   * Since Java 19, values whose shortest representation has a single
+   * digit are printed as whichever of the one and two digit decimals
+   * which round to them is closest, e.g. 4.9E-324 rather than 5.0E-324.
+   * That only makes a difference for subnormals with mantissas below
+   * 100, whose exact values are small multiples of the smallest one.
+   * </p>
+   */
+  private static int appendClosestTwoDigits(long m2, long unit, int exponent,
+                                            boolean negative, Object buffer,
+                                            int offset)
+  {
+    long value = m2 * unit;
+    long divisor = 1;
+    while (value / divisor >= 100) {
+      divisor *= 10;
+      ++ exponent;
+    }
+    return format((value + (divisor / 2)) / divisor, exponent, negative,
+                  buffer, offset);
+  }
+
+  private static int appendDouble(double v, Object buffer, int offset) {
+    long bits = Double.doubleToRawLongBits(v);
+    boolean negative = bits < 0;
+    int ieeeExponent = (int) (bits >>> DoubleMantissaBits) & 0x7FF;
+    long ieeeMantissa = bits & ((1L << DoubleMantissaBits) - 1);
+
+    if (ieeeExponent == 0x7FF) {
+      return appendTo(ieeeMantissa != 0 ? "NaN"
+                      : negative ? "-Infinity" : "Infinity", buffer, offset);
+    } else if (ieeeExponent == 0 && ieeeMantissa == 0) {
+      return appendTo(negative ? "-0.0" : "0.0", buffer, offset);
+    }
+
+    long m2;
+    int e2;
+    if (ieeeExponent == 0) {
+      m2 = ieeeMantissa;
+      e2 = 1 - DoubleBias - DoubleMantissaBits - 2;
+    } else {
+      m2 = (1L << DoubleMantissaBits) | ieeeMantissa;
+      e2 = ieeeExponent - DoubleBias - DoubleMantissaBits - 2;
+    }
+
+    // integers below 2^53 need all their digits but trailing zeros
+    int smallShift = -(e2 + 2);
+    if (smallShift >= 0 && smallShift <= DoubleMantissaBits
+        && (m2 & ((1L << smallShift) - 1)) == 0)
+    {
+      long output = m2 >>> smallShift;
+      int exponent = 0;
+      while (output % 10 == 0) {
+        output /= 10;
+        ++ exponent;
+      }
+      return format(output, exponent, negative, buffer, offset);
+    }
+
+    boolean acceptBounds = (m2 & 1) == 0;
+
+    // the value lies in the interval (mm, mp) = (mv - 1 - mmShift,
+    // mv + 2) after scaling by four, where the lower bound is closer
+    // at the bottom of a binade
+    long mv = 4 * m2;
+    int mmShift = ieeeMantissa != 0 || ieeeExponent <= 1 ? 1 : 0;
+
+    // convert the interval to a decimal power base
+    long vr, vp, vm;
+    int e10;
+    boolean vmIsTrailingZeros = false;
+    boolean vrIsTrailingZeros = false;
+    if (e2 >= 0) {
+      int q = log10Pow2(e2) - (e2 > 3 ? 1 : 0);
+      e10 = q;
+      int k = Pow5InverseBitCount + pow5Bits(q) - 1;
+      int i = -e2 + q + k;
+      long low = Tables.Pow5InverseLow[q];
+      long high = Tables.Pow5InverseHigh[q];
+      vr = multiplyShift(mv, low, high, i);
+      vp = multiplyShift(mv + 2, low, high, i);
+      vm = multiplyShift(mv - 1 - mmShift, low, high, i);
+      if (q <= 21) {
+        // only one of mp, mv and mm can be a multiple of five, if any
+        if (mv % 5 == 0) {
+          vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+        } else if (acceptBounds) {
+          vmIsTrailingZeros = multipleOfPowerOf5(mv - 1 - mmShift, q);
+        } else if (multipleOfPowerOf5(mv + 2, q)) {
+          -- vp;
+        }
+      }
+    } else {
+      int q = log10Pow5(-e2) - (-e2 > 1 ? 1 : 0);
+      e10 = q + e2;
+      int i = -e2 - q;
+      int k = pow5Bits(i) - Pow5BitCount;
+      int j = q - k;
+      long low = Tables.Pow5Low[i];
+      long high = Tables.Pow5High[i];
+      vr = multiplyShift(mv, low, high, j);
+      vp = multiplyShift(mv + 2, low, high, j);
+      vm = multiplyShift(mv - 1 - mmShift, low, high, j);
+      if (q <= 1) {
+        // mv = 4 * m2, so it always has at least two trailing zero bits
+        vrIsTrailingZeros = true;
+        if (acceptBounds) {
+          vmIsTrailingZeros = mmShift == 1;
+        } else {
+          // mp = mv + 2, so it always has at least one
+          -- vp;
+        }
+      } else if (q < 63) {
+        vrIsTrailingZeros = multipleOfPowerOf2(mv, q);
+      }
+    }
+
+    // find the shortest decimal in the interval
+    int removed = 0;
+    int lastRemovedDigit = 0;
+    long output;
+    if (vmIsTrailingZeros || vrIsTrailingZeros) {
+      // the rare case where the bounds or value may be exact decimals
+      while (vp / 10 > vm / 10) {
+        vmIsTrailingZeros &= vm % 10 == 0;
+        vrIsTrailingZeros &= lastRemovedDigit == 0;
+        lastRemovedDigit = (int) (vr % 10);
+        vr /= 10;
+        vp /= 10;
+        vm /= 10;
+        ++ removed;
+      }
+
+      if (vmIsTrailingZeros) {
+        while (vm % 10 == 0) {
+          vrIsTrailingZeros &= lastRemovedDigit == 0;
+          lastRemovedDigit = (int) (vr % 10);
+          vr /= 10;
+          vp /= 10;
+          vm /= 10;
+          ++ removed;
+        }
+      }
+
+      if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0) {
+        // round to even if the exact value is ...50...0
+        lastRemovedDigit = 4;
+      }
+
+      output = vr
+        + (((vr == vm && (! acceptBounds || ! vmIsTrailingZeros))
+            || lastRemovedDigit >= 5) ? 1 : 0);
+    } else {
+      boolean roundUp = false;
+      if (vp / 100 > vm / 100) {
+        // remove two digits at a time when possible
+        roundUp = vr % 100 >= 50;
+        vr /= 100;
+        vp /= 100;
+        vm /= 100;
+        removed += 2;
+      }
+
+      while (vp / 10 > vm / 10) {
+        roundUp = vr % 10 >= 5;
+        vr /= 10;
+        vp /= 10;
+        vm /= 10;
+        ++ removed;
+      }
+
+      output = vr + ((vr == vm || roundUp) ? 1 : 0);
+    }
+
+    if (ieeeExponent == 0 && m2 < 100 && output < 10) {
+      // the smallest subnormal is 4.9406564584124654E-324
+      return appendClosestTwoDigits
+        (m2, 49406564584124654L, -340, negative, buffer, offset);
+    }
+
+    return format(output, e10 + removed, negative, buffer, offset);
+  }
+
+  private static int appendFloat(float v, Object buffer, int offset) {
+    int bits = Float.floatToRawIntBits(v);
+    boolean negative = bits < 0;
+    int ieeeExponent = (bits >>> FloatMantissaBits) & 0xFF;
+    int ieeeMantissa = bits & ((1 << FloatMantissaBits) - 1);
+
+    if (ieeeExponent == 0xFF) {
+      return appendTo(ieeeMantissa != 0 ? "NaN"
+                      : negative ? "-Infinity" : "Infinity", buffer, offset);
+    } else if (ieeeExponent == 0 && ieeeMantissa == 0) {
+      return appendTo(negative ? "-0.0" : "0.0", buffer, offset);
+    }
+
+    long m2;
+    int e2;
+    if (ieeeExponent == 0) {
+      m2 = ieeeMantissa;
+      e2 = 1 - FloatBias - FloatMantissaBits - 2;
+    } else {
+      m2 = (1L << FloatMantissaBits) | ieeeMantissa;
+      e2 = ieeeExponent - FloatBias - FloatMantissaBits - 2;
+    }
+
+    boolean acceptBounds = (m2 & 1) == 0;
+
+    // as in appendDouble
+    long mv = 4 * m2;
+    long mp = mv + 2;
+    int mmShift = ieeeMantissa != 0 || ieeeExponent <= 1 ? 1 : 0;
+    long mm = mv - 1 - mmShift;
+
+    long vr, vp, vm;
+    int e10;
+    boolean vmIsTrailingZeros = false;
+    boolean vrIsTrailingZeros = false;
+    int lastRemovedDigit = 0;
+    if (e2 >= 0) {
+      int q = log10Pow2(e2);
+      e10 = q;
+      int k = FloatPow5InverseBitCount + pow5Bits(q) - 1;
+      int i = -e2 + q + k;
+      // the table holds 2^k / 5^q rounded up in the low bits, so the
+      // high bits alone need rounding up too
+      long factor = Tables.Pow5InverseHigh[q] + 1;
+      vr = multiplyShift32(mv, factor, i);
+      vp = multiplyShift32(mp, factor, i);
+      vm = multiplyShift32(mm, factor, i);
+      if (q != 0 && (vp - 1) / 10 <= vm / 10) {
+        // the loop below won't remove any digits, but we need to know
+        // the first one it would have
+        int l = FloatPow5InverseBitCount + pow5Bits(q - 1) - 1;
+        lastRemovedDigit = (int) (multiplyShift32
+          (mv, Tables.Pow5InverseHigh[q - 1] + 1, -e2 + q - 1 + l) % 10);
+      }
+      if (q <= 9) {
+        // only one of mp, mv and mm can be a multiple of five, if any
+        if (mv % 5 == 0) {
+          vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+        } else if (acceptBounds) {
+          vmIsTrailingZeros = multipleOfPowerOf5(mm, q);
+        } else if (multipleOfPowerOf5(mp, q)) {
+          -- vp;
+        }
+      }
+    } else {
+      int q = log10Pow5(-e2);
+      e10 = q + e2;
+      int i = -e2 - q;
+      int k = pow5Bits(i) - FloatPow5BitCount;
+      int j = q - k;
+      long factor = Tables.Pow5High[i];
+      vr = multiplyShift32(mv, factor, j);
+      vp = multiplyShift32(mp, factor, j);
+      vm = multiplyShift32(mm, factor, j);
+      if (q != 0 && (vp - 1) / 10 <= vm / 10) {
+        j = q - 1 - (pow5Bits(i + 1) - FloatPow5BitCount);
+        lastRemovedDigit = (int) (multiplyShift32
+          (mv, Tables.Pow5High[i + 1], j) % 10);
+      }
+      if (q <= 1) {
+        vrIsTrailingZeros = true;
+        if (acceptBounds) {
+          vmIsTrailingZeros = mmShift == 1;
+        } else {
+          -- vp;
+        }
+      } else if (q < 31) {
+        vrIsTrailingZeros = multipleOfPowerOf2(mv, q - 1);
+      }
+    }
+
+    int removed = 0;
+    long output;
+    if (vmIsTrailingZeros || vrIsTrailingZeros) {
+      while (vp / 10 > vm / 10) {
+        vmIsTrailingZeros &= vm % 10 == 0;
+        vrIsTrailingZeros &= lastRemovedDigit == 0;
+        lastRemovedDigit = (int) (vr % 10);
+        vr /= 10;
+        vp /= 10;
+        vm /= 10;
+        ++ removed;
+      }
+
+      if (vmIsTrailingZeros) {
+        while (vm % 10 == 0) {
+          vrIsTrailingZeros &= lastRemovedDigit == 0;
+          lastRemovedDigit = (int) (vr % 10);
+          vr /= 10;
+          vp /= 10;
+          vm /= 10;
+          ++ removed;
+        }
+      }
+
+      if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0) {
+        lastRemovedDigit = 4;
+      }
+
+      output = vr
+        + (((vr == vm && (! acceptBounds || ! vmIsTrailingZeros))
+            || lastRemovedDigit >= 5) ? 1 : 0);
+    } else {
+      while (vp / 10 > vm / 10) {
+        lastRemovedDigit = (int) (vr % 10);
+        vr /= 10;
+        vp /= 10;
+        vm /= 10;
+        ++ removed;
+      }
+
+      output = vr + ((vr == vm || lastRemovedDigit >= 5) ? 1 : 0);
+    }
+
+    if (ieeeExponent == 0 && m2 < 100 && output < 10) {
+      // the smallest subnormal is 1.4012984643248171E-45
+      return appendClosestTwoDigits
+        (m2, 14012984643248171L, -61, negative, buffer, offset);
+    }
+
+    return format(output, e10 + removed, negative, buffer, offset);
+  }
+
+  /**
+   * Writes output * 10^exponent as Double.toString would: in plain
+   * notation with at least one digit after the point if it lies in
+   * [10^-3, 10^7), and in computerized scientific notation otherwise.
+   */
+  private static int format(long output, int exponent, boolean negative,
+                            Object buffer, int offset)
+  {
+    while (output % 10 == 0) {
+      output /= 10;
+      ++ exponent;
+    }
+
+    if (buffer instanceof char[]) {
+      return format(output, exponent, negative, (char[]) buffer, offset);
+    } else {
+      return format(output, exponent, negative, (byte[]) buffer, offset);
+    }
+  }
+
+  private static int format(long output, int exponent, boolean negative,
+                            char[] buffer, int i)
+  {
+    if (negative) {
+      buffer[i++] = '-';
+    }
+
+    int length = decimalLength(output);
+    int scientific = exponent + length - 1;
+    if (scientific >= 0 && scientific < 7) {
+      int integerDigits = scientific + 1;
+      if (length <= integerDigits) {
+        i = appendTo(output, buffer, i);
+        for (int j = length; j < integerDigits; ++j) {
+          buffer[i++] = '0';
+        }
+        buffer[i++] = '.';
+        buffer[i++] = '0';
+      } else {
+        // write the digits one place to the right, then move the
+        // integer part back to make room for the point
+        int end = appendTo(output, buffer, i + 1);
+        for (int j = 0; j < integerDigits; ++j) {
+          buffer[i + j] = buffer[i + j + 1];
+        }
+        buffer[i + integerDigits] = '.';
+        i = end;
+      }
+    } else if (scientific < 0 && scientific >= -3) {
+      buffer[i++] = '0';
+      buffer[i++] = '.';
+      for (int j = -1; j > scientific; --j) {
+        buffer[i++] = '0';
+      }
+      i = appendTo(output, buffer, i);
+    } else {
+      int end = appendTo(output, buffer, i + 1);
+      buffer[i] = buffer[i + 1];
+      buffer[i + 1] = '.';
+      if (length == 1) {
+        buffer[i + 2] = '0';
+        end = i + 3;
+      }
+      buffer[end++] = 'E';
+      i = appendTo((long) scientific, buffer, end);
+    }
+
+    return i;
+  }
+
+  private static int format(long output, int exponent, boolean negative,
+                            byte[] buffer, int i)
+  {
+    if (negative) {
+      buffer[i++] = '-';
+    }
+
+    int length = decimalLength(output);
+    int scientific = exponent + length - 1;
+    if (scientific >= 0 && scientific < 7) {
+      int integerDigits = scientific + 1;
+      if (length <= integerDigits) {
+        i = appendTo(output, buffer, i);
+        for (int j = length; j < integerDigits; ++j) {
+          buffer[i++] = '0';
+        }
+        buffer[i++] = '.';
+        buffer[i++] = '0';
+      } else {
+        int end = appendTo(output, buffer, i + 1);
+        for (int j = 0; j < integerDigits; ++j) {
+          buffer[i + j] = buffer[i + j + 1];
+        }
+        buffer[i + integerDigits] = '.';
+        i = end;
+      }
+    } else if (scientific < 0 && scientific >= -3) {
+      buffer[i++] = '0';
+      buffer[i++] = '.';
+      for (int j = -1; j > scientific; --j) {
+        buffer[i++] = '0';
+      }
+      i = appendTo(output, buffer, i);
+    } else {
+      int end = appendTo(output, buffer, i + 1);
+      buffer[i] = buffer[i + 1];
+      buffer[i + 1] = '.';
+      if (length == 1) {
+        buffer[i + 2] = '0';
+        end = i + 3;
+      }
+      buffer[end++] = 'E';
+      i = appendTo((long) scientific, buffer, end);
+    }
+
+    return i;
+  }
+
+  /**
+   * The multipliers Ryu uses to scale binary values by powers of ten:
+   * the top 125 bits of 5^i, and 2^k / 5^i rounded up, where k is
+   * chosen to yield 125 significant bits.  Each is split into its low
+   * and high 64 bits.
+   */
+  private static class Tables {
+    private static final int Pow5TableSize = 326;
+    private static final int Pow5InverseTableSize = 342;
+    // large enough that 2^Scale / 5^i keeps all the bits we need
+    private static final int Scale = 1024;
+
+    public static final long[] Pow5Low = new long[Pow5TableSize];
+    public static final long[] Pow5High = new long[Pow5TableSize];
+    public static final long[] Pow5InverseLow
+      = new long[Pow5InverseTableSize];
+    public static final long[] Pow5InverseHigh
+      = new long[Pow5InverseTableSize];
+
+    static {
+      // 5^i, as little-endian 32-bit words
+      int[] power = new int[(pow5Bits(Pow5TableSize) / 32) + 1];
+      power[0] = 1;
+      for (int i = 0; i < Pow5TableSize; ++i) {
+        int shift = pow5Bits(i) - Pow5BitCount;
+        Pow5Low[i] = bits(power, shift);
+        Pow5High[i] = bits(power, shift + 64);
+        multiply(power, 5);
+      }
+
+      // 2^Scale / 5^i, rounded down, which when shifted right yields
+      // 2^k / 5^i rounded down for any k <= Scale
+      int[] inverse = new int[(Scale / 32) + 1];
+      inverse[Scale / 32] = 1;
+      for (int i = 0; i < Pow5InverseTableSize; ++i) {
+        int shift = Scale - (pow5Bits(i) - 1 + Pow5InverseBitCount);
+        long low = bits(inverse, shift) + 1;
+        long high = bits(inverse, shift + 64);
+        if (low == 0) {
+          ++ high;
+        }
+        Pow5InverseLow[i] = low;
+        Pow5InverseHigh[i] = high;
+        divide(inverse, 5);
+      }
+    }
+
+    // returns bits [from, from + 64) of the specified magnitude, where
+    // bits below zero are zero
+    private static long bits(int[] words, int from) {
+      long result = 0;
+      for (int i = 63; i >= 0; --i) {
+        int bit = from + i;
+        result <<= 1;
+        if (bit >= 0 && bit < words.length * 32
+            && (words[bit >>> 5] & (1 << (bit & 31))) != 0)
+        {
+          result |= 1;
+        }
+      }
+      return result;
+    }
+
+    private static void multiply(int[] words, int factor) {
+      long carry = 0;
+      for (int i = 0; i < words.length; ++i) {
+        long product = ((words[i] & 0xFFFFFFFFL) * factor) + carry;
+        words[i] = (int) product;
+        carry = product >>> 32;
+      }
+    }
+
+    private static void divide(int[] words, int divisor) {
+      long remainder = 0;
+      for (int i = words.length - 1; i >= 0; --i) {
+        long dividend = (remainder << 32) | (words[i] & 0xFFFFFFFFL);
+        words[i] = (int) (dividend / divisor);
+        remainder = dividend % divisor;
+      }
+    }
+  }
+}
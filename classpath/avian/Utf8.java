@@ -10,8 +10,6 @@
 
 package avian;
 
-import java.io.ByteArrayOutputStream;
-
 public class Utf8 {
   public static boolean test(Object data) {
     if (!(data instanceof byte[])) return false;
@@ -22,27 +20,6 @@ public class Utf8 {
     return false;
   }
 
-  public static byte[] encode(char[] s16, int offset, int length) {
-    ByteArrayOutputStream buf = new ByteArrayOutputStream();
-    for (int i = offset; i < offset+length; ++i) {
-      char c = s16[i];
-      if (c == '\u0000') {     // null char
-        buf.write(0);
-        buf.write(0);
-      } else if (c < 0x080) {  // 1 byte char
-        buf.write(c);
-      } else if (c < 0x0800) { // 2 byte char
-        buf.write(0x0c0 | (c >>> 6));
-        buf.write(0x080 | (c & 0x03f));
-      } else {                // 3 byte char
-        buf.write(0x0e0 | ((c >>> 12) & 0x0f));
-        buf.write(0x080 | ((c >>> 6) & 0x03f));
-        buf.write(0x080 | (c & 0x03f));
-      }
-    }
-    return buf.toByteArray();
-  }
-
   public static Object decode(byte[] s8, int offset, int length) {
     Object buf = new byte[length];
     boolean isMultiByte = false;
@@ -50,12 +27,6 @@ public class Utf8 {
     while (i < offset+length) {
       int x = s8[i++];
       if ((x & 0x080) == 0x0) {          // 1 byte char
-        if (x == 0) {                    // 2 byte null char
-          if (i == offset + length) {
-            return null;
-          }
-          ++ i;
-        }
         cram(buf, j++, x);
       } else if ((x & 0x0e0) == 0x0c0) { // 2 byte char
         if (i == offset + length) {
@@ -79,23 +50,26 @@ public class Utf8 {
         }
         int y = s8[i++]; int z = s8[i++];
         cram(buf, j++, ((x & 0xf) << 12) | ((y & 0x3f) << 6) | (z & 0x3f));
+      } else if ((x & 0x0f8) == 0x0f0) { // 4 byte char
+        if (i + 2 >= offset + length) {
+          return null;
+        }
+
+        if (!isMultiByte) {
+          buf = widen(buf, j, length-2);
+          isMultiByte = true;
+        }
+        int y = s8[i++]; int z = s8[i++]; int w = s8[i++];
+        int codePoint = (((x & 0x7) << 18) | ((y & 0x3f) << 12)
+                         | ((z & 0x3f) << 6) | (w & 0x3f)) - 0x10000;
+        cram(buf, j++, 0xd800 | (codePoint >> 10));
+        cram(buf, j++, 0xdc00 | (codePoint & 0x3ff));
       }
     }
 
     return trim(buf, j);
   }
 
-  public static char[] decode16(byte[] s8, int offset, int length) {
-    Object decoded = decode(s8, offset, length);
-    if (decoded == null) {
-      return null;
-    } else if (decoded instanceof char[]) {
-      return (char[])decoded;
-    } else {
-      return (char[])widen(decoded, length, length);
-    }
-  }
-
   private static void cram(Object data, int index, int val) {
     if (data instanceof byte[]) ((byte[])data)[index] = (byte)val;
     else                        ((char[])data)[index] = (char)val;
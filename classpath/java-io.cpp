@@ -72,6 +72,12 @@ typedef wchar_t char_t;
 #include <dirent.h>
 #include <unistd.h>
 #include "sys/mman.h"
+#ifdef __linux__
+#include <sys/sendfile.h>
+#elif defined __APPLE__
+#include <sys/socket.h>
+#include <sys/uio.h>
+#endif
 
 #define ACCESS access
 #define OPEN open
@@ -1005,3 +1011,555 @@ extern "C" JNIEXPORT void JNICALL
   CloseHandle(hFile);
 #endif
 }
+
+namespace {
+
+const int MapReadOnly = 0;
+const int MapReadWrite = 1;
+
+#if !defined(WINAPI_FAMILY) || WINAPI_FAMILY_PARTITION(WINAPI_PARTITION_DESKTOP)
+
+// Reads or writes at the given position without disturbing the
+// descriptor's offset, or at the current offset if position is
+// negative.
+int fileRead(int fd, void* buffer, int length, jlong position)
+{
+  if (position < 0) {
+    return READ(fd, buffer, length);
+  }
+#ifdef PLATFORM_WINDOWS
+  __int64 saved = _lseeki64(fd, 0, SEEK_CUR);
+  if (saved == -1 or _lseeki64(fd, position, SEEK_SET) == -1) {
+    return -1;
+  }
+  int r = READ(fd, buffer, length);
+  int error = errno;
+  _lseeki64(fd, saved, SEEK_SET);
+  errno = error;
+  return r;
+#else
+  return ::pread(fd, buffer, length, position);
+#endif
+}
+
+int fileWrite(int fd, const void* buffer, int length, jlong position)
+{
+  if (position < 0) {
+    return WRITE(fd, buffer, length);
+  }
+#ifdef PLATFORM_WINDOWS
+  __int64 saved = _lseeki64(fd, 0, SEEK_CUR);
+  if (saved == -1 or _lseeki64(fd, position, SEEK_SET) == -1) {
+    return -1;
+  }
+  int r = WRITE(fd, buffer, length);
+  int error = errno;
+  _lseeki64(fd, saved, SEEK_SET);
+  errno = error;
+  return r;
+#else
+  return ::pwrite(fd, buffer, length, position);
+#endif
+}
+
+jlong fileSize(JNIEnv* e, int fd)
+{
+#ifdef PLATFORM_WINDOWS
+  struct _stati64 s;
+  if (_fstati64(fd, &s) == -1) {
+#else
+  struct ::stat s;
+  if (::fstat(fd, &s) == -1) {
+#endif
+    throwNewErrno(e, "java/io/IOException");
+    return -1;
+  }
+  return s.st_size;
+}
+
+jint readResult(JNIEnv* e, int r, jint length)
+{
+  if (r < 0) {
+    throwNewErrno(e, "java/io/IOException");
+    return -1;
+  } else if (r == 0 and length > 0) {
+    return -1;
+  }
+  return r;
+}
+
+jint writeResult(JNIEnv* e, int r)
+{
+  if (r < 0) {
+    throwNewErrno(e, "java/io/IOException");
+    return -1;
+  }
+  return r;
+}
+
+uint8_t* directAddress(JNIEnv* e, jobject buffer, jint offset)
+{
+  uint8_t* address = static_cast<uint8_t*>(e->GetDirectBufferAddress(buffer));
+  if (address == 0) {
+    throwNew(e, "java/lang/IllegalArgumentException", "not a direct buffer");
+    return 0;
+  }
+  return address + offset;
+}
+
+#endif
+
+}  // namespace
+
+#if !defined(WINAPI_FAMILY) || WINAPI_FAMILY_PARTITION(WINAPI_PARTITION_DESKTOP)
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_readBytes(JNIEnv* e,
+                                             jclass,
+                                             jlong peer,
+                                             jlong position,
+                                             jbyteArray buffer,
+                                             jint offset,
+                                             jint length)
+{
+  jbyte* data = static_cast<jbyte*>(malloc(length));
+  if (data == 0) {
+    throwNew(e, "java/lang/OutOfMemoryError", 0);
+    return 0;
+  }
+
+  jint r = readResult(e, fileRead(peer, data, length, position), length);
+  if (r > 0) {
+    e->SetByteArrayRegion(buffer, offset, r, data);
+  }
+
+  free(data);
+
+  return r;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_readDirect(JNIEnv* e,
+                                              jclass,
+                                              jlong peer,
+                                              jlong position,
+                                              jobject buffer,
+                                              jint offset,
+                                              jint length)
+{
+  uint8_t* data = directAddress(e, buffer, offset);
+  if (data == 0) {
+    return 0;
+  }
+
+  return readResult(e, fileRead(peer, data, length, position), length);
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_writeBytes(JNIEnv* e,
+                                              jclass,
+                                              jlong peer,
+                                              jlong position,
+                                              jbyteArray buffer,
+                                              jint offset,
+                                              jint length)
+{
+  jbyte* data = static_cast<jbyte*>(malloc(length));
+  if (data == 0) {
+    throwNew(e, "java/lang/OutOfMemoryError", 0);
+    return 0;
+  }
+
+  jint r = 0;
+  e->GetByteArrayRegion(buffer, offset, length, data);
+  if (not e->ExceptionCheck()) {
+    r = writeResult(e, fileWrite(peer, data, length, position));
+  }
+
+  free(data);
+
+  return r;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_writeDirect(JNIEnv* e,
+                                               jclass,
+                                               jlong peer,
+                                               jlong position,
+                                               jobject buffer,
+                                               jint offset,
+                                               jint length)
+{
+  uint8_t* data = directAddress(e, buffer, offset);
+  if (data == 0) {
+    return 0;
+  }
+
+  return writeResult(e, fileWrite(peer, data, length, position));
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_tell(JNIEnv* e, jclass, jlong peer)
+{
+#ifdef PLATFORM_WINDOWS
+  jlong r = _lseeki64(peer, 0, SEEK_CUR);
+#else
+  jlong r = ::lseek(peer, 0, SEEK_CUR);
+#endif
+  if (r == -1) {
+    throwNewErrno(e, "java/io/IOException");
+  }
+  return r;
+}
+
+extern "C" JNIEXPORT void JNICALL
+    Java_java_io_NativeFileChannel_seek(JNIEnv* e,
+                                        jclass,
+                                        jlong peer,
+                                        jlong position)
+{
+#ifdef PLATFORM_WINDOWS
+  if (_lseeki64(peer, position, SEEK_SET) == -1) {
+#else
+  if (::lseek(peer, position, SEEK_SET) == -1) {
+#endif
+    throwNewErrno(e, "java/io/IOException");
+  }
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_size(JNIEnv* e, jclass, jlong peer)
+{
+  return fileSize(e, peer);
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_socketPeer(JNIEnv* e,
+                                              jclass,
+                                              jobject channel)
+{
+  jfieldID field
+      = e->GetFieldID(e->GetObjectClass(channel), "socket", "I");
+  if (field == 0) {
+    return -1;
+  }
+  return e->GetIntField(channel, field);
+}
+
+// Copies up to count bytes starting at position in the file to the
+// target descriptor inside the kernel.  Returns the number of bytes
+// moved, which may be short if the target is a non-blocking socket, or
+// -1 if the system can't do this for the given pair of descriptors and
+// the caller should copy through a buffer instead.
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_sendFile(JNIEnv* e,
+                                            jclass,
+                                            jlong peer,
+                                            jlong position,
+                                            jlong count,
+                                            jlong targetPeer)
+{
+#ifdef __linux__
+  // Linux won't move more than this in one call anyway:
+  const jlong MaxChunk = 0x7ffff000;
+
+  off_t offset = position;
+  jlong total = 0;
+  while (total < count) {
+    jlong chunk = count - total < MaxChunk ? count - total : MaxChunk;
+    ssize_t r = ::sendfile(targetPeer, peer, &offset, chunk);
+    if (r > 0) {
+      total += r;
+    } else if (r == 0) {
+      break;
+    } else if (errno == EINTR) {
+      continue;
+    } else if (errno == EAGAIN) {
+      break;
+    } else if (total == 0 and (errno == EINVAL or errno == ENOSYS)) {
+      return -1;
+    } else {
+      throwNewErrno(e, "java/io/IOException");
+      return -1;
+    }
+  }
+  return total;
+#elif defined __APPLE__
+  // Darwin only supports sending a file to a socket
+  struct ::stat s;
+  if (::fstat(targetPeer, &s) == -1 or not S_ISSOCK(s.st_mode)) {
+    return -1;
+  }
+
+  jlong total = 0;
+  while (total < count) {
+    off_t length = count - total;
+    int r = ::sendfile(peer, targetPeer, position + total, &length, 0, 0);
+    // length holds the number of bytes sent even if r is -1:
+    total += length;
+    if (r == -1) {
+      if (errno == EINTR) {
+        continue;
+      } else if (errno == EAGAIN) {
+        break;
+      } else if (total == 0 and (errno == ENOTSOCK or errno == EOPNOTSUPP)) {
+        return -1;
+      } else {
+        throwNewErrno(e, "java/io/IOException");
+        return -1;
+      }
+    } else if (length == 0) {
+      break;
+    }
+  }
+  return total;
+#else
+  (void)e;
+  (void)peer;
+  (void)position;
+  (void)count;
+  (void)targetPeer;
+  return -1;
+#endif
+}
+
+extern "C" JNIEXPORT jobject JNICALL
+    Java_java_io_NativeFileChannel_map(JNIEnv* e,
+                                       jclass,
+                                       jlong peer,
+                                       jint mode,
+                                       jlong position,
+                                       jint size,
+                                       jboolean writable)
+{
+  jclass c = e->FindClass("java/nio/MappedByteBuffer");
+  if (c == 0) {
+    return 0;
+  }
+
+  jmethodID constructor = e->GetMethodID(c, "<init>", "(JJZJIZ)V");
+  if (constructor == 0) {
+    return 0;
+  }
+
+  jboolean shared = mode == MapReadWrite;
+  jboolean readOnly = mode == MapReadOnly;
+
+  if (size == 0) {
+    return e->NewObject(c,
+                        constructor,
+                        static_cast<jlong>(0),
+                        static_cast<jlong>(0),
+                        shared,
+                        static_cast<jlong>(0),
+                        static_cast<jint>(0),
+                        readOnly);
+  }
+
+  int fd = peer;
+  jlong length = fileSize(e, fd);
+  if (e->ExceptionCheck()) {
+    return 0;
+  }
+
+  if (length < position + size) {
+    if (not writable) {
+      throwNew(e,
+               "java/io/IOException",
+               "channel not open for writing - cannot extend file");
+      return 0;
+    }
+
+#ifdef PLATFORM_WINDOWS
+    if (_chsize_s(fd, position + size) != 0) {
+#else
+    if (::ftruncate(fd, position + size) == -1) {
+#endif
+      throwNewErrno(e, "java/io/IOException");
+      return 0;
+    }
+  }
+
+  // the offset passed to the system must be aligned to the mapping
+  // granularity, so we map a little extra at the front when needed
+#ifdef PLATFORM_WINDOWS
+  SYSTEM_INFO info;
+  GetSystemInfo(&info);
+  jlong granularity = info.dwAllocationGranularity;
+#else
+  jlong granularity = sysconf(_SC_PAGESIZE);
+#endif
+  jlong slop = position % granularity;
+  jlong base = position - slop;
+  jlong mapLength = size + slop;
+
+#ifdef PLATFORM_WINDOWS
+  DWORD protect;
+  DWORD access;
+  if (mode == MapReadOnly) {
+    protect = PAGE_READONLY;
+    access = FILE_MAP_READ;
+  } else if (mode == MapReadWrite) {
+    protect = PAGE_READWRITE;
+    access = FILE_MAP_WRITE;
+  } else {
+    protect = PAGE_WRITECOPY;
+    access = FILE_MAP_COPY;
+  }
+
+  jlong end = base + mapLength;
+  HANDLE mapping
+      = CreateFileMappingW(reinterpret_cast<HANDLE>(_get_osfhandle(fd)),
+                           0,
+                           protect,
+                           static_cast<DWORD>(end >> 32),
+                           static_cast<DWORD>(end),
+                           0);
+  if (mapping == 0) {
+    throwNew(e, "java/io/IOException", "CreateFileMapping failed");
+    return 0;
+  }
+
+  void* p = MapViewOfFile(mapping,
+                          access,
+                          static_cast<DWORD>(base >> 32),
+                          static_cast<DWORD>(base),
+                          mapLength);
+  // the view keeps the mapping object alive
+  CloseHandle(mapping);
+
+  if (p == 0) {
+    throwNew(e, "java/io/IOException", "MapViewOfFile failed");
+    return 0;
+  }
+#else
+  int protection = mode == MapReadOnly ? PROT_READ : PROT_READ | PROT_WRITE;
+  int flags = mode == MapReadWrite ? MAP_SHARED : MAP_PRIVATE;
+
+  void* p = mmap(0, mapLength, protection, flags, fd, base);
+  if (p == MAP_FAILED) {
+    throwNewErrno(e, "java/io/IOException");
+    return 0;
+  }
+#endif
+
+  jlong address = reinterpret_cast<jlong>(p);
+  jobject buffer = e->NewObject(
+      c, constructor, address, mapLength, shared, address + slop, size, readOnly);
+
+  if (buffer == 0) {
+#ifdef PLATFORM_WINDOWS
+    UnmapViewOfFile(p);
+#else
+    munmap(p, mapLength);
+#endif
+  }
+
+  return buffer;
+}
+
+#else  // WINAPI_FAMILY && !WINAPI_PARTITION_DESKTOP
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_readBytes(JNIEnv* e,
+                                             jclass,
+                                             jlong,
+                                             jlong,
+                                             jbyteArray,
+                                             jint,
+                                             jint)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return -1;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_readDirect(JNIEnv* e,
+                                              jclass,
+                                              jlong,
+                                              jlong,
+                                              jobject,
+                                              jint,
+                                              jint)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return -1;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_writeBytes(JNIEnv* e,
+                                              jclass,
+                                              jlong,
+                                              jlong,
+                                              jbyteArray,
+                                              jint,
+                                              jint)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return -1;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_io_NativeFileChannel_writeDirect(JNIEnv* e,
+                                               jclass,
+                                               jlong,
+                                               jlong,
+                                               jobject,
+                                               jint,
+                                               jint)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return -1;
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_tell(JNIEnv* e, jclass, jlong)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return -1;
+}
+
+extern "C" JNIEXPORT void JNICALL
+    Java_java_io_NativeFileChannel_seek(JNIEnv* e, jclass, jlong, jlong)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_size(JNIEnv* e, jclass, jlong)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return -1;
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_socketPeer(JNIEnv*, jclass, jobject)
+{
+  return -1;
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_io_NativeFileChannel_sendFile(JNIEnv*,
+                                            jclass,
+                                            jlong,
+                                            jlong,
+                                            jlong,
+                                            jlong)
+{
+  return -1;
+}
+
+extern "C" JNIEXPORT jobject JNICALL
+    Java_java_io_NativeFileChannel_map(JNIEnv* e,
+                                       jclass,
+                                       jlong,
+                                       jint,
+                                       jlong,
+                                       jint,
+                                       jboolean)
+{
+  throwNew(e, "java/lang/UnsupportedOperationException", 0);
+  return 0;
+}
+
+#endif  // WINAPI_FAMILY && !WINAPI_PARTITION_DESKTOP
@@ -31,11 +31,17 @@
 #include <errno.h>
 #include <netdb.h>
 #include <sys/select.h>
+#ifdef __linux__
+#include <sys/epoll.h>
+#define AVIAN_USE_EPOLL
+#endif
 #include <arpa/inet.h>
 #include <netinet/in.h>
 #include <netinet/ip.h>
 #include <netinet/tcp.h>
+#include <sys/mman.h>
 #include <sys/socket.h>
+#include <sys/uio.h>
 #endif
 
 #define java_nio_channels_SelectionKey_OP_READ 1L
@@ -688,6 +694,365 @@ extern "C" JNIEXPORT jint JNICALL
   return r;
 }
 
+namespace {
+
+// Direct buffers do not move, so unlike the array versions above we
+// can hand their memory straight to the system call without copying
+// or pinning anything, even for a blocking operation.
+uint8_t* directAddress(JNIEnv* e, jobject buffer, jint offset)
+{
+  uint8_t* address = static_cast<uint8_t*>(e->GetDirectBufferAddress(buffer));
+  if (address == 0) {
+    throwNew(e, "java/lang/IllegalArgumentException", "not a direct buffer");
+    return 0;
+  }
+  return address + offset;
+}
+
+jint readResult(JNIEnv* e, int r)
+{
+  if (r < 0) {
+    if (eagain()) {
+      return 0;
+    } else {
+      throwIOException(e);
+    }
+  } else if (r == 0) {
+    return -1;
+  }
+  return r;
+}
+
+jint writeResult(JNIEnv* e, int r)
+{
+  if (r < 0) {
+    if (eagain()) {
+      return 0;
+    } else {
+      throwIOException(e);
+    }
+  }
+  return r;
+}
+
+}  // namespace
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_nio_channels_SocketChannel_natReadDirect(JNIEnv* e,
+                                                       jclass,
+                                                       jint socket,
+                                                       jobject buffer,
+                                                       jint offset,
+                                                       jint length)
+{
+  uint8_t* buf = directAddress(e, buffer, offset);
+  if (buf == 0) {
+    return 0;
+  }
+
+  return readResult(e, ::doRead(socket, buf, length));
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_nio_channels_SocketChannel_natWriteDirect(JNIEnv* e,
+                                                        jclass,
+                                                        jint socket,
+                                                        jobject buffer,
+                                                        jint offset,
+                                                        jint length)
+{
+  uint8_t* buf = directAddress(e, buffer, offset);
+  if (buf == 0) {
+    return 0;
+  }
+
+  return writeResult(e, ::doWrite(socket, buf, length));
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_nio_channels_DatagramChannel_writeDirect(JNIEnv* e,
+                                                       jclass c,
+                                                       jint socket,
+                                                       jobject buffer,
+                                                       jint offset,
+                                                       jint length)
+{
+  return Java_java_nio_channels_SocketChannel_natWriteDirect(
+      e, c, socket, buffer, offset, length);
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_nio_channels_DatagramChannel_receiveDirect(JNIEnv* e,
+                                                         jclass,
+                                                         jint socket,
+                                                         jobject buffer,
+                                                         jint offset,
+                                                         jint length,
+                                                         jintArray address)
+{
+  uint8_t* buf = directAddress(e, buffer, offset);
+  if (buf == 0) {
+    return 0;
+  }
+
+  int32_t host;
+  int32_t port;
+  jint r = readResult(e, ::doRecv(socket, buf, length, &host, &port));
+  if (r > 0) {
+    jint jhost = host;
+    e->SetIntArrayRegion(address, 0, 1, &jhost);
+    jint jport = port;
+    e->SetIntArrayRegion(address, 1, 1, &jport);
+  }
+
+  return r;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_nio_channels_DatagramChannel_sendDirect(JNIEnv* e,
+                                                      jclass,
+                                                      jint socket,
+                                                      jint host,
+                                                      jint port,
+                                                      jobject buffer,
+                                                      jint offset,
+                                                      jint length)
+{
+  uint8_t* buf = directAddress(e, buffer, offset);
+  if (buf == 0) {
+    return 0;
+  }
+
+  sockaddr_in address;
+  init(&address, host, port);
+
+  return writeResult(e, ::doSend(socket, &address, buf, length));
+}
+
+namespace {
+
+// must match MaxIOVectors in SocketChannel.java, and be no more than
+// the smallest IOV_MAX we support
+const int MaxIOVectors = 64;
+
+#ifdef PLATFORM_WINDOWS
+typedef WSABUF IOVector;
+
+void setVector(IOVector* v, uint8_t* base, jint length)
+{
+  v->buf = reinterpret_cast<char*>(base);
+  v->len = length;
+}
+
+int doWritev(int fd, IOVector* vectors, int count)
+{
+  DWORD n;
+  int r = WSASend(fd, vectors, count, &n, 0, 0, 0);
+  return r == 0 ? static_cast<int>(n) : -1;
+}
+
+int doReadv(int fd, IOVector* vectors, int count)
+{
+  DWORD n;
+  DWORD flags = 0;
+  int r = WSARecv(fd, vectors, count, &n, &flags, 0, 0);
+  return r == 0 ? static_cast<int>(n) : -1;
+}
+#else
+typedef iovec IOVector;
+
+void setVector(IOVector* v, uint8_t* base, jint length)
+{
+  v->iov_base = base;
+  v->iov_len = length;
+}
+
+int doWritev(int fd, IOVector* vectors, int count)
+{
+  return ::writev(fd, vectors, count);
+}
+
+int doReadv(int fd, IOVector* vectors, int count)
+{
+  return ::readv(fd, vectors, count);
+}
+#endif
+
+// Builds a vector for readv/writev from a set of buffers, each of
+// which is either a Java byte array or a direct buffer.  Direct
+// buffers are used in place.  Byte arrays are pinned for a
+// non-blocking call, but staged through a native buffer for a
+// blocking one, since we must not hold up the garbage collector while
+// we wait.
+class IOVectorSet {
+ public:
+  IOVectorSet(JNIEnv* e, bool blocking)
+      : e(e), blocking(blocking), count(0), staging(0), pinned(false)
+  {
+  }
+
+  bool init(jobjectArray arrays,
+            jobjectArray directs,
+            jintArray offsetArray,
+            jintArray lengthArray,
+            jint count,
+            bool write)
+  {
+    if (count > MaxIOVectors) {
+      count = MaxIOVectors;
+    }
+    this->count = count;
+
+    e->GetIntArrayRegion(offsetArray, 0, count, offsets);
+    e->GetIntArrayRegion(lengthArray, 0, count, lengths);
+
+    unsigned stagingSize = 0;
+    for (int i = 0; i < count; ++i) {
+      this->arrays[i] = static_cast<jbyteArray>(
+          e->GetObjectArrayElement(arrays, i));
+      if (this->arrays[i] == 0) {
+        jobject direct = e->GetObjectArrayElement(directs, i);
+        addresses[i] = directAddress(e, direct, offsets[i]);
+        if (addresses[i] == 0) {
+          return false;
+        }
+      } else {
+        addresses[i] = 0;
+        stagingSize += lengths[i];
+      }
+    }
+
+    if (blocking and stagingSize) {
+      staging = static_cast<uint8_t*>(allocate(e, stagingSize));
+      if (staging == 0) {
+        return false;
+      }
+
+      uint8_t* p = staging;
+      for (int i = 0; i < count; ++i) {
+        if (this->arrays[i]) {
+          if (write) {
+            e->GetByteArrayRegion(this->arrays[i],
+                                  offsets[i],
+                                  lengths[i],
+                                  reinterpret_cast<jbyte*>(p));
+          }
+          addresses[i] = p;
+          p += lengths[i];
+        }
+      }
+    } else if (stagingSize) {
+      // no JNI calls other than the matching releases are allowed
+      // from here until release() is called
+      for (int i = 0; i < count; ++i) {
+        if (this->arrays[i]) {
+          addresses[i] = static_cast<uint8_t*>(
+                             e->GetPrimitiveArrayCritical(this->arrays[i], 0))
+                         + offsets[i];
+        }
+      }
+      pinned = true;
+    }
+
+    for (int i = 0; i < count; ++i) {
+      setVector(vectors + i, addresses[i], lengths[i]);
+    }
+
+    return true;
+  }
+
+  void release(int read)
+  {
+    if (pinned) {
+      for (int i = count - 1; i >= 0; --i) {
+        if (arrays[i]) {
+          e->ReleasePrimitiveArrayCritical(
+              arrays[i], addresses[i] - offsets[i], 0);
+        }
+      }
+      pinned = false;
+    }
+
+    if (staging) {
+      // copy whatever was read back into the arrays it was meant for
+      for (int i = 0; i < count and read > 0; ++i) {
+        int n = read < lengths[i] ? read : lengths[i];
+        if (arrays[i]) {
+          e->SetByteArrayRegion(
+              arrays[i], offsets[i], n, reinterpret_cast<jbyte*>(addresses[i]));
+        }
+        read -= n;
+      }
+
+      free(staging);
+      staging = 0;
+    }
+  }
+
+  JNIEnv* e;
+  bool blocking;
+  int count;
+  uint8_t* staging;
+  bool pinned;
+  jbyteArray arrays[MaxIOVectors];
+  uint8_t* addresses[MaxIOVectors];
+  jint offsets[MaxIOVectors];
+  jint lengths[MaxIOVectors];
+  IOVector vectors[MaxIOVectors];
+};
+
+}  // namespace
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_nio_channels_SocketChannel_natWritev(JNIEnv* e,
+                                                   jclass,
+                                                   jint socket,
+                                                   jobjectArray arrays,
+                                                   jobjectArray directs,
+                                                   jintArray offsets,
+                                                   jintArray lengths,
+                                                   jint count,
+                                                   jboolean blocking)
+{
+  IOVectorSet set(e, blocking);
+  if (not set.init(arrays, directs, offsets, lengths, count, true)) {
+    set.release(0);
+    return 0;
+  }
+
+  int r = doWritev(socket, set.vectors, set.count);
+  int error = errno;
+  set.release(0);
+  errno = error;
+
+  return writeResult(e, r);
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+    Java_java_nio_channels_SocketChannel_natReadv(JNIEnv* e,
+                                                  jclass,
+                                                  jint socket,
+                                                  jobjectArray arrays,
+                                                  jobjectArray directs,
+                                                  jintArray offsets,
+                                                  jintArray lengths,
+                                                  jint count,
+                                                  jboolean blocking)
+{
+  IOVectorSet set(e, blocking);
+  if (not set.init(arrays, directs, offsets, lengths, count, false)) {
+    set.release(0);
+    return 0;
+  }
+
+  int r = doReadv(socket, set.vectors, set.count);
+  int error = errno;
+  set.release(r);
+  errno = error;
+
+  return readResult(e, r);
+}
+
 extern "C" JNIEXPORT void JNICALL
     Java_java_nio_channels_SocketChannel_natThrowWriteError(JNIEnv* e,
                                                             jclass,
@@ -857,16 +1222,70 @@ class Pipe {
 #endif
 };
 
+// the most ready sockets reported by a single call to
+// natDoSocketSelect; any others will be reported by the next call
+const unsigned MaxReadyCount = 1024;
+
+// the operations which may be ready on a socket, before they are
+// masked with the key's interest set
+const jint ReadOps = java_nio_channels_SelectionKey_OP_READ
+                     | java_nio_channels_SelectionKey_OP_ACCEPT;
+const jint WriteOps = java_nio_channels_SelectionKey_OP_WRITE
+                      | java_nio_channels_SelectionKey_OP_CONNECT;
+
 struct SelectorState {
+#ifdef AVIAN_USE_EPOLL
+  int epoll;
+  epoll_event events[MaxReadyCount];
+#else
+  // the interest sets, updated incrementally as keys change
   fd_set read;
   fd_set write;
   fd_set except;
+  // the ready sets, copied from the above before each select
+  fd_set readyRead;
+  fd_set readyWrite;
+  fd_set readyExcept;
+  int max;
+#endif
+  jint ready[MaxReadyCount * 2];
   Pipe control;
   SelectorState(JNIEnv* e) : control(e)
   {
   }
 };
 
+#ifdef AVIAN_USE_EPOLL
+void epollControl(JNIEnv* e, SelectorState* s, int socket, jint interest)
+{
+  if (interest == 0) {
+    // the socket may never have been added, or may already have been
+    // closed, in which case the kernel will have dropped it for us
+    epoll_ctl(s->epoll, EPOLL_CTL_DEL, socket, 0);
+    return;
+  }
+
+  epoll_event event;
+  memset(&event, 0, sizeof(epoll_event));
+  if (interest & ReadOps) {
+    event.events |= EPOLLIN;
+  }
+  if (interest & WriteOps) {
+    event.events |= EPOLLOUT;
+  }
+  event.data.fd = socket;
+
+  int r = epoll_ctl(s->epoll, EPOLL_CTL_MOD, socket, &event);
+  if (r != 0 and errno == ENOENT) {
+    r = epoll_ctl(s->epoll, EPOLL_CTL_ADD, socket, &event);
+  }
+
+  if (r != 0) {
+    throwIOException(e);
+  }
+}
+#endif
+
 }  // namespace
 
 extern "C" JNIEXPORT jlong JNICALL
@@ -875,15 +1294,38 @@ extern "C" JNIEXPORT jlong JNICALL
   void* mem = malloc(sizeof(SelectorState));
   if (mem) {
     SelectorState* s = new (mem) SelectorState(e);
-    if (e->ExceptionCheck())
+    if (e->ExceptionCheck()) {
+      free(s);
       return 0;
+    }
 
-    if (s) {
-      FD_ZERO(&(s->read));
-      FD_ZERO(&(s->write));
-      FD_ZERO(&(s->except));
-      return reinterpret_cast<jlong>(s);
+#ifdef AVIAN_USE_EPOLL
+    s->epoll = epoll_create(MaxReadyCount);
+    if (s->epoll < 0) {
+      throwIOException(e);
+      s->control.dispose();
+      free(s);
+      return 0;
+    }
+
+    fcntl(s->epoll, F_SETFD, FD_CLOEXEC);
+
+    if (s->control.reader() >= 0) {
+      epollControl(e, s, s->control.reader(), ReadOps);
+      if (e->ExceptionCheck()) {
+        ::close(s->epoll);
+        s->control.dispose();
+        free(s);
+        return 0;
+      }
     }
+#else
+    FD_ZERO(&(s->read));
+    FD_ZERO(&(s->write));
+    FD_ZERO(&(s->except));
+    s->max = 0;
+#endif
+    return reinterpret_cast<jlong>(s);
   }
   throwNew(e, "java/lang/OutOfMemoryError", 0);
   return 0;
@@ -908,64 +1350,168 @@ extern "C" JNIEXPORT void JNICALL
     Java_java_nio_channels_SocketSelector_natClose(JNIEnv*, jclass, jlong state)
 {
   SelectorState* s = reinterpret_cast<SelectorState*>(state);
+#ifdef AVIAN_USE_EPOLL
+  ::close(s->epoll);
+#endif
   s->control.dispose();
   free(s);
 }
 
 extern "C" JNIEXPORT void JNICALL
-    Java_java_nio_channels_SocketSelector_natSelectClearAll(JNIEnv*,
-                                                            jclass,
-                                                            jint socket,
-                                                            jlong state)
+    Java_java_nio_channels_SocketSelector_natRemove(JNIEnv*,
+                                                    jclass,
+                                                    jlong state,
+                                                    jint socket)
 {
   SelectorState* s = reinterpret_cast<SelectorState*>(state);
+#ifdef AVIAN_USE_EPOLL
+  epoll_ctl(s->epoll, EPOLL_CTL_DEL, socket, 0);
+#else
+#ifndef PLATFORM_WINDOWS
+  if (socket < 0 or socket >= FD_SETSIZE) {
+    return;
+  }
+#endif
   FD_CLR(static_cast<unsigned>(socket), &(s->read));
   FD_CLR(static_cast<unsigned>(socket), &(s->write));
   FD_CLR(static_cast<unsigned>(socket), &(s->except));
+#endif
 }
 
-extern "C" JNIEXPORT jint JNICALL
-    Java_java_nio_channels_SocketSelector_natSelectUpdateInterestSet(
-        JNIEnv*,
-        jclass,
-        jint socket,
-        jint interest,
-        jlong state,
-        jint max)
+extern "C" JNIEXPORT void JNICALL
+    Java_java_nio_channels_SocketSelector_natUpdateInterest(JNIEnv* e,
+                                                            jclass,
+                                                            jlong state,
+                                                            jint socket,
+                                                            jint interest)
 {
   SelectorState* s = reinterpret_cast<SelectorState*>(state);
-  if (interest & (java_nio_channels_SelectionKey_OP_READ
-                  | java_nio_channels_SelectionKey_OP_ACCEPT)) {
+#ifdef AVIAN_USE_EPOLL
+  epollControl(e, s, socket, interest);
+#else
+#ifdef PLATFORM_WINDOWS
+  // a Windows fd_set is a list of up to FD_SETSIZE opaque handles, so
+  // what's limited is how many sockets it holds, not their values
+  if (((interest & ReadOps) and not FD_ISSET(socket, &(s->read))
+       and s->read.fd_count >= FD_SETSIZE)
+      or ((interest & WriteOps) and not FD_ISSET(socket, &(s->write))
+          and s->write.fd_count >= FD_SETSIZE)) {
+    throwIOException(e, "too many sockets registered for select");
+    return;
+  }
+#else
+  if (socket < 0 or socket >= FD_SETSIZE) {
+    throwIOException(e, "socket descriptor out of range for select");
+    return;
+  }
+#endif
+
+  if (interest & ReadOps) {
     FD_SET(static_cast<unsigned>(socket), &(s->read));
-    if (max < socket)
-      max = socket;
   } else {
     FD_CLR(static_cast<unsigned>(socket), &(s->read));
   }
 
-  if (interest & (java_nio_channels_SelectionKey_OP_WRITE
-                  | java_nio_channels_SelectionKey_OP_CONNECT)) {
+  if (interest & WriteOps) {
     FD_SET(static_cast<unsigned>(socket), &(s->write));
     FD_SET(static_cast<unsigned>(socket), &(s->except));
-    if (max < socket)
-      max = socket;
   } else {
     FD_CLR(static_cast<unsigned>(socket), &(s->write));
+    FD_CLR(static_cast<unsigned>(socket), &(s->except));
+  }
+
+  if ((interest & (ReadOps | WriteOps)) and s->max < socket) {
+    s->max = socket;
   }
-  return max;
+#endif
 }
 
+#ifdef AVIAN_USE_EPOLL
 extern "C" JNIEXPORT jint JNICALL
     Java_java_nio_channels_SocketSelector_natDoSocketSelect(JNIEnv* e,
                                                             jclass,
                                                             jlong state,
-                                                            jint max,
-                                                            jlong interval)
+                                                            jlong interval,
+                                                            jintArray ready)
 {
   SelectorState* s = reinterpret_cast<SelectorState*>(state);
+
+  int timeout;
+  if (interval > 0) {
+    timeout = interval > 0x7FFFFFFF ? 0x7FFFFFFF : static_cast<int>(interval);
+  } else if (interval < 0) {
+    timeout = 0;
+  } else {
+    timeout = -1;
+  }
+
+  int capacity = e->GetArrayLength(ready) / 2;
+  if (capacity > static_cast<int>(MaxReadyCount)) {
+    capacity = MaxReadyCount;
+  }
+
+  int r = epoll_wait(s->epoll, s->events, capacity, timeout);
+  if (r < 0) {
+    if (errno != EINTR) {
+      throwIOException(e);
+    }
+    return 0;
+  }
+
+  int count = 0;
+  for (int i = 0; i < r; ++i) {
+    int socket = s->events[i].data.fd;
+    uint32_t events = s->events[i].events;
+
+    if (socket == s->control.reader()) {
+      char c;
+      int n = 1;
+      while (n == 1) {
+        n = ::doRead(s->control.reader(), &c, 1);
+      }
+      if (n < 0 and not eagain()) {
+        throwIOException(e);
+        return 0;
+      }
+      continue;
+    }
+
+    jint ops = 0;
+    if (events & (EPOLLIN | EPOLLERR | EPOLLHUP)) {
+      ops |= ReadOps;
+    }
+    if (events & (EPOLLOUT | EPOLLERR | EPOLLHUP)) {
+      ops |= WriteOps;
+    }
+
+    s->ready[count * 2] = socket;
+    s->ready[(count * 2) + 1] = ops;
+    ++count;
+  }
+
+  if (count) {
+    e->SetIntArrayRegion(ready, 0, count * 2, s->ready);
+  }
+  return count;
+}
+#else
+extern "C" JNIEXPORT jint JNICALL
+    Java_java_nio_channels_SocketSelector_natDoSocketSelect(JNIEnv* e,
+                                                            jclass,
+                                                            jlong state,
+                                                            jlong interval,
+                                                            jintArray ready)
+{
+  SelectorState* s = reinterpret_cast<SelectorState*>(state);
+  int max = s->max;
+
+  s->readyRead = s->read;
+  s->readyWrite = s->write;
+  s->readyExcept = s->except;
+
   if (s->control.reader() >= 0) {
     int socket = s->control.reader();
-    FD_SET(static_cast<unsigned>(socket), &(s->read));
+    FD_SET(static_cast<unsigned>(socket), &(s->readyRead));
     if (max < socket)
       max = socket;
   }
@@ -973,15 +1519,15 @@ extern "C" JNIEXPORT jint JNICALL
 #ifdef PLATFORM_WINDOWS
   if (s->control.listener() >= 0) {
     int socket = s->control.listener();
-    FD_SET(static_cast<unsigned>(socket), &(s->read));
+    FD_SET(static_cast<unsigned>(socket), &(s->readyRead));
     if (max < socket)
       max = socket;
   }
 
   if (not s->control.connected()) {
     int socket = s->control.writer();
-    FD_SET(static_cast<unsigned>(socket), &(s->write));
-    FD_SET(static_cast<unsigned>(socket), &(s->except));
+    FD_SET(static_cast<unsigned>(socket), &(s->readyWrite));
+    FD_SET(static_cast<unsigned>(socket), &(s->readyExcept));
     if (max < socket)
       max = socket;
   }
@@ -998,21 +1544,22 @@ extern "C" JNIEXPORT jint JNICALL
     time.tv_sec = 24 * 60 * 60 * 1000;
     time.tv_usec = 0;
   }
-  int r = ::select(max + 1, &(s->read), &(s->write), &(s->except), &time);
+  int r = ::select(
+      max + 1, &(s->readyRead), &(s->readyWrite), &(s->readyExcept), &time);
 
   if (r < 0) {
     if (errno != EINTR) {
       throwIOException(e);
-      return 0;
     }
+    return 0;
   }
 
 #ifdef PLATFORM_WINDOWS
-  if (FD_ISSET(s->control.writer(), &(s->write))
-      or FD_ISSET(s->control.writer(), &(s->except))) {
+  if (FD_ISSET(s->control.writer(), &(s->readyWrite))
+      or FD_ISSET(s->control.writer(), &(s->readyExcept))) {
     int socket = s->control.writer();
-    FD_CLR(static_cast<unsigned>(socket), &(s->write));
-    FD_CLR(static_cast<unsigned>(socket), &(s->except));
+    FD_CLR(static_cast<unsigned>(socket), &(s->readyWrite));
+    FD_CLR(static_cast<unsigned>(socket), &(s->readyExcept));
 
     int error;
     socklen_t size = sizeof(int);
@@ -1027,16 +1574,17 @@ extern "C" JNIEXPORT jint JNICALL
   }
 
   if (s->control.listener() >= 0
-      and FD_ISSET(s->control.listener(), &(s->read))) {
-    FD_CLR(static_cast<unsigned>(s->control.listener()), &(s->read));
+      and FD_ISSET(s->control.listener(), &(s->readyRead))) {
+    FD_CLR(static_cast<unsigned>(s->control.listener()), &(s->readyRead));
 
     s->control.setReader(::doAccept(e, s->control.listener()));
     s->control.setListener(-1);
   }
 #endif
 
-  if (s->control.reader() >= 0 and FD_ISSET(s->control.reader(), &(s->read))) {
-    FD_CLR(static_cast<unsigned>(s->control.reader()), &(s->read));
+  if (s->control.reader() >= 0
+      and FD_ISSET(s->control.reader(), &(s->readyRead))) {
+    FD_CLR(static_cast<unsigned>(s->control.reader()), &(s->readyRead));
 
     char c;
     int r = 1;
@@ -1048,41 +1596,78 @@ extern "C" JNIEXPORT jint JNICALL
     }
   }
 
-  return r;
-}
+  int capacity = e->GetArrayLength(ready) / 2;
+  if (capacity > static_cast<int>(MaxReadyCount)) {
+    capacity = MaxReadyCount;
+  }
 
-extern "C" JNIEXPORT jint JNICALL
-    Java_java_nio_channels_SocketSelector_natUpdateReadySet(JNIEnv*,
-                                                            jclass,
-                                                            jint socket,
-                                                            jint interest,
-                                                            jlong state)
-{
-  SelectorState* s = reinterpret_cast<SelectorState*>(state);
-  jint ready = 0;
+  int count = 0;
+#ifdef PLATFORM_WINDOWS
+  // the ready sets list just the sockets which are ready, so visit
+  // those instead of scanning a range of handle values
+  if (r > 0) {
+    for (unsigned i = 0; i < s->readyRead.fd_count and count < capacity;
+         ++i) {
+      SOCKET socket = s->readyRead.fd_array[i];
+      jint ops = ReadOps;
+      if (FD_ISSET(socket, &(s->readyWrite))
+          or FD_ISSET(socket, &(s->readyExcept))) {
+        ops |= WriteOps;
+      }
 
-  if (FD_ISSET(socket, &(s->read))) {
-    if (interest & java_nio_channels_SelectionKey_OP_READ) {
-      ready |= java_nio_channels_SelectionKey_OP_READ;
+      s->ready[count * 2] = static_cast<jint>(socket);
+      s->ready[(count * 2) + 1] = ops;
+      ++count;
     }
 
-    if (interest & java_nio_channels_SelectionKey_OP_ACCEPT) {
-      ready |= java_nio_channels_SelectionKey_OP_ACCEPT;
+    for (unsigned i = 0; i < s->readyWrite.fd_count and count < capacity;
+         ++i) {
+      SOCKET socket = s->readyWrite.fd_array[i];
+      if (not FD_ISSET(socket, &(s->readyRead))) {
+        s->ready[count * 2] = static_cast<jint>(socket);
+        s->ready[(count * 2) + 1] = WriteOps;
+        ++count;
+      }
     }
-  }
 
-  if (FD_ISSET(socket, &(s->write)) or FD_ISSET(socket, &(s->except))) {
-    if (interest & java_nio_channels_SelectionKey_OP_WRITE) {
-      ready |= java_nio_channels_SelectionKey_OP_WRITE;
+    for (unsigned i = 0; i < s->readyExcept.fd_count and count < capacity;
+         ++i) {
+      SOCKET socket = s->readyExcept.fd_array[i];
+      if (not FD_ISSET(socket, &(s->readyRead))
+          and not FD_ISSET(socket, &(s->readyWrite))) {
+        s->ready[count * 2] = static_cast<jint>(socket);
+        s->ready[(count * 2) + 1] = WriteOps;
+        ++count;
+      }
     }
+  }
+#else
+  if (r > 0) {
+    for (int socket = 0; socket <= s->max and count < capacity; ++socket) {
+      jint ops = 0;
+      if (FD_ISSET(socket, &(s->readyRead))) {
+        ops |= ReadOps;
+      }
+      if (FD_ISSET(socket, &(s->readyWrite))
+          or FD_ISSET(socket, &(s->readyExcept))) {
+        ops |= WriteOps;
+      }
 
-    if (interest & java_nio_channels_SelectionKey_OP_CONNECT) {
-      ready |= java_nio_channels_SelectionKey_OP_CONNECT;
+      if (ops) {
+        s->ready[count * 2] = socket;
+        s->ready[(count * 2) + 1] = ops;
+        ++count;
+      }
     }
   }
+#endif
 
-  return ready;
+  if (count) {
+    e->SetIntArrayRegion(ready, 0, count * 2, s->ready);
+  }
+  return count;
 }
+#endif
 
 extern "C" JNIEXPORT jboolean JNICALL
     Java_java_nio_ByteOrder_isNativeBigEndian(JNIEnv*, jclass)
@@ -1096,3 +1681,108 @@ extern "C" JNIEXPORT jboolean JNICALL
     return JNI_TRUE;
   return JNI_FALSE;
 }
+
+namespace {
+
+jlong pageSize()
+{
+#ifdef PLATFORM_WINDOWS
+  SYSTEM_INFO info;
+  GetSystemInfo(&info);
+  return info.dwPageSize;
+#else
+  return sysconf(_SC_PAGESIZE);
+#endif
+}
+
+// msync, madvise and mincore all want a page-aligned start address,
+// but a mapped buffer (or a slice of one) may begin anywhere in a page
+void* pageStart(jlong address, jlong* length)
+{
+  jlong slop = address % pageSize();
+  *length += slop;
+  return reinterpret_cast<void*>(address - slop);
+}
+
+}  // namespace
+
+extern "C" JNIEXPORT void JNICALL
+    Java_java_nio_MappedByteBuffer_force(JNIEnv* e,
+                                         jclass,
+                                         jlong address,
+                                         jlong length)
+{
+  void* p = pageStart(address, &length);
+#ifdef PLATFORM_WINDOWS
+  if (not FlushViewOfFile(p, length)) {
+    throwNew(e, "java/io/IOException", "FlushViewOfFile failed");
+  }
+#else
+  if (msync(p, length, MS_SYNC) == -1) {
+    throwIOException(e);
+  }
+#endif
+}
+
+extern "C" JNIEXPORT void JNICALL
+    Java_java_nio_MappedByteBuffer_load(JNIEnv*,
+                                        jclass,
+                                        jlong address,
+                                        jlong length)
+{
+  void* p = pageStart(address, &length);
+#ifndef PLATFORM_WINDOWS
+  madvise(p, length, MADV_WILLNEED);
+#endif
+
+  // touch every page so they are all resident when we return
+  jlong size = pageSize();
+  volatile uint8_t sum = 0;
+  for (jlong i = 0; i < length; i += size) {
+    sum += static_cast<uint8_t*>(p)[i];
+  }
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+    Java_java_nio_MappedByteBuffer_isLoaded(JNIEnv*,
+                                            jclass,
+                                            jlong address,
+                                            jlong length)
+{
+#ifdef PLATFORM_WINDOWS
+  return false;
+#else
+  void* p = pageStart(address, &length);
+  jlong size = pageSize();
+  jlong count = (length + size - 1) / size;
+#ifdef __APPLE__
+  char* vector = static_cast<char*>(malloc(count));
+#else
+  unsigned char* vector = static_cast<unsigned char*>(malloc(count));
+#endif
+  if (vector == 0) {
+    return false;
+  }
+
+  bool loaded = mincore(p, length, vector) == 0;
+  for (jlong i = 0; loaded and i < count; ++i) {
+    loaded = (vector[i] & 1) != 0;
+  }
+
+  free(vector);
+  return loaded;
+#endif
+}
+
+extern "C" JNIEXPORT void JNICALL
+    Java_java_nio_MappedByteBuffer_unmap(JNIEnv*,
+                                         jclass,
+                                         jlong base,
+                                         jlong length)
+{
+#ifdef PLATFORM_WINDOWS
+  UnmapViewOfFile(reinterpret_cast<void*>(base));
+#else
+  munmap(reinterpret_cast<void*>(base), length);
+#endif
+}
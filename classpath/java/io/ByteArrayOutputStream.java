@@ -10,49 +10,70 @@
 
 package java.io;
 
+import java.nio.charset.Charset;
+
+/**
+ * Collects bytes written to it in a single array, which grows by
+ * doubling.
+ * <p>
+ * {@link #toByteArray} always returns a copy.  The only way to hand
+ * the bytes on without one is to subclass: as in the JDK, the array and
+ * the number of bytes written are available to subclasses as {@link
+ * #buf} and {@link #count}, which may pass them to e.g.
+ * ByteBuffer.wrap(buf, 0, count) or new String(buf, 0, count, charset).
+ * Outside a subclass, {@link #writeTo} sends the bytes on without
+ * copying them.
+ * </p>
+ */
 public class ByteArrayOutputStream extends OutputStream {
-  private static final int BufferSize = 32;
+  private static final int DefaultCapacity = 32;
 
-  private Cell firstCell;
-  private Cell curCell;
-  private int length;
-  private byte[] buffer;
-  private int position;
+  protected byte[] buf;
+  protected int count;
 
-  public ByteArrayOutputStream(int capacity) { }
+  public ByteArrayOutputStream(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("negative capacity: " + capacity);
+    }
+
+    buf = new byte[capacity];
+  }
 
   public ByteArrayOutputStream() {
-    this(0);
+    this(DefaultCapacity);
   }
 
   public void reset() {
-    firstCell = null;
-    curCell = null;
-    length = 0;
-    buffer = null;
-    position = 0;
+    count = 0;
   }
 
   public int size() {
-    return length;
+    return count;
   }
 
-  public void write(int c) {
-    if (buffer == null) {
-      buffer = new byte[BufferSize];
-    } else if (position >= buffer.length) {
-      flushBuffer();
-      buffer = new byte[BufferSize];
+  private void ensureCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new OutOfMemoryError();
     }
 
-    buffer[position++] = (byte) (c & 0xFF);
-    ++ length;
+    if (capacity > buf.length) {
+      int newCapacity = buf.length * 2;
+      if (newCapacity < capacity) {
+        newCapacity = capacity;
+      }
+
+      byte[] array = new byte[newCapacity];
+      System.arraycopy(buf, 0, array, 0, count);
+      buf = array;
+    }
   }
 
-  private byte[] copy(byte[] b, int offset, int length) {
-    byte[] array = new byte[length];
-    System.arraycopy(b, offset, array, 0, length);
-    return array;
+  public void write(int c) {
+    if (count == buf.length) {
+      ensureCapacity(count + 1);
+    }
+
+    buf[count++] = (byte) c;
   }
 
   public void write(byte[] b, int offset, int length) {
@@ -60,89 +81,39 @@ public class ByteArrayOutputStream extends OutputStream {
       throw new NullPointerException();
     }
 
-    if (offset < 0 || offset + length > b.length) {
+    if (offset < 0 || length < 0 || offset > b.length - length) {
       throw new ArrayIndexOutOfBoundsException();
     }
 
-    if (length == 0) return;
-
-    if (buffer != null && length <= buffer.length - position) {
-      System.arraycopy(b, offset, buffer, position, length);
-      position += length;
-    } else {
-      flushBuffer();
-      chainCell( new Cell(copy(b, offset, length), 0, length) );
-    }
-
-    this.length += length;
-  }
-  
-  private void chainCell(Cell cell){
-    if (curCell == null){
-      firstCell = cell;
-      curCell = cell;
-    }else{
-      curCell.next = cell;
-      curCell = cell;
-    }
-  }
-
-  private void flushBuffer() {
-    if (position > 0) {
-      byte[] b = buffer;
-      int p = position;
-      buffer = null;
-      position = 0;
-
-      chainCell( new Cell(b, 0, p) );
-    }    
+    ensureCapacity(count + length);
+    System.arraycopy(b, offset, buf, count, length);
+    count += length;
   }
 
   public byte[] toByteArray() {
-    flushBuffer();
-    
-    byte[] array = new byte[length];
-    int pos = 0;
-    for (Cell c = firstCell; c != null; c = c.next) {
-      System.arraycopy(c.array, c.offset, array, pos, c.length);
-      pos += c.length;
-    }
+    byte[] array = new byte[count];
+    System.arraycopy(buf, 0, array, 0, count);
     return array;
   }
-  
-  public synchronized void writeTo(OutputStream out) throws IOException {
-    if (length==0) return;
 
-    if (out == null){
+  public synchronized void writeTo(OutputStream out) throws IOException {
+    if (out == null) {
       throw new NullPointerException();
     }
 
-    flushBuffer();
-
-    for (Cell c = firstCell; c != null; c = c.next) {
-      out.write(c.array, c.offset, c.length);
-    }
+    out.write(buf, 0, count);
   }
-  
+
   @Override
   public String toString() {
-    return new String(toByteArray());
+    return new String(buf, 0, count);
   }
 
   public String toString(String encoding) throws UnsupportedEncodingException {
-    return new String(toByteArray(), encoding);
+    return new String(buf, 0, count, encoding);
   }
 
-  private static class Cell {
-    public byte[] array;
-    public int offset;
-    public int length;
-    public Cell next = null;
-
-    public Cell(byte[] array, int offset, int length) {
-      this.array = array;
-      this.offset = offset;
-      this.length = length;
-    }
+  public String toString(Charset charset) {
+    return new String(buf, 0, count, charset);
   }
 }
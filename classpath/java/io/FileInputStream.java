@@ -10,12 +10,15 @@
 
 package java.io;
 
+import java.nio.channels.FileChannel;
+
 public class FileInputStream extends InputStream {
   //   static {
   //     System.loadLibrary("natives");
   //   }
 
   private int fd;
+  private FileChannel channel;
   private int remaining;
 
   public FileInputStream(FileDescriptor fd) {
@@ -68,6 +71,17 @@ public class FileInputStream extends InputStream {
     return c;
   }
 
+  public synchronized FileChannel getChannel() {
+    if (channel == null) {
+      channel = new NativeFileChannel(this, true, false) {
+          long peer() {
+            return fd;
+          }
+        };
+    }
+    return channel;
+  }
+
   public void close() throws IOException {
     if (fd != -1) {
       close(fd);
@@ -10,12 +10,15 @@
 
 package java.io;
 
+import java.nio.channels.FileChannel;
+
 public class FileOutputStream extends OutputStream {
   //   static {
   //     System.loadLibrary("natives");
   //   }
 
   private int fd;
+  private FileChannel channel;
 
   public FileOutputStream(FileDescriptor fd) {
     this.fd = fd.value;
@@ -59,6 +62,17 @@ public class FileOutputStream extends OutputStream {
     write(fd, b, offset, length);
   }
 
+  public synchronized FileChannel getChannel() {
+    if (channel == null) {
+      channel = new NativeFileChannel(this, false, true) {
+          long peer() {
+            return fd;
+          }
+        };
+    }
+    return channel;
+  }
+
   public void close() throws IOException {
     if (fd != -1) {
       close(fd);
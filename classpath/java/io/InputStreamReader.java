@@ -10,79 +10,119 @@
 
 package java.io;
 
-import avian.Utf8;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 public class InputStreamReader extends Reader {
-  private static final int MultibytePadding = 4;
+  private static final int BufferSize = 8192;
 
   private final InputStream in;
+  private final CharsetDecoder decoder;
+  // bytes read from the stream but not yet decoded, ready to read
+  private final ByteBuffer buffer = ByteBuffer.allocate(BufferSize);
+  private boolean endOfInput;
+  // the second half of a surrogate pair which didn't fit in the
+  // caller's array, or -1 if there is none
+  private int pending = -1;
 
   public InputStreamReader(InputStream in) {
+    this(in, Charset.defaultCharset());
+  }
+
+  public InputStreamReader(InputStream in, String charsetName)
+    throws UnsupportedEncodingException
+  {
+    this(in, forName(charsetName));
+  }
+
+  public InputStreamReader(InputStream in, Charset charset) {
+    this(in, charset.newDecoder()
+         .onMalformedInput(CodingErrorAction.REPLACE)
+         .onUnmappableCharacter(CodingErrorAction.REPLACE));
+  }
+
+  public InputStreamReader(InputStream in, CharsetDecoder decoder) {
     this.in = in;
+    this.decoder = decoder;
+    buffer.limit(0);
   }
 
-  public InputStreamReader(InputStream in, String encoding)
+  private static Charset forName(String name)
     throws UnsupportedEncodingException
   {
-    this(in);
+    if (name == null) {
+      throw new NullPointerException("charsetName");
+    }
+
+    try {
+      return Charset.forName(name);
+    } catch (IllegalArgumentException e) {
+      throw new UnsupportedEncodingException(name);
+    }
+  }
 
-    if (! encoding.equals("UTF-8")) {
-      throw new UnsupportedEncodingException(encoding);
-    }    
+  public String getEncoding() {
+    return decoder.charset().name();
   }
-  
+
   public int read(char[] b, int offset, int length) throws IOException {
     if (length == 0) {
       return 0;
     }
 
-    byte[] buffer = new byte[length + MultibytePadding];
-    int bufferLength = length;
-    int bufferOffset = 0;
-    while (true) {
-      int c = in.read(buffer, bufferOffset, bufferLength);
-
-      if (c <= 0) {
-        if (bufferOffset > 0) {
-          // if we've reached the end of the stream while trying to
-          // read a multibyte character, we still need to return any
-          // competely-decoded characters, plus \ufffd to indicate an
-          // unknown character
-          c = 1;
-          while (bufferOffset > 0) {
-            char[] buffer16 = Utf8.decode16(buffer, 0, bufferOffset);
-
-            if (buffer16 != null) {
-              System.arraycopy(buffer16, 0, b, offset, buffer16.length);
-              
-              c = buffer16.length + 1;
-              break;
-            } else {
-              -- bufferOffset;
-            }
-          }
-
-          b[offset + c - 1] = '\ufffd';
-        }
+    if (pending >= 0) {
+      b[offset] = (char) pending;
+      pending = -1;
+      return 1;
+    }
 
-        return c;
+    CharBuffer out = CharBuffer.wrap(b, offset, length);
+    while (true) {
+      CoderResult result = decoder.decode(buffer, out, endOfInput);
+      if (result.isError()) {
+        result.throwException();
       }
 
-      bufferOffset += c;
+      if (out.position() > 0) {
+        return out.position();
+      }
 
-      char[] buffer16 = Utf8.decode16(buffer, 0, bufferOffset);
+      if (result.isOverflow()) {
+        // the caller has room for one character, but the next is a
+        // surrogate pair, so we decode it elsewhere and split it
+        CharBuffer pair = CharBuffer.allocate(2);
+        result = decoder.decode(buffer, pair, endOfInput);
+        if (result.isError()) {
+          result.throwException();
+        }
 
-      if (buffer16 != null) {
-        bufferOffset = 0;
+        b[offset] = pair.get(0);
+        if (pair.position() > 1) {
+          pending = pair.get(1);
+        }
+        return 1;
+      }
 
-        System.arraycopy(buffer16, 0, b, offset, buffer16.length);
+      if (endOfInput) {
+        decoder.flush(out);
+        return out.position() > 0 ? out.position() : -1;
+      }
 
-        return buffer16.length;
+      // keep any incomplete sequence at the end of the buffer and fill
+      // the rest from the stream
+      buffer.compact();
+      int c = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                      buffer.remaining());
+      if (c < 0) {
+        endOfInput = true;
       } else {
-        // the buffer ended in an incomplete multibyte character, so
-        // we try to read a another byte at a time until it's complete
-        bufferLength = 1;
+        buffer.position(buffer.position() + c);
       }
+      buffer.flip();
     }
   }
 
@@ -0,0 +1,304 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.io;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A FileChannel over a native file descriptor.  Relative reads and
+ * writes use the descriptor's own offset, so they stay consistent
+ * with the stream the channel was obtained from.  Direct buffers
+ * (including mapped ones) are read into and written from in place.
+ */
+abstract class NativeFileChannel extends FileChannel {
+  // must match the constants in java-io.cpp
+  private static final int MapReadOnly = 0;
+  private static final int MapReadWrite = 1;
+  private static final int MapPrivate = 2;
+
+  // largest buffer used when we must copy through user space
+  private static final int MaxTransferBufferSize = 64 * 1024;
+
+  private final Closeable owner;
+  private final boolean readable;
+  private final boolean writable;
+
+  public NativeFileChannel(Closeable owner, boolean readable, boolean writable)
+  {
+    this.owner = owner;
+    this.readable = readable;
+    this.writable = writable;
+  }
+
+  /**
+   * Returns the descriptor, or -1 if the owning stream or file has
+   * been closed.
+   */
+  abstract long peer();
+
+  long checkReadable() throws IOException {
+    long peer = checkOpen();
+    if (! readable) throw new NonReadableChannelException();
+    return peer;
+  }
+
+  long checkWritable() throws IOException {
+    long peer = checkOpen();
+    if (! writable) throw new NonWritableChannelException();
+    return peer;
+  }
+
+  /**
+   * Returns the descriptor to hand to sendfile when this channel is
+   * the target of a transfer, or -1 if relative writes to this channel
+   * don't go through the descriptor's offset.
+   */
+  long sendFilePeer() throws IOException {
+    return checkWritable();
+  }
+
+  private long checkOpen() throws IOException {
+    long peer = peer();
+    if (peer == -1) throw new ClosedChannelException();
+    return peer;
+  }
+
+  public boolean isOpen() {
+    return peer() != -1;
+  }
+
+  public void close() throws IOException {
+    owner.close();
+  }
+
+  public int read(ByteBuffer dst) throws IOException {
+    return read(checkReadable(), dst, -1);
+  }
+
+  public int read(ByteBuffer dst, long position) throws IOException {
+    if (position < 0) throw new IllegalArgumentException();
+
+    return read(checkReadable(), dst, position);
+  }
+
+  static int read(long peer, ByteBuffer dst, long position)
+    throws IOException
+  {
+    if (dst.isReadOnly()) throw new ReadOnlyBufferException();
+    if (dst.remaining() == 0) return 0;
+
+    int r;
+    if (dst.isDirect()) {
+      r = readDirect(peer, position, dst, dst.position(), dst.remaining());
+    } else {
+      r = readBytes(peer, position, dst.array(),
+                    dst.arrayOffset() + dst.position(), dst.remaining());
+    }
+    if (r > 0) {
+      dst.position(dst.position() + r);
+    }
+    return r;
+  }
+
+  public int write(ByteBuffer src) throws IOException {
+    return write(checkWritable(), src, -1);
+  }
+
+  public int write(ByteBuffer src, long position) throws IOException {
+    if (position < 0) throw new IllegalArgumentException();
+
+    return write(checkWritable(), src, position);
+  }
+
+  static int write(long peer, ByteBuffer src, long position)
+    throws IOException
+  {
+    if (src.remaining() == 0) return 0;
+
+    int w;
+    if (src.isDirect()) {
+      w = writeDirect(peer, position, src, src.position(), src.remaining());
+    } else {
+      w = writeBytes(peer, position, src.array(),
+                     src.arrayOffset() + src.position(), src.remaining());
+    }
+    if (w > 0) {
+      src.position(src.position() + w);
+    }
+    return w;
+  }
+
+  public long position() throws IOException {
+    return tell(checkOpen());
+  }
+
+  public FileChannel position(long position) throws IOException {
+    if (position < 0) throw new IllegalArgumentException();
+
+    seek(checkOpen(), position);
+    return this;
+  }
+
+  public long size() throws IOException {
+    return size(checkOpen());
+  }
+
+  public long transferTo(long position, long count,
+                         WritableByteChannel target)
+    throws IOException
+  {
+    if (position < 0 || count < 0) throw new IllegalArgumentException();
+
+    long peer = checkReadable();
+    if (! target.isOpen()) throw new ClosedChannelException();
+
+    long size = size(peer);
+    if (position >= size || count == 0) return 0;
+    if (count > size - position) count = size - position;
+
+    long targetPeer = -1;
+    if (target instanceof SocketChannel) {
+      targetPeer = socketPeer((SocketChannel) target);
+    } else if (target instanceof NativeFileChannel) {
+      targetPeer = ((NativeFileChannel) target).sendFilePeer();
+    }
+
+    if (targetPeer != -1) {
+      // let the kernel move the data if it can; -1 means it can't for
+      // this pair of descriptors, in which case we copy it ourselves
+      long n = sendFile(peer, position, count, targetPeer);
+      if (n >= 0) return n;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect
+      ((int) Math.min(count, MaxTransferBufferSize));
+    long total = 0;
+    while (total < count) {
+      buffer.clear();
+      if (count - total < buffer.capacity()) {
+        buffer.limit((int) (count - total));
+      }
+
+      int r = read(peer, buffer, position + total);
+      if (r <= 0) break;
+
+      buffer.flip();
+      int w = target.write(buffer);
+      if (w > 0) total += w;
+
+      // a non-blocking target may not take everything; since we read
+      // by position, whatever is left over simply goes uncounted
+      if (buffer.hasRemaining()) break;
+    }
+    return total;
+  }
+
+  public long transferFrom(ReadableByteChannel src, long position,
+                           long count)
+    throws IOException
+  {
+    if (position < 0 || count < 0) throw new IllegalArgumentException();
+
+    long peer = checkWritable();
+    if (! src.isOpen()) throw new ClosedChannelException();
+
+    if (position > size(peer) || count == 0) return 0;
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect
+      ((int) Math.min(count, MaxTransferBufferSize));
+    long total = 0;
+    while (total < count) {
+      buffer.clear();
+      if (count - total < buffer.capacity()) {
+        buffer.limit((int) (count - total));
+      }
+
+      int r = src.read(buffer);
+      if (r <= 0) break;
+
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        total += write(peer, buffer, position + total);
+      }
+    }
+    return total;
+  }
+
+  public MappedByteBuffer map(MapMode mode, long position, long size)
+    throws IOException
+  {
+    if (position < 0 || size < 0 || size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException();
+    }
+
+    long peer = checkReadable();
+
+    int m;
+    if (mode == MapMode.READ_ONLY) {
+      m = MapReadOnly;
+    } else if (mode == MapMode.READ_WRITE) {
+      checkWritable();
+      m = MapReadWrite;
+    } else if (mode == MapMode.PRIVATE) {
+      checkWritable();
+      m = MapPrivate;
+    } else {
+      throw new NullPointerException();
+    }
+
+    return map(peer, m, position, (int) size, writable);
+  }
+
+  private static native int readBytes(long peer, long position, byte[] buffer,
+                                      int offset, int length)
+    throws IOException;
+
+  private static native int readDirect(long peer, long position,
+                                       ByteBuffer buffer, int offset,
+                                       int length)
+    throws IOException;
+
+  private static native int writeBytes(long peer, long position,
+                                       byte[] buffer, int offset, int length)
+    throws IOException;
+
+  private static native int writeDirect(long peer, long position,
+                                        ByteBuffer buffer, int offset,
+                                        int length)
+    throws IOException;
+
+  private static native long tell(long peer) throws IOException;
+
+  private static native void seek(long peer, long position)
+    throws IOException;
+
+  private static native long size(long peer) throws IOException;
+
+  private static native long socketPeer(SocketChannel channel);
+
+  private static native long sendFile(long peer, long position, long count,
+                                      long targetPeer)
+    throws IOException;
+
+  private static native MappedByteBuffer map(long peer, int mode,
+                                             long position, int size,
+                                             boolean writable)
+    throws IOException;
+}
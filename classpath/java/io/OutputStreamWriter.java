@@ -10,24 +10,143 @@
 
 package java.io;
 
-import avian.Utf8;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 public class OutputStreamWriter extends Writer {
+  private static final int BufferSize = 8192;
+  private static final int StringChunkSize = 1024;
+
   private final OutputStream out;
+  private final CharsetEncoder encoder;
+  // encoded bytes, which are written to the stream before each write
+  // returns
+  private final ByteBuffer buffer = ByteBuffer.allocate(BufferSize);
+  // a high surrogate which ended the last write and awaits its low
+  // surrogate
+  private char high;
+  private boolean hasHigh;
+  private char[] chunk;
 
   public OutputStreamWriter(OutputStream out) {
+    this(out, Charset.defaultCharset());
+  }
+
+  public OutputStreamWriter(OutputStream out, String charsetName)
+    throws UnsupportedEncodingException
+  {
+    this(out, forName(charsetName));
+  }
+
+  public OutputStreamWriter(OutputStream out, Charset charset) {
+    this(out, charset.newEncoder()
+         .onMalformedInput(CodingErrorAction.REPLACE)
+         .onUnmappableCharacter(CodingErrorAction.REPLACE));
+  }
+
+  public OutputStreamWriter(OutputStream out, CharsetEncoder encoder) {
     this.out = out;
+    this.encoder = encoder;
+  }
+
+  private static Charset forName(String name)
+    throws UnsupportedEncodingException
+  {
+    if (name == null) {
+      throw new NullPointerException("charsetName");
+    }
+
+    try {
+      return Charset.forName(name);
+    } catch (IllegalArgumentException e) {
+      throw new UnsupportedEncodingException(name);
+    }
+  }
+
+  public String getEncoding() {
+    return encoder.charset().name();
   }
-  
+
   public void write(char[] b, int offset, int length) throws IOException {
-    out.write(Utf8.encode(b, offset, length));
+    if (length == 0) {
+      return;
+    }
+
+    if (hasHigh) {
+      hasHigh = false;
+      encode(CharBuffer.wrap(new char[] { high, b[offset] }), false);
+      ++ offset;
+      -- length;
+    }
+
+    encode(CharBuffer.wrap(b, offset, length), false);
+    drain();
+  }
+
+  public void write(String s, int offset, int length) throws IOException {
+    if (chunk == null) {
+      chunk = new char[StringChunkSize];
+    }
+
+    while (length > 0) {
+      int n = Math.min(length, chunk.length);
+      s.getChars(offset, offset + n, chunk, 0);
+      write(chunk, 0, n);
+      offset += n;
+      length -= n;
+    }
+  }
+
+  public void write(String s) throws IOException {
+    write(s, 0, s.length());
+  }
+
+  private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+    while (true) {
+      CoderResult result = encoder.encode(in, buffer, endOfInput);
+      if (result.isError()) {
+        result.throwException();
+      } else if (result.isOverflow()) {
+        drain();
+      } else {
+        // anything left over is a high surrogate whose low surrogate
+        // has yet to be written
+        if (in.hasRemaining()) {
+          high = in.get();
+          hasHigh = true;
+        }
+        return;
+      }
+    }
+  }
+
+  private void drain() throws IOException {
+    if (buffer.position() > 0) {
+      out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+      buffer.clear();
+    }
   }
 
   public void flush() throws IOException {
+    drain();
     out.flush();
   }
 
   public void close() throws IOException {
+    // a high surrogate with nothing after it is malformed, which the
+    // encoder reports or replaces as configured
+    CharBuffer in = hasHigh
+      ? CharBuffer.wrap(new char[] { high }) : CharBuffer.allocate(0);
+    hasHigh = false;
+    encode(in, true);
+    while (encoder.flush(buffer).isOverflow()) {
+      drain();
+    }
+    drain();
     out.close();
   }
 }
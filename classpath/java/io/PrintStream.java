@@ -10,9 +10,16 @@
 
 package java.io;
 
+import java.nio.charset.StandardCharsets;
+
 public class PrintStream extends OutputStream {
   private final OutputStream out;
   private final boolean autoFlush;
+  // encodes text in a charset other than the default, or null if the
+  // default is used, in which case we write String.getBytes directly
+  private final OutputStreamWriter writer;
+  // scratch space for printing numbers without building Strings
+  private byte[] digits;
 
   private static class Static {
     private static final byte[] newline
@@ -22,6 +29,7 @@ public class PrintStream extends OutputStream {
   public PrintStream(OutputStream out, boolean autoFlush) {
     this.out = out;
     this.autoFlush = autoFlush;
+    this.writer = null;
   }
 
   public PrintStream(OutputStream out, boolean autoFlush, String encoding)
@@ -30,9 +38,9 @@ public class PrintStream extends OutputStream {
     this.out = out;
     this.autoFlush = autoFlush;
 
-    if (! (encoding.equals("UTF-8") || encoding.equals("ISO-8859-1"))) {
-      throw new UnsupportedEncodingException(encoding);
-    }
+    OutputStreamWriter writer = new OutputStreamWriter(out, encoding);
+    this.writer = writer.getEncoding().equals
+      (StandardCharsets.UTF_8.name()) ? null : writer;
   }
 
   public PrintStream(OutputStream out) {
@@ -41,7 +49,7 @@ public class PrintStream extends OutputStream {
 
   public synchronized void print(String s) {
     try {
-      out.write(s.getBytes());
+      writeString(s);
       if (autoFlush) flush();
     } catch (IOException e) { }
   }
@@ -59,25 +67,60 @@ public class PrintStream extends OutputStream {
   }
 
   public void print(int v) {
-    print(String.valueOf(v));
+    print((long) v);
   }
 
-  public void print(long v) {
-    print(String.valueOf(v));
+  public synchronized void print(long v) {
+    writeDigits(avian.Numbers.appendTo(v, digits(), 0), false);
   }
 
-  public void print(float v) {
-    print(String.valueOf(v));
+  public synchronized void print(float v) {
+    writeDigits(avian.Numbers.appendTo(v, digits(), 0), false);
   }
 
-  public void print(double v) {
-    print(String.valueOf(v));
+  public synchronized void print(double v) {
+    writeDigits(avian.Numbers.appendTo(v, digits(), 0), false);
   }
 
   public void print(char[] s) {
     print(String.valueOf(s));
   }
 
+  private byte[] digits() {
+    if (digits == null) {
+      digits = new byte[avian.Numbers.MaxDoubleLength];
+    }
+    return digits;
+  }
+
+  private void writeDigits(int length, boolean newline) {
+    try {
+      if (writer == null) {
+        out.write(digits, 0, length);
+      } else {
+        writeString(new String(digits, 0, length, false));
+      }
+      if (newline) writeNewline();
+      if (autoFlush) flush();
+    } catch (IOException e) { }
+  }
+
+  private void writeString(String s) throws IOException {
+    if (writer == null) {
+      out.write(s.getBytes());
+    } else {
+      writer.write(s);
+    }
+  }
+
+  private void writeNewline() throws IOException {
+    if (writer == null) {
+      out.write(Static.newline);
+    } else {
+      writer.write(System.getProperty("line.separator"));
+    }
+  }
+
   public synchronized void printf(java.util.Locale locale, String format, Object... args) {
     // should this be cached in an instance variable??
     final java.util.Formatter formatter = new java.util.Formatter(this);
@@ -99,15 +142,15 @@ public class PrintStream extends OutputStream {
 
   public synchronized void println(String s) {
     try {
-      out.write(s.getBytes());    
-      out.write(Static.newline);
+      writeString(s);
+      writeNewline();
       if (autoFlush) flush();
     } catch (IOException e) { }
   }
 
   public synchronized void println() {
     try {
-      out.write(Static.newline);
+      writeNewline();
       if (autoFlush) flush();
     } catch (IOException e) { }
   }
@@ -125,19 +168,19 @@ public class PrintStream extends OutputStream {
   }
 
   public void println(int v) {
-    println(String.valueOf(v));
+    println((long) v);
   }
 
-  public void println(long v) {
-    println(String.valueOf(v));
+  public synchronized void println(long v) {
+    writeDigits(avian.Numbers.appendTo(v, digits(), 0), true);
   }
 
-  public void println(float v) {
-    println(String.valueOf(v));
+  public synchronized void println(float v) {
+    writeDigits(avian.Numbers.appendTo(v, digits(), 0), true);
   }
 
-  public void println(double v) {
-    println(String.valueOf(v));
+  public synchronized void println(double v) {
+    writeDigits(avian.Numbers.appendTo(v, digits(), 0), true);
   }
 
   public void println(char[] s) {
@@ -162,7 +205,11 @@ public class PrintStream extends OutputStream {
 
   public void close() {
     try {
-      out.close();
+      if (writer == null) {
+        out.close();
+      } else {
+        writer.close();
+      }
     } catch (IOException e) { }
   }
 }
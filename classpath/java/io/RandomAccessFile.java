@@ -14,7 +14,7 @@ import java.lang.IllegalArgumentException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
-public class RandomAccessFile {
+public class RandomAccessFile implements Closeable {
   private long peer;
   private File file;
   private long position = 0;
@@ -151,36 +151,24 @@ public class RandomAccessFile {
   private static native void close(long peer);
 
   public FileChannel getChannel() {
-    return new FileChannel() {
-      public void close() {
-        if (peer != 0) RandomAccessFile.close(peer);
+    return new NativeFileChannel(this, true, allowWrite) {
+      long peer() {
+        return peer == 0 ? -1 : peer;
       }
 
-      public boolean isOpen() {
-        return peer != 0;
-      }
-
-      public int read(ByteBuffer dst, long position) throws IOException {
-        if (!dst.hasArray()) throw new IOException("Cannot handle " + dst.getClass());
-	// TODO: this needs to be synchronized on the Buffer, no?
-        byte[] array = dst.array();
-        return readBytes(peer, position, array, dst.position(), dst.remaining());
+      long sendFilePeer() throws IOException {
+        checkWritable();
+        return -1;
       }
 
       public int read(ByteBuffer dst) throws IOException {
-        int count = read(dst, position);
+        int count = read(checkReadable(), dst, position);
         if (count > 0) position += count;
         return count;
       }
 
-      public int write(ByteBuffer src, long position) throws IOException {
-        if (!src.hasArray()) throw new IOException("Cannot handle " + src.getClass());
-        byte[] array = src.array();
-        return writeBytes(peer, position, array, src.position(), src.remaining());
-      }
-
       public int write(ByteBuffer src) throws IOException {
-        int count = write(src, position);
+        int count = write(checkWritable(), src, position);
         if (count > 0) position += count;
         return count;
       }
@@ -190,13 +178,9 @@ public class RandomAccessFile {
       }
 
       public FileChannel position(long position) throws IOException {
-        seek(position);
+        RandomAccessFile.this.seek(position);
         return this;
       }
-
-      public long size() throws IOException {
-        return length();
-      }
     };
   }
 }
@@ -23,7 +23,7 @@ public final class Byte extends Number implements Comparable<Byte> {
   }
 
   public static Byte valueOf(byte value) {
-    return new Byte(value);
+    return Cache.values[value - Cache.Low];
   }
 
   public boolean equals(Object o) {
@@ -51,7 +51,7 @@ public final class Byte extends Number implements Comparable<Byte> {
   }
 
   public static byte parseByte(String s) {
-    return (byte) Integer.parseInt(s);
+    return (byte) avian.Numbers.parseLong(s, 10, MIN_VALUE, MAX_VALUE);
   }
 
   public byte byteValue() {
@@ -77,4 +77,18 @@ public final class Byte extends Number implements Comparable<Byte> {
   public double doubleValue() {
     return (double) value;
   }
+
+  // boxes for every value, shared so that boxing doesn't allocate
+  private static class Cache {
+    public static final int Low = -128;
+    public static final int High = 127;
+
+    public static final Byte[] values = new Byte[High - Low + 1];
+
+    static {
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = new Byte((byte) (i + Low));
+      }
+    }
+  }
 }
@@ -23,7 +23,11 @@ public final class Character implements Comparable<Character> {
   }
 
   public static Character valueOf(char value) {
-    return new Character(value);
+    if (value <= Cache.High) {
+      return Cache.values[value - Cache.Low];
+    } else {
+      return new Character(value);
+    }
   }
 
   public int compareTo(Character o) {
@@ -46,6 +50,10 @@ public final class Character implements Comparable<Character> {
     return new String(new char[] { v });
   }
 
+  public static char reverseBytes(char v) {
+    return (char) ((v << 8) | (v >> 8));
+  }
+
   public char charValue() {
     return value;
   }
@@ -170,6 +178,10 @@ public final class Character implements Comparable<Character> {
     return ch >= '\uDC00' && ch <= '\uDFFF';
   }
 
+  public static boolean isSurrogate(char ch) {
+    return ch >= '\uD800' && ch <= '\uDFFF';
+  }
+
   public static boolean isISOControl(char ch) {
    return ch <= '\u001F' || (ch >= '\u007F' && ch <= '\u009F');
   }
@@ -255,4 +267,18 @@ public final class Character implements Comparable<Character> {
     }
     return count;
   }
+
+  // boxes for small values, shared so that boxing them doesn't allocate
+  private static class Cache {
+    public static final int Low = 0;
+    public static final int High = 127;
+
+    public static final Character[] values = new Character[High - Low + 1];
+
+    static {
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = new Character((char) (i + Low));
+      }
+    }
+  }
 }
@@ -52,9 +52,7 @@ public final class Double extends Number {
   }
 
   public static String toString(double v) {
-    byte[] buffer = new byte[20];
-    int numChars = fillBufferWithDouble(v, buffer, 20);
-    return new String(buffer, 0, numChars, false);
+    return avian.Numbers.toString(v);
   }
 
   public byte byteValue() {
@@ -90,6 +88,12 @@ public final class Double extends Number {
   }
 
   public static double parseDouble(String s) {
+    double simple = avian.Numbers.parseSimpleDouble(s);
+    // NaN here means the string needs the general parser
+    if (simple == simple) {
+      return simple;
+    }
+
     int[] numRead = new int[1];
     double d = doubleFromString(s, numRead);
     if (numRead[0] == 1) {
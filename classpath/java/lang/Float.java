@@ -53,7 +53,7 @@ public final class Float extends Number {
   }
 
   public static String toString(float v) {
-    return Double.toString(v);
+    return avian.Numbers.toString(v);
   }
 
   public byte byteValue() {
@@ -89,6 +89,12 @@ public final class Float extends Number {
   }
 
   public static float parseFloat(String s) {
+    float simple = avian.Numbers.parseSimpleFloat(s);
+    // NaN here means the string needs the general parser
+    if (simple == simple) {
+      return simple;
+    }
+
     int[] numRead = new int[1];
     float f = floatFromString(s, numRead);
     if (numRead[0] == 1) {
@@ -27,7 +27,11 @@ public final class Integer extends Number implements Comparable<Integer> {
   }
 
   public static Integer valueOf(int value) {
-    return new Integer(value);
+    if (value >= Cache.Low && value <= Cache.High) {
+      return Cache.values[value - Cache.Low];
+    } else {
+      return new Integer(value);
+    }
   }
 
   public static Integer valueOf(String value) {
@@ -55,19 +59,19 @@ public final class Integer extends Number implements Comparable<Integer> {
   }
 
   public static String toString(int v) {
-    return toString(v, 10);
+    return avian.Numbers.toString(v);
   }
 
   public static String toHexString(int v) {
-    return Long.toString(((long) v) & 0xFFFFFFFFL, 16);
+    return avian.Numbers.toUnsignedString(((long) v) & 0xFFFFFFFFL, 4);
   }
 
   public static String toOctalString(int v) {
-    return Long.toString(((long) v) & 0xFFFFFFFFL, 8);
+    return avian.Numbers.toUnsignedString(((long) v) & 0xFFFFFFFFL, 3);
   }
 
   public static String toBinaryString(int v) {
-    return Long.toString(((long) v) & 0xFFFFFFFFL, 2);
+    return avian.Numbers.toUnsignedString(((long) v) & 0xFFFFFFFFL, 1);
   }
 
   public byte byteValue() {
@@ -110,7 +114,7 @@ public final class Integer extends Number implements Comparable<Integer> {
   public static int reverseBytes(int v) {
     int byte3 =  v >>> 24;
     int byte2 = (v >>> 8) & 0xFF00;
-    int byte1 = (v <<  8) & 0xFF00;
+    int byte1 = (v <<  8) & 0xFF0000;
     int byte0 =  v << 24;
     return (byte0 | byte1 | byte2 | byte3);
   }
@@ -120,7 +124,7 @@ public final class Integer extends Number implements Comparable<Integer> {
   }
 
   public static int parseInt(String s, int radix) {
-    return (int) Long.parseLong(s, radix);
+    return (int) avian.Numbers.parseLong(s, radix, MIN_VALUE, MAX_VALUE);
   }
 
   public static Integer decode(String string) {
@@ -139,4 +143,18 @@ public final class Integer extends Number implements Comparable<Integer> {
     }
     return new Integer(parseInt(string, 10));
   }
+
+  // boxes for small values, shared so that boxing them doesn't allocate
+  private static class Cache {
+    public static final int Low = -128;
+    public static final int High = 127;
+
+    public static final Integer[] values = new Integer[High - Low + 1];
+
+    static {
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = new Integer((int) (i + Low));
+      }
+    }
+  }
 }
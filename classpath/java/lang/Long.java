@@ -31,7 +31,11 @@ public final class Long extends Number implements Comparable<Long> {
   }
 
   public static Long valueOf(long value) {
-    return new Long(value);
+    if (value >= Cache.Low && value <= Cache.High) {
+      return Cache.values[(int) value - Cache.Low];
+    } else {
+      return new Long(value);
+    }
   }
 
   public int compareTo(Long o) {
@@ -51,55 +55,27 @@ public final class Long extends Number implements Comparable<Long> {
   }
 
   public static String toString(long v, int radix) {
-    if (radix < 1 || radix > 36) {
-      throw new IllegalArgumentException("radix " + radix + " not in [1,36]");
-    }
-
-    if (v == 0) {
-      return "0";
-    }
-
-    boolean negative = v < 0;
-
-    int size = (negative ? 1 : 0);
-    for (long n = v; n != 0; n /= radix) ++size;
-
-    char[] array = new char[size];
-
-    int i = size - 1;
-    for (long n = v; n != 0; n /= radix) {
-      long digit = n % radix;
-      if (negative) digit = -digit;
-
-      if (digit >= 0 && digit <= 9) {
-        array[i] = (char) ('0' + digit);
-      } else {
-        array[i] = (char) ('a' + (digit - 10));
-      }
-      --i;
-    }
-
-    if (negative) {
-      array[i] = '-';
+    if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+      radix = 10;
     }
 
-    return new String(array, 0, size, false);
+    return avian.Numbers.toString(v, radix);
   }
 
   public static String toString(long v) {
-    return toString(v, 10);
+    return avian.Numbers.toString(v);
   }
 
   public static String toHexString(long v) {
-    return toString(v, 16);
+    return avian.Numbers.toUnsignedString(v, 4);
   }
 
   public static String toOctalString(long v) {
-    return toString(v, 8);
+    return avian.Numbers.toUnsignedString(v, 3);
   }
 
   public static String toBinaryString(long v) {
-    return toString(v, 2);
+    return avian.Numbers.toUnsignedString(v, 1);
   }
 
   public byte byteValue() {
@@ -132,10 +108,9 @@ public final class Long extends Number implements Comparable<Long> {
     else            return -1;
   }
 
-  private static long pow(long a, long b) {
-    long c = 1;
-    for (int i = 0; i < b; ++i) c *= a;
-    return c;
+  public static long reverseBytes(long v) {
+    return (((long) Integer.reverseBytes((int) v)) << 32)
+      | (((long) Integer.reverseBytes((int) (v >>> 32))) & 0xFFFFFFFFL);
   }
 
   public static long parseLong(String s) {
@@ -143,32 +118,20 @@ public final class Long extends Number implements Comparable<Long> {
   } 
 
   public static long parseLong(String s, int radix) {
-    int i = 0;
-    long number = 0;
-    boolean negative = s.startsWith("-");
-    int length = s.length();
-    if (negative) {
-      i = 1;
-      -- length;
-    }
+    return avian.Numbers.parseLong(s, radix, MIN_VALUE, MAX_VALUE);
+  }
 
-    long factor = pow(radix, length - 1);
-    for (; i < s.length(); ++i) {
-      char c = s.charAt(i);
-      int digit = Character.digit(c, radix);
-      if (digit >= 0) {
-        number += digit * factor;
-        factor /= radix;
-      } else {
-        throw new NumberFormatException("invalid character " + c + " code " +
-                                        (int) c);
-      }
-    }
+  // boxes for small values, shared so that boxing them doesn't allocate
+  private static class Cache {
+    public static final int Low = -128;
+    public static final int High = 127;
 
-    if (negative) {
-      number = -number;
-    }
+    public static final Long[] values = new Long[High - Low + 1];
 
-    return number;
+    static {
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = new Long((long) (i + Low));
+      }
+    }
   }
 }
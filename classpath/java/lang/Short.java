@@ -23,7 +23,11 @@ public final class Short extends Number implements Comparable<Short> {
   }
 
   public static Short valueOf(short value) {
-    return new Short(value);
+    if (value >= Cache.Low && value <= Cache.High) {
+      return Cache.values[value - Cache.Low];
+    } else {
+      return new Short(value);
+    }
   }
 
   public int compareTo(Short o) {
@@ -50,6 +54,10 @@ public final class Short extends Number implements Comparable<Short> {
     return toString(v, 10);
   }
 
+  public static short reverseBytes(short v) {
+    return (short) (((v & 0xFF) << 8) | ((v >> 8) & 0xFF));
+  }
+
   public byte byteValue() {
     return (byte) value;
   }
@@ -73,4 +81,18 @@ public final class Short extends Number implements Comparable<Short> {
   public double doubleValue() {
     return (double) value;
   }
+
+  // boxes for small values, shared so that boxing them doesn't allocate
+  private static class Cache {
+    public static final int Low = -128;
+    public static final int High = 127;
+
+    public static final Short[] values = new Short[High - Low + 1];
+
+    static {
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = new Short((short) (i + Low));
+      }
+    }
+  }
 }
@@ -12,22 +12,24 @@ package java.lang;
 
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.Locale;
 import java.util.regex.Pattern;
 
-import avian.Iso88591;
 import avian.Utf8;
 
 public final class String
   implements Comparable<String>, CharSequence, Serializable
 {
-  private static final String UTF_8_ENCODING = "UTF-8";
-  private static final String ISO_8859_1_ENCODING = "ISO-8859-1";
-  private static final String LATIN_1_ENCODING = "LATIN-1";
-  private static final String DEFAULT_ENCODING = UTF_8_ENCODING;
-
   public static Comparator<String> CASE_INSENSITIVE_ORDER
     = new Comparator<String>() {
     @Override
@@ -36,6 +38,10 @@ public final class String
     }
   };
 
+  // searches shorter than these don't pay for building a shift table
+  private static final int HorspoolMinNeedle = 4;
+  private static final int HorspoolMinHaystack = 128;
+
   private final Object data;
   private final int offset;
   private final int length;
@@ -60,12 +66,15 @@ public final class String
   public String(byte bytes[], int offset, int length, String charsetName)
     throws UnsupportedEncodingException
   {
-    this(bytes, offset, length);
-    if (! (charsetName.equalsIgnoreCase(UTF_8_ENCODING)
-           || charsetName.equalsIgnoreCase(ISO_8859_1_ENCODING)))
-    {
-      throw new UnsupportedEncodingException(charsetName);
-    }
+    this(bytes, offset, length, charsetForName(charsetName));
+  }
+
+  public String(byte[] bytes, int offset, int length, Charset charset) {
+    this(decode(bytes, offset, length, charset));
+  }
+
+  public String(byte[] bytes, Charset charset) {
+    this(bytes, 0, bytes.length, charset);
   }
 
   public String(byte[] data, int offset, int length, boolean copy) {
@@ -109,6 +118,15 @@ public final class String
     this.length = length;
   }
 
+  // takes ownership of data, which must be either a char array or an
+  // array of ASCII bytes
+  private String(Object data) {
+    this.data = data;
+    this.offset = 0;
+    this.length = data instanceof char[]
+      ? ((char[]) data).length : ((byte[]) data).length;
+  }
+
   private String(Object data, int offset, int length, boolean copy) {
     int l;
     if (data instanceof char[]) {
@@ -151,6 +169,68 @@ public final class String
     }
   }
 
+  private static Charset charsetForName(String name)
+    throws UnsupportedEncodingException
+  {
+    if (name == null) {
+      throw new NullPointerException("charsetName");
+    }
+
+    try {
+      return Charset.forName(name);
+    } catch (IllegalArgumentException e) {
+      throw new UnsupportedEncodingException(name);
+    }
+  }
+
+  private static boolean isAsciiCompatible(Charset charset) {
+    return charset == StandardCharsets.UTF_8
+      || charset == StandardCharsets.ISO_8859_1
+      || charset == StandardCharsets.US_ASCII;
+  }
+
+  private static Object decode(byte[] bytes, int offset, int length,
+                               Charset charset)
+  {
+    if (offset < 0)
+      throw new StringIndexOutOfBoundsException(offset);
+    else if (offset + length > bytes.length)
+      throw new StringIndexOutOfBoundsException(offset + length);
+    else if (length < 0)
+      throw new StringIndexOutOfBoundsException(length);
+
+    if (isAsciiCompatible(charset)) {
+      int i = 0;
+      while (i < length && bytes[offset + i] >= 0) {
+        ++ i;
+      }
+
+      if (i == length) {
+        // ASCII decodes to itself, which we can store as bytes
+        byte[] ascii = new byte[length];
+        System.arraycopy(bytes, offset, ascii, 0, length);
+        return ascii;
+      }
+    }
+
+    CharsetDecoder decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer out = CharBuffer.allocate
+      ((int) (length * decoder.maxCharsPerByte()) + 1);
+    decoder.decode(ByteBuffer.wrap(bytes, offset, length), out, true);
+    decoder.flush(out);
+
+    char[] chars = out.array();
+    if (out.position() == chars.length) {
+      return chars;
+    } else {
+      char[] trimmed = new char[out.position()];
+      System.arraycopy(chars, 0, trimmed, 0, trimmed.length);
+      return trimmed;
+    }
+  }
+
   @Override
   public String toString() {
     return this;
@@ -287,9 +367,25 @@ public final class String
   }
 
   public int indexOf(int c, int start) {
-    for (int i = start; i < length; ++i) {
-      if (charAt(i) == c) {
-        return i;
+    if (start < 0) {
+      start = 0;
+    }
+
+    if (data instanceof char[]) {
+      char[] chars = (char[]) data;
+      for (int i = offset + start; i < offset + length; ++i) {
+        if (chars[i] == c) {
+          return i - offset;
+        }
+      }
+    } else if (c == (char) (byte) c) {
+      // charAt sign-extends bytes, so only such characters can match
+      byte[] bytes = (byte[]) data;
+      byte b = (byte) c;
+      for (int i = offset + start; i < offset + length; ++i) {
+        if (bytes[i] == b) {
+          return i - offset;
+        }
       }
     }
 
@@ -305,20 +401,150 @@ public final class String
   }
 
   public int indexOf(String s, int start) {
-    if (s.length == 0) return start;
+    if (start < 0) {
+      start = 0;
+    }
 
-    for (int i = start; i < length - s.length + 1; ++i) {
-      int j = 0;
-      for (; j < s.length; ++j) {
-        if (charAt(i + j) != s.charAt(j)) {
-          break;
+    int n = s.length;
+    if (n == 0) {
+      return Math.min(start, length);
+    } else if (start > length - n) {
+      return -1;
+    } else if (n == 1) {
+      return indexOf(s.charAt(0), start);
+    }
+
+    // absolute offsets of the first and one past the last candidate
+    int from = offset + start;
+    int to = offset + length - n + 1;
+    int needleOffset = s.offset;
+    int i;
+    if (data instanceof char[]) {
+      char[] needle;
+      if (s.data instanceof char[]) {
+        needle = (char[]) s.data;
+      } else {
+        needle = new char[n];
+        s.getChars(0, n, needle, 0);
+        needleOffset = 0;
+      }
+      i = indexOf((char[]) data, from, to, needle, needleOffset, n);
+    } else {
+      byte[] needle;
+      if (s.data instanceof byte[]) {
+        needle = (byte[]) s.data;
+      } else {
+        needle = new byte[n];
+        char[] chars = (char[]) s.data;
+        for (int j = 0; j < n; ++j) {
+          char c = chars[s.offset + j];
+          if (c != (char) (byte) c) {
+            // can't occur in a byte string
+            return -1;
+          }
+          needle[j] = (byte) c;
         }
+        needleOffset = 0;
       }
-      if (j == s.length) {
-        return i;
+      i = indexOf((byte[]) data, from, to, needle, needleOffset, n);
+    }
+
+    return i < 0 ? -1 : i - offset;
+  }
+
+  /**
+   * Returns the first index in [from, to) at which the specified needle
+   * occurs in the specified haystack, or -1 if there is none.  Short
+   * searches scan for the needle's first character and compare the
+   * rest; longer ones use the Boyer-Moore-Horspool algorithm.
+   */
+  private static int indexOf(char[] haystack, int from, int to,
+                             char[] needle, int offset, int length)
+  {
+    if (length < HorspoolMinNeedle || to - from < HorspoolMinHaystack) {
+      char first = needle[offset];
+      for (int i = from; i < to; ++i) {
+        if (haystack[i] == first) {
+          int j = 1;
+          while (j < length && haystack[i + j] == needle[offset + j]) {
+            ++ j;
+          }
+          if (j == length) {
+            return i;
+          }
+        }
       }
+      return -1;
     }
 
+    // characters sharing the same low byte share a shift, which is then
+    // the smallest of their shifts and hence still safe
+    int[] shifts = new int[256];
+    for (int i = 0; i < 256; ++i) {
+      shifts[i] = length;
+    }
+    for (int j = 0; j < length - 1; ++j) {
+      shifts[needle[offset + j] & 0xFF] = length - 1 - j;
+    }
+
+    char last = needle[offset + length - 1];
+    for (int i = from; i < to; ) {
+      char c = haystack[i + length - 1];
+      if (c == last) {
+        int j = 0;
+        while (j < length - 1 && haystack[i + j] == needle[offset + j]) {
+          ++ j;
+        }
+        if (j == length - 1) {
+          return i;
+        }
+      }
+      i += shifts[c & 0xFF];
+    }
+    return -1;
+  }
+
+  private static int indexOf(byte[] haystack, int from, int to,
+                             byte[] needle, int offset, int length)
+  {
+    if (length < HorspoolMinNeedle || to - from < HorspoolMinHaystack) {
+      byte first = needle[offset];
+      for (int i = from; i < to; ++i) {
+        if (haystack[i] == first) {
+          int j = 1;
+          while (j < length && haystack[i + j] == needle[offset + j]) {
+            ++ j;
+          }
+          if (j == length) {
+            return i;
+          }
+        }
+      }
+      return -1;
+    }
+
+    int[] shifts = new int[256];
+    for (int i = 0; i < 256; ++i) {
+      shifts[i] = length;
+    }
+    for (int j = 0; j < length - 1; ++j) {
+      shifts[needle[offset + j] & 0xFF] = length - 1 - j;
+    }
+
+    byte last = needle[offset + length - 1];
+    for (int i = from; i < to; ) {
+      byte b = haystack[i + length - 1];
+      if (b == last) {
+        int j = 0;
+        while (j < length - 1 && haystack[i + j] == needle[offset + j]) {
+          ++ j;
+        }
+        if (j == length - 1) {
+          return i;
+        }
+      }
+      i += shifts[b & 0xFF];
+    }
     return -1;
   }
 
@@ -446,33 +672,64 @@ public final class String
   }
 
   public byte[] getBytes() {
-    try {
-      return getBytes(DEFAULT_ENCODING);
-    } catch (java.io.UnsupportedEncodingException ex) {
-      throw new RuntimeException(
-        "Default '" + DEFAULT_ENCODING + "' encoding not handled", ex);
-    }
+    return getBytes(StandardCharsets.UTF_8);
   }
 
-  public byte[] getBytes(String format)
-    throws java.io.UnsupportedEncodingException
+  public byte[] getBytes(String charsetName)
+    throws UnsupportedEncodingException
   {
-    if(data instanceof byte[]) {
-      byte[] b = new byte[length];
-      getBytes(0, length, b, 0);
-      return b;
-    }
-    String fmt = format.trim().toUpperCase();
-    if (DEFAULT_ENCODING.equals(fmt)) {
-      return Utf8.encode((char[])data, offset, length);
-    } else if (ISO_8859_1_ENCODING.equals(fmt) || LATIN_1_ENCODING.equals(fmt)) {
-      return Iso88591.encode((char[])data, offset, length);
+    return getBytes(charsetForName(charsetName));
+  }
+
+  public byte[] getBytes(Charset charset) {
+    if (isAsciiCompatible(charset)) {
+      byte[] ascii = asciiBytes();
+      if (ascii != null) {
+        return ascii;
+      }
+    }
+
+    CharsetEncoder encoder = charset.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer in = data instanceof char[]
+      ? CharBuffer.wrap((char[]) data, offset, length)
+      : CharBuffer.wrap(toCharArray());
+    ByteBuffer out = ByteBuffer.allocate
+      ((int) (length * encoder.maxBytesPerChar()));
+    encoder.encode(in, out, true);
+    encoder.flush(out);
+
+    byte[] bytes = out.array();
+    if (out.position() == bytes.length) {
+      return bytes;
     } else {
-      throw new java.io.UnsupportedEncodingException(
-        "Encoding " + format + " not supported");
+      byte[] trimmed = new byte[out.position()];
+      System.arraycopy(bytes, 0, trimmed, 0, trimmed.length);
+      return trimmed;
     }
   }
 
+  // returns a copy of this string as bytes if it is pure ASCII, which
+  // every ASCII compatible charset encodes as itself, or else null
+  private byte[] asciiBytes() {
+    byte[] bytes = new byte[length];
+    if (data instanceof byte[]) {
+      System.arraycopy(data, offset, bytes, 0, length);
+      return bytes;
+    }
+
+    char[] chars = (char[]) data;
+    for (int i = 0; i < length; ++i) {
+      char c = chars[offset + i];
+      if (c >= 0x80) {
+        return null;
+      }
+      bytes[i] = (byte) c;
+    }
+    return bytes;
+  }
+
   public void getChars(int srcOffset, int srcEnd,
                        char[] dst, int dstOffset)
   {
@@ -517,7 +774,70 @@ public final class String
   }
 
   public String[] split(String regex, int limit) {
-    return Pattern.compile(regex).split(this, limit);
+    int separator = literalSeparator(regex);
+    if (separator >= 0) {
+      return split((char) separator, limit);
+    } else {
+      return Pattern.compile(regex).split(this, limit);
+    }
+  }
+
+  /**
+   * Returns the character matched by the specified regular expression
+   * if it matches exactly one literal character (e.g. "," or "\\."),
+   * or -1 otherwise.
+   */
+  private static int literalSeparator(String regex) {
+    char c;
+    if (regex.length == 1) {
+      c = regex.charAt(0);
+      if (".$|()[{^?*+\\".indexOf(c) >= 0) {
+        return -1;
+      }
+    } else if (regex.length == 2 && regex.charAt(0) == '\\') {
+      c = regex.charAt(1);
+      if ((c >= '0' && c <= '9')
+          || (c >= 'a' && c <= 'z')
+          || (c >= 'A' && c <= 'Z'))
+      {
+        return -1;
+      }
+    } else {
+      return -1;
+    }
+
+    // leave surrogates to the regex engine
+    return (c >= '\uD800' && c <= '\uDFFF') ? -1 : c;
+  }
+
+  private String[] split(char separator, int limit) {
+    ArrayList<String> list = new ArrayList<String>();
+    int max = limit > 0 ? limit : Integer.MAX_VALUE;
+    int index = 0;
+    int i;
+    while (list.size() < max - 1 && (i = indexOf(separator, index)) >= 0) {
+      list.add(substring(index, i));
+      index = i + 1;
+    }
+
+    if (index == 0) {
+      return new String[] { this };
+    }
+
+    list.add(substring(index, length));
+
+    int size = list.size();
+    if (limit == 0) {
+      while (size > 0 && list.get(size - 1).length == 0) {
+        -- size;
+      }
+    }
+
+    String[] result = new String[size];
+    for (i = 0; i < size; ++i) {
+      result[i] = list.get(i);
+    }
+    return result;
   }
 
   @Override
@@ -547,17 +867,19 @@ public final class String
 
     int targetSize = target.length();
 
-    StringBuilder returnValue = new StringBuilder();
-    String unhandled = this;
-
-    int index = -1;
-    while ((index = unhandled.indexOf(targetString)) != -1) {
-      returnValue.append(unhandled.substring(0, index)).append(replaceString);
-      unhandled = unhandled.substring(index + targetSize,
-                                      unhandled.length());
+    int index = indexOf(targetString, 0);
+    if (index < 0) {
+      return this;
     }
 
-    returnValue.append(unhandled);
+    StringBuilder returnValue = new StringBuilder();
+    int handled = 0;
+    do {
+      returnValue.append(substring(handled, index)).append(replaceString);
+      handled = index + targetSize;
+    } while ((index = indexOf(targetString, handled)) != -1);
+
+    returnValue.append(substring(handled));
     return returnValue.toString();
   }
 
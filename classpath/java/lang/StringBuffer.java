@@ -131,6 +131,18 @@ public class StringBuffer implements CharSequence {
     return this;
   }
 
+  public synchronized int capacity() {
+    return sb.capacity();
+  }
+
+  public synchronized void ensureCapacity(int capacity) {
+    sb.ensureCapacity(capacity);
+  }
+
+  public synchronized void trimToSize() {
+    sb.trimToSize();
+  }
+
   public synchronized void setLength(int v) {
     sb.setLength(v);
   }
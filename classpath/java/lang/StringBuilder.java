@@ -11,67 +11,130 @@
 package java.lang;
 
 public class StringBuilder implements CharSequence, Appendable {
-  private static final int BufferSize = 32;
+  private static final int DefaultCapacity = 16;
 
-  private Cell chain;
+  private char[] value;
   private int length;
-  private char[] buffer;
-  private int position;
 
   public StringBuilder(String s) {
+    this(s == null ? DefaultCapacity : s.length() + DefaultCapacity);
     append(s);
   }
 
-  public StringBuilder(int capacity) { }
+  public StringBuilder(int capacity) {
+    if (capacity < 0) {
+      throw new NegativeArraySizeException();
+    }
 
-  public StringBuilder() {
-    this(0);
+    value = new char[capacity];
   }
 
-  private void flush() {
-    if (position > 0) {
-      chain = new Cell(new String(buffer, 0, position, false), chain);
-      buffer = null;
-      position = 0;
+  public StringBuilder() {
+    this(DefaultCapacity);
+  }
+
+  /**
+   * Grows the buffer, if necessary, so that it holds at least the
+   * specified number of characters.  Capacity at least doubles each
+   * time so that a series of appends takes amortized constant time.
+   */
+  private void reserve(int capacity) {
+    if (capacity > value.length) {
+      int newCapacity = (value.length * 2) + 2;
+      if (newCapacity < capacity || newCapacity < 0) {
+        newCapacity = capacity;
+      }
+
+      char[] newValue = new char[newCapacity];
+      System.arraycopy(value, 0, newValue, 0, length);
+      value = newValue;
+    } else if (capacity < 0) {
+      throw new OutOfMemoryError();
     }
   }
 
+  /**
+   * Opens a gap of the specified size at the specified index, growing
+   * the buffer if necessary.
+   */
+  private void shift(int index, int size) {
+    reserve(length + size);
+    System.arraycopy(value, index, value, index + size, length - index);
+    length += size;
+  }
+
   public StringBuilder append(String s) {
     if (s == null) {
-      return append("null");
-    } else {
-      if (s.length() > 0) {
-        if (buffer != null && s.length() <= buffer.length - position) {
-          s.getChars(0, s.length(), buffer, position);
-          position += s.length();
-        } else {
-          flush();
-          chain = new Cell(s, chain);
-        }
-        length += s.length();
-      }
-      return this;
+      s = "null";
     }
+
+    int n = s.length();
+    reserve(length + n);
+    s.getChars(0, n, value, length);
+    length += n;
+    return this;
   }
 
   public StringBuilder append(StringBuffer sb) {
-    return append(sb.toString());
+    if (sb == null) {
+      return append("null");
+    }
+
+    synchronized (sb) {
+      int n = sb.length();
+      reserve(length + n);
+      sb.getChars(0, n, value, length);
+      length += n;
+    }
+    return this;
   }
 
   public StringBuilder append(CharSequence sequence) {
-    return append(sequence.toString());
+    if (sequence == null || sequence instanceof String) {
+      return append((String) sequence);
+    } else {
+      return append(sequence, 0, sequence.length());
+    }
   }
 
-  public Appendable append(CharSequence sequence, int start, int end) {
-    return append(sequence.subSequence(start, end));
+  public StringBuilder append(CharSequence sequence, int start, int end) {
+    if (sequence == null) {
+      sequence = "null";
+    }
+
+    if (start < 0 || start > end || end > sequence.length()) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    int n = end - start;
+    reserve(length + n);
+    if (sequence instanceof String) {
+      ((String) sequence).getChars(start, end, value, length);
+    } else if (sequence instanceof StringBuilder) {
+      System.arraycopy
+        (((StringBuilder) sequence).value, start, value, length, n);
+    } else {
+      for (int i = 0; i < n; ++i) {
+        value[length + i] = sequence.charAt(start + i);
+      }
+    }
+    length += n;
+    return this;
   }
 
   public StringBuilder append(char[] b, int offset, int length) {
-    return append(new String(b, offset, length));
+    if (offset < 0 || length < 0 || offset + length > b.length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    reserve(this.length + length);
+    System.arraycopy(b, offset, value, this.length, length);
+    this.length += length;
+    return this;
   }
 
   public StringBuilder append(char[] b) {
-    return append(new String(b));
+    return append(b, 0, b.length);
   }
 
   public StringBuilder append(Object o) {
@@ -79,37 +142,35 @@ public class StringBuilder implements CharSequence, Appendable {
   }
 
   public StringBuilder append(char v) {
-    if (buffer == null) {
-      buffer = new char[BufferSize];
-    } else if (position >= buffer.length) {
-      flush();
-      buffer = new char[BufferSize];
-    }
-
-    buffer[position++] = v;
-    ++ length;
-
+    reserve(length + 1);
+    value[length++] = v;
     return this;
   }
 
   public StringBuilder append(boolean v) {
-    return append(String.valueOf(v));
+    return append(v ? "true" : "false");
   }
 
   public StringBuilder append(int v) {
-    return append(String.valueOf(v));
+    return append((long) v);
   }
 
   public StringBuilder append(long v) {
-    return append(String.valueOf(v));
+    reserve(length + avian.Numbers.MaxLongLength);
+    length = avian.Numbers.appendTo(v, value, length);
+    return this;
   }
 
   public StringBuilder append(float v) {
-    return append(String.valueOf(v));
+    reserve(length + avian.Numbers.MaxFloatLength);
+    length = avian.Numbers.appendTo(v, value, length);
+    return this;
   }
 
   public StringBuilder append(double v) {
-    return append(String.valueOf(v));
+    reserve(length + avian.Numbers.MaxDoubleLength);
+    length = avian.Numbers.appendTo(v, value, length);
+    return this;
   }
 
   public char charAt(int i) {
@@ -117,19 +178,7 @@ public class StringBuilder implements CharSequence, Appendable {
       throw new IndexOutOfBoundsException();
     }
 
-    flush();
-
-    int index = length;
-    for (Cell c = chain; c != null; c = c.next) {
-      int start = index - c.value.length();
-      index = start;
-      
-      if (i >= start) {
-        return c.value.charAt(i - start);
-      }
-    }
-
-    throw new RuntimeException();
+    return value[i];
   }
 
   public StringBuilder insert(int i, String s) {
@@ -137,40 +186,28 @@ public class StringBuilder implements CharSequence, Appendable {
       throw new IndexOutOfBoundsException();
     }
 
-    if (i == length) {
-      append(s);
-    } else {
-      flush();
-
-      int index = length;
-      for (Cell c = chain; c != null; c = c.next) {
-        int start = index - c.value.length();
-        index = start;
-      
-        if (i >= start) {
-          if (i == start) {
-            c.next = new Cell(s, c.next);
-          } else {
-            String v = c.value;
-            c.value = v.substring(i - start, v.length());
-            c.next = new Cell(s, new Cell(v.substring(0, i - start), c.next));
-          }
-          break;
-        }
-      }
-
-      length += s.length();
+    if (s == null) {
+      s = "null";
     }
 
+    int n = s.length();
+    shift(i, n);
+    s.getChars(0, n, value, i);
     return this;
   }
 
   public StringBuilder insert(int i, CharSequence s) {
-    return insert(i, s.toString());
+    return insert(i, s == null ? "null" : s.toString());
   }
 
   public StringBuilder insert(int i, char c) {
-    return insert(i, new String(new char[] { c }, 0, 1, false));
+    if (i < 0 || i > length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    shift(i, 1);
+    value[i] = c;
+    return this;
   }
 
   public StringBuilder insert(int i, int v) {
@@ -186,50 +223,38 @@ public class StringBuilder implements CharSequence, Appendable {
       throw new IndexOutOfBoundsException();
     }
 
-    flush();
-
-    int index = length;
-    Cell p = null;
-    for (Cell c = chain; c != null; c = c.next) {
-      int e = index;
-      int s = index - c.value.length();
-      index = s;
-      
-      if (end >= e) {
-        if (start <= s) {
-          if (p == null) {
-            chain = c.next;
-          } else {
-            p.next = c.next;
-          }          
-        } else {
-          c.value = c.value.substring(0, start - s);
-          break;
-        }
-      } else {
-        if (start <= s) {
-          c.value = c.value.substring(end - s, e - s);
-        } else {
-          String v = c.value;
-          c.value = v.substring(end - s, e - s);
-          c.next = new Cell(v.substring(0, start - s), c.next);
-          break;
-        }        
-      }
-    }
-
+    System.arraycopy(value, end, value, start, length - end);
     length -= (end - start);
 
     return this;
   }
 
   public StringBuilder deleteCharAt(int i) {
+    if (i < 0 || i >= length) {
+      throw new IndexOutOfBoundsException();
+    }
+
     return delete(i, i + 1);
   }
 
   public StringBuilder replace(int start, int end, String str) {
-    delete(start, end);
-    insert(start, str);
+    if (start < 0 || start > length || start > end) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (end > length) {
+      end = length;
+    }
+
+    int n = str.length();
+    int growth = n - (end - start);
+    if (growth > 0) {
+      shift(end, growth);
+    } else if (growth < 0) {
+      delete(end + growth, end);
+    }
+
+    str.getChars(0, n, value, start);
     return this;
   }
   
@@ -241,10 +266,10 @@ public class StringBuilder implements CharSequence, Appendable {
     int slength = s.length();
     if (slength == 0) return start;
 
-    for (int i = start; i < length - slength + 1; ++i) {
+    for (int i = Math.max(start, 0); i < length - slength + 1; ++i) {
       int j = 0;
       for (; j < slength; ++j) {
-        if (charAt(i + j) != s.charAt(j)) {
+        if (value[i + j] != s.charAt(j)) {
           break;
         }
       }
@@ -266,8 +291,8 @@ public class StringBuilder implements CharSequence, Appendable {
 
     for (int i = Math.min(length - slength, lastIndex); i >= 0; --i) {
       int j = 0;
-      for (; j < slength && i + j < length; ++j) {
-        if (charAt(i + j) != s.charAt(j)) {
+      for (; j < slength; ++j) {
+        if (value[i + j] != s.charAt(j)) {
           break;
         }
       }
@@ -283,78 +308,35 @@ public class StringBuilder implements CharSequence, Appendable {
     return length;
   }
 
+  public int capacity() {
+    return value.length;
+  }
+
   public void setLength(int v) {
     if (v < 0) {
       throw new IndexOutOfBoundsException();
     }
 
-    if (v == 0) {
-      length = 0;
-      chain = null;
-      return;
+    if (v > length) {
+      reserve(v);
+      for (int i = length; i < v; ++i) {
+        value[i] = '\0';
+      }
     }
 
-    flush();
-
-    int index = length;
     length = v;
-    for (Cell c = chain; c != null; c = c.next) {
-      int start = index - c.value.length();
-
-      if (v > start) {
-        if (v < index) {
-          c.value = c.value.substring(0, v - start);
-        }
-        break;
-      }
-
-      chain = c.next;
-      index = start;
-    }
   }
 
   public void getChars(int srcStart, int srcEnd, char[] dst, int dstStart) {
-    if (srcStart < 0 || srcEnd > length) {
+    if (srcStart < 0 || srcEnd > length || srcStart > srcEnd) {
       throw new IndexOutOfBoundsException();
     }
 
-    flush();
-
-    int index = length;
-    for (Cell c = chain; c != null; c = c.next) {
-      int start = index - c.value.length();
-      int end = index;
-      index = start;
-
-      if (start < srcStart) {
-        start = srcStart;
-      }
-
-      if (end > srcEnd) {
-        end = srcEnd;
-      }
-
-      if (start < end) {
-        c.value.getChars(start - index, end - index,
-                         dst, dstStart + (start - srcStart));
-      }
-    }
+    System.arraycopy(value, srcStart, dst, dstStart, srcEnd - srcStart);
   }
 
   public String toString() {
-    char[] array = new char[length];
-    getChars(0, length, array, 0);
-    return new String(array, 0, length, false);
-  }
-
-  private static class Cell {
-    public String value;
-    public Cell next;
-
-    public Cell(String value, Cell next) {
-      this.value = value;
-      this.next = next;
-    }
+    return new String(value, 0, length);
   }
 
   public String substring(int start) {
@@ -362,10 +344,11 @@ public class StringBuilder implements CharSequence, Appendable {
   }
 
   public String substring(int start, int end) {
-    int len = end-start;
-    char[] buf = new char[len]; 
-    getChars(start, end, buf, 0);
-    return new String(buf, 0, len, false);
+    if (start < 0 || start > end || end > length) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    return new String(value, start, end - start);
   }
         
   public CharSequence subSequence(int start, int end) {
@@ -374,11 +357,20 @@ public class StringBuilder implements CharSequence, Appendable {
 
   public void setCharAt(int index, char ch) {
     if(index < 0 || index >= length) throw new IndexOutOfBoundsException();
-    deleteCharAt(index);
-    insert(index, ch);
+    value[index] = ch;
   }
 
   public void ensureCapacity(int capacity) {
-    // ignore
+    if (capacity > 0) {
+      reserve(capacity);
+    }
+  }
+
+  public void trimToSize() {
+    if (length < value.length) {
+      char[] newValue = new char[length];
+      System.arraycopy(value, 0, newValue, 0, length);
+      value = newValue;
+    }
   }
 }
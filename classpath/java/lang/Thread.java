@@ -10,9 +10,6 @@
 
 package java.lang;
 
-import java.util.Map;
-import java.util.WeakHashMap;
-
 public class Thread implements Runnable {
   // set and accessed from within LockSupport
   protected volatile Object parkBlocker;
@@ -24,7 +21,7 @@ public class Thread implements Runnable {
   private byte state;
   private byte priority;
   private final Runnable task;
-  private Map<ThreadLocal, Object> locals;
+  ThreadLocal.Table locals;
   private Object sleepLock;
   private ClassLoader classLoader;
   private UncaughtExceptionHandler exceptionHandler;
@@ -45,14 +42,8 @@ public class Thread implements Runnable {
 
     Thread current = currentThread();
 
-    Map<ThreadLocal, Object> map = current.locals;
-    if (map != null) {
-      for (Map.Entry<ThreadLocal, Object> e: map.entrySet()) {
-        if (e.getKey() instanceof InheritableThreadLocal) {
-          InheritableThreadLocal itl = (InheritableThreadLocal) e.getKey();
-          locals().put(itl, itl.childValue(e.getValue()));
-        }
-      }
+    if (current.locals != null) {
+      locals = ThreadLocal.Table.inherit(current.locals);
     }
 
     classLoader = current.classLoader;
@@ -133,13 +124,6 @@ public class Thread implements Runnable {
     classLoader = v;
   }
 
-  public Map<ThreadLocal, Object> locals() {
-    if (locals == null) {
-      locals = new WeakHashMap();
-    }
-    return locals;
-  }
-
   public static native Thread currentThread();
 
   public void interrupt() {
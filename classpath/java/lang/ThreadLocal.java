@@ -10,37 +10,229 @@
 
 package java.lang;
 
-import java.util.Map;
+import java.lang.ref.WeakReference;
 
 public class ThreadLocal<T> {
-  private static final Object Null = new Object();
+  // spreads consecutively allocated hashes evenly across power-of-two
+  // sized tables
+  private static final int HashIncrement = 0x61c88647;
+
+  private static int nextHash;
+
+  private final int hash = nextHash();
+
+  private static synchronized int nextHash() {
+    return nextHash += HashIncrement;
+  }
 
   protected T initialValue() {
     return null;
   }
 
   public T get() {
-    Map<ThreadLocal, Object> map = Thread.currentThread().locals();
-    Object o = map.get(this);
-    if (o == null) {
-      o = initialValue();
-      if (o == null) {
-        o = Null;
+    Thread thread = Thread.currentThread();
+    Table table = thread.locals;
+    if (table == null) {
+      table = thread.locals = new Table();
+    } else {
+      Table.Entry e = table.find(this);
+      if (e != null) {
+        return (T) e.value;
       }
-      map.put(this, o);
-    }
-    if (o == Null) {
-      o = null;
     }
-    return (T) o;
+
+    T value = initialValue();
+    table.put(this, value);
+    return value;
   }
 
   public void set(T value) {
-    Map<ThreadLocal, Object> map = Thread.currentThread().locals();
-    Object o = value;
-    if (o == null) {
-      o = Null;
+    Thread thread = Thread.currentThread();
+    Table table = thread.locals;
+    if (table == null) {
+      table = thread.locals = new Table();
+    }
+    table.put(this, value);
+  }
+
+  public void remove() {
+    Table table = Thread.currentThread().locals;
+    if (table != null) {
+      table.remove(this);
+    }
+  }
+
+  /**
+   * Open-addressed map from ThreadLocal to value, owned by a single
+   * thread.  Keys are weakly referenced so that discarded ThreadLocals
+   * don't leak their values; entries whose keys have been collected
+   * are expunged as they are encountered rather than by polling a
+   * reference queue.
+   */
+  static final class Table {
+    private static final int InitialCapacity = 16;
+
+    private Entry[] entries = new Entry[InitialCapacity];
+    // includes stale entries which have not yet been expunged
+    private int size;
+
+    static final class Entry extends WeakReference<ThreadLocal> {
+      public Object value;
+
+      public Entry(ThreadLocal key, Object value) {
+        super(key);
+        this.value = value;
+      }
+    }
+
+    private static int next(int index, int mask) {
+      return (index + 1) & mask;
+    }
+
+    public Entry find(ThreadLocal key) {
+      Entry[] entries = this.entries;
+      int mask = entries.length - 1;
+      int index = key.hash & mask;
+      Entry e = entries[index];
+      // fast path: no collision
+      if (e != null && e.get() == key) {
+        return e;
+      }
+
+      while (e != null) {
+        ThreadLocal k = e.get();
+        if (k == key) {
+          return e;
+        } else if (k == null) {
+          expunge(index);
+          // expunging may have moved a later entry into this slot
+          e = entries[index];
+        } else {
+          index = next(index, mask);
+          e = entries[index];
+        }
+      }
+      return null;
+    }
+
+    public void put(ThreadLocal key, Object value) {
+      Entry[] entries = this.entries;
+      int mask = entries.length - 1;
+      int index = key.hash & mask;
+      for (Entry e = entries[index]; e != null; e = entries[index]) {
+        ThreadLocal k = e.get();
+        if (k == key) {
+          e.value = value;
+          return;
+        } else if (k == null) {
+          expunge(index);
+        } else {
+          index = next(index, mask);
+        }
+      }
+
+      entries[index] = new Entry(key, value);
+      if (++ size >= (entries.length * 2) / 3) {
+        rehash();
+      }
+    }
+
+    public void remove(ThreadLocal key) {
+      Entry[] entries = this.entries;
+      int mask = entries.length - 1;
+      int index = key.hash & mask;
+      for (Entry e = entries[index]; e != null; e = entries[index]) {
+        if (e.get() == key) {
+          e.clear();
+          expunge(index);
+          return;
+        }
+        index = next(index, mask);
+      }
+    }
+
+    /**
+     * Removes the stale entry at the specified index, along with any
+     * other stale entries in the same run, and moves the remaining
+     * entries in that run so they are reachable from their home
+     * slots.
+     */
+    private void expunge(int index) {
+      Entry[] entries = this.entries;
+      int mask = entries.length - 1;
+
+      entries[index] = null;
+      -- size;
+
+      for (int i = next(index, mask); entries[i] != null; i = next(i, mask)) {
+        Entry e = entries[i];
+        ThreadLocal k = e.get();
+        if (k == null) {
+          entries[i] = null;
+          -- size;
+        } else {
+          int home = k.hash & mask;
+          if (home != i) {
+            entries[i] = null;
+            while (entries[home] != null) {
+              home = next(home, mask);
+            }
+            entries[home] = e;
+          }
+        }
+      }
+    }
+
+    private void rehash() {
+      for (int i = 0; i < entries.length; ++i) {
+        Entry e = entries[i];
+        if (e != null && e.get() == null) {
+          expunge(i);
+        }
+      }
+
+      // only grow if expunging didn't free up enough room
+      if (size >= entries.length / 2) {
+        Entry[] old = entries;
+        entries = new Entry[old.length * 2];
+        size = 0;
+        int mask = entries.length - 1;
+        for (int i = 0; i < old.length; ++i) {
+          Entry e = old[i];
+          if (e != null) {
+            ThreadLocal k = e.get();
+            if (k != null) {
+              int index = k.hash & mask;
+              while (entries[index] != null) {
+                index = next(index, mask);
+              }
+              entries[index] = e;
+              ++ size;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns a table holding the child values of any
+     * InheritableThreadLocals in the specified parent table, or null
+     * if there are none.
+     */
+    public static Table inherit(Table parent) {
+      Table table = null;
+      for (Entry e: parent.entries) {
+        if (e != null) {
+          ThreadLocal k = e.get();
+          if (k instanceof InheritableThreadLocal) {
+            if (table == null) {
+              table = new Table();
+            }
+            table.put(k, ((InheritableThreadLocal) k).childValue(e.value));
+          }
+        }
+      }
+      return table;
     }
-    map.put(this, o);
   }
 }
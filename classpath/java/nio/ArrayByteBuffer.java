@@ -10,12 +10,17 @@
 
 package java.nio;
 
+import sun.misc.Unsafe;
+
 class ArrayByteBuffer extends ByteBuffer {
+  private static final Unsafe unsafe = Unsafe.getUnsafe();
+  private static final int baseOffset = unsafe.arrayBaseOffset(byte[].class);
+
   private final byte[] array;
   private final int arrayOffset;
 
   ArrayByteBuffer(byte[] array, int offset, int length, boolean readOnly) {
-    super(readOnly);
+    super(readOnly, array, baseOffset + offset);
 
     this.array = array;
     this.arrayOffset = offset;
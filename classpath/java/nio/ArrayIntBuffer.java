@@ -0,0 +1,96 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio;
+
+class ArrayIntBuffer extends IntBuffer {
+  private final int[] array;
+  private final int arrayOffset;
+
+  ArrayIntBuffer(int[] array, int offset, int length, boolean readOnly) {
+    super(readOnly);
+
+    this.array = array;
+    this.arrayOffset = offset;
+    this.capacity = length;
+    this.limit = length;
+    this.position = 0;
+  }
+
+  public IntBuffer asReadOnlyBuffer() {
+    IntBuffer b = new ArrayIntBuffer(array, arrayOffset, capacity, true);
+    b.position(position());
+    b.limit(limit());
+    return b;
+  }
+
+  public boolean hasArray() {
+    return true;
+  }
+
+  public int[] array() {
+    return array;
+  }
+
+  public IntBuffer slice() {
+    return new ArrayIntBuffer
+      (array, arrayOffset + position, remaining(), isReadOnly());
+  }
+
+  public int arrayOffset() {
+    return arrayOffset;
+  }
+
+  public ByteOrder order() {
+    return ByteOrder.nativeOrder();
+  }
+
+  protected void doPut(int position, int val) {
+    array[arrayOffset + position] = val;
+  }
+
+  public IntBuffer put(IntBuffer src) {
+    int length = src.remaining();
+    checkPut(position, length, false);
+    src.get(array, arrayOffset + position, length);
+    position += length;
+    return this;
+  }
+
+  public IntBuffer put(int[] src, int offset, int length) {
+    checkPut(position, length, false);
+
+    System.arraycopy(src, offset, array, arrayOffset + position, length);
+    position += length;
+
+    return this;
+  }
+
+  public IntBuffer get(int[] dst, int offset, int length) {
+    checkGet(position, length, false);
+
+    System.arraycopy(array, arrayOffset + position, dst, offset, length);
+    position += length;
+
+    return this;
+  }
+
+  protected int doGet(int position) {
+    return array[arrayOffset+position];
+  }
+
+  public String toString() {
+    return "(ArrayIntBuffer with array: " + array
+      + " arrayOffset: " + arrayOffset
+      + " position: " + position
+      + " limit: " + limit
+      + " capacity: " + capacity + ")";
+  }
+}
@@ -10,14 +10,29 @@
 
 package java.nio;
 
+import sun.misc.Unsafe;
+
 public abstract class ByteBuffer
   extends Buffer
   implements Comparable<ByteBuffer>
 {
+  private static final Unsafe unsafe = Unsafe.getUnsafe();
+
   private final boolean readOnly;
 
-  protected ByteBuffer(boolean readOnly) {
+  // Unsafe reaches element zero of this buffer through unsafeBase and
+  // unsafeOffset; unsafeBase is null for direct buffers, in which case
+  // unsafeOffset is an absolute address
+  final Object unsafeBase;
+  final long unsafeOffset;
+
+  private ByteOrder order = ByteOrder.BIG_ENDIAN;
+  private boolean swapBytes = ByteOrder.nativeOrder() != ByteOrder.BIG_ENDIAN;
+
+  ByteBuffer(boolean readOnly, Object unsafeBase, long unsafeOffset) {
     this.readOnly = readOnly;
+    this.unsafeBase = unsafeBase;
+    this.unsafeOffset = unsafeOffset;
   }
 
   public static ByteBuffer allocate(int capacity) {
@@ -52,6 +67,14 @@ public abstract class ByteBuffer
     return false;
   }
 
+  public boolean isDirect() {
+    return false;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
   public ByteBuffer compact() {
     int remaining = remaining();
 
@@ -123,27 +146,90 @@ public abstract class ByteBuffer
     return put(arr, 0, arr.length);
   }
 
+  public byte get() {
+    checkGet(position, 1, false);
+    return doGet(position++);
+  }
+
+  public byte get(int position) {
+    checkGet(position, 1, true);
+    return doGet(position);
+  }
+
+  public ByteBuffer get(byte[] dst) {
+    return get(dst, 0, dst.length);
+  }
+
   private void rawPutLong(int position, long val) {
-    doPut(position    , (byte) ((val >> 56) & 0xff));
-    doPut(position + 1, (byte) ((val >> 48) & 0xff));
-    doPut(position + 2, (byte) ((val >> 40) & 0xff));
-    doPut(position + 3, (byte) ((val >> 32) & 0xff));
-    doPut(position + 4, (byte) ((val >> 24) & 0xff));
-    doPut(position + 5, (byte) ((val >> 16) & 0xff));
-    doPut(position + 6, (byte) ((val >>  8) & 0xff));
-    doPut(position + 7, (byte) ((val      ) & 0xff));
+    unsafe.putLong(unsafeBase, unsafeOffset + position,
+                  swapBytes ? Long.reverseBytes(val) : val);
+  }
+
+  private long rawGetLong(int position) {
+    long v = unsafe.getLong(unsafeBase, unsafeOffset + position);
+    return swapBytes ? Long.reverseBytes(v) : v;
   }
 
   private void rawPutInt(int position, int val) {
-    doPut(position    , (byte) ((val >> 24) & 0xff));
-    doPut(position + 1, (byte) ((val >> 16) & 0xff));
-    doPut(position + 2, (byte) ((val >>  8) & 0xff));
-    doPut(position + 3, (byte) ((val      ) & 0xff));
+    unsafe.putInt(unsafeBase, unsafeOffset + position,
+                  swapBytes ? Integer.reverseBytes(val) : val);
+  }
+
+  private int rawGetInt(int position) {
+    int v = unsafe.getInt(unsafeBase, unsafeOffset + position);
+    return swapBytes ? Integer.reverseBytes(v) : v;
   }
 
   private void rawPutShort(int position, short val) {
-    doPut(position    , (byte) ((val >> 8) & 0xff));
-    doPut(position + 1, (byte) ((val     ) & 0xff));
+    unsafe.putShort(unsafeBase, unsafeOffset + position,
+                  swapBytes ? Short.reverseBytes(val) : val);
+  }
+
+  private short rawGetShort(int position) {
+    short v = unsafe.getShort(unsafeBase, unsafeOffset + position);
+    return swapBytes ? Short.reverseBytes(v) : v;
+  }
+
+  private void rawPutChar(int position, char val) {
+    unsafe.putChar(unsafeBase, unsafeOffset + position,
+                  swapBytes ? Character.reverseBytes(val) : val);
+  }
+
+  private char rawGetChar(int position) {
+    char v = unsafe.getChar(unsafeBase, unsafeOffset + position);
+    return swapBytes ? Character.reverseBytes(v) : v;
+  }
+
+  private void rawPutFloat(int position, float val) {
+    if (swapBytes) {
+      rawPutInt(position, Float.floatToRawIntBits(val));
+    } else {
+      unsafe.putFloat(unsafeBase, unsafeOffset + position, val);
+    }
+  }
+
+  private float rawGetFloat(int position) {
+    if (swapBytes) {
+      return Float.intBitsToFloat(rawGetInt(position));
+    } else {
+      return unsafe.getFloat(unsafeBase, unsafeOffset + position);
+    }
+  }
+
+  private void rawPutDouble(int position, double val) {
+    if (swapBytes) {
+      rawPutLong(position, Double.doubleToRawLongBits(val));
+    } else {
+      unsafe.putDouble(unsafeBase, unsafeOffset + position, val);
+    }
+  }
+
+  private double rawGetDouble(int position) {
+    if (swapBytes) {
+      return Double.longBitsToDouble(rawGetLong(position));
+    } else {
+      return unsafe.getDouble(unsafeBase, unsafeOffset + position);
+    }
   }
 
   public ByteBuffer putLong(int position, long val) {
@@ -154,6 +240,28 @@ public abstract class ByteBuffer
     return this;
   }
 
+  public ByteBuffer putLong(long val) {
+    checkPut(position, 8, false);
+
+    rawPutLong(position, val);
+    position += 8;
+    return this;
+  }
+
+  public long getLong(int position) {
+    checkGet(position, 8, true);
+
+    return rawGetLong(position);
+  }
+
+  public long getLong() {
+    checkGet(position, 8, false);
+
+    long r = rawGetLong(position);
+    position += 8;
+    return r;
+  }
+
   public ByteBuffer putInt(int position, int val) {
     checkPut(position, 4, true);
 
@@ -162,6 +270,28 @@ public abstract class ByteBuffer
     return this;
   }
 
+  public ByteBuffer putInt(int val) {
+    checkPut(position, 4, false);
+
+    rawPutInt(position, val);
+    position += 4;
+    return this;
+  }
+
+  public int getInt(int position) {
+    checkGet(position, 4, true);
+
+    return rawGetInt(position);
+  }
+
+  public int getInt() {
+    checkGet(position, 4, false);
+
+    int r = rawGetInt(position);
+    position += 4;
+    return r;
+  }
+
   public ByteBuffer putShort(int position, short val) {
     checkPut(position, 2, true);
 
@@ -170,107 +300,136 @@ public abstract class ByteBuffer
     return this;
   }
 
-  public ByteBuffer putLong(long val) {
-    checkPut(position, 8, false);
+  public ByteBuffer putShort(short val) {
+    checkPut(position, 2, false);
 
-    rawPutLong(position, val);
-    position += 8;
+    rawPutShort(position, val);
+    position += 2;
     return this;
   }
 
-  public ByteBuffer putInt(int val) {
-    checkPut(position, 4, false);
+  public short getShort(int position) {
+    checkGet(position, 2, true);
+
+    return rawGetShort(position);
+  }
+
+  public short getShort() {
+    checkGet(position, 2, false);
+
+    short r = rawGetShort(position);
+    position += 2;
+    return r;
+  }
+
+  public ByteBuffer putChar(int position, char val) {
+    checkPut(position, 2, true);
+
+    rawPutChar(position, val);
 
-    rawPutInt(position, val);
-    position += 4;
     return this;
   }
 
-  public ByteBuffer putShort(short val) {
+  public ByteBuffer putChar(char val) {
     checkPut(position, 2, false);
 
-    rawPutShort(position, val);
+    rawPutChar(position, val);
     position += 2;
     return this;
   }
 
-  public byte get() {
-    checkGet(position, 1, false);
-    return doGet(position++);
+  public char getChar(int position) {
+    checkGet(position, 2, true);
+
+    return rawGetChar(position);
   }
 
-  public byte get(int position) {
-    checkGet(position, 1, true);
-    return doGet(position);
+  public char getChar() {
+    checkGet(position, 2, false);
+
+    char r = rawGetChar(position);
+    position += 2;
+    return r;
   }
 
-  public ByteBuffer get(byte[] dst) {
-    return get(dst, 0, dst.length);
+  public ByteBuffer putFloat(int position, float val) {
+    checkPut(position, 4, true);
+
+    rawPutFloat(position, val);
+
+    return this;
   }
 
-  public long getLong(int position) {
-    checkGet(position, 8, true);
+  public ByteBuffer putFloat(float val) {
+    checkPut(position, 4, false);
 
-    return rawGetLong(position);
+    rawPutFloat(position, val);
+    position += 4;
+    return this;
   }
 
-  public int getInt(int position) {
+  public float getFloat(int position) {
     checkGet(position, 4, true);
 
-    return rawGetInt(position);
+    return rawGetFloat(position);
   }
 
-  public short getShort(int position) {
-    checkGet(position, 2, true);
+  public float getFloat() {
+    checkGet(position, 4, false);
 
-    return rawGetShort(position);
+    float r = rawGetFloat(position);
+    position += 4;
+    return r;
   }
 
-  private long rawGetLong(int position) {
-    return (((long) (doGet(position    ) & 0xFF)) << 56)
-      |    (((long) (doGet(position + 1) & 0xFF)) << 48)
-      |    (((long) (doGet(position + 2) & 0xFF)) << 40)
-      |    (((long) (doGet(position + 3) & 0xFF)) << 32)
-      |    (((long) (doGet(position + 4) & 0xFF)) << 24)
-      |    (((long) (doGet(position + 5) & 0xFF)) << 16)
-      |    (((long) (doGet(position + 6) & 0xFF)) <<  8)
-      |    (((long) (doGet(position + 7) & 0xFF))      );
+  public ByteBuffer putDouble(int position, double val) {
+    checkPut(position, 8, true);
+
+    rawPutDouble(position, val);
+
+    return this;
   }
 
-  private int rawGetInt(int position) {
-    return (((int) (doGet(position    ) & 0xFF)) << 24)
-      |    (((int) (doGet(position + 1) & 0xFF)) << 16)
-      |    (((int) (doGet(position + 2) & 0xFF)) <<  8)
-      |    (((int) (doGet(position + 3) & 0xFF))      );
+  public ByteBuffer putDouble(double val) {
+    checkPut(position, 8, false);
+
+    rawPutDouble(position, val);
+    position += 8;
+    return this;
   }
 
-  private short rawGetShort(int position) {
-    return (short) ((  ((int) (doGet(position    ) & 0xFF)) << 8)
-                    | (((int) (doGet(position + 1) & 0xFF))     ));
+  public double getDouble(int position) {
+    checkGet(position, 8, true);
+
+    return rawGetDouble(position);
   }
 
-  public long getLong() {
+  public double getDouble() {
     checkGet(position, 8, false);
 
-    long r = rawGetLong(position);
+    double r = rawGetDouble(position);
     position += 8;
     return r;
   }
 
-  public int getInt() {
-    checkGet(position, 4, false);
+  public LongBuffer asLongBuffer() {
+    return new ViewLongBuffer
+      (this, unsafeOffset + position, remaining() >> 3, readOnly, order);
+  }
 
-    int r = rawGetInt(position);
-    position += 4;
-    return r;
+  public IntBuffer asIntBuffer() {
+    return new ViewIntBuffer
+      (this, unsafeOffset + position, remaining() >> 2, readOnly, order);
   }
 
-  public short getShort() {
-    checkGet(position, 2, false);
+  public FloatBuffer asFloatBuffer() {
+    return new ViewFloatBuffer
+      (this, unsafeOffset + position, remaining() >> 2, readOnly, order);
+  }
 
-    short r = rawGetShort(position);
-    position += 2;
-    return r;
+  public DoubleBuffer asDoubleBuffer() {
+    return new ViewDoubleBuffer
+      (this, unsafeOffset + position, remaining() >> 3, readOnly, order);
   }
 
   protected void checkPut(int position, int amount, boolean absolute) {
@@ -286,7 +445,7 @@ public abstract class ByteBuffer
   }
 
   protected void checkGet(int position, int amount, boolean absolute) {
-    if (amount > limit-position) {
+    if (position < 0 || amount > limit-position) {
       throw absolute
         ? new IndexOutOfBoundsException()
         : new BufferUnderflowException();
@@ -294,11 +453,14 @@ public abstract class ByteBuffer
   }
 
   public ByteBuffer order(ByteOrder order) {
-    if (order != ByteOrder.BIG_ENDIAN) throw new UnsupportedOperationException();
+    if (order == null) throw new NullPointerException();
+
+    this.order = order;
+    this.swapBytes = order != ByteOrder.nativeOrder();
     return this;
   }
 
   public ByteOrder order() {
-    return ByteOrder.BIG_ENDIAN;
+    return order;
   }
 }
@@ -48,6 +48,10 @@ public abstract class CharBuffer
     return false;
   }
 
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
   public CharBuffer compact() {
     int remaining = remaining();
 
@@ -0,0 +1,168 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio;
+
+public abstract class DoubleBuffer
+  extends Buffer
+  implements Comparable<DoubleBuffer>
+{
+  private final boolean readOnly;
+
+  protected DoubleBuffer(boolean readOnly) {
+    this.readOnly = readOnly;
+  }
+
+  public static DoubleBuffer allocate(int capacity) {
+    return new ArrayDoubleBuffer(new double[capacity], 0, capacity, false);
+  }
+
+  public static DoubleBuffer wrap(double[] array) {
+    return wrap(array, 0, array.length);
+  }
+
+  public static DoubleBuffer wrap(double[] array, int offset, int length) {
+    return new ArrayDoubleBuffer(array, offset, length, false);
+  }
+
+  public abstract DoubleBuffer asReadOnlyBuffer();
+
+  public abstract DoubleBuffer slice();
+
+  public abstract ByteOrder order();
+
+  protected abstract void doPut(int offset, double value);
+
+  public abstract DoubleBuffer put(double[] src, int offset, int length);
+
+  protected abstract double doGet(int offset);
+
+  public abstract DoubleBuffer get(double[] dst, int offset, int length);
+
+  public boolean hasArray() {
+    return false;
+  }
+
+  public boolean isDirect() {
+    return false;
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  public DoubleBuffer compact() {
+    int remaining = remaining();
+
+    if (position != 0) {
+      DoubleBuffer b = slice();
+      position = 0;
+      put(b);
+    }
+
+    position = remaining;
+    limit(capacity());
+
+    return this;
+  }
+
+  public DoubleBuffer put(DoubleBuffer src) {
+    if (src.hasArray()) {
+      checkPut(position, src.remaining(), false);
+
+      put(src.array(), src.arrayOffset() + src.position, src.remaining());
+      src.position(src.position() + src.remaining());
+
+      return this;
+    } else {
+      double[] buffer = new double[src.remaining()];
+      src.get(buffer);
+      return put(buffer);
+    }
+  }
+
+  public int compareTo(DoubleBuffer o) {
+    int end = (remaining() < o.remaining() ? remaining() : o.remaining());
+
+    for (int i = 0; i < end; ++i) {
+      double a = get(position + i);
+      double b = o.get(o.position + i);
+      if (a < b) {
+        return -1;
+      } else if (a > b) {
+        return 1;
+      }
+    }
+    return remaining() - o.remaining();
+  }
+
+  public boolean equals(Object o) {
+    return o instanceof DoubleBuffer && compareTo((DoubleBuffer) o) == 0;
+  }
+
+  public double[] array() {
+    throw new UnsupportedOperationException();
+  }
+
+  public int arrayOffset() {
+    throw new UnsupportedOperationException();
+  }
+
+  public DoubleBuffer put(int offset, double val) {
+    checkPut(offset, 1, true);
+    doPut(offset, val);
+    return this;
+  }
+
+  public DoubleBuffer put(double val) {
+    checkPut(position, 1, false);
+    doPut(position, val);
+    ++ position;
+    return this;
+  }
+
+  public DoubleBuffer put(double[] arr) {
+    return put(arr, 0, arr.length);
+  }
+
+  public double get() {
+    checkGet(position, 1, false);
+    return doGet(position++);
+  }
+
+  public double get(int position) {
+    checkGet(position, 1, true);
+    return doGet(position);
+  }
+
+  public DoubleBuffer get(double[] dst) {
+    return get(dst, 0, dst.length);
+  }
+
+  protected void checkPut(int position, int amount, boolean absolute) {
+    if (readOnly) {
+      throw new ReadOnlyBufferException();
+    }
+
+    if (position < 0 || position+amount > limit) {
+      throw absolute
+        ? new IndexOutOfBoundsException()
+        : new BufferOverflowException();
+    }
+  }
+
+  protected void checkGet(int position, int amount, boolean absolute) {
+    if (position < 0 || amount > limit-position) {
+      throw absolute
+        ? new IndexOutOfBoundsException()
+        : new BufferUnderflowException();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio;
+
+public class MappedByteBuffer extends DirectByteBuffer {
+  private final Mapping mapping;
+
+  // instances are created by FileChannel.map via JNI
+  private MappedByteBuffer(long base,
+                           long length,
+                           boolean shared,
+                           long address,
+                           int capacity,
+                           boolean readOnly)
+  {
+    this(new Mapping(base, length, shared), address, capacity, readOnly);
+  }
+
+  private MappedByteBuffer(Mapping mapping,
+                           long address,
+                           int capacity,
+                           boolean readOnly)
+  {
+    super(address, capacity, readOnly);
+
+    this.mapping = mapping;
+  }
+
+  public final MappedByteBuffer force() {
+    if (mapping.shared && capacity > 0) {
+      force(address, capacity);
+    }
+    return this;
+  }
+
+  public final MappedByteBuffer load() {
+    if (capacity > 0) {
+      load(address, capacity);
+    }
+    return this;
+  }
+
+  public final boolean isLoaded() {
+    return capacity == 0 || isLoaded(address, capacity);
+  }
+
+  public ByteBuffer asReadOnlyBuffer() {
+    ByteBuffer b = new MappedByteBuffer(mapping, address, capacity, true);
+    b.position(position());
+    b.limit(limit());
+    return b;
+  }
+
+  public ByteBuffer slice() {
+    return new MappedByteBuffer
+      (mapping, address + position, remaining(), isReadOnly());
+  }
+
+  private static native void force(long address, long length);
+
+  private static native void load(long address, long length);
+
+  private static native boolean isLoaded(long address, long length);
+
+  private static native void unmap(long base, long length);
+
+  public String toString() {
+    return "(MappedByteBuffer with address: " + address
+      + " position: " + position
+      + " limit: " + limit
+      + " capacity: " + capacity + ")";
+  }
+
+  // Shared by a buffer and all of its views, so the region stays
+  // mapped until none of them are reachable.
+  private static class Mapping {
+    private final long base;
+    private final long length;
+    private final boolean shared;
+
+    public Mapping(long base, long length, boolean shared) {
+      this.base = base;
+      this.length = length;
+      this.shared = shared;
+    }
+
+    protected void finalize() {
+      if (length != 0) {
+        unmap(base, length);
+      }
+    }
+  }
+}
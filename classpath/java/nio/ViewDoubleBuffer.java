@@ -0,0 +1,141 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio;
+
+import sun.misc.Unsafe;
+
+/**
+ * A DoubleBuffer whose contents live in a ByteBuffer, as returned by
+ * ByteBuffer.asDoubleBuffer().  Elements are read and written with single
+ * Unsafe accesses, byte-swapped when the view's order differs from
+ * the native one.
+ */
+class ViewDoubleBuffer extends DoubleBuffer {
+  private static final Unsafe unsafe = Unsafe.getUnsafe();
+  private static final int baseOffset = unsafe.arrayBaseOffset(double[].class);
+
+  private final ByteBuffer buffer;
+  private final long offset;
+  private final ByteOrder order;
+  private final boolean swapBytes;
+
+  ViewDoubleBuffer(ByteBuffer buffer,
+                   long offset,
+                   int capacity,
+                   boolean readOnly,
+                   ByteOrder order)
+  {
+    super(readOnly);
+
+    this.buffer = buffer;
+    this.offset = offset;
+    this.order = order;
+    this.swapBytes = order != ByteOrder.nativeOrder();
+    this.capacity = capacity;
+    this.limit = capacity;
+    this.position = 0;
+  }
+
+  private long address(int position) {
+    return offset + (((long) position) << 3);
+  }
+
+  public boolean isDirect() {
+    return buffer.isDirect();
+  }
+
+  public ByteOrder order() {
+    return order;
+  }
+
+  public DoubleBuffer asReadOnlyBuffer() {
+    DoubleBuffer b = new ViewDoubleBuffer
+      (buffer, offset, capacity, true, order);
+    b.position(position());
+    b.limit(limit());
+    return b;
+  }
+
+  public DoubleBuffer slice() {
+    return new ViewDoubleBuffer
+      (buffer, address(position), remaining(), isReadOnly(), order);
+  }
+
+  protected void doPut(int position, double val) {
+    if (swapBytes) {
+      unsafe.putLong(buffer.unsafeBase, address(position),
+                     Long.reverseBytes(Double.doubleToRawLongBits(val)));
+    } else {
+      unsafe.putDouble(buffer.unsafeBase, address(position), val);
+    }
+  }
+
+  public DoubleBuffer put(double[] src, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > src.length) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+
+    checkPut(position, length, false);
+
+    if (swapBytes) {
+      for (int i = 0; i < length; ++i) {
+        doPut(position + i, src[offset + i]);
+      }
+    } else {
+      unsafe.copyMemory
+        (src, baseOffset + (((long) offset) << 3), buffer.unsafeBase,
+         address(position), ((long) length) << 3);
+    }
+
+    position += length;
+
+    return this;
+  }
+
+  public DoubleBuffer get(double[] dst, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > dst.length) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+
+    checkGet(position, length, false);
+
+    if (swapBytes) {
+      for (int i = 0; i < length; ++i) {
+        dst[offset + i] = doGet(position + i);
+      }
+    } else {
+      unsafe.copyMemory
+        (buffer.unsafeBase, address(position), dst,
+         baseOffset + (((long) offset) << 3), ((long) length) << 3);
+    }
+
+    position += length;
+
+    return this;
+  }
+
+  protected double doGet(int position) {
+    if (swapBytes) {
+      long v = unsafe.getLong(buffer.unsafeBase, address(position));
+      return Double.longBitsToDouble(Long.reverseBytes(v));
+    } else {
+      return unsafe.getDouble(buffer.unsafeBase, address(position));
+    }
+  }
+
+  public String toString() {
+    return "(ViewDoubleBuffer with buffer: " + buffer
+      + " order: " + order
+      + " position: " + position
+      + " limit: " + limit
+      + " capacity: " + capacity + ")";
+  }
+}
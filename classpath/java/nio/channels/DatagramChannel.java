@@ -12,6 +12,7 @@ package java.nio.channels;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.net.SocketAddress;
 import java.net.InetSocketAddress;
 import java.net.ProtocolFamily;
@@ -107,11 +108,17 @@ public class DatagramChannel extends SelectableChannel
   public int write(ByteBuffer b) throws IOException {
     if (b.remaining() == 0) return 0;
 
-    byte[] array = b.array();
-    if (array == null) throw new NullPointerException();
+    int c;
+    if (b.isDirect()) {
+      c = writeDirect(socket, b, b.position(), b.remaining());
+    } else {
+      byte[] array = b.array();
+      if (array == null) throw new NullPointerException();
 
-    int c = write
-      (socket, array, b.arrayOffset() + b.position(), b.remaining(), blocking);
+      c = write
+        (socket, array, b.arrayOffset() + b.position(), b.remaining(),
+         blocking);
+    }
 
     if (c > 0) {
       b.position(b.position() + c);
@@ -127,16 +134,22 @@ public class DatagramChannel extends SelectableChannel
   }
 
   public SocketAddress receive(ByteBuffer b) throws IOException {
+    if (b.isReadOnly()) throw new ReadOnlyBufferException();
     if (b.remaining() == 0) return null;
 
-    byte[] array = b.array();
-    if (array == null) throw new NullPointerException();
-
     int[] address = new int[2];
 
-    int c = receive
-      (socket, array, b.arrayOffset() + b.position(), b.remaining(), blocking,
-       address);
+    int c;
+    if (b.isDirect()) {
+      c = receiveDirect(socket, b, b.position(), b.remaining(), address);
+    } else {
+      byte[] array = b.array();
+      if (array == null) throw new NullPointerException();
+
+      c = receive
+        (socket, array, b.arrayOffset() + b.position(), b.remaining(),
+         blocking, address);
+    }
 
     if (c > 0) {
       b.position(b.position() + c);
@@ -157,13 +170,19 @@ public class DatagramChannel extends SelectableChannel
       throw new UnsupportedAddressTypeException();
     }
 
-    byte[] array = b.array();
-    if (array == null) throw new NullPointerException();
+    int host = inetAddress.getAddress().getRawAddress();
+    int c;
+    if (b.isDirect()) {
+      c = sendDirect
+        (socket, host, inetAddress.getPort(), b, b.position(), b.remaining());
+    } else {
+      byte[] array = b.array();
+      if (array == null) throw new NullPointerException();
 
-    int c = send
-      (socket, inetAddress.getAddress().getRawAddress(),
-       inetAddress.getPort(), array, b.arrayOffset() + b.position(),
-       b.remaining(), blocking);
+      c = send
+        (socket, host, inetAddress.getPort(), array,
+         b.arrayOffset() + b.position(), b.remaining(), blocking);
+    }
 
     if (c > 0) {
       b.position(b.position() + c);
@@ -235,5 +254,16 @@ public class DatagramChannel extends SelectableChannel
                                     int length, boolean blocking,
                                     int[] address)
     throws IOException;
+  private static native int writeDirect(int socket, ByteBuffer buffer,
+                                        int offset, int length)
+    throws IOException;
+  private static native int sendDirect(int socket, int host, int port,
+                                       ByteBuffer buffer, int offset,
+                                       int length)
+    throws IOException;
+  private static native int receiveDirect(int socket, ByteBuffer buffer,
+                                          int offset, int length,
+                                          int[] address)
+    throws IOException;
   private static native void close(int socket);
 }
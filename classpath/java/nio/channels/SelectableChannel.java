@@ -12,9 +12,11 @@ package java.nio.channels;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
 
 public abstract class SelectableChannel implements Channel {
-  private SelectionKey key;
+  private final ArrayList<SelectionKey> keys = new ArrayList<SelectionKey>();
   private boolean open = true;
 
   abstract int socketFD();
@@ -27,7 +29,17 @@ public abstract class SelectableChannel implements Channel {
   public SelectionKey register(Selector selector, int interestOps,
                                Object attachment)
   {
-    key = new SelectionKey(this, selector, interestOps, attachment);
+    SelectionKey key = new SelectionKey
+      (this, selector, interestOps, attachment);
+    synchronized (keys) {
+      // forget any keys belonging to selectors which have since closed
+      for (Iterator<SelectionKey> it = keys.iterator(); it.hasNext();) {
+        if (! it.next().selector().isOpen()) {
+          it.remove();
+        }
+      }
+      keys.add(key);
+    }
     selector.add(key);
     return key;
   }
@@ -38,6 +50,15 @@ public abstract class SelectableChannel implements Channel {
 
   public void close() throws IOException {
     open = false;
-    key = null;
+    SelectionKey[] toCancel;
+    synchronized (keys) {
+      toCancel = keys.toArray(new SelectionKey[keys.size()]);
+      keys.clear();
+    }
+    // make sure each selector forgets about the socket, since its
+    // descriptor may be reused once it is closed
+    for (SelectionKey key : toCancel) {
+      key.cancel();
+    }
   }
 }
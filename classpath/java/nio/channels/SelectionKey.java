@@ -21,6 +21,7 @@ public class SelectionKey {
   private int interestOps;
   private int readyOps;
   private final Object attachment;
+  private volatile boolean cancelled;
 
   public SelectionKey(SelectableChannel channel, Selector selector,
                       int interestOps, Object attachment)
@@ -38,6 +39,7 @@ public class SelectionKey {
 
   public SelectionKey interestOps(int v) {
     this.interestOps = v;
+    selector.update(this);
     return this;
   }
 
@@ -66,7 +68,18 @@ public class SelectionKey {
   }
 
   public boolean isValid() {
-    return channel.isOpen() && selector.isOpen();
+    return (! cancelled) && channel.isOpen() && selector.isOpen();
+  }
+
+  public void cancel() {
+    if (! cancelled) {
+      cancelled = true;
+      selector.remove(this);
+    }
+  }
+
+  boolean isCancelled() {
+    return cancelled;
   }
 
   public SelectableChannel channel() {
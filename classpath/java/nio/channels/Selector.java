@@ -30,6 +30,11 @@ public abstract class Selector {
     keys.remove(key);
   }
 
+  // called when the interest set of one of our keys changes
+  void update(SelectionKey key) {
+    // ignore
+  }
+
   public Set<SelectionKey> keys() {
     return keys;
   }
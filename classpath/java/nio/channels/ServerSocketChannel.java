@@ -43,6 +43,7 @@ public class ServerSocketChannel extends SelectableChannel {
   }
 
   public void close() throws IOException {
+    super.close();
     channel.close();
   }
 
@@ -16,12 +16,17 @@ import java.net.SocketAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 
 public class SocketChannel extends SelectableChannel
-  implements ReadableByteChannel, GatheringByteChannel
+  implements ReadableByteChannel, GatheringByteChannel, ScatteringByteChannel
 {
   public static final int InvalidSocket = -1;
 
+  // the most buffers passed to a single natWritev or natReadv call;
+  // must match MaxIOVectors in java-nio.cpp
+  private static final int MaxIOVectors = 64;
+
   int socket = makeSocket();
   boolean connected = false;
   boolean readyToConnect = false;
@@ -73,13 +78,18 @@ public class SocketChannel extends SelectableChannel
     if (! connected) {
       while (! readyToConnect) {
         Selector selector = Selector.open();
-        SelectionKey key = register(selector, SelectionKey.OP_CONNECT, null);
-
-        if (blocking) {
-          selector.select();
-        } else {
-          selector.selectNow();
-          break;
+        try {
+          SelectionKey key = register
+            (selector, SelectionKey.OP_CONNECT, null);
+
+          if (blocking) {
+            selector.select();
+          } else {
+            selector.selectNow();
+            break;
+          }
+        } finally {
+          selector.close();
         }
       }
 
@@ -106,12 +116,18 @@ public class SocketChannel extends SelectableChannel
 
   public int read(ByteBuffer b) throws IOException {
     if (! isOpen()) return -1;
+    if (b.isReadOnly()) throw new ReadOnlyBufferException();
     if (b.remaining() == 0) return 0;
 
-    byte[] array = b.array();
-    if (array == null) throw new NullPointerException();
+    int r;
+    if (b.isDirect()) {
+      r = natReadDirect(socket, b, b.position(), b.remaining());
+    } else {
+      byte[] array = b.array();
+      if (array == null) throw new NullPointerException();
 
-    int r = natRead(socket, array, b.arrayOffset() + b.position(), b.remaining(), blocking);
+      r = natRead(socket, array, b.arrayOffset() + b.position(), b.remaining(), blocking);
+    }
     if (r > 0) {
       b.position(b.position() + r);
     }
@@ -124,10 +140,15 @@ public class SocketChannel extends SelectableChannel
     }
     if (b.remaining() == 0) return 0;
 
-    byte[] array = b.array();
-    if (array == null) throw new NullPointerException();
+    int w;
+    if (b.isDirect()) {
+      w = natWriteDirect(socket, b, b.position(), b.remaining());
+    } else {
+      byte[] array = b.array();
+      if (array == null) throw new NullPointerException();
 
-    int w = natWrite(socket, array, b.arrayOffset() + b.position(), b.remaining(), blocking);
+      w = natWrite(socket, array, b.arrayOffset() + b.position(), b.remaining(), blocking);
+    }
     if (w > 0) {
       b.position(b.position() + w);
     }
@@ -140,17 +161,104 @@ public class SocketChannel extends SelectableChannel
 
   public long write(ByteBuffer[] srcs, int offset, int length)
     throws IOException
+  {
+    checkBounds(srcs, offset, length);
+    if (! connected) {
+      natThrowWriteError(socket);
+    }
+
+    int count = length < MaxIOVectors ? length : MaxIOVectors;
+    byte[][] arrays = new byte[count][];
+    ByteBuffer[] directs = new ByteBuffer[count];
+    int[] offsets = new int[count];
+    int[] lengths = new int[count];
+    if (collect(srcs, offset, count, arrays, directs, offsets, lengths) == 0) {
+      return 0;
+    }
+
+    long w = natWritev
+      (socket, arrays, directs, offsets, lengths, count, blocking);
+    if (w > 0) {
+      consume(srcs, offset, count, w);
+    }
+    return w;
+  }
+
+  public long read(ByteBuffer[] dsts) throws IOException {
+    return read(dsts, 0, dsts.length);
+  }
+
+  public long read(ByteBuffer[] dsts, int offset, int length)
+    throws IOException
+  {
+    checkBounds(dsts, offset, length);
+    if (! isOpen()) return -1;
+
+    int count = length < MaxIOVectors ? length : MaxIOVectors;
+    for (int i = offset; i < offset + count; ++i) {
+      if (dsts[i].isReadOnly()) throw new ReadOnlyBufferException();
+    }
+
+    byte[][] arrays = new byte[count][];
+    ByteBuffer[] directs = new ByteBuffer[count];
+    int[] offsets = new int[count];
+    int[] lengths = new int[count];
+    if (collect(dsts, offset, count, arrays, directs, offsets, lengths) == 0) {
+      return 0;
+    }
+
+    long r = natReadv
+      (socket, arrays, directs, offsets, lengths, count, blocking);
+    if (r > 0) {
+      consume(dsts, offset, count, r);
+    }
+    return r;
+  }
+
+  private static void checkBounds(ByteBuffer[] buffers, int offset,
+                                  int length)
+  {
+    if (offset < 0 || length < 0 || offset > buffers.length - length) {
+      throw new IndexOutOfBoundsException();
+    }
+  }
+
+  // Describes each buffer to natWritev/natReadv as either a byte
+  // array or a direct buffer, plus the offset and length of the
+  // region to use.  Returns the total number of bytes.
+  private static long collect(ByteBuffer[] buffers, int offset, int count,
+                              byte[][] arrays, ByteBuffer[] directs,
+                              int[] offsets, int[] lengths)
   {
     long total = 0;
-    for (int i = offset; i < offset + length; ++i) {
-      total += write(srcs[i]);
-      if (srcs[i].hasRemaining()) {
-        return total;
+    for (int i = 0; i < count; ++i) {
+      ByteBuffer b = buffers[offset + i];
+      if (b.isDirect()) {
+        directs[i] = b;
+        offsets[i] = b.position();
+      } else {
+        arrays[i] = b.array();
+        offsets[i] = b.arrayOffset() + b.position();
       }
+      lengths[i] = b.remaining();
+      total += lengths[i];
     }
     return total;
   }
 
+  // Advances the positions of the buffers past the bytes transferred.
+  private static void consume(ByteBuffer[] buffers, int offset, int count,
+                              long transferred)
+  {
+    for (int i = offset; i < offset + count && transferred > 0; ++i) {
+      ByteBuffer b = buffers[i];
+      int n = (int) (transferred < b.remaining()
+                     ? transferred : b.remaining());
+      b.position(b.position() + n);
+      transferred -= n;
+    }
+  }
+
   private void closeSocket() {
     natCloseSocket(socket);
   }
@@ -209,6 +317,18 @@ public class SocketChannel extends SelectableChannel
     throws IOException;
   private static native int natWrite(int socket, byte[] buffer, int offset, int length, boolean blocking)
     throws IOException;
+  private static native int natReadDirect(int socket, ByteBuffer buffer, int offset, int length)
+    throws IOException;
+  private static native int natWriteDirect(int socket, ByteBuffer buffer, int offset, int length)
+    throws IOException;
+  private static native long natWritev(int socket, byte[][] arrays, ByteBuffer[] directs,
+                                       int[] offsets, int[] lengths, int count,
+                                       boolean blocking)
+    throws IOException;
+  private static native long natReadv(int socket, byte[][] arrays, ByteBuffer[] directs,
+                                      int[] offsets, int[] lengths, int count,
+                                      boolean blocking)
+    throws IOException;
   private static native void natThrowWriteError(int socket) throws IOException;
   private static native void natCloseSocket(int socket);
 }
@@ -11,13 +11,35 @@
 package java.nio.channels;
 
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.net.Socket;
 
+/**
+ * A {@link Selector} backed by epoll on Linux and select elsewhere.
+ *
+ * <p>Changes to a key's interest set are queued and pushed to the
+ * native selector incrementally at the start of the next select, and
+ * only the sockets reported ready are visited afterwards, so the cost
+ * of a select does not grow with the number of registered keys.
+ */
 class SocketSelector extends Selector {
+  private static final int InitialReadyBufferSize = 64 * 2;
+  // matches MaxReadyCount in java-nio.cpp
+  private static final int MaxReadyBufferSize = 1024 * 2;
+
   protected volatile long state;
   protected final Object lock = new Object();
   protected boolean woken = false;
+  // keys which were added, cancelled or had their interest set changed
+  // since the last select; guarded by lock
+  private final ArrayList<SelectionKey> pendingUpdates
+    = new ArrayList<SelectionKey>();
+  private final HashMap<Integer, SelectionKey> keysBySocket
+    = new HashMap<Integer, SelectionKey>();
+  // pairs of socket descriptors and ready operations filled in by
+  // natDoSocketSelect
+  private int[] ready = new int[InitialReadyBufferSize];
 
   public SocketSelector() throws IOException {
     Socket.init();
@@ -65,46 +87,100 @@ class SocketSelector extends Selector {
     return doSelect(interval);
   }
 
-  public int doSelect(long interval) throws IOException {
-    if (! isOpen()) {
-      throw new ClosedSelectorException();
+  // should be synchronized on lock before calling
+  private void queueUpdate(SelectionKey key) {
+    pendingUpdates.add(key);
+  }
+
+  @Override
+  public void add(SelectionKey key) {
+    super.add(key);
+    synchronized (lock) {
+      queueUpdate(key);
     }
+  }
 
-    selectedKeys.clear();
+  @Override
+  public void remove(SelectionKey key) {
+    super.remove(key);
+    synchronized (lock) {
+      queueUpdate(key);
+    }
+  }
 
-    if (clearWoken()) interval = -1;
+  @Override
+  void update(SelectionKey key) {
+    synchronized (lock) {
+      queueUpdate(key);
+    }
+  }
+
+  // Pushes interest set changes made since the last select down to
+  // the native selector, so that only keys which have actually
+  // changed are visited.
+  private void applyUpdates() throws IOException {
+    SelectionKey[] updates;
+    synchronized (lock) {
+      if (pendingUpdates.isEmpty()) {
+        return;
+      }
+      updates = pendingUpdates.toArray(new SelectionKey[pendingUpdates.size()]);
+      pendingUpdates.clear();
+    }
 
-    int max=0;
-    for (Iterator<SelectionKey> it = keys.iterator();
-         it.hasNext();)
-    {
-      SelectionKey key = it.next();
+    for (SelectionKey key : updates) {
       SelectableChannel c = key.channel();
-      int socket = c.socketFD();
-      if (c.isOpen()) {
-        key.readyOps(0);
-        max = natSelectUpdateInterestSet
-          (socket, key.interestOps(), state, max);
+      Integer socket = c.socketFD();
+      if (key.isCancelled() || (! c.isOpen()) || (! keys.contains(key))) {
+        keys.remove(key);
+        if (keysBySocket.get(socket) == key) {
+          keysBySocket.remove(socket);
+          natRemove(state, socket);
+        }
       } else {
-        natSelectClearAll(socket, state);
-        it.remove();
+        SelectionKey old = keysBySocket.put(socket, key);
+        if (old != null && old != key) {
+          // the channel has been registered again
+          keys.remove(old);
+        }
+        natUpdateInterest(state, socket, key.interestOps());
       }
     }
+  }
 
-    int r = natDoSocketSelect(state, max, interval);
+  public int doSelect(long interval) throws IOException {
+    if (! isOpen()) {
+      throw new ClosedSelectorException();
+    }
 
-    if (r > 0) {
-      for (SelectionKey key : keys) {
-        SelectableChannel c = key.channel();
-        int socket = c.socketFD();
-        int ready = natUpdateReadySet(socket, key.interestOps(), state);
-        key.readyOps(ready);
-        if (ready != 0) {
-          c.handleReadyOps(ready);
+    for (SelectionKey key : selectedKeys) {
+      key.readyOps(0);
+    }
+    selectedKeys.clear();
+
+    applyUpdates();
+
+    if (clearWoken()) interval = -1;
+
+    int count = natDoSocketSelect(state, interval, ready);
+
+    for (int i = 0; i < count; ++i) {
+      SelectionKey key = keysBySocket.get(ready[i * 2]);
+      if (key != null) {
+        int ops = ready[(i * 2) + 1] & key.interestOps();
+        if (ops != 0) {
+          key.readyOps(ops);
+          key.channel().handleReadyOps(ops);
           selectedKeys.add(key);
         }
       }
     }
+
+    if (count == ready.length / 2 && ready.length < MaxReadyBufferSize) {
+      // there may have been more ready sockets than we had room for
+      ready = new int[ready.length * 2];
+    }
+
     clearWoken();
 
     return selectedKeys.size();
@@ -122,12 +198,11 @@ class SocketSelector extends Selector {
   private static native long natInit();
   private static native void natWakeup(long state);
   private static native void natClose(long state);
-  private static native void natSelectClearAll(int socket, long state);
-  private static native int natSelectUpdateInterestSet(int socket,
-                                                       int interest,
-                                                       long state,
-                                                       int max);
-  private static native int natDoSocketSelect(long state, int max, long interval)
+  private static native void natRemove(long state, int socket);
+  private static native void natUpdateInterest(long state, int socket,
+                                               int interest)
+    throws IOException;
+  private static native int natDoSocketSelect(long state, long interval,
+                                              int[] ready)
     throws IOException;
-  private static native int natUpdateReadySet(int socket, int interest, long state);
 }
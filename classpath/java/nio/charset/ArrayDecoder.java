@@ -0,0 +1,51 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * A decoder which works directly on the arrays behind its buffers, the
+ * common case, and copies through temporary arrays otherwise.
+ */
+abstract class ArrayDecoder extends CharsetDecoder {
+  ArrayDecoder(Charset charset, float averageCharsPerByte,
+               float maxCharsPerByte)
+  {
+    super(charset, averageCharsPerByte, maxCharsPerByte);
+  }
+
+  protected final CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+    if (in.hasArray() && out.hasArray() && ! out.isReadOnly()) {
+      return decodeArrays(in, out);
+    }
+
+    int position = in.position();
+    ByteBuffer src = ByteBuffer.allocate(in.remaining());
+    src.put(in);
+    src.flip();
+
+    CharBuffer dst = CharBuffer.allocate(out.remaining());
+    CoderResult result = decodeArrays(src, dst);
+
+    in.position(position + src.position());
+    dst.flip();
+    out.put(dst);
+    return result;
+  }
+
+  /**
+   * Decodes as {@link #decodeLoop} does, where both buffers are backed
+   * by arrays and the output is writable.
+   */
+  abstract CoderResult decodeArrays(ByteBuffer in, CharBuffer out);
+}
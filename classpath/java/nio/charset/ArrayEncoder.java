@@ -0,0 +1,80 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * An encoder which works directly on the arrays behind its buffers, the
+ * common case, and copies through temporary arrays otherwise.
+ */
+abstract class ArrayEncoder extends CharsetEncoder {
+  ArrayEncoder(Charset charset, float averageBytesPerChar,
+               float maxBytesPerChar, byte[] replacement)
+  {
+    super(charset, averageBytesPerChar, maxBytesPerChar, replacement);
+  }
+
+  ArrayEncoder(Charset charset, float averageBytesPerChar,
+               float maxBytesPerChar)
+  {
+    super(charset, averageBytesPerChar, maxBytesPerChar);
+  }
+
+  protected final CoderResult encodeLoop(CharBuffer in, ByteBuffer out) {
+    if (in.hasArray() && out.hasArray() && ! out.isReadOnly()) {
+      return encodeArrays(in, out);
+    }
+
+    int position = in.position();
+    CharBuffer src = CharBuffer.allocate(in.remaining());
+    src.put(in);
+    src.flip();
+
+    ByteBuffer dst = ByteBuffer.allocate(out.remaining());
+    CoderResult result = encodeArrays(src, dst);
+
+    in.position(position + src.position());
+    dst.flip();
+    out.put(dst);
+    return result;
+  }
+
+  /**
+   * Encodes as {@link #encodeLoop} does, where both buffers are backed
+   * by arrays and the output is writable.
+   */
+  abstract CoderResult encodeArrays(CharBuffer in, ByteBuffer out);
+
+  /**
+   * Returns the result for a character at the specified index which
+   * this charset can't represent: a surrogate pair is unmappable, a
+   * high surrogate at the end of the input must wait for the rest of
+   * the pair, and any other surrogate is malformed.
+   */
+  static CoderResult unencodable(char[] src, int index, int limit) {
+    char c = src[index];
+    if (Character.isHighSurrogate(c)) {
+      if (index + 1 == limit) {
+        return CoderResult.UNDERFLOW;
+      } else if (Character.isLowSurrogate(src[index + 1])) {
+        return CoderResult.unmappableForLength(2);
+      } else {
+        return CoderResult.malformedForLength(1);
+      }
+    } else if (Character.isLowSurrogate(c)) {
+      return CoderResult.malformedForLength(1);
+    } else {
+      return CoderResult.unmappableForLength(1);
+    }
+  }
+}
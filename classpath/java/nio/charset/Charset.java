@@ -0,0 +1,193 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public abstract class Charset implements Comparable<Charset> {
+  private final String name;
+  private final String[] aliases;
+
+  // the standard charsets are the only ones we support, so a linear
+  // search is all forName needs
+  private static class Static {
+    private static final Charset[] charsets = {
+      StandardCharsets.UTF_8,
+      StandardCharsets.ISO_8859_1,
+      StandardCharsets.US_ASCII,
+      StandardCharsets.UTF_16,
+      StandardCharsets.UTF_16BE,
+      StandardCharsets.UTF_16LE
+    };
+  }
+
+  protected Charset(String canonicalName, String[] aliases) {
+    checkName(canonicalName);
+    if (aliases == null) {
+      aliases = new String[0];
+    }
+    for (String alias: aliases) {
+      checkName(alias);
+    }
+
+    this.name = canonicalName;
+    this.aliases = aliases;
+  }
+
+  private static void checkName(String name) {
+    int length = name.length();
+    if (length == 0) {
+      throw new IllegalCharsetNameException(name);
+    }
+
+    for (int i = 0; i < length; ++i) {
+      char c = name.charAt(i);
+      if (! ((c >= 'A' && c <= 'Z')
+             || (c >= 'a' && c <= 'z')
+             || (c >= '0' && c <= '9')
+             || (i > 0 && (c == '-' || c == '+' || c == ':' || c == '_'
+                           || c == '.'))))
+      {
+        throw new IllegalCharsetNameException(name);
+      }
+    }
+  }
+
+  private static Charset lookup(String name) {
+    if (name == null) {
+      throw new IllegalArgumentException("null charset name");
+    }
+
+    for (Charset charset: Static.charsets) {
+      if (charset.name.equalsIgnoreCase(name)) {
+        return charset;
+      }
+      for (String alias: charset.aliases) {
+        if (alias.equalsIgnoreCase(name)) {
+          return charset;
+        }
+      }
+    }
+    return null;
+  }
+
+  public static Charset forName(String name) {
+    Charset charset = lookup(name);
+    if (charset == null) {
+      checkName(name);
+      throw new UnsupportedCharsetException(name);
+    }
+    return charset;
+  }
+
+  public static boolean isSupported(String name) {
+    if (lookup(name) != null) {
+      return true;
+    }
+    checkName(name);
+    return false;
+  }
+
+  public static Charset defaultCharset() {
+    return StandardCharsets.UTF_8;
+  }
+
+  public static SortedMap<String, Charset> availableCharsets() {
+    SortedMap<String, Charset> map = new TreeMap<String, Charset>
+      (String.CASE_INSENSITIVE_ORDER);
+    for (Charset charset: Static.charsets) {
+      map.put(charset.name, charset);
+    }
+    return map;
+  }
+
+  public final String name() {
+    return name;
+  }
+
+  public final Set<String> aliases() {
+    Set<String> set = new HashSet<String>();
+    for (String alias: aliases) {
+      set.add(alias);
+    }
+    return set;
+  }
+
+  public String displayName() {
+    return name;
+  }
+
+  public final boolean isRegistered() {
+    return true;
+  }
+
+  public boolean canEncode() {
+    return true;
+  }
+
+  /**
+   * Returns whether every character this charset can represent can
+   * also be represented by the specified one.
+   */
+  public abstract boolean contains(Charset charset);
+
+  public abstract CharsetDecoder newDecoder();
+
+  public abstract CharsetEncoder newEncoder();
+
+  public final CharBuffer decode(ByteBuffer in) {
+    try {
+      return newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .decode(in);
+    } catch (CharacterCodingException e) {
+      // errors are replaced rather than reported
+      throw new RuntimeException(e);
+    }
+  }
+
+  public final ByteBuffer encode(CharBuffer in) {
+    try {
+      return newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .encode(in);
+    } catch (CharacterCodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public final ByteBuffer encode(String s) {
+    return encode(CharBuffer.wrap(s.toCharArray()));
+  }
+
+  public final int compareTo(Charset o) {
+    return name.compareToIgnoreCase(o.name);
+  }
+
+  public final boolean equals(Object o) {
+    return o instanceof Charset && name.equals(((Charset) o).name);
+  }
+
+  public final int hashCode() {
+    return name.hashCode();
+  }
+
+  public final String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,198 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Converts bytes in a charset to characters.
+ * <p>
+ * A decoder may be fed its input in pieces: a multibyte sequence split
+ * across the end of one input buffer is left there, unconsumed, until
+ * the caller has compacted and refilled the buffer, and any other
+ * state (e.g. the byte order of UTF-16 input) is carried over from one
+ * call to the next until {@link #reset}.
+ * </p>
+ */
+public abstract class CharsetDecoder {
+  private final Charset charset;
+  private final float averageCharsPerByte;
+  private final float maxCharsPerByte;
+  private String replacement = "\ufffd";
+  private CodingErrorAction malformedInputAction = CodingErrorAction.REPORT;
+  private CodingErrorAction unmappableCharacterAction
+    = CodingErrorAction.REPORT;
+
+  protected CharsetDecoder(Charset charset, float averageCharsPerByte,
+                           float maxCharsPerByte)
+  {
+    if (averageCharsPerByte <= 0 || maxCharsPerByte <= 0
+        || averageCharsPerByte > maxCharsPerByte)
+    {
+      throw new IllegalArgumentException();
+    }
+
+    this.charset = charset;
+    this.averageCharsPerByte = averageCharsPerByte;
+    this.maxCharsPerByte = maxCharsPerByte;
+  }
+
+  public final Charset charset() {
+    return charset;
+  }
+
+  public final float averageCharsPerByte() {
+    return averageCharsPerByte;
+  }
+
+  public final float maxCharsPerByte() {
+    return maxCharsPerByte;
+  }
+
+  public final String replacement() {
+    return replacement;
+  }
+
+  public final CharsetDecoder replaceWith(String replacement) {
+    if (replacement == null || replacement.length() == 0) {
+      throw new IllegalArgumentException();
+    }
+
+    this.replacement = replacement;
+    return this;
+  }
+
+  public CodingErrorAction malformedInputAction() {
+    return malformedInputAction;
+  }
+
+  public final CharsetDecoder onMalformedInput(CodingErrorAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException();
+    }
+
+    malformedInputAction = action;
+    return this;
+  }
+
+  public CodingErrorAction unmappableCharacterAction() {
+    return unmappableCharacterAction;
+  }
+
+  public final CharsetDecoder onUnmappableCharacter(CodingErrorAction action)
+  {
+    if (action == null) {
+      throw new IllegalArgumentException();
+    }
+
+    unmappableCharacterAction = action;
+    return this;
+  }
+
+  /**
+   * Decodes as much of the input as possible into the output,
+   * replacing or skipping malformed and unmappable input as configured.
+   *
+   * @param endOfInput whether the input holds all the remaining bytes,
+   *        such that a truncated sequence at its end is malformed rather
+   *        than to be completed by the next call
+   * @return {@link CoderResult#UNDERFLOW} if the input was consumed, or
+   *         as much of it as can be without more bytes; {@link
+   *         CoderResult#OVERFLOW} if the output is full; or the error
+   *         found, if errors are to be reported
+   */
+  public final CoderResult decode(ByteBuffer in, CharBuffer out,
+                                  boolean endOfInput)
+  {
+    while (true) {
+      CoderResult result = decodeLoop(in, out);
+      if (result.isUnderflow()) {
+        if (endOfInput && in.hasRemaining()) {
+          result = CoderResult.malformedForLength(in.remaining());
+        } else {
+          return result;
+        }
+      } else if (result.isOverflow()) {
+        return result;
+      }
+
+      CodingErrorAction action = result.isMalformed()
+        ? malformedInputAction : unmappableCharacterAction;
+      if (action == CodingErrorAction.REPORT) {
+        return result;
+      } else if (action == CodingErrorAction.REPLACE) {
+        if (out.remaining() < replacement.length()) {
+          return CoderResult.OVERFLOW;
+        }
+        for (int i = 0; i < replacement.length(); ++i) {
+          out.put(replacement.charAt(i));
+        }
+      }
+
+      in.position(in.position() + result.length());
+    }
+  }
+
+  public final CoderResult flush(CharBuffer out) {
+    return implFlush(out);
+  }
+
+  public final CharsetDecoder reset() {
+    implReset();
+    return this;
+  }
+
+  /**
+   * Decodes the remaining input into a newly allocated buffer, which
+   * is returned flipped and ready to read.
+   */
+  public final CharBuffer decode(ByteBuffer in)
+    throws CharacterCodingException
+  {
+    reset();
+    CharBuffer out = CharBuffer.allocate
+      ((int) (in.remaining() * averageCharsPerByte) + 1);
+    while (true) {
+      CoderResult result = decode(in, out, true);
+      if (result.isUnderflow()) {
+        result = flush(out);
+      }
+
+      if (result.isUnderflow()) {
+        break;
+      } else if (result.isOverflow()) {
+        CharBuffer bigger = CharBuffer.allocate((out.capacity() * 2) + 1);
+        out.flip();
+        bigger.put(out);
+        out = bigger;
+      } else {
+        result.throwException();
+      }
+    }
+
+    out.flip();
+    return out;
+  }
+
+  protected CoderResult implFlush(CharBuffer out) {
+    return CoderResult.UNDERFLOW;
+  }
+
+  protected void implReset() { }
+
+  /**
+   * Decodes as much of the input as possible, stopping at the first
+   * error.  A truncated sequence at the end of the input should be
+   * left unconsumed.
+   */
+  protected abstract CoderResult decodeLoop(ByteBuffer in, CharBuffer out);
+}
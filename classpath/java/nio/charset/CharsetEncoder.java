@@ -0,0 +1,219 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Converts characters to bytes in a charset.
+ * <p>
+ * As with {@link CharsetDecoder}, input may be supplied in pieces: a
+ * high surrogate at the end of one input buffer is left unconsumed
+ * until the low surrogate following it arrives, and other state (e.g.
+ * whether a byte order mark has been written) lasts until {@link
+ * #reset}.
+ * </p>
+ */
+public abstract class CharsetEncoder {
+  private final Charset charset;
+  private final float averageBytesPerChar;
+  private final float maxBytesPerChar;
+  private byte[] replacement;
+  private CodingErrorAction malformedInputAction = CodingErrorAction.REPORT;
+  private CodingErrorAction unmappableCharacterAction
+    = CodingErrorAction.REPORT;
+
+  protected CharsetEncoder(Charset charset, float averageBytesPerChar,
+                           float maxBytesPerChar, byte[] replacement)
+  {
+    if (averageBytesPerChar <= 0 || maxBytesPerChar <= 0
+        || averageBytesPerChar > maxBytesPerChar)
+    {
+      throw new IllegalArgumentException();
+    }
+
+    this.charset = charset;
+    this.averageBytesPerChar = averageBytesPerChar;
+    this.maxBytesPerChar = maxBytesPerChar;
+    replaceWith(replacement);
+  }
+
+  protected CharsetEncoder(Charset charset, float averageBytesPerChar,
+                           float maxBytesPerChar)
+  {
+    this(charset, averageBytesPerChar, maxBytesPerChar,
+         new byte[] { (byte) '?' });
+  }
+
+  public final Charset charset() {
+    return charset;
+  }
+
+  public final float averageBytesPerChar() {
+    return averageBytesPerChar;
+  }
+
+  public final float maxBytesPerChar() {
+    return maxBytesPerChar;
+  }
+
+  public final byte[] replacement() {
+    return replacement.clone();
+  }
+
+  public final CharsetEncoder replaceWith(byte[] replacement) {
+    if (replacement == null || replacement.length == 0
+        || replacement.length > maxBytesPerChar)
+    {
+      throw new IllegalArgumentException();
+    }
+
+    this.replacement = replacement.clone();
+    return this;
+  }
+
+  public CodingErrorAction malformedInputAction() {
+    return malformedInputAction;
+  }
+
+  public final CharsetEncoder onMalformedInput(CodingErrorAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException();
+    }
+
+    malformedInputAction = action;
+    return this;
+  }
+
+  public CodingErrorAction unmappableCharacterAction() {
+    return unmappableCharacterAction;
+  }
+
+  public final CharsetEncoder onUnmappableCharacter(CodingErrorAction action)
+  {
+    if (action == null) {
+      throw new IllegalArgumentException();
+    }
+
+    unmappableCharacterAction = action;
+    return this;
+  }
+
+  /**
+   * Encodes as much of the input as possible into the output, as
+   * {@link CharsetDecoder#decode(ByteBuffer,CharBuffer,boolean)}
+   * decodes.
+   */
+  public final CoderResult encode(CharBuffer in, ByteBuffer out,
+                                  boolean endOfInput)
+  {
+    while (true) {
+      CoderResult result = encodeLoop(in, out);
+      if (result.isUnderflow()) {
+        if (endOfInput && in.hasRemaining()) {
+          result = CoderResult.malformedForLength(in.remaining());
+        } else {
+          return result;
+        }
+      } else if (result.isOverflow()) {
+        return result;
+      }
+
+      CodingErrorAction action = result.isMalformed()
+        ? malformedInputAction : unmappableCharacterAction;
+      if (action == CodingErrorAction.REPORT) {
+        return result;
+      } else if (action == CodingErrorAction.REPLACE) {
+        if (out.remaining() < replacement.length) {
+          return CoderResult.OVERFLOW;
+        }
+        out.put(replacement);
+      }
+
+      in.position(in.position() + result.length());
+    }
+  }
+
+  public final CoderResult flush(ByteBuffer out) {
+    return implFlush(out);
+  }
+
+  public final CharsetEncoder reset() {
+    implReset();
+    return this;
+  }
+
+  /**
+   * Encodes the remaining input into a newly allocated buffer, which
+   * is returned flipped and ready to read.
+   */
+  public final ByteBuffer encode(CharBuffer in)
+    throws CharacterCodingException
+  {
+    reset();
+    ByteBuffer out = ByteBuffer.allocate
+      ((int) (in.remaining() * averageBytesPerChar) + 1);
+    while (true) {
+      CoderResult result = encode(in, out, true);
+      if (result.isUnderflow()) {
+        result = flush(out);
+      }
+
+      if (result.isUnderflow()) {
+        break;
+      } else if (result.isOverflow()) {
+        ByteBuffer bigger = ByteBuffer.allocate((out.capacity() * 2) + 1);
+        out.flip();
+        bigger.put(out);
+        out = bigger;
+      } else {
+        result.throwException();
+      }
+    }
+
+    out.flip();
+    return out;
+  }
+
+  public boolean canEncode(char c) {
+    return canEncode(CharBuffer.wrap(new char[] { c }));
+  }
+
+  public boolean canEncode(CharSequence sequence) {
+    char[] chars = new char[sequence.length()];
+    for (int i = 0; i < chars.length; ++i) {
+      chars[i] = sequence.charAt(i);
+    }
+    return canEncode(CharBuffer.wrap(chars));
+  }
+
+  private boolean canEncode(CharBuffer in) {
+    // use a fresh encoder so as not to disturb this one's state
+    CharsetEncoder encoder = charset.newEncoder();
+    ByteBuffer out = ByteBuffer.allocate
+      ((int) (in.remaining() * encoder.maxBytesPerChar) + 1);
+    return ! encoder.encode(in, out, true).isError();
+  }
+
+  protected CoderResult implFlush(ByteBuffer out) {
+    return CoderResult.UNDERFLOW;
+  }
+
+  protected void implReset() { }
+
+  /**
+   * Encodes as much of the input as possible, stopping at the first
+   * error.  A high surrogate at the end of the input should be left
+   * unconsumed.
+   */
+  protected abstract CoderResult encodeLoop(CharBuffer in, ByteBuffer out);
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+public class CoderResult {
+  private static final int Underflow = 0;
+  private static final int Overflow = 1;
+  private static final int Malformed = 2;
+  private static final int Unmappable = 3;
+
+  public static final CoderResult UNDERFLOW = new CoderResult(Underflow, 0);
+  public static final CoderResult OVERFLOW = new CoderResult(Overflow, 0);
+
+  // errors are nearly always a few bytes or characters long, so share
+  // the results for those lengths
+  private static final CoderResult[] malformed = new CoderResult[5];
+  private static final CoderResult[] unmappable = new CoderResult[5];
+
+  static {
+    for (int i = 1; i < malformed.length; ++i) {
+      malformed[i] = new CoderResult(Malformed, i);
+      unmappable[i] = new CoderResult(Unmappable, i);
+    }
+  }
+
+  private final int type;
+  private final int length;
+
+  private CoderResult(int type, int length) {
+    this.type = type;
+    this.length = length;
+  }
+
+  public static CoderResult malformedForLength(int length) {
+    if (length <= 0) {
+      throw new IllegalArgumentException("length " + length);
+    }
+
+    return length < malformed.length
+      ? malformed[length] : new CoderResult(Malformed, length);
+  }
+
+  public static CoderResult unmappableForLength(int length) {
+    if (length <= 0) {
+      throw new IllegalArgumentException("length " + length);
+    }
+
+    return length < unmappable.length
+      ? unmappable[length] : new CoderResult(Unmappable, length);
+  }
+
+  public boolean isUnderflow() {
+    return type == Underflow;
+  }
+
+  public boolean isOverflow() {
+    return type == Overflow;
+  }
+
+  public boolean isError() {
+    return type == Malformed || type == Unmappable;
+  }
+
+  public boolean isMalformed() {
+    return type == Malformed;
+  }
+
+  public boolean isUnmappable() {
+    return type == Unmappable;
+  }
+
+  public int length() {
+    if (! isError()) {
+      throw new UnsupportedOperationException();
+    }
+
+    return length;
+  }
+
+  public void throwException() throws CharacterCodingException {
+    switch (type) {
+    case Underflow:
+      throw new java.nio.BufferUnderflowException();
+    case Overflow:
+      throw new java.nio.BufferOverflowException();
+    case Malformed:
+      throw new MalformedInputException(length);
+    default:
+      throw new UnmappableCharacterException(length);
+    }
+  }
+
+  public String toString() {
+    switch (type) {
+    case Underflow:
+      return "UNDERFLOW";
+    case Overflow:
+      return "OVERFLOW";
+    case Malformed:
+      return "MALFORMED[" + length + "]";
+    default:
+      return "UNMAPPABLE[" + length + "]";
+    }
+  }
+}
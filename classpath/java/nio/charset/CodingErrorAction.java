@@ -0,0 +1,30 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+public class CodingErrorAction {
+  public static final CodingErrorAction IGNORE
+    = new CodingErrorAction("IGNORE");
+  public static final CodingErrorAction REPLACE
+    = new CodingErrorAction("REPLACE");
+  public static final CodingErrorAction REPORT
+    = new CodingErrorAction("REPORT");
+
+  private final String name;
+
+  private CodingErrorAction(String name) {
+    this.name = name;
+  }
+
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,27 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+public class MalformedInputException extends CharacterCodingException {
+  private final int inputLength;
+
+  public MalformedInputException(int inputLength) {
+    this.inputLength = inputLength;
+  }
+
+  public int getInputLength() {
+    return inputLength;
+  }
+
+  public String getMessage() {
+    return "Input length = " + inputLength;
+  }
+}
@@ -0,0 +1,114 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * A charset mapping each byte below a limit to the character with the
+ * same value, i.e. ISO-8859-1 (a limit of 256) or US-ASCII (128).
+ */
+class SingleByteCharset extends Charset {
+  private final int limit;
+
+  SingleByteCharset(String name, String[] aliases, int limit) {
+    super(name, aliases);
+    this.limit = limit;
+  }
+
+  public boolean contains(Charset charset) {
+    return charset instanceof SingleByteCharset
+      && ((SingleByteCharset) charset).limit <= limit;
+  }
+
+  public CharsetDecoder newDecoder() {
+    return new Decoder(this, limit);
+  }
+
+  public CharsetEncoder newEncoder() {
+    return new Encoder(this, limit);
+  }
+
+  private static class Decoder extends ArrayDecoder {
+    private final int limit;
+
+    public Decoder(Charset charset, int limit) {
+      super(charset, 1.0f, 1.0f);
+      this.limit = limit;
+    }
+
+    CoderResult decodeArrays(ByteBuffer in, CharBuffer out) {
+      byte[] src = in.array();
+      int sp = in.arrayOffset() + in.position();
+      int sl = in.arrayOffset() + in.limit();
+      char[] dst = out.array();
+      int dp = out.arrayOffset() + out.position();
+      int dl = out.arrayOffset() + out.limit();
+
+      try {
+        int end = sp + Math.min(sl - sp, dl - dp);
+        while (sp < end) {
+          int b = src[sp] & 0xFF;
+          if (b >= limit) {
+            return CoderResult.malformedForLength(1);
+          }
+          dst[dp++] = (char) b;
+          ++ sp;
+        }
+
+        return sp == sl ? CoderResult.UNDERFLOW : CoderResult.OVERFLOW;
+      } finally {
+        in.position(sp - in.arrayOffset());
+        out.position(dp - out.arrayOffset());
+      }
+    }
+  }
+
+  private static class Encoder extends ArrayEncoder {
+    private final int limit;
+
+    public Encoder(Charset charset, int limit) {
+      super(charset, 1.0f, 1.0f);
+      this.limit = limit;
+    }
+
+    public boolean canEncode(char c) {
+      return c < limit;
+    }
+
+    CoderResult encodeArrays(CharBuffer in, ByteBuffer out) {
+      char[] src = in.array();
+      int sp = in.arrayOffset() + in.position();
+      int sl = in.arrayOffset() + in.limit();
+      byte[] dst = out.array();
+      int dp = out.arrayOffset() + out.position();
+      int dl = out.arrayOffset() + out.limit();
+
+      try {
+        int end = sp + Math.min(sl - sp, dl - dp);
+        while (sp < end) {
+          char c = src[sp];
+          if (c >= limit) {
+            return unencodable(src, sp, sl);
+          }
+          dst[dp++] = (byte) c;
+          ++ sp;
+        }
+
+        return sp == sl ? CoderResult.UNDERFLOW : CoderResult.OVERFLOW;
+      } finally {
+        in.position(sp - in.arrayOffset());
+        out.position(dp - out.arrayOffset());
+      }
+    }
+  }
+}
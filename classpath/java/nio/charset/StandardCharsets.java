@@ -0,0 +1,39 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+public final class StandardCharsets {
+  private StandardCharsets() { }
+
+  public static final Charset US_ASCII = new SingleByteCharset
+    ("US-ASCII", new String[] { "ASCII", "ascii7", "646", "iso646-us", "us" },
+     0x80);
+
+  public static final Charset ISO_8859_1 = new SingleByteCharset
+    ("ISO-8859-1", new String[] { "ISO8859_1", "ISO_8859_1", "8859_1",
+                                  "latin1", "LATIN-1", "l1" },
+     0x100);
+
+  public static final Charset UTF_8 = new Utf8Charset();
+
+  public static final Charset UTF_16 = new Utf16Charset
+    ("UTF-16", new String[] { "UTF_16", "utf16", "unicode" }, false, true);
+
+  public static final Charset UTF_16BE = new Utf16Charset
+    ("UTF-16BE", new String[] { "UTF_16BE", "X-UTF-16BE",
+                                "UnicodeBigUnmarked" },
+     false, false);
+
+  public static final Charset UTF_16LE = new Utf16Charset
+    ("UTF-16LE", new String[] { "UTF_16LE", "X-UTF-16LE",
+                                "UnicodeLittleUnmarked" },
+     true, false);
+}
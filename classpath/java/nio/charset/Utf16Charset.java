@@ -0,0 +1,227 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * UTF-16 in a fixed byte order, or, for plain "UTF-16", big endian
+ * with a byte order mark written before the output and honored if
+ * found at the start of the input.
+ */
+class Utf16Charset extends Charset {
+  private static final char ByteOrderMark = '\uFEFF';
+  private static final char SwappedByteOrderMark = '\uFFFE';
+
+  private final boolean littleEndian;
+  private final boolean marked;
+
+  Utf16Charset(String name, String[] aliases, boolean littleEndian,
+               boolean marked)
+  {
+    super(name, aliases);
+    this.littleEndian = littleEndian;
+    this.marked = marked;
+  }
+
+  public boolean contains(Charset charset) {
+    return true;
+  }
+
+  public CharsetDecoder newDecoder() {
+    return new Decoder(this, littleEndian, marked);
+  }
+
+  public CharsetEncoder newEncoder() {
+    return new Encoder(this, littleEndian, marked);
+  }
+
+  private static char get(byte[] src, int index, boolean littleEndian) {
+    return littleEndian
+      ? (char) ((src[index] & 0xFF) | (src[index + 1] << 8))
+      : (char) ((src[index] << 8) | (src[index + 1] & 0xFF));
+  }
+
+  private static void put(byte[] dst, int index, char c,
+                          boolean littleEndian)
+  {
+    if (littleEndian) {
+      dst[index] = (byte) c;
+      dst[index + 1] = (byte) (c >> 8);
+    } else {
+      dst[index] = (byte) (c >> 8);
+      dst[index + 1] = (byte) c;
+    }
+  }
+
+  private static class Decoder extends ArrayDecoder {
+    private final boolean defaultLittleEndian;
+    private final boolean marked;
+    private boolean littleEndian;
+    // whether we have yet to look for a byte order mark
+    private boolean start;
+
+    public Decoder(Charset charset, boolean littleEndian, boolean marked) {
+      super(charset, 0.5f, 1.0f);
+      this.defaultLittleEndian = littleEndian;
+      this.marked = marked;
+      implReset();
+    }
+
+    protected void implReset() {
+      littleEndian = defaultLittleEndian;
+      start = marked;
+    }
+
+    CoderResult decodeArrays(ByteBuffer in, CharBuffer out) {
+      byte[] src = in.array();
+      int sp = in.arrayOffset() + in.position();
+      int sl = in.arrayOffset() + in.limit();
+      char[] dst = out.array();
+      int dp = out.arrayOffset() + out.position();
+      int dl = out.arrayOffset() + out.limit();
+
+      try {
+        if (start && sl - sp >= 2) {
+          char mark = get(src, sp, false);
+          if (mark == ByteOrderMark) {
+            littleEndian = false;
+            sp += 2;
+          } else if (mark == SwappedByteOrderMark) {
+            littleEndian = true;
+            sp += 2;
+          }
+          start = false;
+        }
+
+        while (sl - sp >= 2) {
+          char c = get(src, sp, littleEndian);
+          if (Character.isHighSurrogate(c)) {
+            if (sl - sp < 4) {
+              return CoderResult.UNDERFLOW;
+            }
+
+            char low = get(src, sp + 2, littleEndian);
+            if (! Character.isLowSurrogate(low)) {
+              return CoderResult.malformedForLength(4);
+            }
+
+            if (dl - dp < 2) {
+              return CoderResult.OVERFLOW;
+            }
+
+            dst[dp++] = c;
+            dst[dp++] = low;
+            sp += 4;
+          } else if (Character.isLowSurrogate(c)) {
+            return CoderResult.malformedForLength(2);
+          } else {
+            if (dp == dl) {
+              return CoderResult.OVERFLOW;
+            }
+
+            dst[dp++] = c;
+            sp += 2;
+          }
+        }
+
+        return CoderResult.UNDERFLOW;
+      } finally {
+        in.position(sp - in.arrayOffset());
+        out.position(dp - out.arrayOffset());
+      }
+    }
+  }
+
+  private static class Encoder extends ArrayEncoder {
+    private final boolean littleEndian;
+    private final boolean marked;
+    // whether we have yet to write a byte order mark
+    private boolean start;
+
+    public Encoder(Charset charset, boolean littleEndian, boolean marked) {
+      super(charset, 2.0f, marked ? 4.0f : 2.0f,
+            littleEndian
+            ? new byte[] { (byte) 0xFD, (byte) 0xFF }
+            : new byte[] { (byte) 0xFF, (byte) 0xFD });
+      this.littleEndian = littleEndian;
+      this.marked = marked;
+      this.start = marked;
+    }
+
+    protected void implReset() {
+      start = marked;
+    }
+
+    public boolean canEncode(char c) {
+      return ! Character.isSurrogate(c);
+    }
+
+    CoderResult encodeArrays(CharBuffer in, ByteBuffer out) {
+      char[] src = in.array();
+      int sp = in.arrayOffset() + in.position();
+      int sl = in.arrayOffset() + in.limit();
+      byte[] dst = out.array();
+      int dp = out.arrayOffset() + out.position();
+      int dl = out.arrayOffset() + out.limit();
+
+      try {
+        if (start && sp < sl) {
+          if (dl - dp < 2) {
+            return CoderResult.OVERFLOW;
+          }
+          put(dst, dp, ByteOrderMark, littleEndian);
+          dp += 2;
+          start = false;
+        }
+
+        while (sp < sl) {
+          char c = src[sp];
+          if (Character.isHighSurrogate(c)) {
+            if (sl - sp < 2) {
+              return CoderResult.UNDERFLOW;
+            }
+
+            char low = src[sp + 1];
+            if (! Character.isLowSurrogate(low)) {
+              return CoderResult.malformedForLength(1);
+            }
+
+            if (dl - dp < 4) {
+              return CoderResult.OVERFLOW;
+            }
+
+            put(dst, dp, c, littleEndian);
+            put(dst, dp + 2, low, littleEndian);
+            dp += 4;
+            sp += 2;
+          } else if (Character.isLowSurrogate(c)) {
+            return CoderResult.malformedForLength(1);
+          } else {
+            if (dl - dp < 2) {
+              return CoderResult.OVERFLOW;
+            }
+
+            put(dst, dp, c, littleEndian);
+            dp += 2;
+            ++ sp;
+          }
+        }
+
+        return CoderResult.UNDERFLOW;
+      } finally {
+        in.position(sp - in.arrayOffset());
+        out.position(dp - out.arrayOffset());
+      }
+    }
+  }
+}
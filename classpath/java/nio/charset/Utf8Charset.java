@@ -0,0 +1,241 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.nio.charset;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Standard UTF-8, which unlike the modified form used in class files
+ * rejects overlong forms and encoded surrogates.
+ */
+class Utf8Charset extends Charset {
+  Utf8Charset() {
+    super("UTF-8", new String[] { "UTF8", "unicode-1-1-utf-8" });
+  }
+
+  public boolean contains(Charset charset) {
+    // every charset we support is a subset of Unicode
+    return true;
+  }
+
+  public CharsetDecoder newDecoder() {
+    return new Decoder(this);
+  }
+
+  public CharsetEncoder newEncoder() {
+    return new Encoder(this);
+  }
+
+  private static boolean isContinuation(int b) {
+    return (b & 0xC0) == 0x80;
+  }
+
+  // whether b2 may follow b1 in a three byte sequence, which must not
+  // be overlong (an encoded surrogate is only rejected once complete,
+  // as one malformed sequence, as the JDK does)
+  private static boolean isValidSecond3(int b1, int b2) {
+    return isContinuation(b2) && (b1 != 0xE0 || b2 >= 0xA0);
+  }
+
+  // whether b2 may follow b1 in a four byte sequence, which must
+  // neither be overlong nor exceed U+10FFFF
+  private static boolean isValidSecond4(int b1, int b2) {
+    return isContinuation(b2)
+      && (b1 != 0xF0 || b2 >= 0x90)
+      && (b1 != 0xF4 || b2 < 0x90);
+  }
+
+  private static class Decoder extends ArrayDecoder {
+    public Decoder(Charset charset) {
+      super(charset, 1.0f, 1.0f);
+    }
+
+    CoderResult decodeArrays(ByteBuffer in, CharBuffer out) {
+      byte[] src = in.array();
+      int sp = in.arrayOffset() + in.position();
+      int sl = in.arrayOffset() + in.limit();
+      char[] dst = out.array();
+      int dp = out.arrayOffset() + out.position();
+      int dl = out.arrayOffset() + out.limit();
+
+      try {
+        while (sp < sl) {
+          // copy runs of ASCII without further checks
+          int end = sp + Math.min(sl - sp, dl - dp);
+          while (sp < end && src[sp] >= 0) {
+            dst[dp++] = (char) src[sp++];
+          }
+
+          if (sp == sl) {
+            break;
+          }
+
+          int b1 = src[sp] & 0xFF;
+          if (b1 < 0x80) {
+            return CoderResult.OVERFLOW;
+          } else if (b1 >= 0xC2 && b1 <= 0xDF) {
+            if (sl - sp < 2) {
+              return CoderResult.UNDERFLOW;
+            }
+
+            int b2 = src[sp + 1] & 0xFF;
+            if (! isContinuation(b2)) {
+              return CoderResult.malformedForLength(1);
+            }
+
+            if (dp == dl) {
+              return CoderResult.OVERFLOW;
+            }
+
+            dst[dp++] = (char) (((b1 & 0x1F) << 6) | (b2 & 0x3F));
+            sp += 2;
+          } else if (b1 >= 0xE0 && b1 <= 0xEF) {
+            int available = sl - sp;
+            if (available > 1 && ! isValidSecond3(b1, src[sp + 1] & 0xFF)) {
+              return CoderResult.malformedForLength(1);
+            } else if (available > 2 && ! isContinuation(src[sp + 2])) {
+              return CoderResult.malformedForLength(2);
+            } else if (available < 3) {
+              return CoderResult.UNDERFLOW;
+            }
+
+            char c = (char) (((b1 & 0x0F) << 12)
+                             | ((src[sp + 1] & 0x3F) << 6)
+                             | (src[sp + 2] & 0x3F));
+            if (Character.isSurrogate(c)) {
+              return CoderResult.malformedForLength(3);
+            }
+
+            if (dp == dl) {
+              return CoderResult.OVERFLOW;
+            }
+
+            dst[dp++] = c;
+            sp += 3;
+          } else if (b1 >= 0xF0 && b1 <= 0xF4) {
+            int available = sl - sp;
+            if (available > 1 && ! isValidSecond4(b1, src[sp + 1] & 0xFF)) {
+              return CoderResult.malformedForLength(1);
+            } else if (available > 2 && ! isContinuation(src[sp + 2])) {
+              return CoderResult.malformedForLength(2);
+            } else if (available > 3 && ! isContinuation(src[sp + 3])) {
+              return CoderResult.malformedForLength(3);
+            } else if (available < 4) {
+              return CoderResult.UNDERFLOW;
+            }
+
+            if (dl - dp < 2) {
+              return CoderResult.OVERFLOW;
+            }
+
+            int codePoint = ((b1 & 0x07) << 18)
+              | ((src[sp + 1] & 0x3F) << 12)
+              | ((src[sp + 2] & 0x3F) << 6)
+              | (src[sp + 3] & 0x3F);
+            dst[dp++] = (char) (0xD800 + ((codePoint - 0x10000) >>> 10));
+            dst[dp++] = (char) (0xDC00 + (codePoint & 0x3FF));
+            sp += 4;
+          } else {
+            return CoderResult.malformedForLength(1);
+          }
+        }
+
+        return CoderResult.UNDERFLOW;
+      } finally {
+        in.position(sp - in.arrayOffset());
+        out.position(dp - out.arrayOffset());
+      }
+    }
+  }
+
+  private static class Encoder extends ArrayEncoder {
+    public Encoder(Charset charset) {
+      super(charset, 1.1f, 3.0f);
+    }
+
+    public boolean canEncode(char c) {
+      return ! Character.isSurrogate(c);
+    }
+
+    CoderResult encodeArrays(CharBuffer in, ByteBuffer out) {
+      char[] src = in.array();
+      int sp = in.arrayOffset() + in.position();
+      int sl = in.arrayOffset() + in.limit();
+      byte[] dst = out.array();
+      int dp = out.arrayOffset() + out.position();
+      int dl = out.arrayOffset() + out.limit();
+
+      try {
+        while (sp < sl) {
+          // copy runs of ASCII without further checks
+          int end = sp + Math.min(sl - sp, dl - dp);
+          while (sp < end && src[sp] < 0x80) {
+            dst[dp++] = (byte) src[sp++];
+          }
+
+          if (sp == sl) {
+            break;
+          }
+
+          char c = src[sp];
+          if (c < 0x80) {
+            return CoderResult.OVERFLOW;
+          } else if (c < 0x800) {
+            if (dl - dp < 2) {
+              return CoderResult.OVERFLOW;
+            }
+
+            dst[dp++] = (byte) (0xC0 | (c >> 6));
+            dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            ++ sp;
+          } else if (Character.isHighSurrogate(c)) {
+            if (sl - sp < 2) {
+              return CoderResult.UNDERFLOW;
+            }
+
+            char low = src[sp + 1];
+            if (! Character.isLowSurrogate(low)) {
+              return CoderResult.malformedForLength(1);
+            }
+
+            if (dl - dp < 4) {
+              return CoderResult.OVERFLOW;
+            }
+
+            int codePoint = Character.toCodePoint(c, low);
+            dst[dp++] = (byte) (0xF0 | (codePoint >> 18));
+            dst[dp++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            dst[dp++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            dst[dp++] = (byte) (0x80 | (codePoint & 0x3F));
+            sp += 2;
+          } else if (Character.isLowSurrogate(c)) {
+            return CoderResult.malformedForLength(1);
+          } else {
+            if (dl - dp < 3) {
+              return CoderResult.OVERFLOW;
+            }
+
+            dst[dp++] = (byte) (0xE0 | (c >> 12));
+            dst[dp++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            dst[dp++] = (byte) (0x80 | (c & 0x3F));
+            ++ sp;
+          }
+        }
+
+        return CoderResult.UNDERFLOW;
+      } finally {
+        in.position(sp - in.arrayOffset());
+        out.position(dp - out.arrayOffset());
+      }
+    }
+  }
+}
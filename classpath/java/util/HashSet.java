@@ -51,7 +51,7 @@ public class HashSet<T> extends AbstractSet<T> implements Set<T> {
   }
 
   public boolean remove(Object element) {
-    return map.remove(element) != Value;
+    return map.remove(element) == Value;
   }
 
   public void clear() {
@@ -0,0 +1,206 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public abstract class AbstractExecutorService implements ExecutorService {
+  protected <T> RunnableFuture<T> newTaskFor(Runnable task, T result) {
+    return new FutureTask<T>(task, result);
+  }
+
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> task) {
+    return new FutureTask<T>(task);
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+
+    RunnableFuture<T> future = newTaskFor(task);
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+
+    RunnableFuture<T> future = newTaskFor(task, result);
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return submit(task, null);
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+    throws InterruptedException
+  {
+    List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+    boolean done = false;
+    try {
+      for (Callable<T> task : tasks) {
+        RunnableFuture<T> future = newTaskFor(task);
+        futures.add(future);
+        execute(future);
+      }
+
+      for (Future<T> future : futures) {
+        if (! future.isDone()) {
+          try {
+            future.get();
+          } catch (CancellationException e) {
+            // ignore
+          } catch (ExecutionException e) {
+            // ignore
+          }
+        }
+      }
+
+      done = true;
+      return futures;
+    } finally {
+      if (! done) {
+        cancelAll(futures);
+      }
+    }
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks,
+                                       long timeout, TimeUnit unit)
+    throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+    List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+    boolean done = false;
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(newTaskFor(task));
+      }
+
+      for (Future<T> future : futures) {
+        execute((Runnable) future);
+        if (System.currentTimeMillis() >= deadline) {
+          return futures;
+        }
+      }
+
+      for (Future<T> future : futures) {
+        if (! future.isDone()) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            return futures;
+          }
+
+          try {
+            future.get(remaining, TimeUnit.MILLISECONDS);
+          } catch (CancellationException e) {
+            // ignore
+          } catch (ExecutionException e) {
+            // ignore
+          } catch (TimeoutException e) {
+            return futures;
+          }
+        }
+      }
+
+      done = true;
+      return futures;
+    } finally {
+      if (! done) {
+        cancelAll(futures);
+      }
+    }
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+    throws InterruptedException, ExecutionException
+  {
+    try {
+      return doInvokeAny(tasks, false, 0);
+    } catch (TimeoutException e) {
+      // not possible
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks,
+                         long timeout, TimeUnit unit)
+    throws InterruptedException, ExecutionException, TimeoutException
+  {
+    return doInvokeAny(tasks, true, unit.toMillis(timeout));
+  }
+
+  private <T> T doInvokeAny(Collection<? extends Callable<T>> tasks,
+                            boolean timed, long timeoutInMillis)
+    throws InterruptedException, ExecutionException, TimeoutException
+  {
+    if (tasks.isEmpty()) {
+      throw new IllegalArgumentException();
+    }
+
+    long deadline = System.currentTimeMillis() + timeoutInMillis;
+    ExecutorCompletionService<T> service
+      = new ExecutorCompletionService<T>(this);
+    List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(service.submit(task));
+      }
+
+      ExecutionException failure = null;
+      for (int i = 0; i < futures.size(); ++i) {
+        Future<T> future;
+        if (timed) {
+          long remaining = deadline - System.currentTimeMillis();
+          future = remaining > 0
+            ? service.poll(remaining, TimeUnit.MILLISECONDS) : null;
+          if (future == null) {
+            throw new TimeoutException();
+          }
+        } else {
+          future = service.take();
+        }
+
+        try {
+          return future.get();
+        } catch (ExecutionException e) {
+          failure = e;
+        } catch (CancellationException e) {
+          failure = new ExecutionException(e);
+        }
+      }
+
+      throw failure;
+    } finally {
+      cancelAll(futures);
+    }
+  }
+
+  private static <T> void cancelAll(List<Future<T>> futures) {
+    for (Future<T> future : futures) {
+      future.cancel(true);
+    }
+  }
+}
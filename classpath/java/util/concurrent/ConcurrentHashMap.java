@@ -11,58 +11,147 @@
 package java.util.concurrent;
 
 import avian.Data;
-import avian.PersistentSet;
-import avian.PersistentSet.Path;
 
 import sun.misc.Unsafe;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+/**
+ * A hash table supporting fully concurrent retrievals and concurrent
+ * updates.
+ *
+ * <p>The table is an array of bins, each holding a linked list of
+ * nodes.  Retrievals never lock: they read the bin with volatile
+ * semantics and walk its list.  An insertion into an empty bin is a
+ * single compare-and-swap; any other update locks the first node of
+ * the bin it modifies, so writers only contend when they hit the same
+ * bin.
+ *
+ * <p>When the table grows, its bins are moved to a table twice the
+ * size a stride at a time.  Each moved bin is replaced by a forwarding
+ * node, which readers follow to the new table and which writers use to
+ * help finish the move before retrying, so no single thread has to
+ * copy the whole table while everyone else waits.
+ *
+ * <p>The element count is kept in a base counter plus an array of
+ * counter cells which is only created once updates to the base
+ * counter start failing due to contention.
+ */
 public class ConcurrentHashMap<K,V>
   extends AbstractMap<K,V>
   implements ConcurrentMap<K,V>
 {
   private static final Unsafe unsafe = Unsafe.getUnsafe();
-  private static final long Content;
-  private static final Content Empty = new Content(new PersistentSet(), 0);
+  private static final long ObjectArrayBase
+    = unsafe.arrayBaseOffset(Object[].class);
+  private static final long ObjectArrayScale
+    = unsafe.arrayIndexScale(Object[].class);
+  private static final long LongArrayBase
+    = unsafe.arrayBaseOffset(long[].class);
+  private static final long LongArrayScale
+    = unsafe.arrayIndexScale(long[].class);
+  private static final long SizeControl;
+  private static final long BaseCount;
+  private static final long Counters;
+
+  private static final int DefaultCapacity = 16;
+  private static final int MaximumCapacity = 1 << 30;
+  private static final int TransferStride = 16;
+  private static final int CounterCount = 16;
+
+  // hash code of forwarding nodes; the hash codes of ordinary nodes
+  // are always non-negative
+  private static final int Moved = -1;
 
   static {
     try {
-      Content = unsafe.objectFieldOffset
-        (ConcurrentHashMap.class.getDeclaredField("content"));
+      SizeControl = unsafe.objectFieldOffset
+        (ConcurrentHashMap.class.getDeclaredField("sizeControl"));
+      BaseCount = unsafe.objectFieldOffset
+        (ConcurrentHashMap.class.getDeclaredField("baseCount"));
+      Counters = unsafe.objectFieldOffset
+        (ConcurrentHashMap.class.getDeclaredField("counters"));
     } catch (NoSuchFieldException e) {
       throw new Error(e);
     }
   }
 
-  private volatile Content<K,V> content;
+  private volatile Node<K,V>[] table;
+
+  // the number of elements at which the table should be resized, or
+  // -1 if a resize is in progress
+  private volatile int sizeControl;
+
+  private volatile long baseCount;
+  private volatile long[] counters;
 
   public ConcurrentHashMap() {
-    content = Empty;
+    this(DefaultCapacity);
   }
 
   public ConcurrentHashMap(int initialCapacity) {
-    this();
+    this(initialCapacity, 0.75f);
   }
 
   public ConcurrentHashMap(int initialCapacity,  float loadFactor) {
-    this();
+    this(initialCapacity, loadFactor, 1);
   }
 
   public ConcurrentHashMap(int initialCapacity,  float loadFactor, int concurrencyLevel) {
-    this();
+    if (initialCapacity < 0 || loadFactor <= 0 || concurrencyLevel <= 0) {
+      throw new IllegalArgumentException();
+    }
+
+    long size = (long) (1.0 + (initialCapacity / loadFactor));
+    int capacity = size >= MaximumCapacity
+      ? MaximumCapacity : Data.nextPowerOfTwo(Math.max((int) size, 2));
+
+    table = (Node<K,V>[]) new Node[capacity];
+    sizeControl = threshold(capacity);
+  }
+
+  private static int threshold(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  private static int spread(int hash) {
+    return (hash ^ (hash >>> 16)) & 0x7FFFFFFF;
+  }
+
+  private static long binOffset(int index) {
+    return ObjectArrayBase + (index * ObjectArrayScale);
+  }
+
+  private static <K,V> Node<K,V> bin(Node<K,V>[] table, int index) {
+    return (Node<K,V>) unsafe.getObjectVolatile(table, binOffset(index));
+  }
+
+  private static <K,V> boolean casBin(Node<K,V>[] table, int index,
+                                      Node<K,V> expect, Node<K,V> update)
+  {
+    return unsafe.compareAndSwapObject
+      (table, binOffset(index), expect, update);
+  }
+
+  private static <K,V> void setBin(Node<K,V>[] table, int index,
+                                   Node<K,V> node)
+  {
+    unsafe.putObjectVolatile(table, binOffset(index), node);
   }
 
   public boolean isEmpty() {
-    return content.size == 0;
+    return count() <= 0;
   }
 
   public int size() {
-    return content.size;
+    long count = count();
+    return count < 0 ? 0
+      : (count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) count);
   }
 
   public boolean containsKey(Object key) {
@@ -70,8 +159,13 @@ public class ConcurrentHashMap<K,V>
   }
 
   public boolean containsValue(Object value) {
-    for (V v: values()) {
-      if (value.equals(v)) {
+    if (value == null) {
+      throw new NullPointerException();
+    }
+
+    for (MyIterator it = new MyIterator(); it.hasNext();) {
+      V v = it.nextNode().value;
+      if (value == v || value.equals(v)) {
         return true;
       }
     }
@@ -79,53 +173,59 @@ public class ConcurrentHashMap<K,V>
   }
 
   public V get(Object key) {
-    Cell<K,V> cell = find(key);
-    return cell == null ? null : cell.value;
+    Node<K,V> node = find(key);
+    return node == null ? null : node.value;
   }
 
-  private Cell<K,V> find(Object key) {
-    Content<K,V> c = content;
+  private Node<K,V> find(Object key) {
+    int hash = spread(key.hashCode());
+    Node<K,V>[] table = this.table;
 
-    Path<Node<Cell<K,V>>> path = c.set.find(new Node(key.hashCode()));
-    for (Cell<K,V> cell = path.value().value; 
-         cell != null;
-         cell = cell.next)
-    {
-      if (key.equals(cell.key)) {
-        return cell;
+    while (true) {
+      Node<K,V> node = bin(table, hash & (table.length - 1));
+      if (node != null && node.hash == Moved) {
+        table = ((Forward<K,V>) node).nextTable;
+        continue;
       }
+
+      for (; node != null; node = node.next) {
+        if (node.hash == hash
+            && (node.key == key || key.equals(node.key)))
+        {
+          return node;
+        }
+      }
+      return null;
     }
-    return null;
   }
 
   public V putIfAbsent(K key, V value) {
-    Cell<K,V> cell = put(key, value, PutCondition.IfAbsent, null);
-    return cell == null ? null : cell.value;
+    return put(key, value, PutCondition.IfAbsent, null);
   }
 
   public boolean remove(K key, V value) {
-    Cell<K,V> cell = remove(key, RemoveCondition.IfEqual, value);
-    return cell != null && cell.value.equals(value);
+    return value != null
+      && remove(key, RemoveCondition.IfEqual, value) != null;
   }
 
   public V replace(K key, V value) {
-    Cell<K,V> cell = put(key, value, PutCondition.IfPresent, null);
-    return cell == null ? null : cell.value;
+    return put(key, value, PutCondition.IfPresent, null);
   }
 
   public boolean replace(K key, V oldValue, V newValue) {
-    Cell<K,V> cell = put(key, newValue, PutCondition.IfEqual, oldValue);
-    return cell != null && cell.value.equals(oldValue);    
+    if (oldValue == null) {
+      throw new NullPointerException();
+    }
+
+    return oldValue.equals(put(key, newValue, PutCondition.IfEqual, oldValue));
   }
 
   public V put(K key, V value) {
-    Cell<K,V> cell = put(key, value, PutCondition.Always, null);
-    return cell == null ? null : cell.value;
+    return put(key, value, PutCondition.Always, null);
   }
 
   public V remove(Object key) {
-    Cell<K,V> cell = remove(key, RemoveCondition.Always, null);
-    return cell == null ? null : cell.value;
+    return remove(key, RemoveCondition.Always, null);
   }
 
   private enum PutCondition {
@@ -134,7 +234,7 @@ public class ConcurrentHashMap<K,V>
       public <V> boolean addIfPresent(V a, V b) { return true; }
     }, IfAbsent() {
       public boolean addIfAbsent() { return true; }
-      public <V> boolean addIfPresent(V a, V b) { return false; }      
+      public <V> boolean addIfPresent(V a, V b) { return false; }
     }, IfPresent() {
       public boolean addIfAbsent() { return false; }
       public <V> boolean addIfPresent(V a, V b) { return true; }
@@ -157,67 +257,62 @@ public class ConcurrentHashMap<K,V>
     public <V> boolean remove(V a, V b) { throw new AssertionError(); }
   }
 
-  private Cell<K,V> put(K key, V value, PutCondition condition, V oldValue) {
-    Node<Cell<K,V>> node = new Node(key.hashCode());
+  /**
+   * Returns the value previously associated with the key, or null if
+   * there was none.
+   */
+  private V put(K key, V value, PutCondition condition, V oldValue) {
+    if (value == null) {
+      throw new NullPointerException();
+    }
 
-    loop: while (true) {
-      node.value = null;
-      Content content = this.content;
-      Path<Node<Cell<K,V>>> path = content.set.find(node);
-      for (Cell<K,V> cell = path.value().value;
-           cell != null;
-           cell = cell.next)
-      {
-        if (key.equals(cell.key)) {
-          if (! condition.addIfPresent(cell.value, oldValue)) {
-            return cell;
-          }
+    int hash = spread(key.hashCode());
+    Node<K,V>[] table = this.table;
 
-          Cell<K,V> start = null;
-          Cell<K,V> last = null;
-          for (Cell<K,V> cell2 = path.value().value;
-               true;
-               cell2 = cell2.next)
-          {
-            Cell<K,V> c;
-            c = cell2.clone();
-
-            if (last == null) {
-              last = start = c;
-            } else {
-              last.next = c;
-              last = c;
+    while (true) {
+      int index = hash & (table.length - 1);
+      Node<K,V> head = bin(table, index);
+
+      if (head == null) {
+        if (! condition.addIfAbsent()) {
+          return null;
+        }
+
+        if (casBin(table, index, null, new Node<K,V>(hash, key, value, null)))
+        {
+          addCount(1);
+          return null;
+        }
+      } else if (head.hash == Moved) {
+        table = helpTransfer((Forward<K,V>) head);
+      } else {
+        synchronized (head) {
+          if (bin(table, index) == head) {
+            Node<K,V> last = null;
+            for (Node<K,V> node = head; node != null; node = node.next) {
+              if (node.hash == hash
+                  && (node.key == key || key.equals(node.key)))
+              {
+                V old = node.value;
+                if (condition.addIfPresent(old, oldValue)) {
+                  node.value = value;
+                }
+                return old;
+              }
+              last = node;
             }
 
-            if (cell2 == cell) {
-              c.value = value;
-              break;
+            if (! condition.addIfAbsent()) {
+              return null;
             }
-          }
 
-          node.value = start;
-          if (unsafe.compareAndSwapObject
-              (this, Content, content, new Content
-               (path.replaceWith(node), content.size)))
-          {
-            return cell;
+            last.next = new Node<K,V>(hash, key, value, null);
           } else {
-            continue loop;
+            continue;
           }
         }
-      }
 
-      // no mapping found -- add a new one if appropriate
-      if (! condition.addIfAbsent()) {
-        return null;
-      }
-
-      node.value = new Cell(key, value, null);
-      if (unsafe.compareAndSwapObject
-          (this, Content, content, new Content
-           (path.fresh() ? path.add() : path.replaceWith(node),
-            content.size + 1)))
-      {
+        addCount(1);
         return null;
       }
     }
@@ -229,64 +324,236 @@ public class ConcurrentHashMap<K,V>
     }
   }
 
-  private Cell<K,V> remove(Object key, RemoveCondition condition,
-                           V oldValue)
-  {
-    Node<Cell<K,V>> node = new Node(key.hashCode());
-
-    loop: while (true) {
-      node.value = null;
-      Content content = this.content;
-      Path<Node<Cell<K,V>>> path = content.set.find(node);
-      for (Cell<K,V> cell = path.value().value;
-           cell != null;
-           cell = cell.next)
-      {
-        if (key.equals(cell.key)) {
-          if (! condition.remove(cell.value, oldValue)) {
-            return cell;
-          }
-          
-          Cell<K,V> start = null;
-          Cell<K,V> last = null;
-          for (Cell<K,V> cell2 = path.value().value;
-               cell2 != cell;
-               cell2 = cell2.next)
-          {
-            Cell<K,V> c = cell2.clone();
-            if (last == null) {
-              last = start = c;
-            } else {
-              last.next = c;
-              last = c;
+  /**
+   * Returns the value which was removed, or null if nothing was.
+   */
+  private V remove(Object key, RemoveCondition condition, V oldValue) {
+    int hash = spread(key.hashCode());
+    Node<K,V>[] table = this.table;
+
+    while (true) {
+      int index = hash & (table.length - 1);
+      Node<K,V> head = bin(table, index);
+
+      if (head == null) {
+        return null;
+      } else if (head.hash == Moved) {
+        table = helpTransfer((Forward<K,V>) head);
+      } else {
+        V old = null;
+        synchronized (head) {
+          if (bin(table, index) == head) {
+            Node<K,V> previous = null;
+            for (Node<K,V> node = head; node != null; node = node.next) {
+              if (node.hash == hash
+                  && (node.key == key || key.equals(node.key)))
+              {
+                if (! condition.remove(node.value, oldValue)) {
+                  return null;
+                }
+
+                old = node.value;
+                if (previous == null) {
+                  setBin(table, index, node.next);
+                } else {
+                  previous.next = node.next;
+                }
+                break;
+              }
+              previous = node;
             }
+          } else {
+            continue;
           }
+        }
 
-          if (last == null) {
-            start = last = cell.next;
-          } else {
-            last.next = cell.next;
+        if (old != null) {
+          addCount(-1);
+        }
+        return old;
+      }
+    }
+  }
+
+  public void clear() {
+    Node<K,V>[] table = this.table;
+    long removed = 0;
+
+    for (int index = 0; index < table.length;) {
+      Node<K,V> head = bin(table, index);
+
+      if (head == null) {
+        ++ index;
+      } else if (head.hash == Moved) {
+        table = helpTransfer((Forward<K,V>) head);
+        index = 0;
+      } else {
+        synchronized (head) {
+          if (bin(table, index) == head) {
+            for (Node<K,V> node = head; node != null; node = node.next) {
+              ++ removed;
+            }
+            setBin(table, index, null);
+            ++ index;
           }
+        }
+      }
+    }
 
-          node.value = start;
-          if (unsafe.compareAndSwapObject
-              (this, Content, content, new Content
-               (start == null ? path.remove() : path.replaceWith(node),
-                content.size - 1)))
+    if (removed != 0) {
+      addCount(-removed);
+    }
+  }
+
+  private long count() {
+    long sum = baseCount;
+    long[] counters = this.counters;
+    if (counters != null) {
+      for (int i = 0; i < counters.length; ++i) {
+        sum += unsafe.getLongVolatile
+          (counters, LongArrayBase + (i * LongArrayScale));
+      }
+    }
+    return sum;
+  }
+
+  private void addCount(long delta) {
+    long base = baseCount;
+    if (counters != null
+        || ! unsafe.compareAndSwapLong(this, BaseCount, base, base + delta))
+    {
+      // we're contending with other writers, so spread the update
+      // across the counter cells instead
+      if (counters == null) {
+        unsafe.compareAndSwapObject
+          (this, Counters, null, new long[CounterCount]);
+      }
+
+      long[] counters = this.counters;
+      int index = System.identityHashCode(Thread.currentThread());
+      while (true) {
+        long offset = LongArrayBase
+          + ((index & (counters.length - 1)) * LongArrayScale);
+        long value = unsafe.getLongVolatile(counters, offset);
+        if (unsafe.compareAndSwapLong(counters, offset, value, value + delta))
+        {
+          break;
+        }
+        ++ index;
+      }
+    }
+
+    if (delta > 0) {
+      int threshold = sizeControl;
+      if (threshold >= 0 && count() >= threshold) {
+        resize(threshold);
+      }
+    }
+  }
+
+  private void resize(int threshold) {
+    Node<K,V>[] table = this.table;
+    int length = table.length;
+    if (length >= MaximumCapacity
+        || (! unsafe.compareAndSwapInt(this, SizeControl, threshold, -1)))
+    {
+      return;
+    }
+
+    if (table != this.table) {
+      // someone else finished a resize after we read the threshold
+      sizeControl = threshold;
+      return;
+    }
+
+    Forward<K,V> forward = new Forward<K,V>
+      (table, (Node<K,V>[]) new Node[length << 1]);
+
+    transfer(forward);
+
+    // wait for any helpers to finish moving the bins they claimed
+    while (forward.transferred < length) {
+      Thread.yield();
+    }
+
+    this.table = forward.nextTable;
+    sizeControl = threshold(length << 1);
+  }
+
+  private Node<K,V>[] helpTransfer(Forward<K,V> forward) {
+    transfer(forward);
+    return forward.nextTable;
+  }
+
+  private static <K,V> void transfer(Forward<K,V> forward) {
+    while (true) {
+      int index = forward.transferIndex;
+      if (index <= 0) {
+        return;
+      }
+
+      int bound = index > TransferStride ? index - TransferStride : 0;
+      if (unsafe.compareAndSwapInt
+          (forward, Forward.TransferIndex, index, bound))
+      {
+        for (int i = index - 1; i >= bound; --i) {
+          transfer(forward, i);
+        }
+
+        while (true) {
+          int transferred = forward.transferred;
+          if (unsafe.compareAndSwapInt
+              (forward, Forward.Transferred, transferred,
+               transferred + (index - bound)))
           {
-            return cell;
-          } else {
-            continue loop;
+            break;
           }
         }
       }
+    }
+  }
 
-      return null;
+  private static <K,V> void transfer(Forward<K,V> forward, int index) {
+    Node<K,V>[] table = forward.table;
+    Node<K,V>[] nextTable = forward.nextTable;
+    int length = table.length;
+
+    while (true) {
+      Node<K,V> head = bin(table, index);
+
+      if (head == null) {
+        if (casBin(table, index, null, forward)) {
+          return;
+        }
+      } else {
+        synchronized (head) {
+          if (bin(table, index) == head) {
+            // split the bin into the nodes which stay at the same
+            // index and those which move up by the old table length,
+            // copying them so that concurrent readers of the old
+            // table never see a half-moved list
+            Node<K,V> low = null;
+            Node<K,V> high = null;
+            for (Node<K,V> node = head; node != null; node = node.next) {
+              if ((node.hash & length) == 0) {
+                low = new Node<K,V>(node.hash, node.key, node.value, low);
+              } else {
+                high = new Node<K,V>(node.hash, node.key, node.value, high);
+              }
+            }
+
+            setBin(nextTable, index, low);
+            setBin(nextTable, index + length, high);
+            setBin(table, index, forward);
+            return;
+          }
+        }
+      }
     }
   }
 
-  public void clear() {
-    content = Empty;
+  public String toString() {
+    return Data.toString(this);
   }
 
   public Set<Map.Entry<K, V>> entrySet() {
@@ -307,12 +574,14 @@ public class ConcurrentHashMap<K,V>
     }
 
     public Map.Entry<K,V> find(Object key) {
-      return new MyEntry(ConcurrentHashMap.this.find(key));
+      Node<K,V> node = ConcurrentHashMap.this.find(key);
+      return node == null ? null : new MyEntry(node.key, node.value);
     }
 
     public Map.Entry<K,V> remove(Object key) {
-      return new MyEntry
-        (ConcurrentHashMap.this.remove(key, RemoveCondition.Always, null));
+      V value = ConcurrentHashMap.this.remove
+        (key, RemoveCondition.Always, null);
+      return value == null ? null : new MyEntry((K) key, value);
     }
 
     public void clear() {
@@ -320,62 +589,64 @@ public class ConcurrentHashMap<K,V>
     }
 
     public Iterator<Map.Entry<K,V>> iterator() {
-      return new MyIterator(content);
-    }
-  }
-
-  private static class Content<K,V> {
-    private final PersistentSet<Node<Cell<K,V>>> set;
-    private final int size;
-
-    public Content(PersistentSet<Node<Cell<K,V>>> set,
-                   int size)
-    {
-      this.set = set;
-      this.size = size;
+      return new MyIterator();
     }
   }
 
-  private static class Cell<K,V> implements Cloneable {
+  private static class Node<K,V> {
+    public final int hash;
     public final K key;
-    public V value;
-    public Cell<K,V> next;
+    public volatile V value;
+    public volatile Node<K,V> next;
 
-    public Cell(K key, V value, Cell<K,V> next) {
+    public Node(int hash, K key, V value, Node<K,V> next) {
+      this.hash = hash;
       this.key = key;
       this.value = value;
       this.next = next;
     }
+  }
+
+  private static class Forward<K,V> extends Node<K,V> {
+    private static final long TransferIndex;
+    private static final long Transferred;
 
-    public Cell<K,V> clone() {
+    static {
       try {
-        return (Cell<K,V>) super.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new AssertionError();
+        TransferIndex = unsafe.objectFieldOffset
+          (Forward.class.getDeclaredField("transferIndex"));
+        Transferred = unsafe.objectFieldOffset
+          (Forward.class.getDeclaredField("transferred"));
+      } catch (NoSuchFieldException e) {
+        throw new Error(e);
       }
     }
-  }
 
-  private static class Node<T> implements Comparable<Node<T>> {
-    public final int key;
-    public T value;
+    public final Node<K,V>[] table;
+    public final Node<K,V>[] nextTable;
 
-    public Node(int key) {
-      this.key = key;
-    }
+    // bins at or above this index have been claimed by a thread
+    // taking part in the transfer
+    public volatile int transferIndex;
+
+    // number of bins which have been completely transferred
+    public volatile int transferred;
 
-    public int compareTo(Node<T> n) {
-      return key - n.key;
+    public Forward(Node<K,V>[] table, Node<K,V>[] nextTable) {
+      super(Moved, null, null, null);
+      this.table = table;
+      this.nextTable = nextTable;
+      this.transferIndex = table.length;
     }
   }
 
   private class MyEntry implements Map.Entry<K,V> {
     private final K key;
     private V value;
-    
-    public MyEntry(Cell<K,V> cell) {
-      key = cell.key;
-      value = cell.value;
+
+    public MyEntry(K key, V value) {
+      this.key = key;
+      this.value = value;
     }
 
     public K getKey() {
@@ -387,7 +658,7 @@ public class ConcurrentHashMap<K,V>
     }
 
     public V setValue(V value) {
-      V v = value;
+      V v = this.value;
       this.value = value;
       put(key, value);
       return v;
@@ -395,41 +666,71 @@ public class ConcurrentHashMap<K,V>
   }
 
   private class MyIterator implements Iterator<Map.Entry<K, V>> {
-    private final Content<K,V> content;
-    private final Iterator<Node<Cell<K, V>>> iterator;
-    private Cell<K, V> currentCell;
-    private Cell<K, V> nextCell;
-
-    public MyIterator(Content<K,V> content) {
-      this.content = content;
-      this.iterator = content.set.iterator();
+    // bins of forwarded tables which remain to be visited, as
+    // alternating table and index entries
+    private final ArrayList<Object> pending = new ArrayList();
+    private Node<K,V>[] table;
+    private int index;
+    private Node<K,V> currentNode;
+    private Node<K,V> nextNode;
+
+    public MyIterator() {
+      this.table = ConcurrentHashMap.this.table;
       hasNext();
     }
 
     public Map.Entry<K, V> next() {
+      Node<K,V> node = nextNode();
+      return new MyEntry(node.key, node.value);
+    }
+
+    private Node<K,V> nextNode() {
       if (hasNext()) {
-        currentCell = nextCell;
+        currentNode = nextNode;
 
-        nextCell = nextCell.next;
+        nextNode = nextNode.next;
 
-        return new MyEntry(currentCell);
+        return currentNode;
       } else {
         throw new NoSuchElementException();
       }
     }
 
     public boolean hasNext() {
-      if (nextCell == null && iterator.hasNext()) {
-        nextCell = iterator.next().value;
+      while (nextNode == null) {
+        Node<K,V>[] t;
+        int i;
+        if (! pending.isEmpty()) {
+          i = (Integer) pending.remove(pending.size() - 1);
+          t = (Node<K,V>[]) pending.remove(pending.size() - 1);
+        } else if (index < table.length) {
+          t = table;
+          i = index++;
+        } else {
+          return false;
+        }
+
+        Node<K,V> node = bin(t, i);
+        if (node != null && node.hash == Moved) {
+          // this bin has been split across two bins of the next
+          // table, so visit those instead
+          Node<K,V>[] next = ((Forward<K,V>) node).nextTable;
+          pending.add(next);
+          pending.add(i + t.length);
+          pending.add(next);
+          pending.add(i);
+        } else {
+          nextNode = node;
+        }
       }
-      return nextCell != null;
+      return true;
     }
 
     public void remove() {
-      if (currentCell != null) {
+      if (currentNode != null) {
         ConcurrentHashMap.this.remove
-          (currentCell.key, RemoveCondition.Always, null);
-        currentCell = null;
+          (currentNode.key, RemoveCondition.Always, null);
+        currentNode = null;
       } else {
         throw new IllegalStateException();
       }
@@ -11,6 +11,70 @@
 package java.util.concurrent;
 
 public class Executors {
+  public static ExecutorService newFixedThreadPool(int threadCount) {
+    return newFixedThreadPool(threadCount, defaultThreadFactory());
+  }
+
+  public static ExecutorService newFixedThreadPool
+    (int threadCount, ThreadFactory threadFactory)
+  {
+    return new ThreadPoolExecutor
+      (threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+       new LinkedBlockingQueue<Runnable>(), threadFactory);
+  }
+
+  public static ExecutorService newCachedThreadPool() {
+    return newCachedThreadPool(defaultThreadFactory());
+  }
+
+  public static ExecutorService newCachedThreadPool
+    (ThreadFactory threadFactory)
+  {
+    return new ThreadPoolExecutor
+      (0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+       new SynchronousQueue<Runnable>(), threadFactory);
+  }
+
+  public static ExecutorService newSingleThreadExecutor() {
+    return newSingleThreadExecutor(defaultThreadFactory());
+  }
+
+  public static ExecutorService newSingleThreadExecutor
+    (ThreadFactory threadFactory)
+  {
+    return newFixedThreadPool(1, threadFactory);
+  }
+
+  public static ScheduledExecutorService newScheduledThreadPool
+    (int corePoolSize)
+  {
+    return new ScheduledThreadPoolExecutor(corePoolSize);
+  }
+
+  public static ScheduledExecutorService newScheduledThreadPool
+    (int corePoolSize, ThreadFactory threadFactory)
+  {
+    return new ScheduledThreadPoolExecutor(corePoolSize, threadFactory);
+  }
+
+  public static ScheduledExecutorService newSingleThreadScheduledExecutor() {
+    return newScheduledThreadPool(1);
+  }
+
+  public static ScheduledExecutorService newSingleThreadScheduledExecutor
+    (ThreadFactory threadFactory)
+  {
+    return newScheduledThreadPool(1, threadFactory);
+  }
+
+  public static ThreadFactory defaultThreadFactory() {
+    return new DefaultThreadFactory();
+  }
+
+  public static Callable<Object> callable(Runnable task) {
+    return callable(task, null);
+  }
+
   public static <T> Callable<T> callable(final Runnable task, final T result) {
     return new Callable<T>() {
       @Override
@@ -21,4 +85,31 @@ public class Executors {
       }
     };
   }
+
+  private static class DefaultThreadFactory implements ThreadFactory {
+    private static final Object lock = new Object();
+    private static int poolCount = 0;
+
+    private final String prefix;
+    private int threadCount = 0;
+
+    private DefaultThreadFactory() {
+      synchronized (lock) {
+        prefix = "pool-" + (++ poolCount) + "-thread-";
+      }
+    }
+
+    @Override
+    public Thread newThread(Runnable task) {
+      String name;
+      synchronized (this) {
+        name = prefix + (++ threadCount);
+      }
+
+      Thread thread = new Thread(task, name);
+      thread.setDaemon(false);
+      thread.setPriority(Thread.NORM_PRIORITY);
+      return thread;
+    }
+  }
 }
@@ -51,31 +51,62 @@ public class FutureTask<T> implements RunnableFuture<T> {
       } catch (Throwable t) {
         failure = t;
       } finally {
-        if (currentState.compareAndSet(State.Running, State.Done) || 
-            currentState.get() == State.Canceled) {
-          /* in either of these conditions we either were not canceled 
-           * or we already were interrupted.  The thread may or MAY NOT
-           * be in an interrupted status depending on when it was 
-           * interrupted and what the callable did with the state. 
-           */
+        finish();
+      }
+    }
+  }
+
+  /**
+   * Runs the task without setting a result, leaving it ready to be
+   * run again.  Returns false, leaving the task done, if it failed or
+   * was cancelled.
+   */
+  protected boolean runAndReset() {
+    if (currentState.compareAndSet(State.New, State.Running)) {
+      runningThread = Thread.currentThread();
+      boolean reset = false;
+      try {
+        callable.call();
+        reset = currentState.compareAndSet(State.Running, State.New);
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        if (reset) {
+          runningThread = null;
         } else {
-          /* Should be in canceling state, so block forever till we are 
-           * interrupted.  If state already transitioned into canceled 
-           * and thus thread is in interrupted status, the exception should 
-           * throw immediately on the sleep call.
-           */
-          try {
-            Thread.sleep(Long.MAX_VALUE);
-          } catch (InterruptedException e) {
-            // expected
-          }
+          finish();
         }
+      }
+      return reset;
+    } else {
+      return false;
+    }
+  }
 
-        Thread.interrupted(); // reset interrupted status if set
-        handleDone();
-        runningThread = null; // must be last operation
+  private void finish() {
+    if (currentState.compareAndSet(State.Running, State.Done) || 
+        currentState.get() == State.Canceled) {
+      /* in either of these conditions we either were not canceled 
+       * or we already were interrupted.  The thread may or MAY NOT
+       * be in an interrupted status depending on when it was 
+       * interrupted and what the callable did with the state. 
+       */
+    } else {
+      /* Should be in canceling state, so block forever till we are 
+       * interrupted.  If state already transitioned into canceled 
+       * and thus thread is in interrupted status, the exception should 
+       * throw immediately on the sleep call.
+       */
+      try {
+        Thread.sleep(Long.MAX_VALUE);
+      } catch (InterruptedException e) {
+        // expected
       }
     }
+
+    Thread.interrupted(); // reset interrupted status if set
+    handleDone();
+    runningThread = null; // must be last operation
   }
   
   private void handleDone() {
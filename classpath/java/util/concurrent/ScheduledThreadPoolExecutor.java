@@ -0,0 +1,656 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ThreadPoolExecutor} which runs tasks after a delay, or
+ * periodically.
+ *
+ * <p>Pending tasks are kept in a binary heap ordered by the time they
+ * are due, so a small, fixed set of core threads can serve any number
+ * of timers.  Scheduling a task and removing a cancelled one are both
+ * O(log n).
+ */
+public class ScheduledThreadPoolExecutor extends ThreadPoolExecutor
+  implements ScheduledExecutorService
+{
+  private static final long DefaultKeepAliveInMillis = 10;
+
+  // used to break ties between tasks due at the same time, so they
+  // run in the order they were scheduled
+  private static final AtomicLong sequencer = new AtomicLong();
+
+  private volatile boolean continueExistingPeriodicTasksAfterShutdown;
+  private volatile boolean executeExistingDelayedTasksAfterShutdown = true;
+  private volatile boolean removeOnCancel;
+
+  public ScheduledThreadPoolExecutor(int corePoolSize) {
+    super(corePoolSize, Integer.MAX_VALUE, DefaultKeepAliveInMillis,
+          TimeUnit.MILLISECONDS, new DelayedWorkQueue());
+  }
+
+  public ScheduledThreadPoolExecutor(int corePoolSize,
+                                     ThreadFactory threadFactory)
+  {
+    super(corePoolSize, Integer.MAX_VALUE, DefaultKeepAliveInMillis,
+          TimeUnit.MILLISECONDS, new DelayedWorkQueue(), threadFactory);
+  }
+
+  public ScheduledThreadPoolExecutor(int corePoolSize,
+                                     RejectedExecutionHandler handler)
+  {
+    super(corePoolSize, Integer.MAX_VALUE, DefaultKeepAliveInMillis,
+          TimeUnit.MILLISECONDS, new DelayedWorkQueue(), handler);
+  }
+
+  public ScheduledThreadPoolExecutor(int corePoolSize,
+                                     ThreadFactory threadFactory,
+                                     RejectedExecutionHandler handler)
+  {
+    super(corePoolSize, Integer.MAX_VALUE, DefaultKeepAliveInMillis,
+          TimeUnit.MILLISECONDS, new DelayedWorkQueue(), threadFactory,
+          handler);
+  }
+
+  private static long now() {
+    return System.nanoTime();
+  }
+
+  private static long triggerTime(long delay, TimeUnit unit) {
+    long nanos = unit.toNanos(delay < 0 ? 0 : delay);
+    // keep trigger times within half the range of a long so that
+    // comparing them by subtraction cannot overflow
+    if (nanos >= (Long.MAX_VALUE >> 1)) {
+      nanos = Long.MAX_VALUE >> 1;
+    }
+    return now() + nanos;
+  }
+
+  private boolean canRunInCurrentState(boolean periodic) {
+    if (! isShutdown()) {
+      return true;
+    } else if (isStopped()) {
+      return false;
+    } else {
+      return periodic
+        ? continueExistingPeriodicTasksAfterShutdown
+        : executeExistingDelayedTasksAfterShutdown;
+    }
+  }
+
+  private void delayedExecute(ScheduledFutureTask<?> task) {
+    if (isShutdown()) {
+      getRejectedExecutionHandler().rejectedExecution(task, this);
+    } else {
+      getQueue().add(task);
+      if (! canRunInCurrentState(task.isPeriodic()) && remove(task)) {
+        // we raced with shutdown
+        task.cancel(false);
+      } else {
+        ensurePrestart();
+      }
+    }
+  }
+
+  private void reExecutePeriodic(ScheduledFutureTask<?> task) {
+    if (canRunInCurrentState(true)) {
+      getQueue().add(task);
+      if (! canRunInCurrentState(true) && remove(task)) {
+        task.cancel(false);
+      } else {
+        ensurePrestart();
+      }
+    } else {
+      task.cancel(false);
+    }
+  }
+
+  @Override
+  void onShutdown() {
+    BlockingQueue<Runnable> queue = getQueue();
+    boolean keepDelayed = executeExistingDelayedTasksAfterShutdown;
+    boolean keepPeriodic = continueExistingPeriodicTasksAfterShutdown;
+    for (Object o : queue.toArray()) {
+      ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) o;
+      if ((task.isPeriodic() ? ! keepPeriodic : ! keepDelayed)
+          || task.isCancelled())
+      {
+        if (queue.remove(task)) {
+          task.cancel(false);
+        }
+      }
+    }
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay,
+                                     TimeUnit unit)
+  {
+    if (command == null || unit == null) {
+      throw new NullPointerException();
+    }
+
+    ScheduledFutureTask<Object> task = new ScheduledFutureTask<Object>
+      (command, null, triggerTime(delay, unit), 0);
+    delayedExecute(task);
+    return task;
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay,
+                                         TimeUnit unit)
+  {
+    if (callable == null || unit == null) {
+      throw new NullPointerException();
+    }
+
+    ScheduledFutureTask<V> task = new ScheduledFutureTask<V>
+      (callable, triggerTime(delay, unit));
+    delayedExecute(task);
+    return task;
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                long initialDelay,
+                                                long period,
+                                                TimeUnit unit)
+  {
+    if (command == null || unit == null) {
+      throw new NullPointerException();
+    }
+
+    if (period <= 0) {
+      throw new IllegalArgumentException();
+    }
+
+    ScheduledFutureTask<Object> task = new ScheduledFutureTask<Object>
+      (command, null, triggerTime(initialDelay, unit), unit.toNanos(period));
+    delayedExecute(task);
+    return task;
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                   long initialDelay,
+                                                   long delay,
+                                                   TimeUnit unit)
+  {
+    if (command == null || unit == null) {
+      throw new NullPointerException();
+    }
+
+    if (delay <= 0) {
+      throw new IllegalArgumentException();
+    }
+
+    // a negative period means a fixed delay between runs
+    ScheduledFutureTask<Object> task = new ScheduledFutureTask<Object>
+      (command, null, triggerTime(initialDelay, unit), - unit.toNanos(delay));
+    delayedExecute(task);
+    return task;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    schedule(command, 0, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return schedule(task, 0, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    return schedule(Executors.callable(task, result), 0, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    return schedule(task, 0, TimeUnit.NANOSECONDS);
+  }
+
+  public void setContinueExistingPeriodicTasksAfterShutdownPolicy
+    (boolean value)
+  {
+    continueExistingPeriodicTasksAfterShutdown = value;
+    if (! value && isShutdown()) {
+      purgeAfterShutdown();
+    }
+  }
+
+  public boolean getContinueExistingPeriodicTasksAfterShutdownPolicy() {
+    return continueExistingPeriodicTasksAfterShutdown;
+  }
+
+  public void setExecuteExistingDelayedTasksAfterShutdownPolicy
+    (boolean value)
+  {
+    executeExistingDelayedTasksAfterShutdown = value;
+    if (! value && isShutdown()) {
+      purgeAfterShutdown();
+    }
+  }
+
+  public boolean getExecuteExistingDelayedTasksAfterShutdownPolicy() {
+    return executeExistingDelayedTasksAfterShutdown;
+  }
+
+  public void setRemoveOnCancelPolicy(boolean value) {
+    removeOnCancel = value;
+  }
+
+  public boolean getRemoveOnCancelPolicy() {
+    return removeOnCancel;
+  }
+
+  private void purgeAfterShutdown() {
+    onShutdown();
+    queueChanged();
+  }
+
+  private class ScheduledFutureTask<V> extends FutureTask<V>
+    implements ScheduledFuture<V>
+  {
+    private final long sequence;
+    // in nanoseconds, relative to System.nanoTime()
+    private long time;
+    // positive for a fixed rate, negative for a fixed delay, and zero
+    // for a task which only runs once
+    private final long period;
+    // index in the delay queue's heap, or -1 if not queued
+    private int heapIndex = -1;
+
+    private ScheduledFutureTask(Runnable command, V result, long time,
+                                long period)
+    {
+      super(command, result);
+      this.sequence = sequencer.getAndIncrement();
+      this.time = time;
+      this.period = period;
+    }
+
+    private ScheduledFutureTask(Callable<V> callable, long time) {
+      super(callable);
+      this.sequence = sequencer.getAndIncrement();
+      this.time = time;
+      this.period = 0;
+    }
+
+    private boolean isPeriodic() {
+      return period != 0;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(time - now(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      if (o == this) {
+        return 0;
+      }
+
+      if (o instanceof ScheduledFutureTask) {
+        ScheduledFutureTask<?> other = (ScheduledFutureTask<?>) o;
+        long difference = time - other.time;
+        if (difference < 0) {
+          return -1;
+        } else if (difference > 0) {
+          return 1;
+        } else {
+          return sequence < other.sequence ? -1 : 1;
+        }
+      } else {
+        long difference = getDelay(TimeUnit.NANOSECONDS)
+          - o.getDelay(TimeUnit.NANOSECONDS);
+        return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled && removeOnCancel && heapIndex >= 0) {
+        remove(this);
+      }
+      return cancelled;
+    }
+
+    @Override
+    public void run() {
+      boolean periodic = isPeriodic();
+      if (! canRunInCurrentState(periodic)) {
+        cancel(false);
+      } else if (! periodic) {
+        super.run();
+      } else if (runAndReset()) {
+        if (period > 0) {
+          time += period;
+        } else {
+          time = now() - period;
+        }
+        reExecutePeriodic(this);
+      }
+    }
+  }
+
+  private static class DelayedWorkQueue extends AbstractQueue<Runnable>
+    implements BlockingQueue<Runnable>
+  {
+    private static final int InitialCapacity = 16;
+
+    private final Object lock = new Object();
+    private ScheduledFutureTask<?>[] heap
+      = new ScheduledFutureTask<?>[InitialCapacity];
+    private int size;
+
+    // should be synchronized on lock before calling
+    private void set(int index, ScheduledFutureTask<?> task) {
+      heap[index] = task;
+      task.heapIndex = index;
+    }
+
+    // should be synchronized on lock before calling
+    private void siftUp(int index, ScheduledFutureTask<?> task) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        ScheduledFutureTask<?> p = heap[parent];
+        if (task.compareTo(p) >= 0) {
+          break;
+        }
+        set(index, p);
+        index = parent;
+      }
+      set(index, task);
+    }
+
+    // should be synchronized on lock before calling
+    private void siftDown(int index, ScheduledFutureTask<?> task) {
+      int half = size >>> 1;
+      while (index < half) {
+        int child = (index << 1) + 1;
+        ScheduledFutureTask<?> c = heap[child];
+        int right = child + 1;
+        if (right < size && c.compareTo(heap[right]) > 0) {
+          c = heap[child = right];
+        }
+        if (task.compareTo(c) <= 0) {
+          break;
+        }
+        set(index, c);
+        index = child;
+      }
+      set(index, task);
+    }
+
+    // should be synchronized on lock before calling
+    private int indexOf(Object o) {
+      if (o instanceof ScheduledFutureTask) {
+        int index = ((ScheduledFutureTask<?>) o).heapIndex;
+        // the task may belong to another executor's queue
+        if (index >= 0 && index < size && heap[index] == o) {
+          return index;
+        }
+      }
+      return -1;
+    }
+
+    // should be synchronized on lock before calling
+    private ScheduledFutureTask<?> removeAt(int index) {
+      ScheduledFutureTask<?> task = heap[index];
+      task.heapIndex = -1;
+
+      int last = -- size;
+      ScheduledFutureTask<?> replacement = heap[last];
+      heap[last] = null;
+      if (index != last) {
+        siftDown(index, replacement);
+        if (heap[index] == replacement) {
+          siftUp(index, replacement);
+        }
+      }
+
+      if (index == 0) {
+        // the head has changed, so waiting threads may need to
+        // wait for a different amount of time
+        lock.notifyAll();
+      }
+      return task;
+    }
+
+    @Override
+    public boolean offer(Runnable element) {
+      if (element == null) {
+        throw new NullPointerException();
+      }
+
+      ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) element;
+      synchronized (lock) {
+        if (size == heap.length) {
+          ScheduledFutureTask<?>[] newHeap
+            = new ScheduledFutureTask<?>[heap.length * 2];
+          System.arraycopy(heap, 0, newHeap, 0, size);
+          heap = newHeap;
+        }
+
+        siftUp(size++, task);
+        if (heap[0] == task) {
+          lock.notifyAll();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void put(Runnable element) {
+      offer(element);
+    }
+
+    @Override
+    public boolean offer(Runnable element, long timeout, TimeUnit unit) {
+      return offer(element);
+    }
+
+    @Override
+    public Runnable peek() {
+      synchronized (lock) {
+        return heap[0];
+      }
+    }
+
+    @Override
+    public Runnable poll() {
+      synchronized (lock) {
+        ScheduledFutureTask<?> first = heap[0];
+        if (first == null || first.getDelay(TimeUnit.NANOSECONDS) > 0) {
+          return null;
+        } else {
+          return removeAt(0);
+        }
+      }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+      synchronized (lock) {
+        while (true) {
+          ScheduledFutureTask<?> first = heap[0];
+          if (first == null) {
+            lock.wait();
+          } else {
+            long delay = first.getDelay(TimeUnit.NANOSECONDS);
+            if (delay <= 0) {
+              return removeAt(0);
+            }
+            waitNanos(delay);
+          }
+        }
+      }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+      throws InterruptedException
+    {
+      long deadline = now() + unit.toNanos(timeout);
+      synchronized (lock) {
+        while (true) {
+          long remaining = deadline - now();
+          ScheduledFutureTask<?> first = heap[0];
+          if (first == null) {
+            if (remaining <= 0) {
+              return null;
+            }
+            waitNanos(remaining);
+          } else {
+            long delay = first.getDelay(TimeUnit.NANOSECONDS);
+            if (delay <= 0) {
+              return removeAt(0);
+            } else if (remaining <= 0) {
+              return null;
+            }
+            waitNanos(delay < remaining ? delay : remaining);
+          }
+        }
+      }
+    }
+
+    // should be synchronized on lock before calling
+    private void waitNanos(long nanos) throws InterruptedException {
+      long millis = nanos / 1000000;
+      lock.wait(millis, (int) (nanos % 1000000));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      synchronized (lock) {
+        int index = indexOf(o);
+        if (index < 0) {
+          return false;
+        }
+        removeAt(index);
+        return true;
+      }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      synchronized (lock) {
+        return indexOf(o) >= 0;
+      }
+    }
+
+    @Override
+    public int size() {
+      synchronized (lock) {
+        return size;
+      }
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+      synchronized (lock) {
+        for (int i = 0; i < size; ++i) {
+          heap[i].heapIndex = -1;
+          heap[i] = null;
+        }
+        size = 0;
+      }
+    }
+
+    @Override
+    public int remainingCapacity() {
+      return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+      return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+      if (c == null) {
+        throw new NullPointerException();
+      }
+
+      if (c == this) {
+        throw new IllegalArgumentException();
+      }
+
+      // only tasks which are due may be drained
+      int count = 0;
+      synchronized (lock) {
+        while (count < maxElements && size > 0
+               && heap[0].getDelay(TimeUnit.NANOSECONDS) <= 0)
+        {
+          c.add(removeAt(0));
+          ++ count;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public <S> S[] toArray(S[] array) {
+      synchronized (lock) {
+        return super.toArray(array);
+      }
+    }
+
+    @Override
+    public Iterator<Runnable> iterator() {
+      final ScheduledFutureTask<?>[] snapshot;
+      synchronized (lock) {
+        snapshot = new ScheduledFutureTask<?>[size];
+        System.arraycopy(heap, 0, snapshot, 0, size);
+      }
+
+      return new Iterator<Runnable>() {
+        private int index;
+        private ScheduledFutureTask<?> last;
+
+        public boolean hasNext() {
+          return index < snapshot.length;
+        }
+
+        public Runnable next() {
+          if (index >= snapshot.length) {
+            throw new NoSuchElementException();
+          }
+          return last = snapshot[index++];
+        }
+
+        public void remove() {
+          if (last == null) {
+            throw new IllegalStateException();
+          }
+          DelayedWorkQueue.this.remove(last);
+          last = null;
+        }
+      };
+    }
+  }
+}
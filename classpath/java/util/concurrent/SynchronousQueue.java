@@ -0,0 +1,228 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * A queue with no capacity: each insertion must be matched by a
+ * removal in another thread.  A non-blocking {@link #offer(Object)}
+ * only succeeds when a consumer is already waiting for an element.
+ */
+public class SynchronousQueue<T> extends AbstractQueue<T>
+                                 implements BlockingQueue<T> {
+  private final Object lock;
+  // elements which have been handed off but not yet received
+  private final LinkedList<Transfer<T>> transfers;
+  private int waitingConsumers;
+
+  public SynchronousQueue() {
+    this(false);
+  }
+
+  public SynchronousQueue(boolean fair) {
+    lock = new Object();
+    transfers = new LinkedList<Transfer<T>>();
+  }
+
+  @Override
+  public boolean offer(T element) {
+    if (element == null) {
+      throw new NullPointerException();
+    }
+
+    synchronized (lock) {
+      if (waitingConsumers > transfers.size()) {
+        transfers.addLast(new Transfer<T>(element));
+        lock.notifyAll();
+        return true;
+      } else {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public boolean offer(T element, long timeout, TimeUnit unit)
+    throws InterruptedException
+  {
+    return transfer(element, unit.toMillis(timeout));
+  }
+
+  @Override
+  public void put(T element) throws InterruptedException {
+    transfer(element, Long.MAX_VALUE);
+  }
+
+  private boolean transfer(T element, long timeoutInMillis)
+    throws InterruptedException
+  {
+    if (element == null) {
+      throw new NullPointerException();
+    }
+
+    Transfer<T> transfer = new Transfer<T>(element);
+    long startTime = System.currentTimeMillis();
+    synchronized (lock) {
+      transfers.addLast(transfer);
+      lock.notifyAll();
+
+      long remainingWait = timeoutInMillis;
+      try {
+        while (! transfer.received && remainingWait > 0) {
+          lock.wait(remainingWait);
+
+          if (timeoutInMillis != Long.MAX_VALUE) {
+            remainingWait = timeoutInMillis
+              - (System.currentTimeMillis() - startTime);
+          }
+        }
+      } catch (InterruptedException e) {
+        if (transfer.received) {
+          Thread.currentThread().interrupt();
+          return true;
+        } else {
+          transfers.remove(transfer);
+          throw e;
+        }
+      }
+
+      if (! transfer.received) {
+        transfers.remove(transfer);
+      }
+      return transfer.received;
+    }
+  }
+
+  // should be synchronized on lock before calling
+  private T receive() {
+    Transfer<T> transfer = transfers.removeFirst();
+    transfer.received = true;
+    lock.notifyAll();
+    return transfer.element;
+  }
+
+  @Override
+  public T poll() {
+    synchronized (lock) {
+      return transfers.isEmpty() ? null : receive();
+    }
+  }
+
+  @Override
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long timeoutInMillis = unit.toMillis(timeout);
+    long startTime = System.currentTimeMillis();
+    synchronized (lock) {
+      ++ waitingConsumers;
+      try {
+        long remainingWait = timeoutInMillis;
+        while (transfers.isEmpty() && remainingWait > 0) {
+          lock.wait(remainingWait);
+
+          if (timeoutInMillis != Long.MAX_VALUE) {
+            remainingWait = timeoutInMillis
+              - (System.currentTimeMillis() - startTime);
+          }
+        }
+      } catch (InterruptedException e) {
+        // an element may have been offered to us on the strength of
+        // our waiting, so take it rather than leave it stranded
+        if (transfers.size() >= waitingConsumers) {
+          Thread.currentThread().interrupt();
+          return receive();
+        } else {
+          throw e;
+        }
+      } finally {
+        -- waitingConsumers;
+      }
+
+      return transfers.isEmpty() ? null : receive();
+    }
+  }
+
+  @Override
+  public T take() throws InterruptedException {
+    return poll(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public T peek() {
+    return null;
+  }
+
+  @Override
+  public int drainTo(Collection<? super T> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super T> c, int maxElements) {
+    int count = 0;
+    synchronized (lock) {
+      while (count < maxElements && ! transfers.isEmpty()) {
+        c.add(receive());
+        ++ count;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return 0;
+  }
+
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object element) {
+    return false;
+  }
+
+  @Override
+  public boolean remove(Object element) {
+    return false;
+  }
+
+  @Override
+  public void clear() {
+    // nothing to do
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return Collections.<T>emptySet().iterator();
+  }
+
+  private static class Transfer<T> {
+    private final T element;
+    private boolean received;
+
+    private Transfer(T element) {
+      this.element = element;
+    }
+  }
+}
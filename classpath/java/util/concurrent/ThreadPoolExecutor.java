@@ -0,0 +1,643 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * An {@link ExecutorService} which runs tasks on a pool of reusable
+ * worker threads.
+ *
+ * <p>New tasks start a new worker while fewer than the core pool size
+ * are running, are queued otherwise, and start an extra worker (up to
+ * the maximum pool size) only if the queue refuses them.  Workers
+ * beyond the core size, or all of them if core threads are allowed to
+ * time out, exit after sitting idle for the keep-alive time.  Tasks
+ * which cannot be accepted are passed to a {@link
+ * RejectedExecutionHandler}.
+ */
+public class ThreadPoolExecutor extends AbstractExecutorService {
+  private enum State { Running, Shutdown, Stop, Terminated };
+
+  private static final RejectedExecutionHandler defaultHandler
+    = new AbortPolicy();
+
+  private final Object lock;
+  private final BlockingQueue<Runnable> workQueue;
+  private final HashSet<Worker> workers;
+  private volatile State state;
+  private volatile int corePoolSize;
+  private volatile int maximumPoolSize;
+  private volatile long keepAliveTimeInMillis;
+  private volatile boolean allowCoreThreadTimeOut;
+  private volatile ThreadFactory threadFactory;
+  private volatile RejectedExecutionHandler handler;
+  private int largestPoolSize;
+  private long completedTaskCount;
+
+  public ThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                            long keepAliveTime, TimeUnit unit,
+                            BlockingQueue<Runnable> workQueue)
+  {
+    this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+         Executors.defaultThreadFactory(), defaultHandler);
+  }
+
+  public ThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                            long keepAliveTime, TimeUnit unit,
+                            BlockingQueue<Runnable> workQueue,
+                            ThreadFactory threadFactory)
+  {
+    this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+         threadFactory, defaultHandler);
+  }
+
+  public ThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                            long keepAliveTime, TimeUnit unit,
+                            BlockingQueue<Runnable> workQueue,
+                            RejectedExecutionHandler handler)
+  {
+    this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+         Executors.defaultThreadFactory(), handler);
+  }
+
+  public ThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                            long keepAliveTime, TimeUnit unit,
+                            BlockingQueue<Runnable> workQueue,
+                            ThreadFactory threadFactory,
+                            RejectedExecutionHandler handler)
+  {
+    if (corePoolSize < 0 || maximumPoolSize <= 0
+        || maximumPoolSize < corePoolSize || keepAliveTime < 0)
+    {
+      throw new IllegalArgumentException();
+    }
+
+    if (workQueue == null || threadFactory == null || handler == null) {
+      throw new NullPointerException();
+    }
+
+    this.lock = new Object();
+    this.workQueue = workQueue;
+    this.workers = new HashSet<Worker>();
+    this.state = State.Running;
+    this.corePoolSize = corePoolSize;
+    this.maximumPoolSize = maximumPoolSize;
+    this.keepAliveTimeInMillis = unit.toMillis(keepAliveTime);
+    this.threadFactory = threadFactory;
+    this.handler = handler;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+
+    synchronized (lock) {
+      if (state == State.Running && workers.size() < corePoolSize) {
+        addWorker(task);
+        return;
+      }
+    }
+
+    if (state == State.Running && workQueue.offer(task)) {
+      synchronized (lock) {
+        if (state != State.Running && workQueue.remove(task)) {
+          // we raced with shutdown, and nobody has picked up the task
+        } else {
+          if (workers.isEmpty()) {
+            addWorker(null);
+          }
+          return;
+        }
+      }
+    } else {
+      synchronized (lock) {
+        if (state == State.Running && workers.size() < maximumPoolSize) {
+          addWorker(task);
+          return;
+        }
+      }
+    }
+
+    handler.rejectedExecution(task, this);
+  }
+
+  // should be synchronized on lock before calling
+  private void addWorker(Runnable firstTask) {
+    Worker worker = new Worker(firstTask);
+    Thread thread = threadFactory.newThread(worker);
+    if (thread == null) {
+      throw new RejectedExecutionException("thread factory failed");
+    }
+
+    worker.thread = thread;
+    workers.add(worker);
+    if (workers.size() > largestPoolSize) {
+      largestPoolSize = workers.size();
+    }
+
+    thread.start();
+  }
+
+  private void runWorker(Worker worker) {
+    Runnable task = worker.firstTask;
+    worker.firstTask = null;
+    boolean completedNormally = false;
+    try {
+      while (task != null || (task = getTask(worker)) != null) {
+        synchronized (worker) {
+          worker.idle = false;
+        }
+
+        // make sure we only carry an interrupt into the task if the
+        // pool is stopping; a late interrupt meant to wake an idle
+        // worker during shutdown() is not for the task
+        if (state.compareTo(State.Stop) < 0) {
+          Thread.interrupted();
+        } else if (! worker.thread.isInterrupted()) {
+          worker.thread.interrupt();
+        }
+
+        beforeExecute(worker.thread, task);
+        Throwable failure = null;
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          failure = e;
+          throw e;
+        } catch (Error e) {
+          failure = e;
+          throw e;
+        } finally {
+          afterExecute(task, failure);
+          task = null;
+          ++ worker.completedTasks;
+        }
+      }
+      completedNormally = true;
+    } finally {
+      workerExited(worker, completedNormally);
+    }
+  }
+
+  private Runnable getTask(Worker worker) {
+    boolean timedOut = false;
+    while (true) {
+      boolean timed;
+      synchronized (lock) {
+        if (state.compareTo(State.Stop) >= 0
+            || (state == State.Shutdown && workQueue.isEmpty()))
+        {
+          removeWorker(worker);
+          return null;
+        }
+
+        int size = workers.size();
+        timed = allowCoreThreadTimeOut || size > corePoolSize;
+        if ((size > maximumPoolSize || (timed && timedOut))
+            && (size > 1 || workQueue.isEmpty()))
+        {
+          removeWorker(worker);
+          return null;
+        }
+
+        // mark ourselves idle while still holding the pool lock so
+        // that a concurrent shutdown() is sure to interrupt us if it
+        // sees us waiting
+        synchronized (worker) {
+          worker.idle = true;
+        }
+      }
+
+      try {
+        Runnable task = timed
+          ? workQueue.poll(keepAliveTimeInMillis, TimeUnit.MILLISECONDS)
+          : workQueue.take();
+
+        if (task != null) {
+          return task;
+        }
+        timedOut = true;
+      } catch (InterruptedException e) {
+        timedOut = false;
+      }
+    }
+  }
+
+  // should be synchronized on lock before calling
+  private void removeWorker(Worker worker) {
+    if (workers.remove(worker)) {
+      completedTaskCount += worker.completedTasks;
+    }
+  }
+
+  private void workerExited(Worker worker, boolean completedNormally) {
+    synchronized (lock) {
+      removeWorker(worker);
+
+      if (state.compareTo(State.Stop) < 0) {
+        // replace a worker which died due to an exception, and make
+        // sure someone is left to drain the queue
+        if ((! completedNormally)
+            || (workers.isEmpty() && ! workQueue.isEmpty()))
+        {
+          addWorker(null);
+        }
+      }
+
+      tryTerminate();
+    }
+  }
+
+  // should be synchronized on lock before calling
+  private void tryTerminate() {
+    if (workers.isEmpty()
+        && (state == State.Stop
+            || (state == State.Shutdown && workQueue.isEmpty())))
+    {
+      try {
+        terminated();
+      } finally {
+        state = State.Terminated;
+        lock.notifyAll();
+      }
+    }
+  }
+
+  // should be synchronized on lock before calling
+  private void interruptWorkers(boolean onlyIdle) {
+    for (Worker worker : workers) {
+      synchronized (worker) {
+        if (worker.idle || ! onlyIdle) {
+          worker.thread.interrupt();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (lock) {
+      if (state == State.Running) {
+        state = State.Shutdown;
+      }
+      onShutdown();
+      interruptWorkers(true);
+      tryTerminate();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    synchronized (lock) {
+      if (state.compareTo(State.Stop) < 0) {
+        state = State.Stop;
+      }
+      interruptWorkers(false);
+      workQueue.drainTo(tasks);
+      if (! workQueue.isEmpty()) {
+        // some queues (e.g. delay queues) will only drain the elements
+        // which are ready to be taken, so remove the rest one by one
+        for (Runnable task : workQueue.toArray(new Runnable[0])) {
+          if (workQueue.remove(task)) {
+            tasks.add(task);
+          }
+        }
+      }
+      tryTerminate();
+    }
+    return tasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return state != State.Running;
+  }
+
+  public boolean isTerminating() {
+    State s = state;
+    return s != State.Running && s != State.Terminated;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return state == State.Terminated;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit)
+    throws InterruptedException
+  {
+    long timeoutInMillis = unit.toMillis(timeout);
+    long startTime = System.currentTimeMillis();
+    synchronized (lock) {
+      long remainingWait = timeoutInMillis;
+      while (state != State.Terminated) {
+        if (remainingWait <= 0) {
+          return false;
+        }
+
+        lock.wait(remainingWait);
+
+        remainingWait = timeoutInMillis
+          - (System.currentTimeMillis() - startTime);
+      }
+      return true;
+    }
+  }
+
+  // Starts a worker for a task which was added straight to the queue,
+  // bypassing execute().  Makes sure there is at least one worker even
+  // if the core pool size is zero.
+  void ensurePrestart() {
+    synchronized (lock) {
+      if (state.compareTo(State.Stop) < 0
+          && (workers.size() < corePoolSize || workers.isEmpty()))
+      {
+        addWorker(null);
+      }
+    }
+  }
+
+  boolean isStopped() {
+    return state.compareTo(State.Stop) >= 0;
+  }
+
+  // Called by shutdown() while synchronized on the pool lock, so that
+  // subclasses may drop queued tasks which should not outlive it.
+  void onShutdown() {
+    // ignore
+  }
+
+  public boolean prestartCoreThread() {
+    synchronized (lock) {
+      if (state == State.Running && workers.size() < corePoolSize) {
+        addWorker(null);
+        return true;
+      } else {
+        return false;
+      }
+    }
+  }
+
+  public int prestartAllCoreThreads() {
+    int count = 0;
+    while (prestartCoreThread()) {
+      ++ count;
+    }
+    return count;
+  }
+
+  public void allowCoreThreadTimeOut(boolean value) {
+    if (value && keepAliveTimeInMillis <= 0) {
+      throw new IllegalArgumentException();
+    }
+
+    synchronized (lock) {
+      allowCoreThreadTimeOut = value;
+      if (value) {
+        interruptWorkers(true);
+      }
+    }
+  }
+
+  public boolean allowsCoreThreadTimeOut() {
+    return allowCoreThreadTimeOut;
+  }
+
+  public void setCorePoolSize(int corePoolSize) {
+    if (corePoolSize < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    synchronized (lock) {
+      int delta = corePoolSize - this.corePoolSize;
+      this.corePoolSize = corePoolSize;
+      if (workers.size() > corePoolSize) {
+        interruptWorkers(true);
+      } else if (delta > 0) {
+        int count = Math.min(delta, workQueue.size());
+        while (count-- > 0 && state == State.Running
+               && workers.size() < corePoolSize)
+        {
+          addWorker(null);
+        }
+      }
+    }
+  }
+
+  public int getCorePoolSize() {
+    return corePoolSize;
+  }
+
+  public void setMaximumPoolSize(int maximumPoolSize) {
+    if (maximumPoolSize <= 0 || maximumPoolSize < corePoolSize) {
+      throw new IllegalArgumentException();
+    }
+
+    synchronized (lock) {
+      this.maximumPoolSize = maximumPoolSize;
+      if (workers.size() > maximumPoolSize) {
+        interruptWorkers(true);
+      }
+    }
+  }
+
+  public int getMaximumPoolSize() {
+    return maximumPoolSize;
+  }
+
+  public void setKeepAliveTime(long time, TimeUnit unit) {
+    if (time < 0 || (time == 0 && allowCoreThreadTimeOut)) {
+      throw new IllegalArgumentException();
+    }
+
+    synchronized (lock) {
+      long timeInMillis = unit.toMillis(time);
+      long delta = timeInMillis - keepAliveTimeInMillis;
+      keepAliveTimeInMillis = timeInMillis;
+      if (delta < 0) {
+        interruptWorkers(true);
+      }
+    }
+  }
+
+  public long getKeepAliveTime(TimeUnit unit) {
+    return unit.convert(keepAliveTimeInMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public void setThreadFactory(ThreadFactory threadFactory) {
+    if (threadFactory == null) {
+      throw new NullPointerException();
+    }
+    this.threadFactory = threadFactory;
+  }
+
+  public ThreadFactory getThreadFactory() {
+    return threadFactory;
+  }
+
+  public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+    if (handler == null) {
+      throw new NullPointerException();
+    }
+    this.handler = handler;
+  }
+
+  public RejectedExecutionHandler getRejectedExecutionHandler() {
+    return handler;
+  }
+
+  public BlockingQueue<Runnable> getQueue() {
+    return workQueue;
+  }
+
+  public boolean remove(Runnable task) {
+    boolean removed = workQueue.remove(task);
+    queueChanged();
+    return removed;
+  }
+
+  // Called after tasks have been removed from the queue by something
+  // other than a worker, in case that leaves a shut down pool with
+  // nothing to do.
+  void queueChanged() {
+    synchronized (lock) {
+      if (state == State.Shutdown && workQueue.isEmpty()) {
+        // wake any workers still waiting on the queue so they notice
+        // there is nothing left to do
+        interruptWorkers(true);
+      }
+      tryTerminate();
+    }
+  }
+
+  public int getPoolSize() {
+    synchronized (lock) {
+      return workers.size();
+    }
+  }
+
+  public int getActiveCount() {
+    synchronized (lock) {
+      int count = 0;
+      for (Worker worker : workers) {
+        synchronized (worker) {
+          if (! worker.idle) {
+            ++ count;
+          }
+        }
+      }
+      return count;
+    }
+  }
+
+  public int getLargestPoolSize() {
+    synchronized (lock) {
+      return largestPoolSize;
+    }
+  }
+
+  public long getCompletedTaskCount() {
+    synchronized (lock) {
+      long count = completedTaskCount;
+      for (Worker worker : workers) {
+        count += worker.completedTasks;
+      }
+      return count;
+    }
+  }
+
+  public long getTaskCount() {
+    synchronized (lock) {
+      long count = completedTaskCount + workQueue.size();
+      for (Worker worker : workers) {
+        count += worker.completedTasks;
+        synchronized (worker) {
+          if (! worker.idle) {
+            ++ count;
+          }
+        }
+      }
+      return count;
+    }
+  }
+
+  protected void beforeExecute(Thread thread, Runnable task) {
+    // default implementation does nothing, designed to be overridden
+  }
+
+  protected void afterExecute(Runnable task, Throwable failure) {
+    // default implementation does nothing, designed to be overridden
+  }
+
+  protected void terminated() {
+    // default implementation does nothing, designed to be overridden
+  }
+
+  private class Worker implements Runnable {
+    private Runnable firstTask;
+    private Thread thread;
+    // true while the worker is waiting for a task; guarded by the
+    // worker's own monitor
+    private boolean idle;
+    private volatile long completedTasks;
+
+    private Worker(Runnable firstTask) {
+      this.firstTask = firstTask;
+    }
+
+    @Override
+    public void run() {
+      runWorker(this);
+    }
+  }
+
+  public static class AbortPolicy implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      throw new RejectedExecutionException
+        ("task " + task + " rejected from " + executor);
+    }
+  }
+
+  public static class CallerRunsPolicy implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      if (! executor.isShutdown()) {
+        task.run();
+      }
+    }
+  }
+
+  public static class DiscardPolicy implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      // ignore the task
+    }
+  }
+
+  public static class DiscardOldestPolicy implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      if (! executor.isShutdown()) {
+        executor.getQueue().poll();
+        executor.execute(task);
+      }
+    }
+  }
+}
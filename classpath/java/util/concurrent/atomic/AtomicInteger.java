@@ -69,13 +69,7 @@ public class AtomicInteger extends Number implements java.io.Serializable {
   }
   
   public int getAndAdd(int delta) {
-    while (true) {
-      int current = value;
-      int next = current + delta;
-      if (compareAndSet(current, next)) {
-        return current;
-      }
-    }
+    return unsafe.getAndAddInt(this, valueOffset, delta);
   }
   
   public int getAndIncrement() {
@@ -87,13 +81,7 @@ public class AtomicInteger extends Number implements java.io.Serializable {
   }
   
   public int addAndGet(int delta) {
-    while (true) {
-      int current = value;
-      int next = current + delta;
-      if (compareAndSet(current, next)) {
-        return next;
-      }
-    }
+    return unsafe.getAndAddInt(this, valueOffset, delta) + delta;
   }
   
   public int incrementAndGet() {
@@ -69,13 +69,7 @@ public class AtomicLong extends Number implements java.io.Serializable {
   }
   
   public long getAndAdd(long delta) {
-    while (true) {
-      long current = value;
-      long next = current + delta;
-      if (compareAndSet(current, next)) {
-        return current;
-      }
-    }
+    return unsafe.getAndAddLong(this, valueOffset, delta);
   }
   
   public long getAndIncrement() {
@@ -87,13 +81,7 @@ public class AtomicLong extends Number implements java.io.Serializable {
   }
   
   public long addAndGet(long delta) {
-    while (true) {
-      long current = value;
-      long next = current + delta;
-      if (compareAndSet(current, next)) {
-        return next;
-      }
-    }
+    return unsafe.getAndAddLong(this, valueOffset, delta) + delta;
   }
   
   public long incrementAndGet() {
@@ -93,6 +93,31 @@ class CharacterMatcher {
     return null;
   }
 
+  /**
+   * Returns a matcher for the specified character in either case.
+   */
+  public static CharacterMatcher caseInsensitive(char c) {
+    CharacterMatcher result = new CharacterMatcher(new boolean[0], false);
+    result.setMatch(c);
+    return result.caseInsensitive();
+  }
+
+  /**
+   * Returns a matcher which also matches the other case of each
+   * letter matched by this one.
+   */
+  public CharacterMatcher caseInsensitive() {
+    CharacterMatcher result = new CharacterMatcher
+      (java.util.Arrays.copyOf(map, map.length), inversePattern);
+    for (int i = 0; i < map.length; ++ i) {
+      if (map[i]) {
+        result.setMatch(Character.toLowerCase((char)i));
+        result.setMatch(Character.toUpperCase((char)i));
+      }
+    }
+    return result;
+  }
+
   private CharacterMatcher(boolean[] map, boolean inversePattern) {
     this.map = map;
     this.inversePattern = inversePattern;
@@ -29,8 +29,10 @@ class Compiler implements PikeVMOpcodes {
     private int findPreambleSize;
     private ArrayList<CharacterMatcher> classes;
     private ArrayList<PikeVM> lookarounds;
+    private final boolean multiLine;
 
-    public Output(Expression expr) {
+    public Output(Expression expr, boolean multiLine) {
+      this.multiLine = multiLine;
       // try-run to determine the code size
       expr.writeCode(this);
       program = new int[offset];
@@ -69,7 +71,7 @@ class Compiler implements PikeVMOpcodes {
       PikeVM[] lookarounds = new PikeVM[this.lookarounds.size()];
       this.lookarounds.toArray(lookarounds);
       return new PikeVM(program, findPreambleSize, groupCount, classes,
-        lookarounds);
+        lookarounds, multiLine);
     }
 
     public int addClass(CharacterMatcher characterClass) {
@@ -216,6 +218,7 @@ class Compiler implements PikeVMOpcodes {
           }
           switch (c) {
           case DOT:
+          case DOTALL:
             return ".";
           case WORD_BOUNDARY:
             return "\\b";
@@ -313,7 +316,7 @@ class Compiler implements PikeVMOpcodes {
 
     @Override
     protected void writeCode(Output output) {
-      PikeVM vm = new Output(group).toVM();
+      PikeVM vm = new Output(group, multiLine()).toVM();
       if (!forward) {
         vm.reverse();
       }
@@ -362,39 +365,77 @@ class Compiler implements PikeVMOpcodes {
 
   private Group0 root;
   private Stack<Group> groups;
+  private final int flags;
 
-  public Compiler() {
+  public Compiler(int flags) {
+    this.flags = flags;
     root = new Group0();
     groups = new Stack<Group>();
     groups.add(root.group);
   }
 
+  private boolean caseInsensitive() {
+    return (flags & Pattern.CASE_INSENSITIVE) != 0;
+  }
+
+  private boolean multiLine() {
+    return (flags & Pattern.MULTILINE) != 0;
+  }
+
+  private void pushCharacter(Group group, char c) {
+    // letters are matched against both cases by a character class, so
+    // the input never needs to be converted
+    if (caseInsensitive()
+        && Character.toLowerCase(c) != Character.toUpperCase(c))
+    {
+      group.push(new CharacterRange(CharacterMatcher.caseInsensitive(c)));
+    } else {
+      group.push(c);
+    }
+  }
+
+  private CharacterRange characterRange(CharacterMatcher characterClass) {
+    return new CharacterRange(caseInsensitive()
+                              ? characterClass.caseInsensitive()
+                              : characterClass);
+  }
+
   public Pattern compile(String regex) {
     char[] array = regex.toCharArray();
+    if ((flags & Pattern.LITERAL) != 0) {
+      if (!caseInsensitive()) {
+        return new TrivialPattern(regex, regex, flags);
+      }
+      for (char c: array) {
+        pushCharacter(root.group, c);
+      }
+      return toPattern(regex);
+    }
+
     CharacterMatcher.Parser characterClassParser =
       new CharacterMatcher.Parser(array);
     for (int index = 0; index < array.length; ++ index) {
       char c = array[index];
       Group current = groups.peek();
       if (regularCharacter.matches(c)) {
-        current.push(c);
+        pushCharacter(current, c);
         continue;
       }
       switch (c) {
       case '.':
-        current.push(DOT);
+        current.push((flags & Pattern.DOTALL) != 0 ? DOTALL : DOT);
         continue;
       case '\\':
         int unescaped = characterClassParser.parseEscapedCharacter(index + 1);
         if (unescaped >= 0) {
           index = characterClassParser.getEndOffset() - 1;
-          current.push((char)unescaped);
+          pushCharacter(current, (char)unescaped);
           continue;
         }
         CharacterMatcher characterClass = characterClassParser.parseClass(index);
         if (characterClass != null) {
           index = characterClassParser.getEndOffset() - 1;
-          current.push(new CharacterRange(characterClass));
+          current.push(characterRange(characterClass));
           continue;
         }
         switch (array[index + 1]) {
@@ -502,7 +543,7 @@ class Compiler implements PikeVMOpcodes {
         if (matcher == null) {
           throw new RuntimeException("Invalid range @" + index + ": " + regex);
         }
-        current.push(new CharacterRange(matcher));
+        current.push(characterRange(matcher));
         index = characterClassParser.getEndOffset() - 1;
         continue;
       }
@@ -523,11 +564,15 @@ class Compiler implements PikeVMOpcodes {
       throw new IllegalArgumentException("Unclosed groups: ("
         + (groups.size() - 1) + "): " + regex);
     }
-    PikeVM vm = new Output(root).toVM();
+    return toPattern(regex);
+  }
+
+  private Pattern toPattern(String regex) {
+    PikeVM vm = new Output(root, multiLine()).toVM();
     String plain = vm.isPlainString();
     if (plain != null) {
-      return new TrivialPattern(regex, plain, 0);
+      return new TrivialPattern(regex, plain, flags);
     }
-    return new RegexPattern(regex, 0, vm);
+    return new RegexPattern(regex, flags, vm);
   }
 }
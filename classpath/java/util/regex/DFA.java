@@ -0,0 +1,451 @@
+/* Copyright (c) 2008-2015, Avian Contributors
+
+   Permission to use, copy, modify, and/or distribute this software
+   for any purpose with or without fee is hereby granted, provided
+   that the above copyright notice and this permission notice appear
+   in all copies.
+
+   There is NO WARRANTY for this software.  See license.txt for
+   details. */
+
+package java.util.regex;
+
+import java.util.HashMap;
+
+/**
+ * A lazily built deterministic automaton which runs a {@link PikeVM}'s
+ * program without tracking capture groups.
+ * <p>
+ * Each DFA state is the set of program counters the Pike VM would have
+ * queued before reading a character, and the transition for a given
+ * character is computed the first time it is needed and cached, so a
+ * scan costs one table lookup per character once the automaton has
+ * warmed up.  The DFA only decides whether (and where to look for) a
+ * match; the Pike VM is still used to compute match boundaries and
+ * groups once a match is known to exist.
+ * </p>
+ * <p>
+ * Line anchors are handled by distinguishing states entered at the
+ * start of a line, and by following the instructions reachable from a
+ * state separately for characters which end a line.  Programs using
+ * word boundaries or lookarounds need more context than that and are
+ * left to the Pike VM, as are programs whose automaton grows too
+ * large: the state cache is flushed whenever it exceeds {@link
+ * #MaxStates}, and the DFA gives up if that happens too often.
+ * </p>
+ */
+class DFA implements PikeVMOpcodes {
+  public static final int NoMatch = -1;
+  public static final int Unknown = -2;
+
+  private static final int MaxStates = 1024;
+  private static final int MaxFlushes = 8;
+
+  private final int[] program;
+  private final int findPrefixLength;
+  private final CharacterMatcher[] classes;
+  private final boolean multiLine;
+  // literal characters every match must start with, if any
+  private final char[] prefix;
+
+  private final HashMap<Key, State> states = new HashMap<Key, State>();
+  // indexed by (anchored ? 2 : 0) + (atStart ? 1 : 0)
+  private final State[] starts = new State[4];
+  private int flushes;
+  private volatile boolean failed;
+
+  private static class Key {
+    public final int[] pcs;
+    public final boolean atStart;
+    private final int hash;
+
+    public Key(int[] pcs, boolean atStart) {
+      this.pcs = pcs;
+      this.atStart = atStart;
+      int h = atStart ? 1 : 0;
+      for (int pc: pcs) {
+        h = (h * 31) + pc;
+      }
+      this.hash = h;
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      if (k.atStart != atStart || k.pcs.length != pcs.length) {
+        return false;
+      }
+      for (int i = 0; i < pcs.length; ++i) {
+        if (k.pcs[i] != pcs[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class State {
+    // the character-consuming instructions reachable from this state
+    // in the middle of a line, and at its end, respectively
+    public final int[] consuming;
+    public final int[] consumingAtEnd;
+    // whether a match is reachable without consuming a character, in
+    // the middle of a line and at its end, respectively
+    public final boolean match;
+    public final boolean matchAtEnd;
+    // whether only the find preamble's threads are alive, i.e. no match
+    // can have started before the current position
+    public final boolean idle;
+    // transitions on ASCII characters, filled in lazily
+    public final State[] next = new State[128];
+    // the most recently used transition on a non-ASCII character
+    public Transition wide;
+
+    public State(int[] consuming, int[] consumingAtEnd, boolean match,
+                 boolean matchAtEnd, boolean idle)
+    {
+      this.consuming = consuming;
+      this.consumingAtEnd = consumingAtEnd;
+      this.match = match;
+      this.matchAtEnd = matchAtEnd;
+      this.idle = idle;
+    }
+  }
+
+  private static class Transition {
+    public final char c;
+    public final State state;
+
+    public Transition(char c, State state) {
+      this.c = c;
+      this.state = state;
+    }
+  }
+
+  public DFA(int[] program, int findPrefixLength,
+             CharacterMatcher[] classes, boolean multiLine)
+  {
+    this.program = program;
+    this.findPrefixLength = findPrefixLength;
+    this.classes = classes;
+    this.multiLine = multiLine;
+    this.prefix = literalPrefix(program, findPrefixLength);
+  }
+
+  private static char[] literalPrefix(int[] program, int start) {
+    while (start + 1 < program.length && program[start] == SAVE_OFFSET) {
+      start += 2;
+    }
+    int end = start;
+    while (end < program.length && program[end] >= 0) {
+      ++ end;
+    }
+    if (end == start) {
+      return null;
+    }
+    char[] prefix = new char[end - start];
+    for (int i = start; i < end; ++i) {
+      prefix[i - start] = (char) program[i];
+    }
+    return prefix;
+  }
+
+  /**
+   * Returns whether the specified program can be run by a DFA.
+   */
+  public static boolean supports(int[] program) {
+    for (int pc = 0; pc < program.length; ) {
+      int opcode = program[pc];
+      switch (opcode) {
+      case WORD_BOUNDARY:
+      case NON_WORD_BOUNDARY:
+      case LOOKAHEAD:
+      case LOOKBEHIND:
+      case NEGATIVE_LOOKAHEAD:
+      case NEGATIVE_LOOKBEHIND:
+        return false;
+      }
+      pc += opcode <= SINGLE_ARG_START && opcode >= SINGLE_ARG_END ? 2 : 1;
+    }
+    return true;
+  }
+
+  /**
+   * Scans the specified characters for a match as {@link
+   * PikeVM#matches} would.
+   *
+   * @return {@link #NoMatch} if there is no match, {@link #Unknown} if
+   *         the DFA gave up, or otherwise an offset no greater than the
+   *         start of the match from which the Pike VM may begin
+   *         searching
+   */
+  public int find(char[] characters, int start, int end,
+                  boolean anchorStart, boolean anchorEnd)
+  {
+    if (failed) {
+      return Unknown;
+    }
+
+    int from = start;
+    if (prefix != null && !anchorStart) {
+      // threads starting anywhere else would die on their first
+      // character, so skip straight to the first candidate
+      from = indexOf(characters, prefix, start, end);
+      if (from < 0) {
+        return NoMatch;
+      }
+    }
+
+    State state = start
+      (anchorStart, from == 0
+       || (multiLine && isLineTerminator(characters[from - 1])));
+    if (state == null) {
+      return Unknown;
+    }
+
+    for (int i = from; ; ++i) {
+      if (i == end) {
+        // the Pike VM only treats the end of the range as the end of
+        // the input if the two coincide
+        return (end == characters.length ? state.matchAtEnd : state.match)
+          ? from : NoMatch;
+      }
+
+      // as in the Pike VM, a multi-line anchor looks at the character
+      // about to be read to decide whether this is the end of a line
+      if (state.idle && !anchorStart) {
+        from = i;
+      }
+
+      char c = characters[i];
+      boolean lineEnd = multiLine && isLineTerminator(c);
+      if ((lineEnd ? state.matchAtEnd : state.match) && !anchorEnd) {
+        return from;
+      } else if ((lineEnd ? state.consumingAtEnd : state.consuming).length
+                 == 0)
+      {
+        return NoMatch;
+      }
+
+      State next;
+      if (c < 128) {
+        next = state.next[c];
+      } else {
+        Transition t = state.wide;
+        next = t != null && t.c == c ? t.state : null;
+      }
+
+      if (next == null) {
+        next = transition(state, c);
+        if (next == null) {
+          return Unknown;
+        }
+      }
+      state = next;
+    }
+  }
+
+  private static int indexOf(char[] characters, char[] prefix, int start,
+                             int end)
+  {
+    char first = prefix[0];
+    for (int i = start; i <= end - prefix.length; ++i) {
+      if (characters[i] == first) {
+        int j = 1;
+        while (j < prefix.length && characters[i + j] == prefix[j]) {
+          ++ j;
+        }
+        if (j == prefix.length) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private synchronized State start(boolean anchored, boolean atStart) {
+    int index = (anchored ? 2 : 0) + (atStart ? 1 : 0);
+    State state = starts[index];
+    if (state == null) {
+      state = state(new int[] { anchored ? findPrefixLength : 0 }, atStart);
+      starts[index] = state;
+    }
+    return state;
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+      || c == '\u2029';
+  }
+
+  private synchronized State transition(State state, char c) {
+    boolean lineEnd = multiLine && isLineTerminator(c);
+    State next = state
+      (step(lineEnd ? state.consumingAtEnd : state.consuming, c), lineEnd);
+    if (next != null) {
+      if (c < 128) {
+        state.next[c] = next;
+      } else {
+        state.wide = new Transition(c, next);
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Returns the state for the specified set of queued program
+   * counters, creating it if necessary, or null if the DFA has given
+   * up.
+   */
+  private State state(int[] pcs, boolean atStart) {
+    if (failed) {
+      return null;
+    }
+
+    Key key = new Key(pcs, atStart);
+    State state = states.get(key);
+    if (state == null) {
+      if (states.size() >= MaxStates) {
+        // states already handed out remain valid, so callers in the
+        // middle of a scan can carry on with them
+        states.clear();
+        for (int i = 0; i < starts.length; ++i) {
+          starts[i] = null;
+        }
+        if (++ flushes > MaxFlushes) {
+          failed = true;
+          return null;
+        }
+      }
+
+      boolean[] visited = new boolean[program.length + 1];
+      int[] consuming = closure(pcs, atStart, false, visited);
+      boolean match = visited[program.length];
+
+      visited = new boolean[program.length + 1];
+      int[] consumingAtEnd = closure(pcs, atStart, true, visited);
+      boolean matchAtEnd = visited[program.length];
+
+      boolean idle = pcs.length == 0
+        || pcs[pcs.length - 1] < findPrefixLength;
+
+      state = new State(consuming, consumingAtEnd, match, matchAtEnd, idle);
+      states.put(key, state);
+    }
+    return state;
+  }
+
+  /**
+   * Follows the non-consuming instructions reachable from the
+   * specified program counters, returning the consuming instructions
+   * found.  A match is recorded as visiting {@code program.length}.
+   */
+  private int[] closure(int[] pcs, boolean atStart, boolean atEnd,
+                        boolean[] visited)
+  {
+    // every instruction pushes at most two successors, and only the
+    // first visit to an instruction pushes anything
+    int[] stack = new int[pcs.length + (2 * (program.length + 1))];
+    int[] consuming = new int[program.length];
+    int count = 0;
+    int top = 0;
+    for (int i = pcs.length - 1; i >= 0; --i) {
+      stack[top++] = pcs[i];
+    }
+
+    while (top > 0) {
+      int pc = stack[--top];
+      if (visited[pc]) {
+        continue;
+      }
+      visited[pc] = true;
+      if (pc == program.length) {
+        continue;
+      }
+
+      int opcode = program[pc];
+      switch (opcode) {
+      case LINE_START:
+        if (atStart) {
+          stack[top++] = pc + 1;
+        }
+        break;
+      case LINE_END:
+        if (atEnd) {
+          stack[top++] = pc + 1;
+        }
+        break;
+      case SAVE_OFFSET:
+        stack[top++] = pc + 2;
+        break;
+      case SPLIT:
+      case SPLIT_JMP:
+        stack[top++] = pc + 2;
+        stack[top++] = program[pc + 1];
+        break;
+      case JMP:
+        stack[top++] = program[pc + 1];
+        break;
+      default:
+        // DOT, DOTALL, CHARACTER_CLASS or a literal character
+        consuming[count++] = pc;
+        break;
+      }
+    }
+
+    int[] result = new int[count];
+    System.arraycopy(consuming, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * Returns the sorted program counters queued after the specified
+   * consuming instructions read the specified character.
+   */
+  private int[] step(int[] consuming, char c) {
+    boolean[] queued = new boolean[program.length + 1];
+    int count = 0;
+    for (int pc: consuming) {
+      int opcode = program[pc];
+      int next = -1;
+      switch (opcode) {
+      case DOT:
+        if (c != '\0' && c != '\r' && c != '\n') {
+          next = pc + 1;
+        }
+        break;
+      case DOTALL:
+        next = pc + 1;
+        break;
+      case CHARACTER_CLASS:
+        if (classes[program[pc + 1]].matches(c)) {
+          next = pc + 2;
+        }
+        break;
+      default:
+        if (c == (char) opcode) {
+          next = pc + 1;
+        }
+        break;
+      }
+      if (next >= 0 && !queued[next]) {
+        queued[next] = true;
+        ++ count;
+      }
+    }
+
+    int[] pcs = new int[count];
+    for (int pc = 0, i = 0; i < count; ++pc) {
+      if (queued[pc]) {
+        pcs[i++] = pc;
+      }
+    }
+    return pcs;
+  }
+}
@@ -11,7 +11,9 @@
 package java.util.regex;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This is a work in progress.
@@ -30,6 +32,8 @@ public abstract class Pattern implements PikeVMOpcodes {
   public static final int UNICODE_CASE     = 64;
   public static final int CANON_EQ         = 128;
 
+  private static final Cache cache = new Cache(64);
+
   private final int patternFlags;
   private final String pattern;
 
@@ -43,10 +47,17 @@ public abstract class Pattern implements PikeVMOpcodes {
   }
 
   public static Pattern compile(String regex, int flags) {
-    if (flags != 0) {
+    if ((flags & (UNIX_LINES | COMMENTS | CANON_EQ)) != 0) {
       throw new UnsupportedOperationException("TODO");
     }
-    return new Compiler().compile(regex);
+
+    // patterns are immutable, so String.split, String.matches, etc.
+    // can share them rather than recompiling the same regex each call
+    Pattern pattern = cache.get(regex, flags);
+    if (pattern == null) {
+      pattern = cache.put(new Compiler(flags).compile(regex));
+    }
+    return pattern;
   }
 
   public int flags() {
@@ -86,4 +97,99 @@ public abstract class Pattern implements PikeVMOpcodes {
     }
     return result.toArray(new String[result.size()]);
   }
+
+  /**
+   * A bounded, least-recently-used cache of compiled patterns keyed
+   * by regex and flags.
+   */
+  private static class Cache {
+    private final int capacity;
+    private final Map<Key, Key> map = new HashMap<Key, Key>();
+    // most recently used first
+    private Key first;
+    private Key last;
+
+    public Cache(int capacity) {
+      this.capacity = capacity;
+    }
+
+    private static class Key {
+      public final String regex;
+      public final int flags;
+      public Pattern pattern;
+      public Key previous;
+      public Key next;
+
+      public Key(String regex, int flags) {
+        this.regex = regex;
+        this.flags = flags;
+      }
+
+      public int hashCode() {
+        return regex.hashCode() ^ flags;
+      }
+
+      public boolean equals(Object o) {
+        return o instanceof Key
+          && ((Key) o).flags == flags
+          && ((Key) o).regex.equals(regex);
+      }
+    }
+
+    private void unlink(Key key) {
+      if (key.previous == null) {
+        first = key.next;
+      } else {
+        key.previous.next = key.next;
+      }
+      if (key.next == null) {
+        last = key.previous;
+      } else {
+        key.next.previous = key.previous;
+      }
+      key.previous = key.next = null;
+    }
+
+    private void link(Key key) {
+      key.next = first;
+      if (first == null) {
+        last = key;
+      } else {
+        first.previous = key;
+      }
+      first = key;
+    }
+
+    public synchronized Pattern get(String regex, int flags) {
+      Key key = map.get(new Key(regex, flags));
+      if (key == null) {
+        return null;
+      }
+      if (key != first) {
+        unlink(key);
+        link(key);
+      }
+      return key.pattern;
+    }
+
+    public synchronized Pattern put(Pattern pattern) {
+      Key key = new Key(pattern.pattern(), pattern.flags());
+      Key old = map.get(key);
+      if (old != null) {
+        // another thread compiled the same regex first
+        return old.pattern;
+      }
+
+      key.pattern = pattern;
+      map.put(key, key);
+      link(key);
+
+      if (map.size() > capacity) {
+        Key eldest = last;
+        unlink(eldest);
+        map.remove(eldest);
+      }
+      return pattern;
+    }
+  }
 }
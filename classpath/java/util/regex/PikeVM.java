@@ -32,14 +32,18 @@ class PikeVM implements PikeVMOpcodes {
     CharacterMatcher.parse("\\w");
   private final static CharacterMatcher lineTerminator =
     CharacterMatcher.parse("[\n\r\u0085\u2028\u2029]");
-  private boolean multiLine;
+  private final boolean multiLine;
+  // created on first use, since lookbehind programs are reversed after
+  // construction
+  private DFA dfa;
+  private boolean dfaUnsupported;
 
   public interface Result {
     void set(int[] start, int[] end);
   }
 
   protected PikeVM(int[] program, int findPrefixLength, int groupCount,
-    CharacterMatcher[] classes, PikeVM[] lookarounds)
+    CharacterMatcher[] classes, PikeVM[] lookarounds, boolean multiLine)
   {
     this.program = program;
     this.findPrefixLength = findPrefixLength;
@@ -47,6 +51,7 @@ class PikeVM implements PikeVMOpcodes {
     offsetsCount = 2 * groupCount + 2;
     this.classes = classes;
     this.lookarounds = lookarounds;
+    this.multiLine = multiLine;
   }
 
   /**
@@ -290,6 +295,25 @@ class PikeVM implements PikeVMOpcodes {
   public boolean matches(char[] characters, int start, int end,
       boolean anchorStart, boolean anchorEnd, Result result)
   {
+    DFA dfa = end >= start && start >= 0 ? dfa() : null;
+    if (dfa != null) {
+      int from = dfa.find(characters, start, end, anchorStart, anchorEnd);
+      if (from == DFA.NoMatch) {
+        return false;
+      } else if (from != DFA.Unknown) {
+        if (result == null) {
+          return true;
+        } else if (anchorStart && anchorEnd && groupCount == 0) {
+          // the whole range is group 0, and there are no other groups
+          result.set(new int[] { start }, new int[] { end });
+          return true;
+        }
+        // a match exists, so let the Pike VM work out its boundaries
+        // and groups, skipping any prefix the DFA ruled out
+        start = from;
+      }
+    }
+
     ThreadQueue current = new ThreadQueue();
     ThreadQueue next = new ThreadQueue();
 
@@ -456,6 +480,17 @@ class PikeVM implements PikeVMOpcodes {
     return foundMatch;
   }
 
+  private DFA dfa() {
+    if (dfa == null && !dfaUnsupported) {
+      if (DFA.supports(program)) {
+        dfa = new DFA(program, findPrefixLength, classes, multiLine);
+      } else {
+        dfaUnsupported = true;
+      }
+    }
+    return dfa;
+  }
+
   /**
    * Determines whether this machine recognizes a pattern without special
    * operators.
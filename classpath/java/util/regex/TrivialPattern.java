@@ -93,6 +93,10 @@ public class TrivialPattern extends Pattern {
   }
 
   static int indexOf(CharSequence haystack, CharSequence needle, int start) {
+    if (haystack instanceof String && needle instanceof String) {
+      return ((String) haystack).indexOf((String) needle, start);
+    }
+
     if (needle.length() == 0) return start;
 
     for (int i = start; i < haystack.length() - needle.length() + 1; ++i) {
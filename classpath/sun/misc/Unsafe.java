@@ -88,13 +88,37 @@ public final class Unsafe {
 
   public native void putLongVolatile(Object o, long offset, long x);
 
-  public long getLong(Object o, long offset) {
-    return getLongVolatile(o, offset);
-  }
+  public native boolean getBoolean(Object o, long offset);
 
-  public void putLong(Object o, long offset, long x) {
-    putLongVolatile(o, offset, x);
-  }
+  public native void putBoolean(Object o, long offset, boolean x);
+
+  public native byte getByte(Object o, long offset);
+
+  public native void putByte(Object o, long offset, byte x);
+
+  public native short getShort(Object o, long offset);
+
+  public native void putShort(Object o, long offset, short x);
+
+  public native char getChar(Object o, long offset);
+
+  public native void putChar(Object o, long offset, char x);
+
+  public native int getInt(Object o, long offset);
+
+  public native void putInt(Object o, long offset, int x);
+
+  public native float getFloat(Object o, long offset);
+
+  public native void putFloat(Object o, long offset, float x);
+
+  public native long getLong(Object o, long offset);
+
+  public native void putLong(Object o, long offset, long x);
+
+  public native double getDouble(Object o, long offset);
+
+  public native void putDouble(Object o, long offset, double x);
 
   public native void putOrderedLong(Object o, long offset, long x);
 
@@ -137,6 +161,10 @@ public final class Unsafe {
   public native boolean compareAndSwapObject(Object o, long offset, Object old,
                                              Object new_);
 
+  public native int getAndAddInt(Object o, long offset, int delta);
+
+  public native long getAndAddLong(Object o, long offset, long delta);
+
   public void copyMemory(long src, long dst, long count) {
     copyMemory(null, src, null, dst, count);
   }
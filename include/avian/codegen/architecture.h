@@ -152,6 +152,13 @@ class Architecture {
                                unsigned cSize,
                                OperandMask& cMask) = 0;
 
+  virtual void planSource(lir::AtomicOperation op,
+                          unsigned size,
+                          OperandMask& addressMask,
+                          OperandMask& aMask,
+                          OperandMask& bMask,
+                          bool* thunk) = 0;
+
   virtual Assembler* makeAssembler(util::Alloc*, vm::Zone*) = 0;
 
   virtual void acquire() = 0;
@@ -92,6 +92,10 @@ class Assembler {
                      OperandInfo a,
                      OperandInfo b,
                      OperandInfo c) = 0;
+  virtual void apply(lir::AtomicOperation op,
+                     OperandInfo memory,
+                     OperandInfo a,
+                     OperandInfo b) = 0;
 
   virtual void setDestination(uint8_t* dst) = 0;
 
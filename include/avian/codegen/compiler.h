@@ -76,6 +76,9 @@ class Compiler {
                               unsigned size,
                               unsigned resultSize,
                               bool* threadParameter) = 0;
+    virtual intptr_t getThunk(lir::AtomicOperation op,
+                              unsigned size,
+                              bool* threadParameter) = 0;
   };
 
   static const unsigned Aligned = 1 << 0;
@@ -175,6 +178,15 @@ class Compiler {
   virtual ir::Value* unaryOp(lir::BinaryOperation op, ir::Value* a) = 0;
   virtual void nullaryOp(lir::Operation op) = 0;
 
+  // applies the specified operation to the word at the specified
+  // address; see lir::AtomicOperation for the meaning of a and b and
+  // of the result, which is an i4 for lir::CompareAndSwap and has the
+  // type of a otherwise
+  virtual ir::Value* atomicOp(lir::AtomicOperation op,
+                              ir::Value* address,
+                              ir::Value* a,
+                              ir::Value* b) = 0;
+
   virtual ir::Value* f2f(ir::Type resType, ir::Value* a) = 0;
   virtual ir::Value* f2i(ir::Type resType, ir::Value* a) = 0;
   virtual ir::Value* i2f(ir::Type resType, ir::Value* a) = 0;
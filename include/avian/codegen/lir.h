@@ -77,6 +77,24 @@ enum TernaryOperation {
 
 const unsigned TernaryOperationCount = JumpIfFloatGreaterOrEqualOrUnordered + 1;
 
+// operations which read, modify and write a word of memory as a single
+// indivisible step, taking a memory operand and two register operands
+enum AtomicOperation {
+  // if the memory operand holds the value of the first register,
+  // replace it with the value of the second; afterward, the first
+  // register holds one if the replacement happened and zero if not
+  CompareAndSwap,
+
+  // add the value of the first register to the memory operand,
+  // leaving the previous contents of the memory in that register (the
+  // second register operand is unused)
+  GetAndAdd,
+
+  NoAtomicOperation = -1
+};
+
+const unsigned AtomicOperationCount = GetAndAdd + 1;
+
 const unsigned NonBranchTernaryOperationCount = FloatMin + 1;
 const unsigned BranchOperationCount = JumpIfFloatGreaterOrEqualOrUnordered
                                       - FloatMin;
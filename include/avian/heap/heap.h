@@ -51,13 +51,13 @@ class Heap : public avian::util::Allocator {
 
   virtual void setClient(Client* client) = 0;
   virtual void setImmortalHeap(uintptr_t* start, unsigned sizeInWords) = 0;
-  virtual unsigned remaining() = 0;
-  virtual unsigned limit() = 0;
-  virtual bool limitExceeded(int pendingAllocation = 0) = 0;
+  virtual uintptr_t remaining() = 0;
+  virtual uintptr_t limit() = 0;
+  virtual bool limitExceeded(int64_t pendingAllocation = 0) = 0;
   virtual void collect(CollectionType type,
-                       unsigned footprint,
-                       int pendingAllocation) = 0;
-  virtual unsigned fixedFootprint(unsigned sizeInWords, bool objectMask) = 0;
+                       uintptr_t footprint,
+                       int64_t pendingAllocation) = 0;
+  virtual uintptr_t fixedFootprint(uintptr_t sizeInWords, bool objectMask) = 0;
   virtual void* allocateFixed(avian::util::Alloc* allocator,
                               unsigned sizeInWords,
                               bool objectMask) = 0;
@@ -81,7 +81,13 @@ class Heap : public avian::util::Allocator {
   virtual void dispose() = 0;
 };
 
-Heap* makeHeap(System* system, unsigned limit);
+// collectorThreads is the number of threads to use for each
+// collection, and verbose specifies whether to report the duration
+// of each collection on stderr
+Heap* makeHeap(System* system,
+               uintptr_t limit,
+               unsigned collectorThreads = 1,
+               bool verbose = false);
 
 }  // namespace vm
 
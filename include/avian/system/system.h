@@ -57,7 +57,11 @@ class System : public avian::util::Aborter {
     virtual void acquire(Thread* context) = 0;
     virtual void release(Thread* context) = 0;
     virtual void wait(Thread* context, int64_t time) = 0;
-    virtual bool waitAndClearInterrupted(Thread* context, int64_t time) = 0;
+    // unlike wait, which takes milliseconds, the timeout here is in
+    // nanoseconds, although it may be rounded up to whatever
+    // resolution the platform supports:
+    virtual bool waitAndClearInterrupted(Thread* context,
+                                         int64_t nanoseconds) = 0;
     virtual void notify(Thread* context) = 0;
     virtual void notifyAll(Thread* context) = 0;
     virtual Thread* owner() = 0;
@@ -133,6 +137,9 @@ class System : public avian::util::Aborter {
   virtual const char* toAbsolutePath(avian::util::AllocOnly* allocator,
                                      const char* name) = 0;
   virtual int64_t now() = 0;
+  // returns a monotonic time in nanoseconds relative to an arbitrary
+  // origin, suitable only for measuring elapsed time:
+  virtual int64_t nanoTime() = 0;
   virtual void yield() = 0;
   virtual void exit(int code) = 0;
   virtual void dispose() = 0;
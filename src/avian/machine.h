@@ -148,6 +148,10 @@ const unsigned ThreadBackupHeapSizeInWords = ThreadBackupHeapSizeInBytes
 
 const unsigned ThreadHeapPoolSize = 64;
 
+// number of recently used object monitors each thread remembers so
+// that uncontended locking need not consult the global monitor map:
+const unsigned ThreadMonitorCacheSize = 8;
+
 const unsigned FixedFootprintThresholdInBytes = ThreadHeapPoolSize
                                                 * ThreadHeapSizeInBytes;
 
@@ -930,6 +934,26 @@ inline void atomicAnd(uint32_t* p, int v)
   }
 }
 
+inline uint32_t atomicGetAndAdd32(uint32_t* p, uint32_t v)
+{
+  uint32_t old = *p;
+  while (not atomicCompareAndSwap32(p, old, old + v)) {
+    old = *p;
+  }
+  return old;
+}
+
+#ifdef AVIAN_HAS_CAS64
+inline uint64_t atomicGetAndAdd64(uint64_t* p, uint64_t v)
+{
+  uint64_t old = *p;
+  while (not atomicCompareAndSwap64(p, old, old + v)) {
+    old = *p;
+  }
+  return old;
+}
+#endif
+
 inline int strcmp(const int8_t* a, const int8_t* b)
 {
   return ::strcmp(reinterpret_cast<const char*>(a),
@@ -1035,7 +1059,7 @@ class Machine {
   unsigned activeCount;
   unsigned liveCount;
   unsigned daemonCount;
-  unsigned fixedFootprint;
+  uintptr_t fixedFootprint;
   unsigned stackSizeInBytes;
   System::Local* localThread;
   System::Monitor* stateLock;
@@ -1098,6 +1122,7 @@ extern "C" void vmRun_returnAddress();
 class GcThread;
 class GcThrowable;
 class GcString;
+class GcMonitor;
 
 class Thread {
  public:
@@ -1297,6 +1322,15 @@ class Thread {
     Thread* t;
   };
 
+  // note that these entries are not visited by the garbage collector;
+  // instead, the cache is cleared after every collection (see
+  // postCollect in machine.cpp), so it need not keep anything alive:
+  class MonitorCacheEntry {
+   public:
+    object o;
+    GcMonitor* monitor;
+  };
+
   Thread(Machine* m, GcThread* javaThread, Thread* parent);
 
   void init();
@@ -1339,6 +1373,8 @@ class Thread {
   uintptr_t* heap;
   uintptr_t backupHeap[ThreadBackupHeapSizeInWords];
   unsigned backupHeapIndex;
+  MonitorCacheEntry monitorCache[ThreadMonitorCacheSize];
+  unsigned monitorCacheIndex;
 
  private:
   unsigned flags;
@@ -1504,7 +1540,9 @@ inline void release(Thread* t, Reference* r)
   }
 }
 
-void collect(Thread* t, Heap::CollectionType type, int pendingAllocation = 0);
+void collect(Thread* t,
+             Heap::CollectionType type,
+             int64_t pendingAllocation = 0);
 
 void shutDown(Thread* t);
 
@@ -2126,8 +2164,10 @@ inline void markHashTaken(Thread* t, object o)
 
   ACQUIRE_RAW(t, t->m->heapLock);
 
-  alias(o, 0) |= HashTakenMark;
-  t->m->heap->pad(o);
+  if (not hashTaken(t, o)) {
+    alias(o, 0) |= HashTakenMark;
+    t->m->heap->pad(o);
+  }
 }
 
 inline uint32_t takeHash(Thread*, object o)
@@ -2144,7 +2184,7 @@ inline uint32_t objectHash(Thread* t, object o)
   if (objectExtended(t, o)) {
     return extendedWord(t, o, baseSize(t, o, objectClass(t, o)));
   } else {
-    if (not objectFixed(t, o)) {
+    if (not(objectFixed(t, o) or hashTaken(t, o))) {
       markHashTaken(t, o);
     }
     return takeHash(t, o);
@@ -2951,7 +2991,7 @@ inline bool monitorFindWait(Thread* t, GcMonitor* monitor)
   return false;
 }
 
-inline bool monitorWait(Thread* t, GcMonitor* monitor, int64_t time)
+inline bool monitorWait(Thread* t, GcMonitor* monitor, int64_t nanoseconds)
 {
   expect(t, monitor->owner() == t);
 
@@ -2977,7 +3017,8 @@ inline bool monitorWait(Thread* t, GcMonitor* monitor, int64_t time)
 
     ENTER(t, Thread::IdleState);
 
-    interrupted = t->lock->waitAndClearInterrupted(t->systemThread, time);
+    interrupted
+        = t->lock->waitAndClearInterrupted(t->systemThread, nanoseconds);
   }
 
   monitorAcquire(t, monitor, monitorNode);
@@ -3113,7 +3154,13 @@ inline void wait(Thread* t, object o, int64_t milliseconds)
   if (m and m->owner() == t) {
     PROTECT(t, m);
 
-    bool interrupted = monitorWait(t, m, milliseconds);
+    // pretend anything greater than one hundred years is infinity so
+    // as to avoid overflow:
+    bool interrupted = monitorWait(
+        t,
+        m,
+        milliseconds < INT64_C(3153600000000) ? milliseconds * 1000 * 1000
+                                              : 0);
 
     if (interrupted) {
       if (t->m->alive or (t->getFlags() & Thread::DaemonFlag) == 0) {
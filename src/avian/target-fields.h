@@ -15,42 +15,42 @@
 #if (TARGET_BYTES_PER_WORD == 8)
 
 #define TARGET_THREAD_EXCEPTION 80
-#define TARGET_THREAD_EXCEPTIONSTACKADJUSTMENT 2264
-#define TARGET_THREAD_EXCEPTIONOFFSET 2272
-#define TARGET_THREAD_EXCEPTIONHANDLER 2280
-
-#define TARGET_THREAD_IP 2224
-#define TARGET_THREAD_STACK 2232
-#define TARGET_THREAD_NEWSTACK 2240
-#define TARGET_THREAD_SCRATCH 2248
-#define TARGET_THREAD_CONTINUATION 2256
-#define TARGET_THREAD_TAILADDRESS 2288
-#define TARGET_THREAD_VIRTUALCALLTARGET 2296
-#define TARGET_THREAD_VIRTUALCALLINDEX 2304
-#define TARGET_THREAD_HEAPIMAGE 2312
-#define TARGET_THREAD_CODEIMAGE 2320
-#define TARGET_THREAD_THUNKTABLE 2328
-#define TARGET_THREAD_STACKLIMIT 2376
+#define TARGET_THREAD_EXCEPTIONSTACKADJUSTMENT 2400
+#define TARGET_THREAD_EXCEPTIONOFFSET 2408
+#define TARGET_THREAD_EXCEPTIONHANDLER 2416
+
+#define TARGET_THREAD_IP 2360
+#define TARGET_THREAD_STACK 2368
+#define TARGET_THREAD_NEWSTACK 2376
+#define TARGET_THREAD_SCRATCH 2384
+#define TARGET_THREAD_CONTINUATION 2392
+#define TARGET_THREAD_TAILADDRESS 2424
+#define TARGET_THREAD_VIRTUALCALLTARGET 2432
+#define TARGET_THREAD_VIRTUALCALLINDEX 2440
+#define TARGET_THREAD_HEAPIMAGE 2448
+#define TARGET_THREAD_CODEIMAGE 2456
+#define TARGET_THREAD_THUNKTABLE 2464
+#define TARGET_THREAD_STACKLIMIT 2512
 
 #elif(TARGET_BYTES_PER_WORD == 4)
 
 #define TARGET_THREAD_EXCEPTION 44
-#define TARGET_THREAD_EXCEPTIONSTACKADJUSTMENT 2168
-#define TARGET_THREAD_EXCEPTIONOFFSET 2172
-#define TARGET_THREAD_EXCEPTIONHANDLER 2176
-
-#define TARGET_THREAD_IP 2148
-#define TARGET_THREAD_STACK 2152
-#define TARGET_THREAD_NEWSTACK 2156
-#define TARGET_THREAD_SCRATCH 2160
-#define TARGET_THREAD_CONTINUATION 2164
-#define TARGET_THREAD_TAILADDRESS 2180
-#define TARGET_THREAD_VIRTUALCALLTARGET 2184
-#define TARGET_THREAD_VIRTUALCALLINDEX 2188
-#define TARGET_THREAD_HEAPIMAGE 2192
-#define TARGET_THREAD_CODEIMAGE 2196
-#define TARGET_THREAD_THUNKTABLE 2200
-#define TARGET_THREAD_STACKLIMIT 2224
+#define TARGET_THREAD_EXCEPTIONSTACKADJUSTMENT 2236
+#define TARGET_THREAD_EXCEPTIONOFFSET 2240
+#define TARGET_THREAD_EXCEPTIONHANDLER 2244
+
+#define TARGET_THREAD_IP 2216
+#define TARGET_THREAD_STACK 2220
+#define TARGET_THREAD_NEWSTACK 2224
+#define TARGET_THREAD_SCRATCH 2228
+#define TARGET_THREAD_CONTINUATION 2232
+#define TARGET_THREAD_TAILADDRESS 2248
+#define TARGET_THREAD_VIRTUALCALLTARGET 2252
+#define TARGET_THREAD_VIRTUALCALLINDEX 2256
+#define TARGET_THREAD_HEAPIMAGE 2260
+#define TARGET_THREAD_CODEIMAGE 2264
+#define TARGET_THREAD_THUNKTABLE 2268
+#define TARGET_THREAD_STACKLIMIT 2292
 
 #else
 #error
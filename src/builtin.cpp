@@ -104,6 +104,15 @@ GcField* fieldForOffset(Thread* t, object o, unsigned offset)
   }
 }
 
+// Unsafe accessors take either an object and an offset into it or a
+// null object and an absolute address
+template <class T>
+T& unsafeAt(object o, int64_t offset)
+{
+  return o ? fieldAtOffset<T>(o, offset)
+           : *reinterpret_cast<T*>(static_cast<intptr_t>(offset));
+}
+
 }  // namespace
 
 extern "C" AVIAN_EXPORT int64_t JNICALL
@@ -757,6 +766,197 @@ extern "C" AVIAN_EXPORT int64_t JNICALL
   return *reinterpret_cast<intptr_t*>(p);
 }
 
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getShort__Ljava_lang_Object_2J(Thread*,
+                                                         object,
+                                                         uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+
+  return unsafeAt<int16_t>(o, offset);
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getChar__Ljava_lang_Object_2J(Thread*,
+                                                        object,
+                                                        uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+
+  return unsafeAt<uint16_t>(o, offset);
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getInt__Ljava_lang_Object_2J(Thread*,
+                                                       object,
+                                                       uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+
+  return unsafeAt<int32_t>(o, offset);
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getFloat__Ljava_lang_Object_2J(Thread*,
+                                                         object,
+                                                         uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+
+  return unsafeAt<int32_t>(o, offset);
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getLong__Ljava_lang_Object_2J(Thread*,
+                                                        object,
+                                                        uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+
+  return unsafeAt<int64_t>(o, offset);
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getDouble__Ljava_lang_Object_2J(Thread* t,
+                                                          object method,
+                                                          uintptr_t* arguments)
+{
+  return Avian_sun_misc_Unsafe_getLong__Ljava_lang_Object_2J(
+      t, method, arguments);
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putByte__Ljava_lang_Object_2JB(Thread*,
+                                                         object,
+                                                         uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  int8_t value = arguments[4];
+
+  unsafeAt<int8_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putShort__Ljava_lang_Object_2JS(Thread*,
+                                                          object,
+                                                          uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  int16_t value = arguments[4];
+
+  unsafeAt<int16_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putChar__Ljava_lang_Object_2JC(Thread*,
+                                                         object,
+                                                         uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  uint16_t value = arguments[4];
+
+  unsafeAt<uint16_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putInt__Ljava_lang_Object_2JI(Thread*,
+                                                        object,
+                                                        uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  int32_t value = arguments[4];
+
+  unsafeAt<int32_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putFloat__Ljava_lang_Object_2JF(Thread*,
+                                                          object,
+                                                          uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  int32_t value = arguments[4];
+
+  unsafeAt<int32_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getByte__Ljava_lang_Object_2J(Thread*,
+                                                        object,
+                                                        uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+
+  return unsafeAt<int8_t>(o, offset);
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getBoolean__Ljava_lang_Object_2J(Thread* t,
+                                                           object method,
+                                                           uintptr_t* arguments)
+{
+  return Avian_sun_misc_Unsafe_getByte__Ljava_lang_Object_2J(
+      t, method, arguments);
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putBoolean__Ljava_lang_Object_2JZ(
+        Thread*,
+        object,
+        uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  uint8_t value = arguments[4];
+
+  unsafeAt<uint8_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putLong__Ljava_lang_Object_2JJ(Thread*,
+                                                         object,
+                                                         uintptr_t* arguments)
+{
+  object o = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  int64_t value;
+  memcpy(&value, arguments + 4, 8);
+
+  unsafeAt<int64_t>(o, offset) = value;
+}
+
+extern "C" AVIAN_EXPORT void JNICALL
+    Avian_sun_misc_Unsafe_putDouble__Ljava_lang_Object_2JD(Thread* t,
+                                                           object method,
+                                                           uintptr_t* arguments)
+{
+  Avian_sun_misc_Unsafe_putLong__Ljava_lang_Object_2JJ(t, method, arguments);
+}
+
 extern "C" AVIAN_EXPORT void JNICALL
     Avian_sun_misc_Unsafe_copyMemory(Thread* t, object, uintptr_t* arguments)
 {
@@ -953,6 +1153,40 @@ extern "C" AVIAN_EXPORT int64_t JNICALL
 #endif
 }
 
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getAndAddInt(Thread*, object, uintptr_t* arguments)
+{
+  object target = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  uint32_t delta = arguments[4];
+
+  return static_cast<int32_t>(
+      atomicGetAndAdd32(&fieldAtOffset<uint32_t>(target, offset), delta));
+}
+
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_sun_misc_Unsafe_getAndAddLong(Thread* t UNUSED,
+                                        object,
+                                        uintptr_t* arguments)
+{
+  object target = reinterpret_cast<object>(arguments[1]);
+  int64_t offset;
+  memcpy(&offset, arguments + 2, 8);
+  uint64_t delta;
+  memcpy(&delta, arguments + 4, 8);
+
+#ifdef AVIAN_HAS_CAS64
+  return atomicGetAndAdd64(&fieldAtOffset<uint64_t>(target, offset), delta);
+#else
+  PROTECT(t, target);
+  ACQUIRE_FIELD_FOR_WRITE(t, fieldForOffset(t, target, offset));
+  uint64_t old = fieldAtOffset<uint64_t>(target, offset);
+  fieldAtOffset<uint64_t>(target, offset) = old + delta;
+  return old;
+#endif
+}
+
 extern "C" AVIAN_EXPORT int64_t JNICALL
     Avian_sun_misc_Unsafe_getLongVolatile(Thread* t,
                                           object,
@@ -1049,18 +1283,25 @@ extern "C" AVIAN_EXPORT void JNICALL
   int64_t time;
   memcpy(&time, arguments + 2, 8);
 
-  int64_t then = t->m->system->now();
+  int64_t then = t->m->system->nanoTime();
 
   if (absolute) {
-    time -= then;
-    if (time <= 0) {
+    // absolute deadlines are in milliseconds since the epoch, so
+    // measure them against the wall clock, but count down the rest
+    // in nanoseconds like a relative timeout:
+    int64_t now = t->m->system->now();
+    if (time <= now) {
       return;
     }
-  } else if (time) {
-    // if not absolute, interpret time as nanoseconds, but make sure
-    // it doesn't become zero when we convert to milliseconds, since
-    // zero is interpreted as infinity below
-    time = (time / (1000 * 1000)) + 1;
+
+    time -= now;
+    if (time > INT64_MAX / (1000 * 1000)) {
+      // too far away to count in nanoseconds (some 292 years), so
+      // just wait until unparked, as parkUntil(Long.MAX_VALUE) means
+      time = 0;
+    } else {
+      time *= 1000 * 1000;
+    }
   }
 
   monitorAcquire(t, cast<GcMonitor>(t, interruptLock(t, t->javaThread)));
@@ -1071,12 +1312,16 @@ extern "C" AVIAN_EXPORT void JNICALL
                           t,
                           cast<GcMonitor>(t, interruptLock(t, t->javaThread)),
                           time))))) {
-    int64_t now = t->m->system->now();
-    time -= now - then;
-    then = now;
-
-    if (time == 0) {
-      break;
+    if (time) {
+      int64_t now = t->m->system->nanoTime();
+      time -= now - then;
+      then = now;
+
+      // zero is interpreted as infinity above, so stop once the
+      // timeout has elapsed rather than letting it reach zero
+      if (time <= 0) {
+        break;
+      }
     }
   }
   if (interrupted) {
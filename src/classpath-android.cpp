@@ -1503,7 +1503,7 @@ extern "C" AVIAN_EXPORT int64_t JNICALL
 extern "C" AVIAN_EXPORT int64_t JNICALL
     Avian_java_lang_System_nanoTime(Thread* t, object, uintptr_t*)
 {
-  return t->m->system->now() * 1000 * 1000;
+  return t->m->system->nanoTime();
 }
 
 extern "C" AVIAN_EXPORT int64_t JNICALL
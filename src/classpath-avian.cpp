@@ -463,6 +463,12 @@ extern "C" AVIAN_EXPORT int64_t JNICALL
   }
 }
 
+extern "C" AVIAN_EXPORT int64_t JNICALL
+    Avian_java_lang_System_nanoTime(Thread* t, object, uintptr_t*)
+{
+  return t->m->system->nanoTime();
+}
+
 extern "C" AVIAN_EXPORT int64_t JNICALL
     Avian_java_lang_ClassLoader_getCaller(Thread* t, object, uintptr_t*)
 {
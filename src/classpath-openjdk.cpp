@@ -2898,189 +2898,6 @@ extern "C" AVIAN_EXPORT int64_t JNICALL
                  ->body()[jfield->slot()])->offset();
 }
 
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getShort__Ljava_lang_Object_2J(Thread*,
-                                                         object,
-                                                         uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-
-  return fieldAtOffset<int16_t>(o, offset);
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getChar__Ljava_lang_Object_2J(Thread*,
-                                                        object,
-                                                        uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-
-  return fieldAtOffset<uint16_t>(o, offset);
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getInt__Ljava_lang_Object_2J(Thread*,
-                                                       object,
-                                                       uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-
-  return fieldAtOffset<int32_t>(o, offset);
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getFloat__Ljava_lang_Object_2J(Thread*,
-                                                         object,
-                                                         uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-
-  return fieldAtOffset<int32_t>(o, offset);
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getLong__Ljava_lang_Object_2J(Thread*,
-                                                        object,
-                                                        uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-
-  return fieldAtOffset<int64_t>(o, offset);
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getDouble__Ljava_lang_Object_2J(Thread* t,
-                                                          GcMethod* method,
-                                                          uintptr_t* arguments)
-{
-  return Avian_sun_misc_Unsafe_getLong__Ljava_lang_Object_2J(
-      t, method, arguments);
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putByte__Ljava_lang_Object_2JB(Thread*,
-                                                         object,
-                                                         uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  int8_t value = arguments[4];
-
-  fieldAtOffset<int8_t>(o, offset) = value;
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putShort__Ljava_lang_Object_2JS(Thread*,
-                                                          object,
-                                                          uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  int16_t value = arguments[4];
-
-  fieldAtOffset<int16_t>(o, offset) = value;
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putChar__Ljava_lang_Object_2JC(Thread*,
-                                                         object,
-                                                         uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  uint16_t value = arguments[4];
-
-  fieldAtOffset<uint16_t>(o, offset) = value;
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putInt__Ljava_lang_Object_2JI(Thread*,
-                                                        object,
-                                                        uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  int32_t value = arguments[4];
-
-  fieldAtOffset<int32_t>(o, offset) = value;
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putFloat__Ljava_lang_Object_2JF(Thread*,
-                                                          object,
-                                                          uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  int32_t value = arguments[4];
-
-  fieldAtOffset<int32_t>(o, offset) = value;
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getByte__Ljava_lang_Object_2J(Thread*,
-                                                        object,
-                                                        uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-
-  return fieldAtOffset<int8_t>(o, offset);
-}
-
-extern "C" AVIAN_EXPORT int64_t JNICALL
-    Avian_sun_misc_Unsafe_getBoolean__Ljava_lang_Object_2J(Thread* t,
-                                                           object method,
-                                                           uintptr_t* arguments)
-{
-  return Avian_sun_misc_Unsafe_getByte__Ljava_lang_Object_2J(
-      t, method, arguments);
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putBoolean__Ljava_lang_Object_2JZ(
-        Thread*,
-        object,
-        uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  uint8_t value = arguments[4];
-
-  fieldAtOffset<uint8_t>(o, offset) = value;
-}
-
-extern "C" AVIAN_EXPORT void JNICALL
-    Avian_sun_misc_Unsafe_putLong__Ljava_lang_Object_2JJ(Thread*,
-                                                         object,
-                                                         uintptr_t* arguments)
-{
-  object o = reinterpret_cast<object>(arguments[1]);
-  int64_t offset;
-  memcpy(&offset, arguments + 2, 8);
-  int64_t value;
-  memcpy(&value, arguments + 4, 8);
-
-  fieldAtOffset<int64_t>(o, offset) = value;
-}
-
 extern "C" AVIAN_EXPORT int64_t JNICALL
     Avian_sun_misc_Unsafe_pageSize(Thread*, object, uintptr_t*)
 {
@@ -3216,7 +3033,7 @@ extern "C" AVIAN_EXPORT jlong JNICALL
 
 extern "C" AVIAN_EXPORT jlong JNICALL EXPORT(JVM_NanoTime)(Thread* t, jclass)
 {
-  return t->m->system->now() * 1000 * 1000;
+  return t->m->system->nanoTime();
 }
 
 uint64_t jvmArrayCopy(Thread* t, uintptr_t* arguments)
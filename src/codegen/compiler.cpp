@@ -74,6 +74,13 @@ void apply(Context* c,
            Site* s3Low,
            Site* s3High);
 
+void apply(Context* c,
+           lir::AtomicOperation op,
+           unsigned size,
+           Site* address,
+           Site* first,
+           Site* second);
+
 class ConstantPoolNode {
  public:
   ConstantPoolNode(Promise* promise) : promise(promise), next(0)
@@ -764,6 +771,32 @@ void apply(Context* c,
                       OperandInfo(s3Size, s3Type, &s3Union));
 }
 
+void apply(Context* c,
+           lir::AtomicOperation op,
+           unsigned size,
+           Site* address,
+           Site* first,
+           Site* second)
+{
+  assertT(c, address->type(c) == lir::Operand::Type::RegisterPair);
+  assertT(c, first->type(c) == lir::Operand::Type::RegisterPair);
+  assertT(c, second->type(c) == lir::Operand::Type::RegisterPair);
+
+  lir::Memory memory(static_cast<RegisterSite*>(address)->number, 0);
+
+  OperandUnion firstUnion;
+  asAssemblerOperand(c, first, first, &firstUnion);
+
+  OperandUnion secondUnion;
+  asAssemblerOperand(c, second, second, &secondUnion);
+
+  c->assembler->apply(
+      op,
+      OperandInfo(size, lir::Operand::Type::Memory, &memory),
+      OperandInfo(size, lir::Operand::Type::RegisterPair, &firstUnion),
+      OperandInfo(size, lir::Operand::Type::RegisterPair, &secondUnion));
+}
+
 void append(Context* c, Event* e);
 
 void saveLocals(Context* c, Event* e)
@@ -2874,6 +2907,28 @@ class MyCompiler : public Compiler {
     appendOperation(&c, op);
   }
 
+  virtual ir::Value* atomicOp(lir::AtomicOperation op,
+                              ir::Value* address,
+                              ir::Value* a,
+                              ir::Value* b)
+  {
+    assertT(&c, address->type == ir::Type::iptr());
+    assertT(&c, isGeneralValue(a));
+    assertT(&c, (op == lir::CompareAndSwap) == (b != 0));
+    assertT(&c, b == 0 or a->type == b->type);
+
+    Value* result
+        = value(&c, op == lir::CompareAndSwap ? ir::Type::i4() : a->type);
+
+    appendAtomic(&c,
+                 op,
+                 static_cast<Value*>(address),
+                 static_cast<Value*>(a),
+                 static_cast<Value*>(b),
+                 result);
+    return result;
+  }
+
   virtual void compile(uintptr_t stackOverflowHandler,
                        unsigned stackLimitOffset)
   {
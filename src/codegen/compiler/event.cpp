@@ -61,6 +61,13 @@ void apply(Context* c,
            Site* s3Low,
            Site* s3High);
 
+void apply(Context* c,
+           lir::AtomicOperation op,
+           unsigned size,
+           Site* address,
+           Site* first,
+           Site* second);
+
 void append(Context* c, Event* e);
 
 void clean(Context* c,
@@ -1427,6 +1434,147 @@ void appendTranslate(Context* c,
   }
 }
 
+class AtomicEvent : public Event {
+ public:
+  AtomicEvent(Context* c,
+              lir::AtomicOperation op,
+              Value* addressValue,
+              Value* firstValue,
+              Value* secondValue,
+              Value* resultValue,
+              const SiteMask& addressMask,
+              const SiteMask& firstMask,
+              const SiteMask& secondMask)
+      : Event(c),
+        op(op),
+        addressValue(addressValue),
+        firstValue(firstValue),
+        secondValue(secondValue),
+        resultValue(resultValue)
+  {
+    assertT(c,
+            firstValue->type.size(c->targetInfo) <= c->targetInfo.pointerSize);
+
+    // reads are satisfied in the opposite order to the one they are
+    // added in, so add the first value last to give it first pick of
+    // the registers
+    this->addRead(c, addressValue, addressMask);
+    if (secondValue) {
+      this->addRead(c, secondValue, secondMask);
+    }
+    this->addRead(c, firstValue, firstMask, resultValue);
+  }
+
+  virtual const char* name()
+  {
+    return "AtomicEvent";
+  }
+
+  virtual void compile(Context* c)
+  {
+    freezeSource(c, c->targetInfo.pointerSize, addressValue);
+    if (secondValue) {
+      freezeSource(c, secondValue->type.size(c->targetInfo), secondValue);
+    }
+
+    // the operation leaves its result in the register holding the
+    // first value, so copy that value elsewhere if it is still needed
+    Site* site = firstValue->source;
+    Read* r = liveNext(c, firstValue);
+    if (r and firstValue->uniqueSite(c, site)) {
+      preserve(c, firstValue, r, site);
+    }
+
+    firstValue->removeSite(c, site);
+
+    site->freeze(c, firstValue);
+
+    apply(c,
+          op,
+          firstValue->type.size(c->targetInfo),
+          addressValue->source,
+          site,
+          secondValue ? secondValue->source : site);
+
+    if (secondValue) {
+      thawSource(c, secondValue->type.size(c->targetInfo), secondValue);
+    }
+    thawSource(c, c->targetInfo.pointerSize, addressValue);
+
+    for (Read* r = reads; r; r = r->eventNext) {
+      popRead(c, this, r->value);
+    }
+
+    site->thaw(c, firstValue);
+
+    if (live(c, resultValue)) {
+      resultValue->addSite(c, site);
+    }
+  }
+
+  lir::AtomicOperation op;
+  Value* addressValue;
+  Value* firstValue;
+  Value* secondValue;
+  Value* resultValue;
+};
+
+void appendAtomic(Context* c,
+                  lir::AtomicOperation op,
+                  Value* addressValue,
+                  Value* firstValue,
+                  Value* secondValue,
+                  Value* resultValue)
+{
+  unsigned size = firstValue->type.size(c->targetInfo);
+
+  bool thunk;
+  OperandMask addressMask;
+  OperandMask firstMask;
+  OperandMask secondMask;
+  c->arch->planSource(op, size, addressMask, firstMask, secondMask, &thunk);
+
+  if (thunk) {
+    const size_t MaxValueCount = 6;
+    FixedSliceStack<ir::Value*, MaxValueCount> slice;
+    size_t stackBase = c->stack ? c->stack->index + 1 : 0;
+
+    bool threadParameter;
+    intptr_t handler = c->client->getThunk(op, size, &threadParameter);
+
+    unsigned footprint = ceilingDivide(size, c->targetInfo.pointerSize);
+
+    if (secondValue) {
+      slicePush(c, footprint, secondValue, stackBase, slice);
+    }
+    slicePush(c, footprint, firstValue, stackBase, slice);
+    slicePush(c, 1, addressValue, stackBase, slice);
+
+    if (threadParameter) {
+      slicePush(c, 1, threadRegister(c), stackBase, slice);
+    }
+
+    appendCall(c,
+               value(c, ir::Type::addr(), constantSite(c, handler)),
+               ir::CallingConvention::Native,
+               0,
+               0,
+               resultValue,
+               slice);
+  } else {
+    append(c,
+           new (c->zone) AtomicEvent(c,
+                                     op,
+                                     addressValue,
+                                     firstValue,
+                                     secondValue,
+                                     resultValue,
+                                     SiteMask::lowPart(addressMask),
+                                     SiteMask::lowPart(firstMask),
+                                     SiteMask::lowPart(secondMask)));
+  }
+}
+
 class OperationEvent : public Event {
  public:
   OperationEvent(Context* c, lir::Operation op) : Event(c), op(op)
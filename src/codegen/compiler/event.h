@@ -172,6 +172,13 @@ void appendTranslate(Context* c,
                      Value* first,
                      Value* result);
 
+void appendAtomic(Context* c,
+                  lir::AtomicOperation op,
+                  Value* address,
+                  Value* first,
+                  Value* second,
+                  Value* result);
+
 void appendOperation(Context* c, lir::Operation op);
 
 void appendMemory(Context* c,
@@ -645,6 +645,26 @@ class MyArchitecture : public Architecture {
     }
   }
 
+  virtual void planSource(lir::AtomicOperation,
+                          unsigned,
+                          OperandMask& addressMask,
+                          OperandMask& aMask,
+                          OperandMask& bMask,
+                          bool* thunk)
+  {
+    addressMask.typeMask = lir::Operand::RegisterPairMask;
+    addressMask.setLowHighRegisterMasks(GPR_MASK, 0);
+
+    aMask.typeMask = lir::Operand::RegisterPairMask;
+    aMask.setLowHighRegisterMasks(GPR_MASK, 0);
+
+    bMask.typeMask = lir::Operand::RegisterPairMask;
+    bMask.setLowHighRegisterMasks(GPR_MASK, 0);
+
+    // todo: use exclusive loads and stores instead of calling out
+    *thunk = true;
+  }
+
   virtual Assembler* makeAssembler(Alloc* allocator, Zone* zone);
 
   virtual void acquire()
@@ -979,6 +999,15 @@ class MyAssembler : public Assembler {
     }
   }
 
+  virtual void apply(lir::AtomicOperation,
+                     OperandInfo,
+                     OperandInfo,
+                     OperandInfo)
+  {
+    // planSource always asks for a thunk
+    abort(&con);
+  }
+
   virtual void setDestination(uint8_t* dst)
   {
     con.result = dst;
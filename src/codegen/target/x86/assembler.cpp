@@ -860,6 +860,42 @@ class MyArchitecture : public Architecture {
     }
   }
 
+  virtual void planSource(lir::AtomicOperation op,
+                          unsigned size,
+                          OperandMask& addressMask,
+                          OperandMask& aMask,
+                          OperandMask& bMask,
+                          bool* thunk)
+  {
+    addressMask.typeMask = lir::Operand::RegisterPairMask;
+    addressMask.setLowHighRegisterMasks(GeneralRegisterMask, 0);
+
+    aMask.typeMask = lir::Operand::RegisterPairMask;
+    aMask.setLowHighRegisterMasks(GeneralRegisterMask, 0);
+
+    bMask.typeMask = lir::Operand::RegisterPairMask;
+    bMask.setLowHighRegisterMasks(GeneralRegisterMask, 0);
+
+    // we'd need cmpxchg8b to handle a long on a 32-bit target
+    *thunk = size > TargetBytesPerWord;
+
+    switch (op) {
+    case lir::CompareAndSwap: {
+      // cmpxchg compares against rax, and we leave the result there
+      const RegisterMask mask = GeneralRegisterMask.excluding(rax);
+      addressMask.setLowHighRegisterMasks(mask, 0);
+      aMask.setLowHighRegisterMasks(rax, 0);
+      bMask.setLowHighRegisterMasks(mask, 0);
+    } break;
+
+    case lir::GetAndAdd:
+      break;
+
+    default:
+      abort(&c);
+    }
+  }
+
   virtual Assembler* makeAssembler(util::Alloc* allocator, Zone* zone);
 
   virtual void acquire()
@@ -1168,6 +1204,36 @@ class MyAssembler : public Assembler {
     }
   }
 
+  virtual void apply(lir::AtomicOperation op,
+                     OperandInfo memory,
+                     OperandInfo a,
+                     OperandInfo b)
+  {
+    assertT(&c, memory.type == lir::Operand::Type::Memory);
+    assertT(&c, a.type == lir::Operand::Type::RegisterPair);
+    assertT(&c, b.type == lir::Operand::Type::RegisterPair);
+
+    lir::Memory* m = static_cast<lir::Memory*>(memory.operand);
+    lir::RegisterPair* ar = static_cast<lir::RegisterPair*>(a.operand);
+
+    switch (op) {
+    case lir::CompareAndSwap:
+      compareAndSwapMRR(&c,
+                        memory.size,
+                        m,
+                        ar,
+                        static_cast<lir::RegisterPair*>(b.operand));
+      break;
+
+    case lir::GetAndAdd:
+      getAndAddMR(&c, memory.size, m, ar);
+      break;
+
+    default:
+      abort(&c);
+    }
+  }
+
   virtual void setDestination(uint8_t* dst)
   {
     c.result = dst;
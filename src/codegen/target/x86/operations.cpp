@@ -1754,6 +1754,42 @@ void absoluteRR(Context* c,
   c->client->releaseTemporary(rdx);
 }
 
+void compareAndSwapMRR(Context* c,
+                       unsigned size,
+                       lir::Memory* m,
+                       lir::RegisterPair* a,
+                       lir::RegisterPair* b)
+{
+  assertT(c, size <= vm::TargetBytesPerWord);
+  assertT(c, a->low == rax and b->low != rax);
+
+  // lock cmpxchg b, m:
+  opcode(c, 0xf0);
+  maybeRex(c, size, b, m);
+  opcode(c, 0x0f, 0xb1);
+  modrmSibImm(c, b, m);
+
+  // sete al; movzx eax, al:
+  opcode(c, 0x0f, 0x94);
+  modrm(c, 0xc0, a, a);
+  opcode(c, 0x0f, 0xb6);
+  modrm(c, 0xc0, a, a);
+}
+
+void getAndAddMR(Context* c,
+                 unsigned size,
+                 lir::Memory* m,
+                 lir::RegisterPair* a)
+{
+  assertT(c, size <= vm::TargetBytesPerWord);
+
+  // lock xadd a, m:
+  opcode(c, 0xf0);
+  maybeRex(c, size, a, m);
+  opcode(c, 0x0f, 0xc1);
+  modrmSibImm(c, a, m);
+}
+
 }  // namespace x86
 }  // namespace codegen
 }  // namespace avian
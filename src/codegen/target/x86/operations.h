@@ -452,6 +452,17 @@ void absoluteRR(Context* c,
                 unsigned bSize UNUSED,
                 lir::RegisterPair* b UNUSED);
 
+void compareAndSwapMRR(Context* c,
+                       unsigned size,
+                       lir::Memory* m,
+                       lir::RegisterPair* a,
+                       lir::RegisterPair* b);
+
+void getAndAddMR(Context* c,
+                 unsigned size,
+                 lir::Memory* m,
+                 lir::RegisterPair* a);
+
 }  // namespace x86
 }  // namespace codegen
 }  // namespace avian
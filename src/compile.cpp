@@ -83,6 +83,7 @@ const unsigned InitialZoneCapacityInBytes = 64 * 1024;
 enum ThunkIndex {
   compileMethodIndex,
   compileVirtualMethodIndex,
+  dispatchInterfaceMethodIndex,
   invokeNativeIndex,
   throwArrayIndexOutOfBoundsIndex,
   throwStackOverflowIndex,
@@ -881,7 +882,7 @@ enum Thunk {
 #undef THUNK
 };
 
-const unsigned ThunkCount = idleIfNecessaryThunk + 1;
+const unsigned ThunkCount = nanoTimeThunk + 1;
 
 intptr_t getThunk(MyThread* t, Thunk thunk);
 
@@ -1154,6 +1155,26 @@ class Context {
       }
     }
 
+    virtual intptr_t getThunk(avian::codegen::lir::AtomicOperation op,
+                              unsigned size,
+                              bool* threadParameter)
+    {
+      *threadParameter = (size == 8);
+
+      switch (op) {
+      case avian::codegen::lir::CompareAndSwap:
+        return size == 8 ? local::getThunk(t, compareAndSwapLongThunk)
+                         : local::getThunk(t, compareAndSwapIntThunk);
+
+      case avian::codegen::lir::GetAndAdd:
+        return size == 8 ? local::getThunk(t, getAndAddLongThunk)
+                         : local::getThunk(t, getAndAddIntThunk);
+
+      default:
+        abort(t);
+      }
+    }
+
     MyThread* t;
   };
 
@@ -2292,6 +2313,8 @@ uintptr_t bootNativeThunk(MyThread* t);
 
 uintptr_t virtualThunk(MyThread* t, unsigned index);
 
+uintptr_t defaultInterfaceThunk(MyThread* t);
+
 bool unresolved(MyThread* t, uintptr_t methodAddress);
 
 uintptr_t methodAddress(Thread* t, GcMethod* method)
@@ -2385,6 +2408,85 @@ int64_t findInterfaceMethodFromInstanceAndReference(MyThread* t,
   return findInterfaceMethodFromInstance(t, method, instance);
 }
 
+// An invokeinterface compiled with an inline cache refers to a site
+// singleton holding the current cache entry, the interface method,
+// and the number of times the entry has been replaced.  Entries are
+// immutable: the two receiver classes most recently seen at the site,
+// the addresses to call for each, and the address to call for any
+// other class (the defaultInterface thunk).  Replacing the whole entry
+// rather than updating it in place guarantees that a caller which has
+// loaded an entry sees classes and addresses that belong together.
+//
+// Once a site has replaced its entry too often, it stops doing so and
+// instead gets a table of single-class entries indexed by the hash of
+// the receiver class, which the defaultInterface thunk consults before
+// searching the class's itable.
+
+const unsigned InterfaceSiteEntry = 0;
+const unsigned InterfaceSiteMethod = 1;
+const unsigned InterfaceSiteTable = 2;
+const unsigned InterfaceSiteRebindCount = 3;
+const unsigned InterfaceSiteSize = 4;
+
+const unsigned InterfaceEntryFirstClass = 0;
+const unsigned InterfaceEntrySecondClass = 1;
+const unsigned InterfaceEntryFirstHit = 2;
+const unsigned InterfaceEntrySecondHit = 3;
+const unsigned InterfaceEntryMiss = 4;
+const unsigned InterfaceEntrySize = 5;
+
+// number of times a site may replace its entry before we consider it
+// megamorphic and give it a table
+const unsigned MaxInterfaceSiteRebinds = 8;
+
+const unsigned InterfaceTableBits = 6;
+const unsigned InterfaceTableSize = 1 << InterfaceTableBits;
+
+// number of slots, starting at a class's own, which may hold its table
+// entry; classes which find those slots taken are searched for every
+// time instead, so a site with very many receivers can't keep
+// replacing entries
+const unsigned InterfaceTableProbes = 4;
+
+GcSingleton* makeInterfaceEntry(MyThread* t,
+                                GcClass* first,
+                                uintptr_t firstHit,
+                                GcClass* second,
+                                uintptr_t secondHit)
+{
+  PROTECT(t, first);
+  PROTECT(t, second);
+
+  uintptr_t miss = defaultInterfaceThunk(t);
+
+  GcSingleton* entry = makeSingletonOfSize(t, InterfaceEntrySize);
+  singletonMarkObject(t, entry, InterfaceEntryFirstClass);
+  singletonMarkObject(t, entry, InterfaceEntrySecondClass);
+  singletonObject(t, entry, InterfaceEntryFirstClass) = first;
+  singletonObject(t, entry, InterfaceEntrySecondClass) = second;
+  singletonValue(t, entry, InterfaceEntryFirstHit) = first ? firstHit : miss;
+  singletonValue(t, entry, InterfaceEntrySecondHit) = second ? secondHit
+                                                             : miss;
+  singletonValue(t, entry, InterfaceEntryMiss) = miss;
+  return entry;
+}
+
+GcSingleton* makeInterfaceSite(MyThread* t, GcMethod* method)
+{
+  PROTECT(t, method);
+
+  GcSingleton* entry = makeInterfaceEntry(t, 0, 0, 0, 0);
+  PROTECT(t, entry);
+
+  GcSingleton* site = makeSingletonOfSize(t, InterfaceSiteSize);
+  singletonMarkObject(t, site, InterfaceSiteEntry);
+  singletonMarkObject(t, site, InterfaceSiteMethod);
+  singletonMarkObject(t, site, InterfaceSiteTable);
+  singletonObject(t, site, InterfaceSiteEntry) = entry;
+  singletonObject(t, site, InterfaceSiteMethod) = method;
+  return site;
+}
+
 void checkMethod(Thread* t, GcMethod* method, bool shouldBeStatic)
 {
   if (((method->flags() & ACC_STATIC) == 0) == shouldBeStatic) {
@@ -2987,6 +3089,58 @@ uint64_t getJClass64(Thread* t, GcClass* class_)
   return reinterpret_cast<uintptr_t>(getJClass(t, class_));
 }
 
+uint64_t compareAndSwapInt(uint32_t* p, int32_t expect, int32_t update)
+{
+  return atomicCompareAndSwap32(p, expect, update);
+}
+
+uint64_t compareAndSwapLong(MyThread* t UNUSED,
+                            uint64_t* p,
+                            int64_t expect,
+                            int64_t update)
+{
+#ifdef AVIAN_HAS_CAS64
+  return atomicCompareAndSwap64(p, expect, update);
+#else
+  abort(t);
+#endif
+}
+
+uint64_t compareAndSwapObject(MyThread* t,
+                              object target,
+                              intptr_t offset,
+                              object expect,
+                              object update)
+{
+  if (atomicCompareAndSwap(&fieldAtOffset<uintptr_t>(target, offset),
+                           reinterpret_cast<uintptr_t>(expect),
+                           reinterpret_cast<uintptr_t>(update))) {
+    mark(t, target, offset);
+    return true;
+  } else {
+    return false;
+  }
+}
+
+uint64_t getAndAddInt(uint32_t* p, int32_t delta)
+{
+  return static_cast<int32_t>(atomicGetAndAdd32(p, delta));
+}
+
+uint64_t getAndAddLong(MyThread* t UNUSED, uint64_t* p, int64_t delta)
+{
+#ifdef AVIAN_HAS_CAS64
+  return atomicGetAndAdd64(p, delta);
+#else
+  abort(t);
+#endif
+}
+
+uint64_t nanoTime(MyThread* t)
+{
+  return t->m->system->nanoTime();
+}
+
 void gcIfNecessary(MyThread* t)
 {
   stress(t);
@@ -3582,7 +3736,33 @@ ir::Value* popLongAddress(Frame* frame)
                               ir::Type::iptr());
 }
 
-bool intrinsic(MyThread* t UNUSED, Frame* frame, GcMethod* target)
+// pops the object and offset arguments of an Unsafe accessor and
+// returns the address they denote; a null object means the offset is
+// an absolute address
+ir::Value* popObjectAddress(Frame* frame)
+{
+  ir::Value* offset = popLongAddress(frame);
+  ir::Value* base = frame->pop(ir::Type::object());
+  return frame->c->binaryOp(lir::Add, ir::Type::iptr(), base, offset);
+}
+
+// returns 1 if a and b differ and 0 otherwise, without branching
+ir::Value* compileNotEqual(avian::codegen::Compiler* c,
+                           ir::Value* a,
+                           ir::Value* b)
+{
+  ir::Value* difference = c->binaryOp(lir::Xor, ir::Type::iptr(), a, b);
+
+  return c->binaryOp(lir::UnsignedShiftRight,
+                     ir::Type::iptr(),
+                     c->constant(TargetBitsPerWord - 1, ir::Type::i4()),
+                     c->binaryOp(lir::Or,
+                                 ir::Type::iptr(),
+                                 difference,
+                                 c->unaryOp(lir::Negate, difference)));
+}
+
+bool intrinsic(MyThread* t, Frame* frame, GcMethod* target)
 {
 #define MATCH(name, constant)         \
   (name->length() == sizeof(constant) \
@@ -3612,6 +3792,21 @@ bool intrinsic(MyThread* t UNUSED, Frame* frame, GcMethod* target)
         return true;
       }
     }
+  } else if (UNLIKELY(MATCH(className, "java/lang/System"))) {
+    avian::codegen::Compiler* c = frame->c;
+    if (MATCH(target->name(), "nanoTime") and MATCH(target->spec(), "()J")) {
+      // call straight into the system clock rather than through the
+      // JNI-style native method stub
+      frame->pushLarge(
+          ir::Type::i8(),
+          c->nativeCall(
+              c->constant(getThunk(t, nanoTimeThunk), ir::Type::iptr()),
+              0,
+              0,
+              ir::Type::i8(),
+              args(c->threadRegister())));
+      return true;
+    }
   } else if (UNLIKELY(MATCH(className, "sun/misc/Unsafe"))) {
     avian::codegen::Compiler* c = frame->c;
     if (MATCH(target->name(), "getByte") and MATCH(target->spec(), "(J)B")) {
@@ -3711,11 +3906,594 @@ bool intrinsic(MyThread* t UNUSED, Frame* frame, GcMethod* target)
       frame->pop(ir::Type::object());
       c->store(value, c->memory(address, ir::Type::iptr()));
       return true;
+    } else if ((MATCH(target->name(), "getByte")
+                and MATCH(target->spec(), "(Ljava/lang/Object;J)B"))
+               or (MATCH(target->name(), "getBoolean")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;J)Z"))) {
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      frame->push(ir::Type::i4(),
+                  c->load(ir::ExtendMode::Signed,
+                          c->memory(address, ir::Type::i1()),
+                          ir::Type::i4()));
+      return true;
+    } else if ((MATCH(target->name(), "putByte")
+                and MATCH(target->spec(), "(Ljava/lang/Object;JB)V"))
+               or (MATCH(target->name(), "putBoolean")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;JZ)V"))) {
+      ir::Value* value = frame->pop(ir::Type::i4());
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      c->store(value, c->memory(address, ir::Type::i1()));
+      return true;
+    } else if ((MATCH(target->name(), "getShort")
+                and MATCH(target->spec(), "(Ljava/lang/Object;J)S"))
+               or (MATCH(target->name(), "getChar")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;J)C"))) {
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      frame->push(ir::Type::i4(),
+                  c->load(MATCH(target->name(), "getShort")
+                              ? ir::ExtendMode::Signed
+                              : ir::ExtendMode::Unsigned,
+                          c->memory(address, ir::Type::i2()),
+                          ir::Type::i4()));
+      return true;
+    } else if ((MATCH(target->name(), "putShort")
+                and MATCH(target->spec(), "(Ljava/lang/Object;JS)V"))
+               or (MATCH(target->name(), "putChar")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;JC)V"))) {
+      ir::Value* value = frame->pop(ir::Type::i4());
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      c->store(value, c->memory(address, ir::Type::i2()));
+      return true;
+    } else if ((MATCH(target->name(), "getInt")
+                and MATCH(target->spec(), "(Ljava/lang/Object;J)I"))
+               or (MATCH(target->name(), "getFloat")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;J)F"))) {
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      ir::Type type = MATCH(target->name(), "getInt") ? ir::Type::i4()
+                                                      : ir::Type::f4();
+      frame->push(
+          type,
+          c->load(ir::ExtendMode::Signed, c->memory(address, type), type));
+      return true;
+    } else if ((MATCH(target->name(), "putInt")
+                and MATCH(target->spec(), "(Ljava/lang/Object;JI)V"))
+               or (MATCH(target->name(), "putFloat")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;JF)V"))) {
+      ir::Type type = MATCH(target->name(), "putInt") ? ir::Type::i4()
+                                                      : ir::Type::f4();
+      ir::Value* value = frame->pop(type);
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      c->store(value, c->memory(address, type));
+      return true;
+    } else if ((MATCH(target->name(), "getLong")
+                and MATCH(target->spec(), "(Ljava/lang/Object;J)J"))
+               or (MATCH(target->name(), "getDouble")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;J)D"))) {
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      ir::Type type = MATCH(target->name(), "getLong") ? ir::Type::i8()
+                                                       : ir::Type::f8();
+      frame->pushLarge(
+          type,
+          c->load(ir::ExtendMode::Signed, c->memory(address, type), type));
+      return true;
+    } else if ((MATCH(target->name(), "putLong")
+                and MATCH(target->spec(), "(Ljava/lang/Object;JJ)V"))
+               or (MATCH(target->name(), "putDouble")
+                   and MATCH(target->spec(), "(Ljava/lang/Object;JD)V"))) {
+      ir::Type type = MATCH(target->name(), "putLong") ? ir::Type::i8()
+                                                       : ir::Type::f8();
+      ir::Value* value = frame->popLarge(type);
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      c->store(value, c->memory(address, type));
+      return true;
+    } else if (MATCH(target->name(), "compareAndSwapInt")
+               and MATCH(target->spec(), "(Ljava/lang/Object;JII)Z")) {
+      ir::Value* update = frame->pop(ir::Type::i4());
+      ir::Value* expect = frame->pop(ir::Type::i4());
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      frame->push(ir::Type::i4(),
+                  c->atomicOp(lir::CompareAndSwap, address, expect, update));
+      return true;
+    } else if (MATCH(target->name(), "compareAndSwapObject")
+               and MATCH(target->spec(),
+                         "(Ljava/lang/Object;JLjava/lang/Object;"
+                         "Ljava/lang/Object;)Z")) {
+      // unlike the primitive swaps, this one calls out to the VM, since
+      // a successful swap needs the same write barrier as any other
+      // reference store
+      ir::Value* update = frame->pop(ir::Type::object());
+      ir::Value* expect = frame->pop(ir::Type::object());
+      ir::Value* offset = popLongAddress(frame);
+      ir::Value* base = frame->pop(ir::Type::object());
+      frame->pop(ir::Type::object());
+      frame->push(
+          ir::Type::i4(),
+          c->nativeCall(
+              c->constant(getThunk(t, compareAndSwapObjectThunk),
+                          ir::Type::iptr()),
+              0,
+              0,
+              ir::Type::i4(),
+              args(c->threadRegister(), base, offset, expect, update)));
+      return true;
+    } else if (MATCH(target->name(), "getAndAddInt")
+               and MATCH(target->spec(), "(Ljava/lang/Object;JI)I")) {
+      ir::Value* delta = frame->pop(ir::Type::i4());
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      frame->push(ir::Type::i4(),
+                  c->atomicOp(lir::GetAndAdd, address, delta, 0));
+      return true;
+    }
+#ifdef AVIAN_HAS_CAS64
+    // on 32-bit targets, 64-bit arguments would need to be split
+    // across words, so we leave those to the builtins
+    else if (TargetBytesPerWord == 8
+             and MATCH(target->name(), "compareAndSwapLong")
+             and MATCH(target->spec(), "(Ljava/lang/Object;JJJ)Z")) {
+      ir::Value* update = frame->popLarge(ir::Type::i8());
+      ir::Value* expect = frame->popLarge(ir::Type::i8());
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      frame->push(ir::Type::i4(),
+                  c->atomicOp(lir::CompareAndSwap, address, expect, update));
+      return true;
+    } else if (TargetBytesPerWord == 8
+               and MATCH(target->name(), "getAndAddLong")
+               and MATCH(target->spec(), "(Ljava/lang/Object;JJ)J")) {
+      ir::Value* delta = frame->popLarge(ir::Type::i8());
+      ir::Value* address = popObjectAddress(frame);
+      frame->pop(ir::Type::object());
+      frame->pushLarge(ir::Type::i8(),
+                       c->atomicOp(lir::GetAndAdd, address, delta, 0));
+      return true;
+    }
+#endif
+  }
+  return false;
+}
+
+// advances ip past the operands of the specified instruction, which
+// must not be a branch, a switch or a wide instruction
+void skipOperands(unsigned instruction, unsigned& ip)
+{
+  switch (instruction) {
+  case bipush:
+  case ldc:
+  case iload:
+  case lload:
+  case fload:
+  case dload:
+  case aload:
+  case istore:
+  case lstore:
+  case fstore:
+  case dstore:
+  case astore:
+  case ret:
+  case newarray:
+    ip += 1;
+    break;
+
+  case sipush:
+  case ldc_w:
+  case ldc2_w:
+  case iinc:
+  case getstatic:
+  case putstatic:
+  case getfield:
+  case putfield:
+  case invokevirtual:
+  case invokespecial:
+  case invokestatic:
+  case new_:
+  case anewarray:
+  case checkcast:
+  case instanceof:
+    ip += 2;
+    break;
+
+  case multianewarray:
+    ip += 3;
+    break;
+
+  case invokeinterface:
+    ip += 4;
+    break;
+
+  default:
+    break;
+  }
+}
+
+// returns true if any branch or switch in the specified code may jump
+// to the specified instruction
+bool isBranchTarget(MyThread* t, GcCode* code, unsigned target)
+{
+  for (unsigned ip = 0; ip < code->length();) {
+    unsigned start = ip;
+    unsigned instruction = code->body()[ip++];
+
+    switch (instruction) {
+    case ifeq:
+    case ifne:
+    case iflt:
+    case ifge:
+    case ifgt:
+    case ifle:
+    case if_icmpeq:
+    case if_icmpne:
+    case if_icmplt:
+    case if_icmpge:
+    case if_icmpgt:
+    case if_icmple:
+    case if_acmpeq:
+    case if_acmpne:
+    case ifnull:
+    case ifnonnull:
+    case goto_:
+    case jsr:
+      if (start + codeReadInt16(t, code, ip) == target) {
+        return true;
+      }
+      break;
+
+    case goto_w:
+    case jsr_w:
+      if (start + codeReadInt32(t, code, ip) == target) {
+        return true;
+      }
+      break;
+
+    case tableswitch: {
+      ip = (ip + 3) & ~3;  // pad to four byte boundary
+
+      if (start + codeReadInt32(t, code, ip) == target) {
+        return true;
+      }
+
+      int32_t bottom = codeReadInt32(t, code, ip);
+      int32_t top = codeReadInt32(t, code, ip);
+      for (int32_t i = bottom; i <= top; ++i) {
+        if (start + codeReadInt32(t, code, ip) == target) {
+          return true;
+        }
+      }
+    } break;
+
+    case lookupswitch: {
+      ip = (ip + 3) & ~3;  // pad to four byte boundary
+
+      if (start + codeReadInt32(t, code, ip) == target) {
+        return true;
+      }
+
+      int32_t pairCount = codeReadInt32(t, code, ip);
+      for (int32_t i = 0; i < pairCount; ++i) {
+        ip += 4;  // skip the key
+        if (start + codeReadInt32(t, code, ip) == target) {
+          return true;
+        }
+      }
+    } break;
+
+    case wide:
+      ip += code->body()[ip] == iinc ? 5 : 3;
+      break;
+
+    default:
+      skipOperands(instruction, ip);
+      break;
+    }
+  }
+
+  return false;
+}
+
+// returns true if an exception handler in the specified code starts
+// at the specified instruction
+bool isHandlerStart(MyThread* t, GcCode* code, unsigned ip)
+{
+  GcExceptionHandlerTable* table
+      = cast<GcExceptionHandlerTable>(t, code->exceptionHandlerTable());
+  if (table) {
+    for (unsigned i = 0; i < table->length(); ++i) {
+      if (exceptionHandlerIp(table->body()[i]) == ip) {
+        return true;
+      }
     }
   }
   return false;
 }
 
+struct Box {
+  const char* className;
+  const char* boxSpec;
+  const char* unboxName;
+  const char* unboxSpec;
+};
+
+const Box boxes[] = {
+    {"java/lang/Boolean", "(Z)Ljava/lang/Boolean;", "booleanValue", "()Z"},
+    {"java/lang/Byte", "(B)Ljava/lang/Byte;", "byteValue", "()B"},
+    {"java/lang/Character", "(C)Ljava/lang/Character;", "charValue", "()C"},
+    {"java/lang/Short", "(S)Ljava/lang/Short;", "shortValue", "()S"},
+    {"java/lang/Integer", "(I)Ljava/lang/Integer;", "intValue", "()I"},
+    {"java/lang/Long", "(J)Ljava/lang/Long;", "longValue", "()J"},
+    {"java/lang/Float", "(F)Ljava/lang/Float;", "floatValue", "()F"},
+    {"java/lang/Double", "(D)Ljava/lang/Double;", "doubleValue", "()D"}};
+
+const unsigned BoxCount = sizeof(boxes) / sizeof(Box);
+
+// returns the wrapper class whose valueOf method (if boxing is true)
+// or xxxValue method (otherwise) is called by the instruction at the
+// specified ip, or null if it calls neither
+const Box* wrapperCall(MyThread* t, GcCode* code, unsigned ip, bool boxing)
+{
+  if (ip + 3 > code->length()
+      or code->body()[ip] != (boxing ? invokestatic : invokevirtual)) {
+    return 0;
+  }
+
+  // look at the callee by name rather than resolving it, since
+  // resolution may allocate
+  ++ip;
+  uint16_t index = codeReadInt16(t, code, ip);
+  object reference = singletonObject(t, code->pool(), index - 1);
+
+  GcByteArray* className;
+  GcByteArray* name;
+  GcByteArray* spec;
+  if (objectClass(t, reference) == type(t, GcReference::Type)) {
+    GcReference* r = cast<GcReference>(t, reference);
+    className = r->class_();
+    name = r->name();
+    spec = r->spec();
+  } else {
+    GcMethod* m = cast<GcMethod>(t, reference);
+    className = m->class_()->name();
+    name = m->name();
+    spec = m->spec();
+  }
+
+  for (unsigned i = 0; i < BoxCount; ++i) {
+    const Box& box = boxes[i];
+    if (::strcmp(reinterpret_cast<char*>(className->body().begin()),
+                 box.className) == 0) {
+      return ::strcmp(reinterpret_cast<char*>(name->body().begin()),
+                      boxing ? "valueOf" : box.unboxName) == 0
+                     and ::strcmp(reinterpret_cast<char*>(spec->body().begin()),
+                                  boxing ? box.boxSpec : box.unboxSpec) == 0
+                 ? &box
+                 : 0;
+    }
+  }
+
+  return 0;
+}
+
+// returns true if the call to a wrapper class's valueOf method which
+// ends at the specified ip is immediately followed by a call to the
+// same class's corresponding xxxValue method, in which case the pair
+// leaves the value it started with on the stack and may be skipped
+// altogether
+bool unboxedNext(MyThread* t, GcCode* code, unsigned ip)
+{
+  const Box* box = wrapperCall(t, code, ip - 3, true);
+
+  // valueOf never returns null, so the unboxing call can't throw
+  return box and wrapperCall(t, code, ip, false) == box
+         // if another path joins at the unboxing call, that call must
+         // still be compiled for it, and this path can't skip past it
+         and not isBranchTarget(t, code, ip);
+}
+
+// returns the type a primitive unboxed by the specified wrapper class
+// has on the stack
+ir::Type unboxedType(const Box* box)
+{
+  return box->unboxSpec[2] == 'F' ? ir::Type::f4() : ir::Type::i4();
+}
+
+// returns the wrapper class whose instances the specified local
+// variable holds, if it holds nothing else and may safely hold the
+// primitive value instead, or null otherwise.  That's the case when
+// the method stores it exactly once, straight from a valueOf call, and
+// loads it exactly once, straight into the matching xxxValue call, and
+// neither the store nor the unboxing call can be reached any other
+// way.  As javac assigns each local a single slot for its whole scope,
+// this catches the usual "Integer boxed = i; ... boxed ..." pattern.
+const Box* unboxedLocal(MyThread* t, GcMethod* method, unsigned local)
+{
+  GcCode* code = method->code();
+
+  if (local < method->parameterFootprint()) {
+    // the caller's value is already there on entry
+    return 0;
+  }
+
+  const Box* box = 0;
+  unsigned unboxIp = 0;
+  unsigned previous = 0;
+  unsigned start = 0;
+  for (unsigned ip = 0; ip < code->length();) {
+    previous = start;
+    start = ip;
+    unsigned instruction = code->body()[ip++];
+
+    bool isWide = instruction == wide;
+    if (isWide) {
+      instruction = code->body()[ip++];
+    }
+
+    int index = -1;
+    unsigned size = 1;
+    switch (instruction) {
+    case jsr:
+    case jsr_w:
+    case ret:
+      // subroutines may duplicate the code between store and load
+      return 0;
+
+    case iload:
+    case fload:
+    case aload:
+    case istore:
+    case fstore:
+    case astore:
+    case iinc:
+      index = isWide ? codeReadInt16(t, code, ip) : code->body()[ip++];
+      if (instruction == iinc) {
+        ip += isWide ? 2 : 1;
+      }
+      break;
+
+    case lload:
+    case dload:
+    case lstore:
+    case dstore:
+      index = isWide ? codeReadInt16(t, code, ip) : code->body()[ip++];
+      size = 2;
+      break;
+
+    case tableswitch:
+    case lookupswitch: {
+      ip = (ip + 3) & ~3;  // pad to four byte boundary
+      ip += 4;             // skip the default offset
+
+      if (instruction == tableswitch) {
+        int32_t bottom = codeReadInt32(t, code, ip);
+        int32_t top = codeReadInt32(t, code, ip);
+        ip += (top - bottom + 1) * 4;
+      } else {
+        ip += codeReadInt32(t, code, ip) * 8;
+      }
+    } break;
+
+    case ifeq:
+    case ifne:
+    case iflt:
+    case ifge:
+    case ifgt:
+    case ifle:
+    case if_icmpeq:
+    case if_icmpne:
+    case if_icmplt:
+    case if_icmpge:
+    case if_icmpgt:
+    case if_icmple:
+    case if_acmpeq:
+    case if_acmpne:
+    case ifnull:
+    case ifnonnull:
+    case goto_:
+      ip += 2;
+      break;
+
+    case goto_w:
+      ip += 4;
+      break;
+
+    default:
+      if (instruction >= iload_0 and instruction <= aload_3) {
+        index = (instruction - iload_0) % 4;
+        size = ((instruction - iload_0) / 4) % 2 ? 2 : 1;
+        instruction = iload + ((instruction - iload_0) / 4);
+      } else if (instruction >= istore_0 and instruction <= astore_3) {
+        index = (instruction - istore_0) % 4;
+        size = ((instruction - istore_0) / 4) % 2 ? 2 : 1;
+        instruction = istore + ((instruction - istore_0) / 4);
+      } else {
+        skipOperands(instruction, ip);
+      }
+      break;
+    }
+
+    if (index < 0 or static_cast<unsigned>(index) + size <= local
+        or static_cast<unsigned>(index) > local) {
+      continue;
+    }
+
+    if (instruction == astore) {
+      if (box or start != previous + 3
+          or (box = wrapperCall(t, code, previous, true)) == 0
+          or isBranchTarget(t, code, start) or isHandlerStart(t, code, start)
+          // a long or double would need a second slot
+          or box->unboxSpec[2] == 'J' or box->unboxSpec[2] == 'D') {
+        return 0;
+      }
+    } else if (instruction == aload and unboxIp == 0) {
+      unboxIp = ip;
+    } else {
+      return 0;
+    }
+  }
+
+  if (box == 0 or unboxIp == 0 or wrapperCall(t, code, unboxIp, false) != box
+      or isBranchTarget(t, code, unboxIp)
+      or isHandlerStart(t, code, unboxIp)) {
+    return 0;
+  }
+
+  return box;
+}
+
+// if the instruction at the specified ip stores the result of the
+// valueOf call before it to a local which may hold the primitive
+// instead (see unboxedLocal), compiles it that way, advances ip past
+// it and returns true
+bool storeUnboxed(MyThread* t, Frame* frame, unsigned& ip)
+{
+  GcMethod* method = frame->context->method;
+  GcCode* code = method->code();
+
+  unsigned next = ip;
+  unsigned instruction = code->body()[next++];
+  unsigned local;
+  if (instruction == astore) {
+    local = code->body()[next++];
+  } else if (instruction >= astore_0 and instruction <= astore_3) {
+    local = instruction - astore_0;
+  } else if (instruction == wide and code->body()[next] == astore) {
+    ++next;
+    local = codeReadInt16(t, code, next);
+  } else {
+    return false;
+  }
+
+  const Box* box = unboxedLocal(t, method, local);
+  if (box) {
+    frame->store(unboxedType(box), local);
+    ip = next;
+    return true;
+  }
+  return false;
+}
+
+// loads the specified local, or the primitive it holds in place of a
+// wrapper (see unboxedLocal), in which case the unboxing call at the
+// specified ip is skipped as well
+void loadReference(MyThread* t, Frame* frame, unsigned local, unsigned& ip)
+{
+  GcMethod* method = frame->context->method;
+  const Box* box = wrapperCall(t, method->code(), ip, false);
+  if (box and unboxedLocal(t, method, local) == box) {
+    frame->load(unboxedType(box), local);
+    ip += 3;
+  } else {
+    frame->load(ir::Type::object(), local);
+  }
+}
+
 unsigned targetFieldOffset(Context* context, GcField* field)
 {
   if (context->bootContext) {
@@ -4150,24 +4928,25 @@ loop:
       frame->push(ir::Type::object(), c->constant(0, ir::Type::object()));
       break;
 
-    case aload:
-      frame->load(ir::Type::object(), code->body()[ip++]);
-      break;
+    case aload: {
+      unsigned local = code->body()[ip++];
+      loadReference(t, frame, local, ip);
+    } break;
 
     case aload_0:
-      frame->load(ir::Type::object(), 0);
+      loadReference(t, frame, 0, ip);
       break;
 
     case aload_1:
-      frame->load(ir::Type::object(), 1);
+      loadReference(t, frame, 1, ip);
       break;
 
     case aload_2:
-      frame->load(ir::Type::object(), 2);
+      loadReference(t, frame, 2, ip);
       break;
 
     case aload_3:
-      frame->load(ir::Type::object(), 3);
+      loadReference(t, frame, 3, ip);
       break;
 
     case anewarray: {
@@ -4982,14 +5761,75 @@ loop:
 
       unsigned rSize = resultSize(t, returnCode);
 
+      ir::Value* address;
+      if (LIKELY(target) and context->bootContext == 0) {
+        // Look the receiver's class up in the site's inline cache
+        // without branching: the entry's two hit addresses are
+        // followed by its miss address, and we compute which of the
+        // three to call from the results of the class comparisons.
+        ir::Value* site = frame->append(makeInterfaceSite(t, target));
+
+        c->store(site,
+                 c->memory(c->threadRegister(),
+                           ir::Type::object(),
+                           TARGET_THREAD_VIRTUALCALLINDEX));
+
+        ir::Value* entry = c->load(
+            ir::ExtendMode::Signed,
+            c->memory(site,
+                      ir::Type::object(),
+                      TargetArrayBody
+                      + (InterfaceSiteEntry * TargetBytesPerWord)),
+            ir::Type::object());
+
+        ir::Value* class_ = c->binaryOp(
+            lir::And,
+            ir::Type::iptr(),
+            c->constant(TargetPointerMask, ir::Type::iptr()),
+            c->memory(c->peek(1, parameterFootprint - 1),
+                      ir::Type::object()));
+
+        ir::Value* firstMiss = compileNotEqual(
+            c,
+            class_,
+            c->memory(entry,
+                      ir::Type::object(),
+                      TargetArrayBody
+                      + (InterfaceEntryFirstClass * TargetBytesPerWord)));
+
+        ir::Value* secondMiss = compileNotEqual(
+            c,
+            class_,
+            c->memory(entry,
+                      ir::Type::object(),
+                      TargetArrayBody
+                      + (InterfaceEntrySecondClass * TargetBytesPerWord)));
+
+        // 0 for the first class, 1 for the second, and 2 for neither
+        ir::Value* index = c->binaryOp(
+            lir::Add,
+            ir::Type::iptr(),
+            firstMiss,
+            c->binaryOp(lir::And, ir::Type::iptr(), firstMiss, secondMiss));
+
+        address = c->memory(entry,
+                            ir::Type::iptr(),
+                            TargetArrayBody
+                            + (InterfaceEntryFirstHit * TargetBytesPerWord),
+                            index);
+      } else {
+        address = c->nativeCall(
+            c->constant(getThunk(t, thunk), ir::Type::iptr()),
+            0,
+            frame->trace(0, 0),
+            ir::Type::iptr(),
+            args(c->threadRegister(),
+                 frame->append(argument),
+                 c->peek(1, parameterFootprint - 1)));
+      }
+
       ir::Value* result = c->stackCall(
-          c->nativeCall(c->constant(getThunk(t, thunk), ir::Type::iptr()),
-                        0,
-                        frame->trace(0, 0),
-                        ir::Type::iptr(),
-                        args(c->threadRegister(),
-                             frame->append(argument),
-                             c->peek(1, parameterFootprint - 1))),
+          address,
           tailCall ? Compiler::TailJump : 0,
           frame->trace(0, 0),
           operandTypeForFieldCode(t, returnCode),
@@ -5058,7 +5898,13 @@ loop:
       if (LIKELY(target)) {
         checkMethod(t, target, true);
 
-        if (not intrinsic(t, frame, target)) {
+        if (unboxedNext(t, code, ip)) {
+          // the primitive argument is already where the unboxed result
+          // would be
+          ip += 3;
+        } else if (storeUnboxed(t, frame, ip)) {
+          // the primitive argument has been stored in place of the box
+        } else if (not intrinsic(t, frame, target)) {
           bool tailCall = isTailCall(t, code, ip, context->method, target);
           compileDirectInvoke(t, frame, target, tailCall);
         }
@@ -5999,7 +6845,8 @@ loop:
     case wide: {
       switch (code->body()[ip++]) {
       case aload: {
-        frame->load(ir::Type::object(), codeReadInt16(t, code, ip));
+        unsigned local = codeReadInt16(t, code, ip);
+        loadReference(t, frame, local, ip);
       } break;
 
       case astore: {
@@ -7135,6 +7982,124 @@ uint64_t compileVirtualMethod(MyThread* t)
   return reinterpret_cast<uintptr_t>(compileVirtualMethod2(t, class_, index));
 }
 
+unsigned interfaceTableIndex(MyThread* t, GcClass* class_)
+{
+  // classes tend to be allocated back to back and have similar sizes,
+  // so their hashes differ mostly in the middle bits; multiplying
+  // spreads those into the top bits, which we use as the index
+  return static_cast<uint32_t>(objectHash(t, class_) * 0x9E3779B9U)
+         >> (32 - InterfaceTableBits);
+}
+
+uint64_t dispatchInterfaceMethod(MyThread* t)
+{
+  GcClass* class_ = objectClass(t, static_cast<object>(t->virtualCallTarget));
+  t->virtualCallTarget = 0;
+
+  // the call site passes its inline cache in virtualCallIndex; see the
+  // invokeinterface case in compile
+  GcSingleton* site = reinterpret_cast<GcSingleton*>(t->virtualCallIndex);
+  t->virtualCallIndex = 0;
+
+  GcMethod* method
+      = cast<GcMethod>(t, singletonObject(t, site, InterfaceSiteMethod));
+
+  GcSingleton* table
+      = cast<GcSingleton>(t, singletonObject(t, site, InterfaceSiteTable));
+
+  if (table and LIKELY((class_->vmFlags() & BootstrapFlag) == 0)) {
+    // a megamorphic site: if we've seen this class here before, we can
+    // return its target without searching, allocating or calling
+    // anything which might throw
+    unsigned index = interfaceTableIndex(t, class_);
+    for (unsigned i = 0; i < InterfaceTableProbes; ++i) {
+      GcSingleton* entry = cast<GcSingleton>(
+          t,
+          singletonObject(
+              t, table, (index + i) & (InterfaceTableSize - 1)));
+      if (entry == 0) {
+        break;
+      } else if (singletonObject(t, entry, InterfaceEntryFirstClass)
+                 == class_) {
+        return singletonValue(t, entry, InterfaceEntryFirstHit);
+      }
+    }
+  }
+
+  // the interface method has the same parameters as the one we're
+  // about to find, which is all we need to scan the arguments
+  t->trace->targetMethod = method;
+
+  THREAD_RESOURCE0(t, static_cast<MyThread*>(t)->trace->targetMethod = 0;);
+
+  PROTECT(t, class_);
+  PROTECT(t, site);
+  PROTECT(t, table);
+
+  GcMethod* target = findInterfaceMethod(t, method, class_);
+  PROTECT(t, target);
+
+  uintptr_t address = prepareMethodForCall(t, target);
+
+  // native methods rely on prepareMethodForCall having set
+  // trace->nativeMethod, so they must always come through here
+  if (target->flags() & ACC_NATIVE) {
+    return address;
+  }
+
+  if (table) {
+    unsigned index = interfaceTableIndex(t, class_);
+    for (unsigned i = 0; i < InterfaceTableProbes; ++i) {
+      unsigned slot = (index + i) & (InterfaceTableSize - 1);
+      if (singletonObject(t, table, slot) == 0) {
+        GcSingleton* entry = makeInterfaceEntry(t, class_, address, 0, 0);
+
+        storeStoreMemoryBarrier();
+
+        setField(t, table, SingletonBody + (slot * BytesPerWord), entry);
+        break;
+      }
+    }
+  } else if (++singletonValue(t, site, InterfaceSiteRebindCount)
+             < MaxInterfaceSiteRebinds) {
+    // keep the most recent class from the old entry alongside the new
+    // one
+    GcSingleton* old
+        = cast<GcSingleton>(t, singletonObject(t, site, InterfaceSiteEntry));
+
+    GcSingleton* entry = makeInterfaceEntry(
+        t,
+        class_,
+        address,
+        cast<GcClass>(t, singletonObject(t, old, InterfaceEntryFirstClass)),
+        singletonValue(t, old, InterfaceEntryFirstHit));
+
+    storeStoreMemoryBarrier();
+
+    setField(t,
+             site,
+             SingletonBody + (InterfaceSiteEntry * BytesPerWord),
+             entry);
+  } else {
+    table = makeSingletonOfSize(t, InterfaceTableSize);
+    for (unsigned i = 0; i < InterfaceTableSize; ++i) {
+      singletonMarkObject(t, table, i);
+    }
+
+    GcSingleton* entry = makeInterfaceEntry(t, class_, address, 0, 0);
+    singletonObject(t, table, interfaceTableIndex(t, class_)) = entry;
+
+    storeStoreMemoryBarrier();
+
+    setField(t,
+             site,
+             SingletonBody + (InterfaceSiteTable * BytesPerWord),
+             table);
+  }
+
+  return address;
+}
+
 uint64_t invokeNativeFast(MyThread* t, GcMethod* method, void* function)
 {
   FastNativeFunction f;
@@ -8317,6 +9282,7 @@ class MyProcessor : public Processor {
    public:
     Thunk default_;
     Thunk defaultVirtual;
+    Thunk defaultInterface;
     Thunk native;
     Thunk aioob;
     Thunk stackOverflow;
@@ -8347,6 +9313,8 @@ class MyProcessor : public Processor {
   {
     thunkTable[compileMethodIndex] = voidPointer(local::compileMethod);
     thunkTable[compileVirtualMethodIndex] = voidPointer(compileVirtualMethod);
+    thunkTable[dispatchInterfaceMethodIndex]
+        = voidPointer(dispatchInterfaceMethod);
     thunkTable[invokeNativeIndex] = voidPointer(invokeNative);
     thunkTable[throwArrayIndexOutOfBoundsIndex]
         = voidPointer(throwArrayIndexOutOfBounds);
@@ -9240,15 +10208,16 @@ bool isThunkUnsafeStack(MyProcessor::Thunk* thunk, void* ip)
 
 bool isThunkUnsafeStack(MyProcessor::ThunkCollection* thunks, void* ip)
 {
-  const unsigned NamedThunkCount = 5;
+  const unsigned NamedThunkCount = 6;
 
   MyProcessor::Thunk table[NamedThunkCount + ThunkCount];
 
   table[0] = thunks->default_;
   table[1] = thunks->defaultVirtual;
-  table[2] = thunks->native;
-  table[3] = thunks->aioob;
-  table[4] = thunks->stackOverflow;
+  table[2] = thunks->defaultInterface;
+  table[3] = thunks->native;
+  table[4] = thunks->aioob;
+  table[5] = thunks->stackOverflow;
 
   for (unsigned i = 0; i < ThunkCount; ++i) {
     new (table + NamedThunkCount + i)
@@ -9600,6 +10569,8 @@ void findThunks(MyThread* t, BootImage* image, uint8_t* code)
   p->bootThunks.default_ = thunkToThunk(image->thunks.default_, code);
   p->bootThunks.defaultVirtual
       = thunkToThunk(image->thunks.defaultVirtual, code);
+  p->bootThunks.defaultInterface
+      = thunkToThunk(image->thunks.defaultInterface, code);
   p->bootThunks.native = thunkToThunk(image->thunks.native, code);
   p->bootThunks.aioob = thunkToThunk(image->thunks.aioob, code);
   p->bootThunks.stackOverflow = thunkToThunk(image->thunks.stackOverflow, code);
@@ -9890,6 +10861,57 @@ void compileThunks(MyThread* t, FixedAllocator* allocator)
         t, allocator, a, "defaultVirtual", p->thunks.defaultVirtual.length);
   }
 
+  {
+    Context context(t);
+    avian::codegen::Assembler* a = context.assembler;
+
+    // like defaultVirtual, except that the call site has already
+    // stored its inline cache in MyThread::virtualCallIndex
+    lir::RegisterPair class_(t->arch->virtualCallTarget());
+    lir::Memory virtualCallTargetSrc(
+        t->arch->stack(),
+        (t->arch->frameFooterSize() + t->arch->frameReturnAddressSize())
+        * TargetBytesPerWord);
+
+    a->apply(lir::Move,
+             OperandInfo(
+                 TargetBytesPerWord, lir::Operand::Type::Memory, &virtualCallTargetSrc),
+             OperandInfo(TargetBytesPerWord, lir::Operand::Type::RegisterPair, &class_));
+
+    lir::Memory virtualCallTargetDst(t->arch->thread(),
+                                     TARGET_THREAD_VIRTUALCALLTARGET);
+
+    a->apply(
+        lir::Move,
+        OperandInfo(TargetBytesPerWord, lir::Operand::Type::RegisterPair, &class_),
+        OperandInfo(
+            TargetBytesPerWord, lir::Operand::Type::Memory, &virtualCallTargetDst));
+
+    a->saveFrame(TARGET_THREAD_STACK, TARGET_THREAD_IP);
+
+    p->thunks.defaultInterface.frameSavedOffset = a->length();
+
+    lir::RegisterPair thread(t->arch->thread());
+    a->pushFrame(1, TargetBytesPerWord, lir::Operand::Type::RegisterPair, &thread);
+
+    compileCall(t, &context, dispatchInterfaceMethodIndex);
+
+    a->popFrame(t->arch->alignFrameSize(1));
+
+    lir::RegisterPair result(t->arch->returnLow());
+    a->apply(lir::Jump,
+             OperandInfo(TargetBytesPerWord, lir::Operand::Type::RegisterPair, &result));
+
+    p->thunks.defaultInterface.length = a->endBlock(false)->resolve(0, 0);
+
+    p->thunks.defaultInterface.start
+        = finish(t,
+                 allocator,
+                 a,
+                 "defaultInterface",
+                 p->thunks.defaultInterface.length);
+  }
+
   {
     Context context(t);
     avian::codegen::Assembler* a = context.assembler;
@@ -10001,6 +11023,8 @@ void compileThunks(MyThread* t, FixedAllocator* allocator)
     image->thunks.default_ = thunkToThunk(p->thunks.default_, imageBase);
     image->thunks.defaultVirtual
         = thunkToThunk(p->thunks.defaultVirtual, imageBase);
+    image->thunks.defaultInterface
+        = thunkToThunk(p->thunks.defaultInterface, imageBase);
     image->thunks.native = thunkToThunk(p->thunks.native, imageBase);
     image->thunks.aioob = thunkToThunk(p->thunks.aioob, imageBase);
     image->thunks.stackOverflow
@@ -10040,6 +11064,12 @@ uintptr_t defaultVirtualThunk(MyThread* t)
   return reinterpret_cast<uintptr_t>(processor(t)->thunks.defaultVirtual.start);
 }
 
+uintptr_t defaultInterfaceThunk(MyThread* t)
+{
+  return reinterpret_cast<uintptr_t>(
+      processor(t)->thunks.defaultInterface.start);
+}
+
 uintptr_t nativeThunk(MyThread* t)
 {
   return reinterpret_cast<uintptr_t>(processor(t)->thunks.native.start);
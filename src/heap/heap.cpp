@@ -22,11 +22,48 @@ namespace {
 
 namespace local {
 
-const unsigned Top = ~static_cast<unsigned>(0);
+const uintptr_t Top = ~static_cast<uintptr_t>(0);
 
 const unsigned InitialGen2CapacityInBytes = 4 * 1024 * 1024;
 const unsigned InitialTenuredFixieCeilingInBytes = 4 * 1024 * 1024;
 
+// parallel collection (see parallelCollect below) uses at most this
+// many threads, each of which copies objects into local allocation
+// buffers of LabSizeInWords words; objects larger than
+// MaxLabAllocationInWords bypass the buffers, which limits the space
+// wasted at the end of each buffer to an eighth of it:
+const unsigned MaxCollectorThreads = 32;
+const unsigned LabSizeInWords = 1024;
+const unsigned MaxLabAllocationInWords = LabSizeInWords / 8;
+
+// the helper threads are only woken once the collecting thread has
+// found at least this many objects left to visit:
+const unsigned ParallelThreshold = 128;
+
+// number of locks used to decide which thread gets to copy an object:
+const unsigned ClaimLockCount = 4096;
+
+const unsigned SpinsBeforeYield = 64;
+
+// word-sized variants of the helpers in avian/util/math.h, since on
+// 64-bit systems heap sizes and segment capacities may not fit in an
+// unsigned:
+
+inline uintptr_t max(uintptr_t a, uintptr_t b)
+{
+  return (a > b ? a : b);
+}
+
+inline uintptr_t avg(uintptr_t a, uintptr_t b)
+{
+  return (a + b) / 2;
+}
+
+inline uintptr_t ceilingDivide(uintptr_t n, uintptr_t d)
+{
+  return (n + d - 1) / d;
+}
+
 const bool Verbose = false;
 const bool Verbose2 = false;
 const bool Debug = false;
@@ -66,7 +103,7 @@ void* allocate(Context* c, size_t size, bool limit);
 void free(Context* c, const void* p, size_t size);
 
 #ifdef USE_ATOMIC_OPERATIONS
-inline void markBitAtomic(uintptr_t* map, unsigned i)
+inline void markBitAtomic(uintptr_t* map, uintptr_t i)
 {
   uintptr_t* p = map + wordOf(i);
   uintptr_t v = static_cast<uintptr_t>(1) << bitOf(i);
@@ -74,6 +111,39 @@ inline void markBitAtomic(uintptr_t* map, unsigned i)
        old = *p) {
   }
 }
+
+inline void acquireSpinLock(System* s, uintptr_t* lock)
+{
+  for (unsigned i = 1; not atomicCompareAndSwap(lock, 0, 1); ++i) {
+    if (i % SpinsBeforeYield == 0) {
+      s->yield();
+    }
+  }
+}
+
+inline void releaseSpinLock(uintptr_t* lock)
+{
+  storeStoreMemoryBarrier();
+  *static_cast<volatile uintptr_t*>(lock) = 0;
+}
+
+#define SPIN_ACQUIRE(s, x) SpinLock MAKE_NAME(spinLock_)(s, x)
+
+class SpinLock {
+ public:
+  SpinLock(System* s, uintptr_t* lock) : lock(lock)
+  {
+    acquireSpinLock(s, lock);
+  }
+
+  ~SpinLock()
+  {
+    releaseSpinLock(lock);
+  }
+
+ private:
+  uintptr_t* lock;
+};
 #endif  // USE_ATOMIC_OPERATIONS
 
 inline void* get(void* o, unsigned offsetInWords)
@@ -106,10 +176,10 @@ class Segment {
     class Iterator {
      public:
       Map* map;
-      unsigned index;
-      unsigned limit;
+      uintptr_t index;
+      uintptr_t limit;
 
-      Iterator(Map* map, unsigned start, unsigned end) : map(map)
+      Iterator(Map* map, uintptr_t start, uintptr_t end) : map(map)
       {
         assertT(map->segment->context, map->bitsPerRecord == 1);
         assertT(map->segment->context, map->segment);
@@ -127,9 +197,9 @@ class Segment {
 
       bool hasMore()
       {
-        unsigned word = wordOf(index);
+        uintptr_t word = wordOf(index);
         unsigned bit = bitOf(index);
-        unsigned wordLimit = wordOf(limit);
+        uintptr_t wordLimit = wordOf(limit);
         unsigned bitLimit = bitOf(limit);
 
         for (; word <= wordLimit and (word < wordLimit or bit < bitLimit);
@@ -156,7 +226,7 @@ class Segment {
         return false;
       }
 
-      unsigned next()
+      uintptr_t next()
       {
         assertT(map->segment->context, hasMore());
         assertT(map->segment->context, map->segment);
@@ -221,38 +291,38 @@ class Segment {
       }
     }
 
-    unsigned calculateOffset(unsigned capacity)
+    uintptr_t calculateOffset(uintptr_t capacity)
     {
-      unsigned n = 0;
+      uintptr_t n = 0;
       if (child)
         n += child->calculateFootprint(capacity);
       return n;
     }
 
-    static unsigned calculateSize(Context* c UNUSED,
-                                  unsigned capacity,
-                                  unsigned scale,
-                                  unsigned bitsPerRecord)
+    static uintptr_t calculateSize(Context* c UNUSED,
+                                   uintptr_t capacity,
+                                   unsigned scale,
+                                   unsigned bitsPerRecord)
     {
-      unsigned result = ceilingDivide(
+      uintptr_t result = ceilingDivide(
           ceilingDivide(capacity, scale) * bitsPerRecord, BitsPerWord);
       assertT(c, result);
       return result;
     }
 
-    unsigned calculateSize(unsigned capacity)
+    uintptr_t calculateSize(uintptr_t capacity)
     {
       return calculateSize(segment->context, capacity, scale, bitsPerRecord);
     }
 
-    unsigned size()
+    uintptr_t size()
     {
       return calculateSize(segment->capacity());
     }
 
-    unsigned calculateFootprint(unsigned capacity)
+    uintptr_t calculateFootprint(uintptr_t capacity)
     {
-      unsigned n = calculateSize(capacity);
+      uintptr_t n = calculateSize(capacity);
       if (child)
         n += child->calculateFootprint(capacity);
       return n;
@@ -272,38 +342,38 @@ class Segment {
         child->replaceWith(m->child);
     }
 
-    unsigned indexOf(unsigned segmentIndex)
+    uintptr_t indexOf(uintptr_t segmentIndex)
     {
       return (segmentIndex / scale) * bitsPerRecord;
     }
 
-    unsigned indexOf(void* p)
+    uintptr_t indexOf(void* p)
     {
       assertT(segment->context, segment->almostContains(p));
       assertT(segment->context, segment->capacity());
       return indexOf(segment->indexOf(p));
     }
 
-    void clearBit(unsigned i)
+    void clearBit(uintptr_t i)
     {
       assertT(segment->context, wordOf(i) < size());
 
       vm::clearBit(data, i);
     }
 
-    void setBit(unsigned i)
+    void setBit(uintptr_t i)
     {
       assertT(segment->context, wordOf(i) < size());
 
       vm::markBit(data, i);
     }
 
-    void clearOnlyIndex(unsigned index)
+    void clearOnlyIndex(uintptr_t index)
     {
       clearBits(data, bitsPerRecord, index);
     }
 
-    void clearOnly(unsigned segmentIndex)
+    void clearOnly(uintptr_t segmentIndex)
     {
       clearOnlyIndex(indexOf(segmentIndex));
     }
@@ -320,12 +390,12 @@ class Segment {
         child->clear(p);
     }
 
-    void setOnlyIndex(unsigned index, unsigned v = 1)
+    void setOnlyIndex(uintptr_t index, unsigned v = 1)
     {
       setBits(data, bitsPerRecord, index, v);
     }
 
-    void setOnly(unsigned segmentIndex, unsigned v = 1)
+    void setOnly(uintptr_t segmentIndex, unsigned v = 1)
     {
       setOnlyIndex(indexOf(segmentIndex), v);
     }
@@ -352,6 +422,31 @@ class Segment {
       if (child)
         child->markAtomic(p);
     }
+
+    void setOnlyAtomic(void* p, unsigned v)
+    {
+      uintptr_t index = indexOf(p);
+      assertT(segment->context, bitOf(index) + bitsPerRecord <= BitsPerWord);
+
+      // setBits stores the most significant bit of the record at the
+      // lowest index:
+      unsigned shift = bitOf(index);
+      uintptr_t mask = ((static_cast<uintptr_t>(1) << bitsPerRecord) - 1)
+                       << shift;
+      uintptr_t bits = 0;
+      for (unsigned i = 0; i < bitsPerRecord; ++i) {
+        if (v & (1 << (bitsPerRecord - 1 - i))) {
+          bits |= static_cast<uintptr_t>(1) << (shift + i);
+        }
+      }
+
+      uintptr_t* word = data + wordOf(index);
+      for (uintptr_t old = *word;
+           not atomicCompareAndSwap(word, old, (old & ~mask) | bits);
+           old = *word) {
+      }
+      assertT(segment->context, get(p) == v);
+    }
 #endif
 
     unsigned get(void* p)
@@ -362,14 +457,14 @@ class Segment {
 
   Context* context;
   uintptr_t* data;
-  unsigned position_;
-  unsigned capacity_;
+  uintptr_t position_;
+  uintptr_t capacity_;
   Map* map;
 
   Segment(Context* context,
           Map* map,
-          unsigned desired,
-          unsigned minimum,
+          uintptr_t desired,
+          uintptr_t minimum,
           int64_t available = INT64_MAX)
       : context(context), data(0), position_(0), capacity_(0), map(map)
   {
@@ -383,9 +478,9 @@ class Segment {
       capacity_ = desired;
 
       if (static_cast<int64_t>(footprint(capacity_)) > available) {
-        unsigned top = capacity_;
-        unsigned bottom = minimum;
-        unsigned target = available;
+        uintptr_t top = capacity_;
+        uintptr_t bottom = minimum;
+        int64_t target = available;
         while (true) {
           if (static_cast<int64_t>(footprint(capacity_)) > target) {
             if (bottom == capacity_) {
@@ -436,8 +531,8 @@ class Segment {
   Segment(Context* context,
           Map* map,
           uintptr_t* data,
-          unsigned position,
-          unsigned capacity)
+          uintptr_t position,
+          uintptr_t capacity)
       : context(context),
         data(data),
         position_(position),
@@ -449,23 +544,23 @@ class Segment {
     }
   }
 
-  unsigned footprint(unsigned capacity)
+  uintptr_t footprint(uintptr_t capacity)
   {
     return capacity
            + (map and capacity ? map->calculateFootprint(capacity) : 0);
   }
 
-  unsigned capacity()
+  uintptr_t capacity()
   {
     return capacity_;
   }
 
-  unsigned position()
+  uintptr_t position()
   {
     return position_;
   }
 
-  unsigned remaining()
+  uintptr_t remaining()
   {
     return capacity() - position();
   }
@@ -506,19 +601,19 @@ class Segment {
     return contains(p) or p == data + position();
   }
 
-  void* get(unsigned offset)
+  void* get(uintptr_t offset)
   {
     assertT(context, offset <= position());
     return data + offset;
   }
 
-  unsigned indexOf(void* p)
+  uintptr_t indexOf(void* p)
   {
     assertT(context, almostContains(p));
     return static_cast<uintptr_t*>(p) - data;
   }
 
-  void* allocate(unsigned size)
+  void* allocate(uintptr_t size)
   {
     assertT(context, size);
     assertT(context, position() + size <= capacity());
@@ -528,6 +623,22 @@ class Segment {
     return p;
   }
 
+#ifdef USE_ATOMIC_OPERATIONS
+  void* tryAllocateAtomic(uintptr_t size)
+  {
+    assertT(context, size);
+
+    while (true) {
+      uintptr_t position = position_;
+      if (position + size > capacity()) {
+        return 0;
+      } else if (atomicCompareAndSwap(&position_, position, position + size)) {
+        return data + position;
+      }
+    }
+  }
+#endif
+
   void dispose()
   {
     if (data) {
@@ -555,7 +666,7 @@ class Fixie {
     memset(mask(), 0, maskSize(size, hasMask));
     add(c, handle);
     if (DebugFixies) {
-      fprintf(stderr, "make fixie %p of size %d\n", this, totalSize());
+      fprintf(stderr, "make fixie %p of size %" LD "\n", this, totalSize());
     }
   }
 
@@ -613,17 +724,17 @@ class Fixie {
     return body_ + size;
   }
 
-  static unsigned maskSize(unsigned size, bool hasMask)
+  static uintptr_t maskSize(uintptr_t size, bool hasMask)
   {
     return hasMask * ceilingDivide(size, BitsPerWord) * BytesPerWord;
   }
 
-  static unsigned totalSize(unsigned size, bool hasMask)
+  static uintptr_t totalSize(uintptr_t size, bool hasMask)
   {
     return sizeof(Fixie) + (size * BytesPerWord) + maskSize(size, hasMask);
   }
 
-  unsigned totalSize()
+  uintptr_t totalSize()
   {
     return totalSize(size, hasMask());
   }
@@ -693,13 +804,22 @@ Fixie* fixie(void* body)
 
 void free(Context* c, Fixie** fixies, bool resetImmortal = false);
 
+class Worker;
+
+void disposeWorkers(Context* c);
+
 class Context {
  public:
-  Context(System* system, unsigned limit)
+  Context(System* system,
+          uintptr_t limit,
+          unsigned collectorThreads,
+          bool verbose)
       : system(system),
         client(0),
         count(0),
         limit(limit),
+        collectorThreads(collectorThreads),
+        verbose(verbose),
         lock(0),
         immortalHeapStart(0),
         immortalHeapEnd(0),
@@ -743,15 +863,29 @@ class Context {
         lastCollectionTime(system->now()),
         totalCollectionTime(0),
         totalTime(0),
-        limitWasExceeded(false)
+        limitWasExceeded(false),
+        parallel(false),
+        workers(0),
+        helperCount(0),
+        helperMonitor(0),
+        fixieLock(0),
+        terminationLock(0),
+        phase(0),
+        idleWorkers(0),
+        phaseDone(false),
+        runningHelpers(0),
+        exitHelpers(false)
   {
     if (not system->success(system->make(&lock))) {
       system->abort();
     }
+
+    memset(claimLocks, 0, sizeof(claimLocks));
   }
 
   void dispose()
   {
+    disposeWorkers(this);
     gen1.dispose();
     nextGen1.dispose();
     gen2.dispose();
@@ -769,8 +903,11 @@ class Context {
   System* system;
   Heap::Client* client;
 
-  unsigned count;
-  unsigned limit;
+  uintptr_t count;
+  uintptr_t limit;
+
+  unsigned collectorThreads;
+  bool verbose;
 
   System::Mutex* lock;
 
@@ -793,19 +930,19 @@ class Context {
   Segment::Map nextHeapMap;
   Segment nextGen2;
 
-  unsigned gen2Base;
+  uintptr_t gen2Base;
 
-  unsigned incomingFootprint;
-  int pendingAllocation;
-  unsigned tenureFootprint;
-  unsigned gen1Padding;
-  unsigned tenurePadding;
-  unsigned gen2Padding;
+  uintptr_t incomingFootprint;
+  int64_t pendingAllocation;
+  uintptr_t tenureFootprint;
+  uintptr_t gen1Padding;
+  uintptr_t tenurePadding;
+  uintptr_t gen2Padding;
 
-  unsigned fixieTenureFootprint;
-  unsigned untenuredFixieFootprint;
-  unsigned tenuredFixieFootprint;
-  unsigned tenuredFixieCeiling;
+  uintptr_t fixieTenureFootprint;
+  uintptr_t untenuredFixieFootprint;
+  uintptr_t tenuredFixieFootprint;
+  uintptr_t tenuredFixieCeiling;
 
   Heap::CollectionType mode;
 
@@ -820,6 +957,20 @@ class Context {
   int64_t totalTime;
 
   bool limitWasExceeded;
+
+  // parallel collection state; see parallelCollect below:
+  bool parallel;
+  Worker* workers;
+  unsigned helperCount;
+  System::Monitor* helperMonitor;
+  uintptr_t claimLocks[ClaimLockCount];
+  uintptr_t fixieLock;
+  uintptr_t terminationLock;
+  volatile unsigned phase;
+  volatile unsigned idleWorkers;
+  volatile bool phaseDone;
+  volatile uintptr_t runningHelpers;
+  volatile bool exitHelpers;
 };
 
 const char* segment(Context* c, void* p)
@@ -842,13 +993,31 @@ inline Aborter* getAborter(Context* c)
   return c->system;
 }
 
-inline unsigned minimumNextGen1Capacity(Context* c)
+// when copying in parallel, each allocation buffer may waste up to
+// MaxLabAllocationInWords of every LabSizeInWords at its end, and each
+// thread may leave the last one it used mostly empty:
+inline uintptr_t parallelSlack(Context* c, uintptr_t size)
+{
+  if (c->collectorThreads > 1) {
+    return (size / 7) + (c->collectorThreads * LabSizeInWords);
+  } else {
+    return 0;
+  }
+}
+
+inline uintptr_t minimumTenureCapacity(Context* c)
+{
+  uintptr_t size = c->tenureFootprint + c->tenurePadding;
+  return size + parallelSlack(c, size);
+}
+
+inline uintptr_t minimumNextGen1Capacity(Context* c)
 {
   return c->gen1.position() - c->tenureFootprint + c->incomingFootprint
          + c->gen1Padding;
 }
 
-inline unsigned minimumNextGen2Capacity(Context* c)
+inline uintptr_t minimumNextGen2Capacity(Context* c)
 {
   return c->gen2.position() + c->tenureFootprint + c->tenurePadding
          + c->gen2Padding;
@@ -865,14 +1034,15 @@ inline void initNextGen1(Context* c)
   new (&(c->nextAgeMap))
       Segment::Map(&(c->nextGen1), max(1, log(TenureThreshold)), 1, 0, false);
 
-  unsigned minimum = minimumNextGen1Capacity(c);
-  unsigned desired = minimum;
+  uintptr_t minimum = minimumNextGen1Capacity(c);
+  minimum += parallelSlack(c, minimum);
+  uintptr_t desired = minimum;
 
   new (&(c->nextGen1)) Segment(c, &(c->nextAgeMap), desired, minimum);
 
   if (Verbose2) {
     fprintf(stderr,
-            "init nextGen1 to %d bytes\n",
+            "init nextGen1 to %" LD " bytes\n",
             c->nextGen1.capacity() * BytesPerWord);
   }
 }
@@ -890,8 +1060,9 @@ inline void initNextGen2(Context* c)
   new (&(c->nextHeapMap)) Segment::Map(
       &(c->nextGen2), 1, c->pageMap.scale * 1024, &(c->nextPageMap), true);
 
-  unsigned minimum = minimumNextGen2Capacity(c);
-  unsigned desired = minimum;
+  uintptr_t minimum = minimumNextGen2Capacity(c);
+  minimum += parallelSlack(c, minimum);
+  uintptr_t desired = minimum;
 
   if (not oversizedGen2(c)) {
     desired *= 2;
@@ -913,7 +1084,7 @@ inline void initNextGen2(Context* c)
 
   if (Verbose2) {
     fprintf(stderr,
-            "init nextGen2 to %d bytes\n",
+            "init nextGen2 to %" LD " bytes\n",
             c->nextGen2.capacity() * BytesPerWord);
   }
 }
@@ -1050,7 +1221,7 @@ void sweepFixies(Context* c)
       = max(c->tenuredFixieFootprint * 2, InitialTenuredFixieCeilingInBytes);
 }
 
-inline void* copyTo(Context* c, Segment* s, void* o, unsigned size)
+inline void* copyTo(Context* c, Segment* s, void* o, uintptr_t size)
 {
   assertT(c, s->remaining() >= size);
   void* dst = s->allocate(size);
@@ -1194,7 +1365,8 @@ void updateHeapMap(Context* c,
                    void* p,
                    void* target,
                    unsigned offset,
-                   void* result)
+                   void* result,
+                   bool atomic UNUSED = false)
 {
   Segment* seg;
   Segment::Map* map;
@@ -1238,6 +1410,13 @@ void updateHeapMap(Context* c,
                 segment(c, p));
       }
 
+#ifdef USE_ATOMIC_OPERATIONS
+      if (atomic) {
+        map->markAtomic(p);
+        return;
+      }
+#endif
+
       map->set(p);
     }
   }
@@ -1263,6 +1442,579 @@ void* update(Context* c,
   return result;
 }
 
+#ifdef USE_ATOMIC_OPERATIONS
+
+// The collector above visits the heap depth first by reversing
+// pointers through the originals of the objects it copies, which
+// leaves nothing to split among threads.  When more than one
+// collector thread is configured, we instead keep a stack of copied
+// (or marked fixed) objects whose fields have yet to be visited for
+// each thread.  A thread with objects to spare shares half of them
+// when another runs out, and a thread which runs out takes half of
+// what another has shared.  Each object is copied exactly once by
+// claiming it under one of c->claimLocks, chosen by its address, and
+// each thread copies into its own allocation buffers so that most
+// copies need no synchronization at all.
+//
+// The roots, dirty cards, and dirty fixies are still found by the
+// thread which requested the collection.  It updates each reference
+// as it goes, visiting the referenced objects itself until it has
+// more than ParallelThreshold of them left, at which point it wakes
+// the helper threads and works with them until everything reachable
+// has been visited.
+
+class GrayStack {
+ public:
+  GrayStack() : data(0), size(0), capacity(0)
+  {
+  }
+
+  void push(Context* c, void* p)
+  {
+    if (size == capacity) {
+      grow(c, size + 1);
+    }
+    data[size++] = p;
+  }
+
+  void* pop()
+  {
+    return data[--size];
+  }
+
+  // may be called without holding the lock which protects the stack,
+  // in which case the result is only a hint:
+  uintptr_t available()
+  {
+    return *static_cast<volatile uintptr_t*>(&size);
+  }
+
+  void grow(Context* c, uintptr_t minimum)
+  {
+    uintptr_t newCapacity = max(max(capacity * 2, minimum), 256);
+    void** newData
+        = static_cast<void**>(allocate(c, newCapacity * BytesPerWord));
+
+    if (data) {
+      memcpy(newData, data, size * BytesPerWord);
+      free(c, data, capacity * BytesPerWord);
+    }
+
+    data = newData;
+    capacity = newCapacity;
+  }
+
+  void dispose(Context* c)
+  {
+    if (data) {
+      free(c, data, capacity * BytesPerWord);
+    }
+    data = 0;
+    size = 0;
+    capacity = 0;
+  }
+
+  void** data;
+  uintptr_t size;
+  uintptr_t capacity;
+};
+
+class Lab {
+ public:
+  Lab() : segment(0), next(0), limit(0)
+  {
+  }
+
+  Segment* segment;
+  uintptr_t* next;
+  uintptr_t* limit;
+};
+
+class Worker : public System::Runnable {
+ public:
+  Worker(Context* c)
+      : c(c), thread(0), sharedLock(0), tenureFootprint(0), interrupted_(false)
+  {
+  }
+
+  virtual void attach(System::Thread* t)
+  {
+    thread = t;
+  }
+
+  virtual void run();
+
+  virtual bool interrupted()
+  {
+    return interrupted_;
+  }
+
+  virtual void setInterrupted(bool v)
+  {
+    interrupted_ = v;
+  }
+
+  Context* c;
+  System::Thread* thread;
+  GrayStack stack;
+  GrayStack shared;
+  uintptr_t sharedLock;
+  Lab gen1Lab;
+  Lab gen2Lab;
+  uintptr_t tenureFootprint;
+  bool interrupted_;
+};
+
+void* allocateCopy(Context* c, Lab* lab, Segment* s, uintptr_t size)
+{
+  if (lab->segment == s and lab->next + size <= lab->limit) {
+    void* p = lab->next;
+    lab->next += size;
+    return p;
+  }
+
+  if (size <= MaxLabAllocationInWords) {
+    uintptr_t* p
+        = static_cast<uintptr_t*>(s->tryAllocateAtomic(LabSizeInWords));
+    if (p) {
+      lab->segment = s;
+      lab->next = p + size;
+      lab->limit = p + LabSizeInWords;
+      return p;
+    }
+  }
+
+  void* p = s->tryAllocateAtomic(size);
+  expect(c->system, p);
+  return p;
+}
+
+void* parallelCopy2(Worker* w, void* o, uintptr_t size)
+{
+  Context* c = w->c;
+
+  if (c->gen2.contains(o)) {
+    assertT(c, c->mode == Heap::MajorCollection);
+
+    return allocateCopy(c, &(w->gen2Lab), &(c->nextGen2), size);
+  } else if (c->gen1.contains(o)) {
+    unsigned age = c->ageMap.get(o);
+    if (age == TenureThreshold) {
+      if (c->mode == Heap::MinorCollection) {
+        return allocateCopy(c, &(w->gen2Lab), &(c->gen2), size);
+      } else {
+        return allocateCopy(c, &(w->gen2Lab), &(c->nextGen2), size);
+      }
+    } else {
+      void* r = allocateCopy(c, &(w->gen1Lab), &(c->nextGen1), size);
+
+      c->nextAgeMap.setOnlyAtomic(r, age + 1);
+      if (age + 1 == TenureThreshold) {
+        w->tenureFootprint += size;
+      }
+
+      return r;
+    }
+  } else {
+    assertT(c, not c->nextGen1.contains(o));
+    assertT(c, not c->nextGen2.contains(o));
+    assertT(c, not immortalHeapContains(c, o));
+
+    void* r = allocateCopy(c, &(w->gen1Lab), &(c->nextGen1), size);
+
+    c->nextAgeMap.setOnlyAtomic(r, 0);
+
+    return r;
+  }
+}
+
+void* parallelCopy(Worker* w, void* o)
+{
+  Context* c = w->c;
+  void* r;
+
+  {
+    uintptr_t index = reinterpret_cast<uintptr_t>(o) / BytesPerWord;
+    SPIN_ACQUIRE(c->system, c->claimLocks + (index % ClaimLockCount));
+
+    if (wasCollected(c, o)) {
+      // another thread got here first
+      return follow(c, o);
+    }
+
+    r = parallelCopy2(w, o, c->client->copiedSizeInWords(o));
+    c->client->copy(o, r);
+
+    // other threads may follow the pointer below without taking the
+    // lock, so the copy must be complete before it is visible:
+    storeStoreMemoryBarrier();
+
+    fieldAtOffset<void*>(o, 0) = r;
+  }
+
+  w->stack.push(c, r);
+
+  return r;
+}
+
+void* parallelUpdate3(Worker* w, void* o)
+{
+  Context* c = w->c;
+
+  if (c->client->isFixed(o)) {
+    Fixie* f = fixie(o);
+    if ((not f->marked()) and (c->mode == Heap::MajorCollection
+                               or f->age < FixieTenureThreshold)) {
+      bool marked = false;
+
+      {
+        SPIN_ACQUIRE(c->system, &(c->fixieLock));
+
+        if (not f->marked()) {
+          f->marked(true);
+          f->dead(false);
+          f->move(c, &(c->visitedFixies));
+          marked = true;
+        }
+      }
+
+      if (marked) {
+        w->stack.push(c, f->body());
+      }
+    }
+    return o;
+  } else if (immortalHeapContains(c, o)) {
+    return o;
+  } else if (wasCollected(c, o)) {
+    return follow(c, o);
+  } else {
+    return parallelCopy(w, o);
+  }
+}
+
+void* parallelUpdate(Worker* w, void** p, void* target, unsigned offset)
+{
+  Context* c = w->c;
+
+  void* o = maskAlignedPointer(*p);
+  if (o == 0) {
+    return 0;
+  }
+
+  void* result;
+  if (c->mode == Heap::MinorCollection and c->gen2.contains(o)) {
+    result = o;
+  } else {
+    result = parallelUpdate3(w, o);
+  }
+
+  updateHeapMap(c, p, target, offset, result, true);
+
+  return result;
+}
+
+void scan(Worker* w, void* o)
+{
+  class Walker : public Heap::Walker {
+   public:
+    Walker(Worker* w, void* o) : w(w), o(o)
+    {
+    }
+
+    virtual bool visit(unsigned offset)
+    {
+      void** p = getp(o, offset);
+      void* r = parallelUpdate(w, p, o, offset);
+      if (r) {
+        set(p, r);
+      }
+      return true;
+    }
+
+    Worker* w;
+    void* o;
+  } walker(w, o);
+
+  w->c->client->walk(o, &walker);
+}
+
+// moves the top count entries of one stack to another
+void transfer(Context* c, GrayStack* from, GrayStack* to, uintptr_t count)
+{
+  if (to->size + count > to->capacity) {
+    to->grow(c, to->size + count);
+  }
+
+  memcpy(to->data + to->size,
+         from->data + from->size - count,
+         count * BytesPerWord);
+
+  from->size -= count;
+  to->size += count;
+}
+
+void share(Worker* w)
+{
+  Context* c = w->c;
+
+  if (w->stack.size > 1 and w->shared.available() == 0) {
+    SPIN_ACQUIRE(c->system, &(w->sharedLock));
+
+    transfer(c, &(w->stack), &(w->shared), w->stack.size / 2);
+  }
+}
+
+bool steal(Worker* w)
+{
+  Context* c = w->c;
+  unsigned index = w - c->workers;
+
+  // look at our own shared entries first, in case nobody took them
+  for (unsigned i = 0; i < c->collectorThreads; ++i) {
+    Worker* victim = c->workers + ((index + i) % c->collectorThreads);
+    if (victim->shared.available()) {
+      SPIN_ACQUIRE(c->system, &(victim->sharedLock));
+
+      uintptr_t size = victim->shared.size;
+      if (size) {
+        transfer(c, &(victim->shared), &(w->stack), (size + 1) / 2);
+        return true;
+      }
+    }
+  }
+
+  return false;
+}
+
+bool anyShared(Context* c)
+{
+  for (unsigned i = 0; i < c->collectorThreads; ++i) {
+    if (c->workers[i].shared.available()) {
+      return true;
+    }
+  }
+  return false;
+}
+
+void becomeIdle(Context* c)
+{
+  SPIN_ACQUIRE(c->system, &(c->terminationLock));
+
+  // a thread only becomes idle after failing to find anything shared,
+  // and only a busy thread shares, so once every thread is idle there
+  // can be nothing left to do:
+  if (++c->idleWorkers == c->collectorThreads and not anyShared(c)) {
+    c->phaseDone = true;
+  }
+}
+
+// returns false once every thread has run out of objects to visit
+bool findWork(Worker* w)
+{
+  Context* c = w->c;
+
+  if (steal(w)) {
+    return true;
+  }
+
+  becomeIdle(c);
+
+  for (unsigned i = 1; not c->phaseDone; ++i) {
+    if (anyShared(c)) {
+      {
+        SPIN_ACQUIRE(c->system, &(c->terminationLock));
+
+        if (c->phaseDone) {
+          return false;
+        }
+
+        --c->idleWorkers;
+      }
+
+      if (steal(w)) {
+        return true;
+      }
+
+      becomeIdle(c);
+    } else if (i % SpinsBeforeYield == 0) {
+      c->system->yield();
+    }
+  }
+
+  return false;
+}
+
+void trace(Worker* w)
+{
+  Context* c = w->c;
+
+  do {
+    while (w->stack.size) {
+      scan(w, w->stack.pop());
+
+      if (c->idleWorkers) {
+        share(w);
+      }
+    }
+  } while (findWork(w));
+}
+
+void Worker::run()
+{
+  unsigned phase = 0;
+
+  while (true) {
+    {
+      ACQUIRE_MONITOR(thread, c->helperMonitor);
+
+      while (c->phase == phase and not c->exitHelpers) {
+        c->helperMonitor->waitAndClearInterrupted(thread, 0);
+      }
+    }
+
+    if (c->exitHelpers) {
+      return;
+    }
+
+    phase = c->phase;
+
+    trace(this);
+
+    uintptr_t* running = const_cast<uintptr_t*>(&(c->runningHelpers));
+    for (uintptr_t n = *running; not atomicCompareAndSwap(running, n, n - 1);
+         n = *running) {
+    }
+  }
+}
+
+void runPhase(Context* c)
+{
+  c->idleWorkers = 0;
+  c->phaseDone = false;
+  c->runningHelpers = c->collectorThreads - 1;
+
+  storeStoreMemoryBarrier();
+
+  ++c->phase;
+
+  if (c->helperCount == 0) {
+    if (not c->system->success(c->system->make(&(c->helperMonitor)))) {
+      abort(c);
+    }
+
+    for (unsigned i = 1; i < c->collectorThreads; ++i) {
+      expect(c->system, c->system->success(c->system->start(c->workers + i)));
+      ++c->helperCount;
+    }
+  } else {
+    // the helpers wait without a timeout, so interrupting them is
+    // enough to wake them up, and unlike notifying them, it doesn't
+    // require the caller to have a System::Thread of its own
+    for (unsigned i = 1; i < c->collectorThreads; ++i) {
+      c->workers[i].thread->interrupt();
+    }
+  }
+
+  trace(c->workers);
+
+  while (c->runningHelpers) {
+    c->system->yield();
+  }
+}
+
+void parallelDrain(Context* c)
+{
+  Worker* w = c->workers;
+
+  while (w->stack.size) {
+    if (w->stack.size > ParallelThreshold) {
+      runPhase(c);
+      return;
+    }
+
+    scan(w, w->stack.pop());
+  }
+}
+
+void parallelCollect(Context* c, void** p, void* target, unsigned offset)
+{
+  void* r = parallelUpdate(c->workers, p, target, offset);
+  if (r) {
+    set(p, r);
+  }
+}
+
+void startParallelCollection(Context* c)
+{
+  if (c->workers == 0) {
+    c->workers = static_cast<Worker*>(
+        allocate(c, sizeof(Worker) * c->collectorThreads));
+
+    for (unsigned i = 0; i < c->collectorThreads; ++i) {
+      new (c->workers + i) Worker(c);
+    }
+  }
+
+  for (unsigned i = 0; i < c->collectorThreads; ++i) {
+    Worker* w = c->workers + i;
+    w->gen1Lab = Lab();
+    w->gen2Lab = Lab();
+    w->tenureFootprint = 0;
+  }
+
+  c->parallel = true;
+}
+
+void finishParallelCollection(Context* c)
+{
+  c->parallel = false;
+
+  for (unsigned i = 0; i < c->collectorThreads; ++i) {
+    Worker* w = c->workers + i;
+    assertT(c, w->stack.size == 0);
+    assertT(c, w->shared.size == 0);
+
+    c->tenureFootprint += w->tenureFootprint;
+
+    w->stack.dispose(c);
+    w->shared.dispose(c);
+  }
+}
+
+#endif  // USE_ATOMIC_OPERATIONS
+
+void disposeWorkers(Context* c UNUSED)
+{
+#ifdef USE_ATOMIC_OPERATIONS
+  if (c->workers) {
+    if (c->helperCount) {
+      c->exitHelpers = true;
+
+      for (unsigned i = 1; i <= c->helperCount; ++i) {
+        System::Thread* t = c->workers[i].thread;
+        t->interrupt();
+        t->join();
+        t->dispose();
+      }
+
+      c->helperMonitor->dispose();
+    }
+
+    free(c, c->workers, sizeof(Worker) * c->collectorThreads);
+    c->workers = 0;
+  }
+#endif
+}
+
+void drain(Context* c UNUSED)
+{
+#ifdef USE_ATOMIC_OPERATIONS
+  if (c->parallel) {
+    parallelDrain(c);
+  }
+#endif
+}
+
 const uintptr_t BitsetExtensionBit
     = (static_cast<uintptr_t>(1) << (BitsPerWord - 1));
 
@@ -1365,6 +2117,14 @@ unsigned bitsetNext(Context* c, uintptr_t* p)
 
 void collect(Context* c, void** p, void* target, unsigned offset)
 {
+#ifdef USE_ATOMIC_OPERATIONS
+  if (c->parallel) {
+    // copy the object now, but leave its fields for drain to visit
+    parallelCollect(c, p, target, offset);
+    return;
+  }
+#endif
+
   void* original = maskAlignedPointer(*p);
   void* parent_ = 0;
 
@@ -1674,8 +2434,8 @@ void visitMarkedFixies(Context* c)
 
 void collect(Context* c,
              Segment::Map* map,
-             unsigned start,
-             unsigned end,
+             uintptr_t start,
+             uintptr_t end,
              bool* dirty,
              bool expectDirty UNUSED)
 {
@@ -1684,8 +2444,8 @@ void collect(Context* c,
     wasDirty = true;
     if (map->child) {
       assertT(c, map->scale > 1);
-      unsigned s = it.next();
-      unsigned e = s + map->scale;
+      uintptr_t s = it.next();
+      uintptr_t e = s + map->scale;
 
       map->clearOnly(s);
       bool childDirty = false;
@@ -1719,6 +2479,12 @@ void collect(Context* c,
 void collect2(Context* c)
 {
   c->gen2Base = Top;
+  if (c->parallel and c->mode == Heap::MinorCollection) {
+    // there's no telling which thread will promote an object first,
+    // so mark the start of the promoted objects up front
+    c->gen2Base = c->gen2.position();
+  }
+
   c->tenureFootprint = 0;
   c->fixieTenureFootprint = 0;
   c->gen1Padding = 0;
@@ -1729,14 +2495,16 @@ void collect2(Context* c)
   }
 
   if (c->mode == Heap::MinorCollection and c->gen2.position()) {
-    unsigned start = 0;
-    unsigned end = start + c->gen2.position();
+    uintptr_t start = 0;
+    uintptr_t end = start + c->gen2.position();
     bool dirty;
     collect(c, &(c->heapMap), start, end, &dirty, false);
+    drain(c);
   }
 
   if (c->mode == Heap::MinorCollection) {
     visitDirtyFixies(c, &(c->dirtyTenuredFixies));
+    drain(c);
   }
 
   class Visitor : public Heap::Visitor {
@@ -1748,6 +2516,7 @@ void collect2(Context* c)
     virtual void visit(void* p)
     {
       local::collect(c, static_cast<void**>(p));
+      drain(c);
       visitMarkedFixies(c);
     }
 
@@ -1757,21 +2526,26 @@ void collect2(Context* c)
   c->client->visitRoots(&v);
 }
 
-bool limitExceeded(Context* c, int pendingAllocation)
+bool limitExceeded(Context* c, int64_t pendingAllocation)
 {
-  unsigned count = c->count + pendingAllocation
-                   - (c->gen2.remaining() * BytesPerWord);
+  uintptr_t count = c->count + pendingAllocation
+                    - (c->gen2.remaining() * BytesPerWord);
 
   if (Verbose) {
     if (count > c->limit) {
       if (not c->limitWasExceeded) {
         c->limitWasExceeded = true;
-        fprintf(stderr, "heap limit %d exceeded: %d\n", c->limit, count);
+        fprintf(stderr,
+                "heap limit %" LD " exceeded: %" LD "\n",
+                c->limit,
+                count);
       }
     } else if (c->limitWasExceeded) {
       c->limitWasExceeded = false;
-      fprintf(
-          stderr, "heap limit %d no longer exceeded: %d\n", c->limit, count);
+      fprintf(stderr,
+              "heap limit %" LD " no longer exceeded: %" LD "\n",
+              c->limit,
+              count);
     }
   }
 
@@ -1781,7 +2555,7 @@ bool limitExceeded(Context* c, int pendingAllocation)
 void collect(Context* c)
 {
   if (limitExceeded(c, c->pendingAllocation) or oversizedGen2(c)
-      or c->tenureFootprint + c->tenurePadding > c->gen2.remaining()
+      or minimumTenureCapacity(c) > c->gen2.remaining()
       or c->fixieTenureFootprint + c->tenuredFixieFootprint
          > c->tenuredFixieCeiling) {
     if (Verbose) {
@@ -1789,7 +2563,7 @@ void collect(Context* c)
         fprintf(stderr, "low memory causes ");
       } else if (oversizedGen2(c)) {
         fprintf(stderr, "oversized gen2 causes ");
-      } else if (c->tenureFootprint + c->tenurePadding > c->gen2.remaining()) {
+      } else if (minimumTenureCapacity(c) > c->gen2.remaining()) {
         fprintf(stderr, "undersized gen2 causes ");
       } else {
         fprintf(stderr, "fixie ceiling causes ");
@@ -1799,14 +2573,16 @@ void collect(Context* c)
     c->mode = Heap::MajorCollection;
   }
 
-  int64_t then;
+  int64_t then = 0;
   if (Verbose) {
     if (c->mode == Heap::MajorCollection) {
       fprintf(stderr, "major collection\n");
     } else {
       fprintf(stderr, "minor collection\n");
     }
+  }
 
+  if (Verbose or c->verbose) {
     then = c->system->now();
   }
 
@@ -1816,8 +2592,20 @@ void collect(Context* c)
     initNextGen2(c);
   }
 
+#ifdef USE_ATOMIC_OPERATIONS
+  if (c->collectorThreads > 1) {
+    startParallelCollection(c);
+  }
+#endif
+
   collect2(c);
 
+#ifdef USE_ATOMIC_OPERATIONS
+  if (c->parallel) {
+    finishParallelCollection(c);
+  }
+#endif
+
   c->gen1.replaceWith(&(c->nextGen1));
   if (c->mode == Heap::MajorCollection) {
     c->gen2.replaceWith(&(c->nextGen2));
@@ -1825,6 +2613,20 @@ void collect(Context* c)
 
   sweepFixies(c);
 
+  if (c->verbose) {
+    fprintf(stderr,
+            "[%s collection: %dms, %d thread%s; "
+            "gen1: %" LD "K, gen2: %" LD "K/%" LD "K, fixies: %" LD "K]\n",
+            c->mode == Heap::MajorCollection ? "major" : "minor",
+            static_cast<int>(c->system->now() - then),
+            c->collectorThreads,
+            c->collectorThreads == 1 ? "" : "s",
+            c->gen1.position() * BytesPerWord / 1024,
+            c->gen2.position() * BytesPerWord / 1024,
+            c->gen2.capacity() * BytesPerWord / 1024,
+            (c->untenuredFixieFootprint + c->tenuredFixieFootprint) / 1024);
+  }
+
   if (Verbose) {
     int64_t now = c->system->now();
     int64_t collection = now - then;
@@ -1844,21 +2646,21 @@ void collect(Context* c)
             static_cast<int>(c->totalTime - c->totalCollectionTime));
 
     fprintf(stderr,
-            " -             gen1: %8d/%8d bytes\n",
+            " -             gen1: %8" LD "/%8" LD " bytes\n",
             c->gen1.position() * BytesPerWord,
             c->gen1.capacity() * BytesPerWord);
 
     fprintf(stderr,
-            " -             gen2: %8d/%8d bytes\n",
+            " -             gen2: %8" LD "/%8" LD " bytes\n",
             c->gen2.position() * BytesPerWord,
             c->gen2.capacity() * BytesPerWord);
 
     fprintf(stderr,
-            " - untenured fixies:          %8d bytes\n",
+            " - untenured fixies:          %8" LD " bytes\n",
             c->untenuredFixieFootprint);
 
     fprintf(stderr,
-            " -   tenured fixies:          %8d bytes\n",
+            " -   tenured fixies:          %8" LD " bytes\n",
             c->tenuredFixieFootprint);
   }
 }
@@ -1932,7 +2734,11 @@ void free_(Context* c, const void* p, size_t size)
 
 class MyHeap : public Heap {
  public:
-  MyHeap(System* system, unsigned limit) : c(system, limit)
+  MyHeap(System* system,
+         uintptr_t limit,
+         unsigned collectorThreads,
+         bool verbose)
+      : c(system, limit, collectorThreads, verbose)
   {
   }
 
@@ -1948,17 +2754,17 @@ class MyHeap : public Heap {
     c.immortalHeapEnd = start + sizeInWords;
   }
 
-  virtual unsigned remaining()
+  virtual uintptr_t remaining()
   {
     return c.limit - c.count;
   }
 
-  virtual unsigned limit()
+  virtual uintptr_t limit()
   {
     return c.limit;
   }
 
-  virtual bool limitExceeded(int pendingAllocation = 0)
+  virtual bool limitExceeded(int64_t pendingAllocation = 0)
   {
     return local::limitExceeded(&c, pendingAllocation);
   }
@@ -1979,8 +2785,8 @@ class MyHeap : public Heap {
   }
 
   virtual void collect(CollectionType type,
-                       unsigned incomingFootprint,
-                       int pendingAllocation)
+                       uintptr_t incomingFootprint,
+                       int64_t pendingAllocation)
   {
     c.mode = type;
     c.incomingFootprint = incomingFootprint;
@@ -1989,7 +2795,7 @@ class MyHeap : public Heap {
     local::collect(&c);
   }
 
-  virtual unsigned fixedFootprint(unsigned sizeInWords, bool objectMask)
+  virtual uintptr_t fixedFootprint(uintptr_t sizeInWords, bool objectMask)
   {
     return Fixie::totalSize(sizeInWords, objectMask);
   }
@@ -2002,7 +2808,7 @@ class MyHeap : public Heap {
   {
     expect(&c, not limitExceeded());
 
-    unsigned total = Fixie::totalSize(sizeInWords, objectMask);
+    uintptr_t total = Fixie::totalSize(sizeInWords, objectMask);
     void* p = allocator->allocate(total);
 
     expect(&c, not limitExceeded());
@@ -2197,10 +3003,23 @@ class MyHeap : public Heap {
 
 namespace vm {
 
-Heap* makeHeap(System* system, unsigned limit)
+Heap* makeHeap(System* system,
+               uintptr_t limit,
+               unsigned collectorThreads,
+               bool verbose)
 {
+#ifdef USE_ATOMIC_OPERATIONS
+  if (collectorThreads == 0) {
+    collectorThreads = 1;
+  } else if (collectorThreads > local::MaxCollectorThreads) {
+    collectorThreads = local::MaxCollectorThreads;
+  }
+#else
+  collectorThreads = 1;
+#endif
+
   return new (system->tryAllocate(sizeof(local::MyHeap)))
-      local::MyHeap(system, limit);
+      local::MyHeap(system, limit, collectorThreads, verbose);
 }
 
 }  // namespace vm
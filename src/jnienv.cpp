@@ -3282,7 +3282,7 @@ struct JavaVMInitArgs {
   jboolean ignoreUnrecognized;
 };
 
-int parseSize(const char* s)
+int64_t parseSize(const char* s)
 {
   unsigned length = strlen(s);
   RUNTIME_ARRAY(char, buffer, length + 1);
@@ -3294,22 +3294,22 @@ int parseSize(const char* s)
   if (suffix== 'k' or suffix == 'K') {
     memcpy(RUNTIME_ARRAY_BODY(buffer), s, length - 1);
     RUNTIME_ARRAY_BODY(buffer)[length - 1] = 0;
-    return atoi(RUNTIME_ARRAY_BODY(buffer)) * 1024;
+    return atoll(RUNTIME_ARRAY_BODY(buffer)) * 1024;
   }
 
   if (suffix == 'm' or suffix == 'M') {
     memcpy(RUNTIME_ARRAY_BODY(buffer), s, length - 1);
     RUNTIME_ARRAY_BODY(buffer)[length - 1] = 0;
-    return atoi(RUNTIME_ARRAY_BODY(buffer)) * 1024 * 1024;
+    return atoll(RUNTIME_ARRAY_BODY(buffer)) * 1024 * 1024;
   }
 
   if (suffix == 'g' or suffix == 'G') {
     memcpy(RUNTIME_ARRAY_BODY(buffer), s, length - 1);
     RUNTIME_ARRAY_BODY(buffer)[length - 1] = 0;
-    return atoi(RUNTIME_ARRAY_BODY(buffer)) * 1024 * 1024 * 1024;
+    return atoll(RUNTIME_ARRAY_BODY(buffer)) * 1024 * 1024 * 1024;
   }
 
-  return atoi(s);
+  return atoll(s);
 }
 
 void append(char** p, const char* value, unsigned length, char tail)
@@ -3612,7 +3612,7 @@ extern "C" AVIAN_EXPORT jint JNICALL
 {
   local::JavaVMInitArgs* a = static_cast<local::JavaVMInitArgs*>(args);
 
-  unsigned heapLimit = 0;
+  uintptr_t heapLimit = 0;
   unsigned stackLimit = 0;
   const char* bootLibraries = 0;
   const char* classpath = 0;
@@ -3622,6 +3622,8 @@ extern "C" AVIAN_EXPORT jint JNICALL
   const char* bootClasspath = 0;
   const char* bootClasspathAppend = "";
   const char* crashDumpDirectory = 0;
+  unsigned collectorThreads = 1;
+  bool verboseCollections = false;
 
   unsigned propertyCount = 0;
 
@@ -3629,7 +3631,19 @@ extern "C" AVIAN_EXPORT jint JNICALL
     if (strncmp(a->options[i].optionString, "-X", 2) == 0) {
       const char* p = a->options[i].optionString + 2;
       if (strncmp(p, "mx", 2) == 0) {
-        heapLimit = local::parseSize(p + 2);
+        uint64_t size = local::parseSize(p + 2);
+        heapLimit = size;
+        if (heapLimit != size) {
+          // a 32-bit target can't address the whole of what was asked
+          // for, so give it as much as it can rather than whatever the
+          // truncated value happens to be
+          heapLimit = ~static_cast<uintptr_t>(0);
+          fprintf(stderr,
+                  "warning: -X%s exceeds the address space; using %lu "
+                  "bytes\n",
+                  p,
+                  static_cast<unsigned long>(heapLimit));
+        }
       } else if (strncmp(p, "ss", 2) == 0) {
         stackLimit = local::parseSize(p + 2);
       } else if (strncmp(p,
@@ -3671,6 +3685,15 @@ extern "C" AVIAN_EXPORT jint JNICALL
                          EMBED_PREFIX_PROPERTY "=",
                          sizeof(EMBED_PREFIX_PROPERTY)) == 0) {
         embedPrefix = p + sizeof(EMBED_PREFIX_PROPERTY);
+      } else if (strncmp(p,
+                         GC_THREADS_PROPERTY "=",
+                         sizeof(GC_THREADS_PROPERTY)) == 0) {
+        collectorThreads = atoi(p + sizeof(GC_THREADS_PROPERTY));
+      } else if (strncmp(p,
+                         GC_VERBOSE_PROPERTY "=",
+                         sizeof(GC_VERBOSE_PROPERTY)) == 0) {
+        verboseCollections
+            = strcmp(p + sizeof(GC_VERBOSE_PROPERTY), "true") == 0;
       }
 
       ++propertyCount;
@@ -3690,7 +3713,7 @@ extern "C" AVIAN_EXPORT jint JNICALL
   }
 
   System* s = makeSystem();
-  Heap* h = makeHeap(s, heapLimit);
+  Heap* h = makeHeap(s, heapLimit, collectorThreads, verboseCollections);
   Classpath* c = makeClasspath(s, h, javaHome, embedPrefix);
 
   if (bootClasspath == 0) {
@@ -696,6 +696,9 @@ void postCollect(Thread* t)
     t->backupHeapIndex = 0;
   }
 
+  // objects may have moved or died, so forget any cached monitors:
+  memset(t->monitorCache, 0, sizeof(t->monitorCache));
+
   for (Thread* c = t->child; c; c = c->peer) {
     postCollect(c);
   }
@@ -3078,6 +3081,27 @@ GcClass* resolveArrayClass(Thread* t,
   }
 }
 
+GcMonitor* findCachedMonitor(Thread* t, object o)
+{
+  for (unsigned i = 0; i < ThreadMonitorCacheSize; ++i) {
+    Thread::MonitorCacheEntry* e = t->monitorCache + i;
+    if (e->o == o) {
+      return e->monitor;
+    }
+  }
+  return 0;
+}
+
+void cacheMonitor(Thread* t, object o, GcMonitor* m)
+{
+  Thread::MonitorCacheEntry* e
+      = t->monitorCache
+        + (t->monitorCacheIndex++ & (ThreadMonitorCacheSize - 1));
+
+  e->o = o;
+  e->monitor = m;
+}
+
 void removeMonitor(Thread* t, object o)
 {
   unsigned hash;
@@ -3437,7 +3461,7 @@ class HeapClient : public Heap::Client {
   Machine* m;
 };
 
-void doCollect(Thread* t, Heap::CollectionType type, int pendingAllocation)
+void doCollect(Thread* t, Heap::CollectionType type, int64_t pendingAllocation)
 {
   expect(t, not t->m->collecting);
 
@@ -3780,6 +3804,7 @@ Thread::Thread(Machine* m, GcThread* javaThread, Thread* parent)
           static_cast<uintptr_t*>(m->heap->allocate(ThreadHeapSizeInBytes))),
       heap(defaultHeap),
       backupHeapIndex(0),
+      monitorCacheIndex(0),
       flags(ActiveFlag)
 {
 }
@@ -3788,6 +3813,7 @@ void Thread::init()
 {
   memset(defaultHeap, 0, ThreadHeapSizeInBytes);
   memset(backupHeap, 0, ThreadBackupHeapSizeInBytes);
+  memset(monitorCache, 0, sizeof(monitorCache));
 
   if (parent == 0) {
     assertT(this, m->rootThread == 0);
@@ -4250,7 +4276,7 @@ object allocate3(Thread* t,
       break;
     }
 
-    int pendingAllocation = t->m->heap->fixedFootprint(
+    int64_t pendingAllocation = t->m->heap->fixedFootprint(
         ceilingDivide(sizeInBytes, BytesPerWord), objectMask);
 
     if (t->heap == 0 or t->m->heap->limitExceeded(pendingAllocation)) {
@@ -4301,12 +4327,12 @@ object allocate3(Thread* t,
   }
 }
 
-void collect(Thread* t, Heap::CollectionType type, int pendingAllocation)
+void collect(Thread* t, Heap::CollectionType type, int64_t pendingAllocation)
 {
   ENTER(t, Thread::ExclusiveState);
 
-  unsigned pending = pendingAllocation
-                     - (t->m->heapPoolIndex * ThreadHeapSizeInWords);
+  int64_t pending = pendingAllocation
+                    - (t->m->heapPoolIndex * ThreadHeapSizeInWords);
 
   if (t->m->heap->limitExceeded(pending)) {
     type = Heap::MajorCollection;
@@ -5383,6 +5409,11 @@ GcMonitor* objectMonitor(Thread* t, object o, bool createNew)
 {
   assertT(t, t->state == Thread::ActiveState);
 
+  GcMonitor* cached = findCachedMonitor(t, o);
+  if (cached) {
+    return cached;
+  }
+
   object m = hashMapFind(t, roots(t)->monitorMap(), o, objectHash, objectEqual);
 
   if (m) {
@@ -5390,6 +5421,8 @@ GcMonitor* objectMonitor(Thread* t, object o, bool createNew)
       fprintf(stderr, "found monitor %p for object %x\n", m, objectHash(t, o));
     }
 
+    cacheMonitor(t, o, cast<GcMonitor>(t, m));
+
     return cast<GcMonitor>(t, m);
   } else if (createNew) {
     PROTECT(t, o);
@@ -5421,6 +5454,8 @@ GcMonitor* objectMonitor(Thread* t, object o, bool createNew)
       addFinalizer(t, o, removeMonitor);
     }
 
+    cacheMonitor(t, o, cast<GcMonitor>(t, m));
+
     return cast<GcMonitor>(t, m);
   } else {
     return 0;
@@ -15,6 +15,7 @@
 #include "sys/types.h"
 #ifdef __APPLE__
 #include "CoreFoundation/CoreFoundation.h"
+#include "mach/mach_time.h"
 #include "sys/ucontext.h"
 #undef assert
 #elif defined(__ANDROID__)
@@ -320,15 +321,22 @@ class MySystem : public System {
 
     virtual void wait(System::Thread* context, int64_t time)
     {
-      wait(context, time, false);
+      // pretend anything greater than one hundred years (in
+      // milliseconds) is infinity so as to avoid overflow:
+      wait(context,
+           time < INT64_C(3153600000000) ? time * 1000 * 1000 : 0,
+           false);
     }
 
-    virtual bool waitAndClearInterrupted(System::Thread* context, int64_t time)
+    virtual bool waitAndClearInterrupted(System::Thread* context,
+                                         int64_t nanoseconds)
     {
-      return wait(context, time, true);
+      return wait(context, nanoseconds, true);
     }
 
-    bool wait(System::Thread* context, int64_t time, bool clearInterrupted)
+    bool wait(System::Thread* context,
+              int64_t nanoseconds,
+              bool clearInterrupted)
     {
       Thread* t = static_cast<Thread*>(context);
 
@@ -356,12 +364,19 @@ class MySystem : public System {
           pthread_mutex_unlock(&mutex);
 
           if (not interrupted) {
-            // pretend anything greater than one million years (in
-            // milliseconds) is infinity so as to avoid overflow:
-            if (time and time < INT64_C(31536000000000000)) {
-              int64_t then = s->now() + time;
-              timespec ts = {static_cast<long>(then / 1000),
-                             static_cast<long>((then % 1000) * 1000 * 1000)};
+            // pretend anything greater than one hundred years (in
+            // nanoseconds) is infinity so as to avoid overflow:
+            if (nanoseconds and nanoseconds < INT64_C(3153600000000000000)) {
+              // pthread_cond_timedwait takes an absolute deadline
+              // measured by the wall clock
+              timeval tv = {0, 0};
+              gettimeofday(&tv, 0);
+              int64_t then = (static_cast<int64_t>(tv.tv_sec) * 1000 * 1000
+                              * 1000)
+                             + (static_cast<int64_t>(tv.tv_usec) * 1000)
+                             + nanoseconds;
+              timespec ts = {static_cast<time_t>(then / (1000 * 1000 * 1000)),
+                             static_cast<long>(then % (1000 * 1000 * 1000))};
               int rv UNUSED
                   = pthread_cond_timedwait(&(t->condition), &(t->mutex), &ts);
               expect(s, rv == 0 or rv == ETIMEDOUT or rv == EINTR);
@@ -921,6 +936,23 @@ class MySystem : public System {
            + (static_cast<int64_t>(tv.tv_usec) / 1000);
   }
 
+  virtual int64_t nanoTime()
+  {
+#ifdef __APPLE__
+    static mach_timebase_info_data_t timebase;
+    if (timebase.denom == 0) {
+      mach_timebase_info(&timebase);
+    }
+    return static_cast<int64_t>(mach_absolute_time() * timebase.numer
+                                / timebase.denom);
+#else
+    timespec ts = {0, 0};
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return (static_cast<int64_t>(ts.tv_sec) * 1000 * 1000 * 1000)
+           + static_cast<int64_t>(ts.tv_nsec);
+#endif
+  }
+
   virtual void yield()
   {
     sched_yield();
@@ -330,9 +330,15 @@ class MySystem : public System {
       wait(context, time, false);
     }
 
-    virtual bool waitAndClearInterrupted(System::Thread* context, int64_t time)
+    virtual bool waitAndClearInterrupted(System::Thread* context,
+                                         int64_t nanoseconds)
     {
-      return wait(context, time, true);
+      // WaitForSingleObject only has millisecond resolution, so round
+      // up rather than waking early:
+      return wait(context,
+                  nanoseconds / (1000 * 1000)
+                  + (nanoseconds % (1000 * 1000) ? 1 : 0),
+                  true);
     }
 
     bool wait(System::Thread* context, int64_t time, bool clearInterrupted)
@@ -986,6 +992,22 @@ class MySystem : public System {
              | time.dwLowDateTime) / 10000) - 11644473600000LL;
   }
 
+  virtual int64_t nanoTime()
+  {
+    static LARGE_INTEGER frequency;
+    if (frequency.QuadPart == 0) {
+      QueryPerformanceFrequency(&frequency);
+    }
+    LARGE_INTEGER counter;
+    QueryPerformanceCounter(&counter);
+    // split the conversion to avoid overflowing the intermediate
+    // product:
+    int64_t seconds = counter.QuadPart / frequency.QuadPart;
+    int64_t remainder = counter.QuadPart % frequency.QuadPart;
+    return (seconds * 1000 * 1000 * 1000)
+           + ((remainder * 1000 * 1000 * 1000) / frequency.QuadPart);
+  }
+
   virtual void yield()
   {
 #if !defined(WINAPI_FAMILY) || WINAPI_FAMILY_PARTITION(WINAPI_PARTITION_DESKTOP)
@@ -71,3 +71,9 @@ THUNK(getJClass64)
 THUNK(getJClassFromReference)
 THUNK(gcIfNecessary)
 THUNK(idleIfNecessary)
+THUNK(compareAndSwapInt)
+THUNK(compareAndSwapLong)
+THUNK(compareAndSwapObject)
+THUNK(getAndAddInt)
+THUNK(getAndAddLong)
+THUNK(nanoTime)
@@ -8,7 +8,13 @@ public class AtomicTests {
   private static final int threadCount = 10;
   private static final int iterationsPerThread = 100;
   
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+  
   public static void main(String[] args) {
+    runSingleThreadedTest();
+    
     runAtomicIntegerTest(true);
     runAtomicIntegerTest(false);
     
@@ -18,6 +24,36 @@ public class AtomicTests {
     runAtomicReferenceTest();
   }
   
+  private static void runSingleThreadedTest() {
+    AtomicInteger i = new AtomicInteger(5);
+    expect(! i.compareAndSet(4, 6));
+    expect(i.get() == 5);
+    expect(i.compareAndSet(5, 6));
+    expect(i.get() == 6);
+    expect(i.getAndAdd(10) == 6);
+    expect(i.addAndGet(-20) == -4);
+    expect(i.getAndIncrement() == -4);
+    expect(i.decrementAndGet() == -4);
+    i.set(Integer.MAX_VALUE);
+    expect(i.incrementAndGet() == Integer.MIN_VALUE);
+    
+    AtomicLong l = new AtomicLong(1L << 40);
+    expect(! l.compareAndSet(0, 1));
+    expect(l.compareAndSet(1L << 40, (1L << 40) + 1));
+    expect(l.getAndAdd(1L << 33) == (1L << 40) + 1);
+    expect(l.addAndGet(-1) == (1L << 40) + (1L << 33));
+    expect(l.getAndDecrement() == (1L << 40) + (1L << 33));
+    
+    Object a = new Object();
+    Object b = new Object();
+    AtomicReference<Object> r = new AtomicReference<Object>(a);
+    expect(! r.compareAndSet(b, a));
+    expect(r.compareAndSet(a, b));
+    expect(r.get() == b);
+    expect(r.compareAndSet(b, null));
+    expect(r.get() == null);
+  }
+  
   private static void blockTillThreadsDone(AtomicInteger threadDoneCount) throws InterruptedException {
     synchronized (threadDoneCount) {
       while (threadDoneCount.get() < threadCount) {
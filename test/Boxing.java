@@ -0,0 +1,135 @@
+public class Boxing {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  // each of these boxes and immediately unboxes its argument, which the
+  // JIT compiles as a no-op
+  private static boolean roundTrip(boolean v) {
+    return Boolean.valueOf(v).booleanValue();
+  }
+
+  private static byte roundTrip(byte v) {
+    return Byte.valueOf(v).byteValue();
+  }
+
+  private static char roundTrip(char v) {
+    return Character.valueOf(v).charValue();
+  }
+
+  private static short roundTrip(short v) {
+    return Short.valueOf(v).shortValue();
+  }
+
+  private static int roundTrip(int v) {
+    return Integer.valueOf(v).intValue();
+  }
+
+  private static long roundTrip(long v) {
+    return Long.valueOf(v).longValue();
+  }
+
+  private static float roundTrip(float v) {
+    return Float.valueOf(v).floatValue();
+  }
+
+  private static double roundTrip(double v) {
+    return Double.valueOf(v).doubleValue();
+  }
+
+  // here the unboxing call is also reached by a branch which doesn't
+  // box, so it must still be compiled for that path
+  private static int choose(boolean boxed, Integer other, int v) {
+    return (boxed ? other : Integer.valueOf(v)).intValue();
+  }
+
+  // the box passes through a local which holds nothing else, so the
+  // local holds the int instead and neither call is made
+  private static long sum(int n) {
+    long sum = 0;
+    for (int i = 0; i < n; ++i) {
+      Integer boxed = i;
+      sum += boxed;
+    }
+    return sum;
+  }
+
+  // likewise, with a collection between the store and the load, which
+  // must not mistake the int for a reference
+  private static float collect(float v) {
+    Float boxed = v;
+    System.gc();
+    return boxed;
+  }
+
+  // each of the following locals is used some other way too, so it
+  // must still hold a box
+
+  private static int twoStores(boolean b, int x, int y) {
+    Integer boxed;
+    if (b) {
+      boxed = x;
+    } else {
+      boxed = y;
+    }
+    return boxed;
+  }
+
+  private static boolean escapes(int v) {
+    Integer boxed = v;
+    Object o = boxed;
+    return boxed.intValue() == v && o.equals(v);
+  }
+
+  private static long wide(long v) {
+    Long boxed = v;
+    return boxed;
+  }
+
+  private static int parameter(Integer boxed, int v) {
+    int old = boxed;
+    boxed = v;
+    return old;
+  }
+
+  public static void main(String[] args) {
+    expect(Integer.valueOf(127) == Integer.valueOf(127));
+    expect(Integer.valueOf(-128) == Integer.valueOf(-128));
+    expect(Integer.valueOf(128) != Integer.valueOf(128));
+    expect(Integer.valueOf(128).equals(Integer.valueOf(128)));
+    expect(Long.valueOf(5) == Long.valueOf(5));
+    expect(Long.valueOf(-129) != Long.valueOf(-129));
+    expect(Short.valueOf((short) 100) == Short.valueOf((short) 100));
+    expect(Byte.valueOf((byte) -128) == Byte.valueOf((byte) -128));
+    expect(Byte.valueOf((byte) 127).byteValue() == 127);
+    expect(Character.valueOf('a') == Character.valueOf('a'));
+    expect(Character.valueOf('\u00e9') != Character.valueOf('\u00e9'));
+    expect(Boolean.valueOf(true) == Boolean.TRUE);
+
+    expect(roundTrip(true) && ! roundTrip(false));
+    expect(roundTrip((byte) -1) == -1);
+    expect(roundTrip('\uffff') == '\uffff');
+    expect(roundTrip((short) -32768) == -32768);
+    expect(roundTrip(Integer.MIN_VALUE) == Integer.MIN_VALUE);
+    expect(roundTrip(Long.MAX_VALUE) == Long.MAX_VALUE);
+    expect(roundTrip(-0.5f) == -0.5f);
+    expect(Double.isNaN(roundTrip(Double.NaN)));
+    expect(roundTrip(1e300) == 1e300);
+
+    expect(choose(false, null, 42) == 42);
+    expect(choose(true, 7, 42) == 7);
+    try {
+      choose(true, null, 42);
+      expect(false);
+    } catch (NullPointerException e) {
+      // expected
+    }
+
+    expect(sum(1000) == 499500);
+    expect(collect(-2.5f) == -2.5f);
+    expect(twoStores(true, 3, 4) == 3 && twoStores(false, 3, 4) == 4);
+    expect(escapes(1000));
+    expect(wide(Long.MIN_VALUE) == Long.MIN_VALUE);
+    expect(parameter(5, 6) == 5);
+  }
+}
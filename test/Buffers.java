@@ -1,6 +1,12 @@
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.BufferUnderflowException;
 import java.nio.BufferOverflowException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ReadOnlyBufferException;
 
 public class Buffers {
   static {
@@ -55,6 +61,141 @@ public class Buffers {
     }
   }
 
+  private static void testOrder(Factory factory) {
+    ByteBuffer b = factory.allocate(32);
+    try {
+      expect(b.order() == ByteOrder.BIG_ENDIAN);
+
+      b.putInt(0, 0x01020304);
+      expect(b.get(0) == 1 && b.get(3) == 4);
+
+      b.order(ByteOrder.LITTLE_ENDIAN);
+      expect(b.getInt(0) == 0x04030201);
+
+      b.putLong(8, 0x0102030405060708L);
+      expect(b.get(8) == 8 && b.get(15) == 1);
+      expect(b.getShort(8) == 0x0708);
+      expect(b.getChar(14) == 0x0102);
+
+      // unaligned accesses work too
+      b.putDouble(17, Math.PI);
+      expect(b.getDouble(17) == Math.PI);
+      b.putFloat(3, -1.5f);
+      expect(b.getFloat(3) == -1.5f);
+
+      b.order(ByteOrder.BIG_ENDIAN);
+      expect(b.getLong(8) == 0x0807060504030201L);
+      expect(b.getInt(3) == Integer.reverseBytes(Float.floatToIntBits(-1.5f)));
+
+      b.position(24);
+      b.putChar('x');
+      b.putShort((short) -2);
+      b.putFloat(0.25f);
+      b.position(24);
+      expect(b.getChar() == 'x');
+      expect(b.getShort() == -2);
+      expect(b.getFloat() == 0.25f);
+      expect(b.position() == 32);
+    } finally {
+      factory.dispose(b);
+    }
+  }
+
+  private static void testViews(Factory factory) {
+    ByteBuffer b = factory.allocate(68);
+    try {
+      b.position(4);
+      LongBuffer longs = b.asLongBuffer();
+      expect(longs.capacity() == 8);
+      expect(longs.isDirect() == b.isDirect());
+      expect(longs.order() == ByteOrder.BIG_ENDIAN);
+
+      longs.put(0x1122334455667788L);
+      longs.put(new long[] { 1, 2, 3, -4 });
+      expect(longs.position() == 5);
+      expect(b.getLong(4) == 0x1122334455667788L);
+      expect(b.getLong(36) == -4);
+
+      long[] array = new long[5];
+      longs.flip();
+      longs.get(array);
+      expect(array[0] == 0x1122334455667788L && array[4] == -4);
+
+      b.order(ByteOrder.LITTLE_ENDIAN);
+      IntBuffer ints = b.asIntBuffer();
+      expect(ints.order() == ByteOrder.LITTLE_ENDIAN);
+      expect(ints.get(0) == 0x44332211);
+      ints.put(new int[] { 7, 8 });
+      expect(b.getInt(4) == 7 && b.getInt(8) == 8);
+
+      IntBuffer slice = ((IntBuffer) ints.position(1)).slice();
+      expect(slice.get(0) == 8);
+
+      b.order(ByteOrder.nativeOrder());
+      b.position(12);
+      DoubleBuffer doubles = b.asDoubleBuffer();
+      doubles.put(new double[] { 1.5, -2.5 });
+      expect(b.getDouble(12) == 1.5 && b.getDouble(20) == -2.5);
+
+      FloatBuffer floats = b.asFloatBuffer();
+      expect(floats.get(0) == b.getFloat(12));
+      floats.put(3, 6.25f);
+      expect(b.getFloat(24) == 6.25f);
+      float[] fs = new float[4];
+      floats.get(fs);
+      expect(fs[3] == 6.25f);
+
+      try {
+        b.asReadOnlyBuffer().asLongBuffer().put(0, 1);
+        expect(false);
+      } catch (ReadOnlyBufferException e) {
+        // cool
+      }
+
+      try {
+        longs.get(5);
+        expect(false);
+      } catch (IndexOutOfBoundsException e) {
+        // cool
+      }
+    } finally {
+      factory.dispose(b);
+    }
+  }
+
+  private static void testTypedBuffers() {
+    LongBuffer longs = LongBuffer.allocate(4);
+    longs.put(new long[] { 1, 2, 3 });
+    longs.flip();
+    expect(longs.remaining() == 3);
+    expect(longs.get() == 1);
+    expect(longs.hasArray() && longs.array()[2] == 3);
+    expect(longs.equals(LongBuffer.wrap(new long[] { 0, 2, 3 }, 1, 2)));
+
+    double[] da = new double[] { 1, 2, 3, 4 };
+    DoubleBuffer doubles = DoubleBuffer.wrap(da);
+    doubles.put(2, 5);
+    expect(da[2] == 5);
+    expect(doubles.order() == ByteOrder.nativeOrder());
+
+    IntBuffer ints = IntBuffer.allocate(2).asReadOnlyBuffer();
+    try {
+      ints.put(1);
+      expect(false);
+    } catch (ReadOnlyBufferException e) {
+      // cool
+    }
+
+    FloatBuffer floats = FloatBuffer.allocate(2);
+    floats.put(1.5f).put(2.5f);
+    try {
+      floats.put(3.5f);
+      expect(false);
+    } catch (BufferOverflowException e) {
+      // cool
+    }
+  }
+
   private static native ByteBuffer allocateNative(int capacity);
 
   private static native void freeNative(ByteBuffer b);
@@ -102,6 +243,16 @@ public class Buffers {
     test(native_, direct);
     test(native_, native_);
 
+    testOrder(array);
+    testOrder(direct);
+    testOrder(native_);
+
+    testViews(array);
+    testViews(direct);
+    testViews(native_);
+
+    testTypedBuffers();
+
     try {
       ByteBuffer.allocate(1).getInt();
       expect(false);
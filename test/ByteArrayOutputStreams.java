@@ -0,0 +1,169 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class ByteArrayOutputStreams {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static void expect(int expected, int actual) {
+    if (expected != actual) {
+      throw new RuntimeException("expected " + expected + " got " + actual);
+    }
+  }
+
+  private static void expect(String expected, String actual) {
+    if (! expected.equals(actual)) {
+      throw new RuntimeException("expected " + expected + " got " + actual);
+    }
+  }
+
+  private static void expect(byte[] expected, int offset, int length,
+                             byte[] actual)
+  {
+    expect(length, actual.length);
+    for (int i = 0; i < length; ++i) {
+      expect(expected[offset + i], actual[i]);
+    }
+  }
+
+  // exposes the internal buffer, as a subclass handing it off would
+  private static class Exposed extends ByteArrayOutputStream {
+    public Exposed(int capacity) {
+      super(capacity);
+    }
+
+    public byte[] buffer() {
+      return buf;
+    }
+
+    public ByteBuffer asByteBuffer() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
+
+  private static class Counting extends OutputStream {
+    public int writes;
+    public int length;
+
+    public void write(int c) {
+      ++ writes;
+      ++ length;
+    }
+
+    public void write(byte[] b, int offset, int length) {
+      ++ writes;
+      this.length += length;
+    }
+  }
+
+  private static byte[] pattern(int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      bytes[i] = (byte) (i * 31);
+    }
+    return bytes;
+  }
+
+  public static void main(String[] args) throws IOException {
+    byte[] pattern = pattern(100000);
+
+    { ByteArrayOutputStream out = new ByteArrayOutputStream();
+      expect(0, out.size());
+      expect(0, out.toByteArray().length);
+      expect("", out.toString());
+
+      for (int i = 0; i < 1000; ++i) {
+        out.write(pattern[i]);
+      }
+      out.write(pattern, 1000, 5);
+      out.write(pattern, 1005, pattern.length - 1005);
+      out.write(pattern, 0, 0);
+      expect(pattern.length, out.size());
+      expect(pattern, 0, pattern.length, out.toByteArray());
+
+      out.reset();
+      expect(0, out.size());
+      out.write(pattern, 7, 3);
+      expect(pattern, 7, 3, out.toByteArray());
+    }
+
+    { Exposed out = new Exposed(1024);
+      byte[] buffer = out.buffer();
+      expect(1024, buffer.length);
+
+      // writes within the initial capacity use it as is
+      out.write(pattern, 0, 1000);
+      out.write(pattern, 1000, 24);
+      expect(buffer == out.buffer());
+
+      out.write(0);
+      expect(buffer != out.buffer());
+      expect(2048, out.buffer().length);
+
+      // which survives a reset
+      buffer = out.buffer();
+      out.reset();
+      out.write(pattern, 0, 10);
+      expect(buffer == out.buffer());
+
+      ByteBuffer wrapped = out.asByteBuffer();
+      expect(buffer == wrapped.array());
+      expect(10, wrapped.remaining());
+      expect(pattern[9], wrapped.get(9));
+    }
+
+    { Exposed out = new Exposed(0);
+      out.write(pattern, 0, 3);
+      expect(pattern, 0, 3, out.toByteArray());
+      out.write(pattern, 3, 5000);
+      expect(pattern, 0, 5003, out.toByteArray());
+    }
+
+    { ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+      out.write(pattern, 0, 50000);
+      Counting counting = new Counting();
+      out.writeTo(counting);
+      expect(1, counting.writes);
+      expect(50000, counting.length);
+
+      ByteArrayOutputStream copy = new ByteArrayOutputStream();
+      out.writeTo(copy);
+      expect(pattern, 0, 50000, copy.toByteArray());
+    }
+
+    { ByteArrayOutputStream out = new ByteArrayOutputStream();
+      out.write("h\u00e9llo".getBytes(StandardCharsets.UTF_8));
+      expect("h\u00e9llo", out.toString());
+      expect("h\u00e9llo", out.toString("UTF-8"));
+      expect("h\u00c3\u00a9llo", out.toString(StandardCharsets.ISO_8859_1));
+    }
+
+    try {
+      new ByteArrayOutputStream(-1);
+      expect(false);
+    } catch (IllegalArgumentException e) { }
+
+    { ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try {
+        out.write(pattern, 10, -1);
+        expect(false);
+      } catch (IndexOutOfBoundsException e) { }
+
+      try {
+        out.write(pattern, pattern.length - 1, 2);
+        expect(false);
+      } catch (IndexOutOfBoundsException e) { }
+
+      try {
+        out.write(pattern, -1, 2);
+        expect(false);
+      } catch (IndexOutOfBoundsException e) { }
+
+      expect(0, out.size());
+    }
+  }
+}
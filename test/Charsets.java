@@ -0,0 +1,467 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnmappableCharacterException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Random;
+
+public class Charsets {
+  private static final String Sample = "a\u00e9\u20ac\ud83d\ude00";
+
+  private static final byte[] SampleUtf8 = bytes
+    (0x61, 0xC3, 0xA9, 0xE2, 0x82, 0xAC, 0xF0, 0x9F, 0x98, 0x80);
+
+  private static final byte[] SampleUtf16BE = bytes
+    (0x00, 0x61, 0x00, 0xE9, 0x20, 0xAC, 0xD8, 0x3D, 0xDE, 0x00);
+
+  private static final byte[] SampleUtf16LE = bytes
+    (0x61, 0x00, 0xE9, 0x00, 0xAC, 0x20, 0x3D, 0xD8, 0x00, 0xDE);
+
+  private static final byte[] SampleUtf16 = bytes
+    (0xFE, 0xFF, 0x00, 0x61, 0x00, 0xE9, 0x20, 0xAC, 0xD8, 0x3D, 0xDE, 0x00);
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static void expect(int expected, int actual) {
+    if (expected != actual) {
+      throw new RuntimeException("expected " + expected + " got " + actual);
+    }
+  }
+
+  private static void expect(String expected, String actual) {
+    if (! expected.equals(actual)) {
+      throw new RuntimeException("expected " + escape(expected) + " got "
+                                 + escape(actual));
+    }
+  }
+
+  private static void expect(byte[] expected, byte[] actual) {
+    boolean equal = expected.length == actual.length;
+    for (int i = 0; equal && i < expected.length; ++i) {
+      equal = expected[i] == actual[i];
+    }
+
+    if (! equal) {
+      throw new RuntimeException("expected " + hex(expected) + " got "
+                                 + hex(actual));
+    }
+  }
+
+  private static String escape(String s) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < s.length(); ++i) {
+      char c = s.charAt(i);
+      if (c >= 0x20 && c < 0x7F) {
+        sb.append(c);
+      } else {
+        sb.append("\\u").append(Integer.toHexString(c));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < bytes.length; ++i) {
+      sb.append(' ').append(Integer.toHexString(bytes[i] & 0xFF));
+    }
+    return sb.toString();
+  }
+
+  private static byte[] bytes(int ... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+
+  private static String toString(CharBuffer buffer) {
+    return new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                      buffer.remaining());
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < length) {
+      int codePoint;
+      switch (random.nextInt(4)) {
+      case 0: codePoint = random.nextInt(0x80); break;
+      case 1: codePoint = 0x80 + random.nextInt(0x800 - 0x80); break;
+      case 2:
+        codePoint = 0x800 + random.nextInt(0x10000 - 0x800 - 0x800);
+        if (codePoint >= 0xD800) codePoint += 0x800;
+        break;
+      default: codePoint = 0x10000 + random.nextInt(0x100000); break;
+      }
+      sb.append(Character.toChars(codePoint));
+    }
+    return sb.toString();
+  }
+
+  private static void testLookup() {
+    expect(StandardCharsets.UTF_8 == Charset.forName("UTF-8"));
+    expect(StandardCharsets.UTF_8 == Charset.forName("utf8"));
+    expect(StandardCharsets.ISO_8859_1 == Charset.forName("latin1"));
+    expect(StandardCharsets.US_ASCII == Charset.forName("ascii"));
+    expect(StandardCharsets.UTF_16LE == Charset.forName("utf-16le"));
+    expect(StandardCharsets.UTF_8 == Charset.defaultCharset());
+    expect("UTF-16BE", StandardCharsets.UTF_16BE.name());
+    expect(Charset.isSupported("ISO8859_1"));
+    expect(! Charset.isSupported("EBCDIC"));
+    expect(Charset.availableCharsets().containsKey("US-ASCII"));
+
+    try {
+      Charset.forName("EBCDIC");
+      expect(false);
+    } catch (UnsupportedCharsetException e) {
+      expect("EBCDIC", e.getCharsetName());
+    }
+
+    try {
+      Charset.forName("no spaces");
+      expect(false);
+    } catch (IllegalCharsetNameException e) { }
+
+    try {
+      "x".getBytes("EBCDIC");
+      expect(false);
+    } catch (UnsupportedEncodingException e) { }
+  }
+
+  private static void testRoundTrips() throws Exception {
+    expect(SampleUtf8, Sample.getBytes());
+    expect(SampleUtf8, Sample.getBytes("UTF-8"));
+    expect(SampleUtf16BE, Sample.getBytes(StandardCharsets.UTF_16BE));
+    expect(SampleUtf16LE, Sample.getBytes(StandardCharsets.UTF_16LE));
+    expect(SampleUtf16, Sample.getBytes(StandardCharsets.UTF_16));
+
+    expect(Sample, new String(SampleUtf8));
+    expect(Sample, new String(SampleUtf8, "UTF-8"));
+    expect(Sample, new String(SampleUtf16BE, StandardCharsets.UTF_16BE));
+    expect(Sample, new String(SampleUtf16LE, StandardCharsets.UTF_16LE));
+    expect(Sample, new String(SampleUtf16, StandardCharsets.UTF_16));
+    expect("\u00e9", new String(SampleUtf8, 1, 2, StandardCharsets.UTF_8));
+
+    expect(bytes(0x61, 0xE9, 0x3F, 0x3F),
+           Sample.getBytes(StandardCharsets.ISO_8859_1));
+    expect(bytes(0x61, 0x3F, 0x3F, 0x3F),
+           Sample.getBytes("US-ASCII"));
+    expect("a\u00e9\u00ff",
+           new String(bytes(0x61, 0xE9, 0xFF), "ISO-8859-1"));
+    expect("a\ufffd",
+           new String(bytes(0x61, 0xE9), StandardCharsets.US_ASCII));
+
+    expect(bytes(0x61, 0x00, 0x62), "a\0b".getBytes());
+    expect("a\0b", new String("a\0b".getBytes()));
+    expect(0, "".getBytes(StandardCharsets.UTF_16).length);
+
+    Random random = new Random(42);
+    Charset[] charsets = { StandardCharsets.UTF_8, StandardCharsets.UTF_16,
+                           StandardCharsets.UTF_16BE,
+                           StandardCharsets.UTF_16LE };
+    for (int i = 0; i < 100; ++i) {
+      String text = randomText(random, random.nextInt(100));
+      for (Charset charset: charsets) {
+        expect(text, new String(text.getBytes(charset), charset));
+        expect(text, toString(charset.decode(charset.encode(text))));
+      }
+    }
+  }
+
+  private static String decode(Charset charset, CodingErrorAction action,
+                               byte[] bytes)
+    throws CharacterCodingException
+  {
+    return toString(charset.newDecoder()
+                    .onMalformedInput(action)
+                    .onUnmappableCharacter(action)
+                    .decode(ByteBuffer.wrap(bytes)));
+  }
+
+  private static void testMalformed() throws Exception {
+    Charset utf8 = StandardCharsets.UTF_8;
+    CodingErrorAction replace = CodingErrorAction.REPLACE;
+
+    expect("a\ufffdb", decode(utf8, replace, bytes(0x61, 0xFF, 0x62)));
+    // overlong
+    expect("\ufffd\ufffd", decode(utf8, replace, bytes(0xC0, 0x80)));
+    expect("\ufffd\ufffd\ufffd",
+           decode(utf8, replace, bytes(0xE0, 0x80, 0x80)));
+    // encoded surrogate
+    expect("\ufffd", decode(utf8, replace, bytes(0xED, 0xA0, 0x80)));
+    // beyond U+10FFFF
+    expect("\ufffd\ufffd\ufffd\ufffd",
+           decode(utf8, replace, bytes(0xF4, 0x90, 0x80, 0x80)));
+    // truncated, then interrupted
+    expect("a\ufffd", decode(utf8, replace, bytes(0x61, 0xE2, 0x82)));
+    expect("\ufffda", decode(utf8, replace, bytes(0xE2, 0x82, 0x61)));
+    expect("\ufffd(\ufffd", decode(utf8, replace, bytes(0xE2, 0x28, 0xA1)));
+    expect("\ufffda", decode(utf8, replace, bytes(0xF0, 0x9F, 0x61)));
+    expect("\ufffd", decode(StandardCharsets.UTF_16BE, replace,
+                            bytes(0x00)));
+    expect("\ufffdb", decode(StandardCharsets.UTF_16BE, replace,
+                             bytes(0xDC, 0x00, 0x00, 0x62)));
+
+    expect("ab", decode(utf8, CodingErrorAction.IGNORE,
+                        bytes(0x61, 0xFF, 0xFE, 0x62)));
+
+    try {
+      decode(utf8, CodingErrorAction.REPORT, bytes(0x61, 0xE2, 0x28, 0xA1));
+      expect(false);
+    } catch (MalformedInputException e) {
+      expect(1, e.getInputLength());
+    }
+
+    // a decoder reporting errors leaves the input at the bad byte
+    CharsetDecoder decoder = utf8.newDecoder();
+    ByteBuffer in = ByteBuffer.wrap(bytes(0x61, 0x62, 0xFF));
+    CharBuffer out = CharBuffer.allocate(8);
+    CoderResult result = decoder.decode(in, out, true);
+    expect(result.isMalformed());
+    expect(1, result.length());
+    expect(2, in.position());
+    expect(2, out.position());
+
+    CharsetEncoder encoder = StandardCharsets.US_ASCII.newEncoder();
+    expect(encoder.canEncode('a'));
+    expect(! encoder.canEncode('\u00e9'));
+    expect(! utf8.newEncoder().canEncode("\ud800"));
+    expect(utf8.newEncoder().canEncode("\ud83d\ude00"));
+    try {
+      encoder.encode(CharBuffer.wrap(new char[] { 'a', '\u00e9' }));
+      expect(false);
+    } catch (UnmappableCharacterException e) {
+      expect(1, e.getInputLength());
+    }
+
+    try {
+      encoder.encode(CharBuffer.wrap(new char[] { '\ud83d', '\ude00' }));
+      expect(false);
+    } catch (UnmappableCharacterException e) {
+      expect(2, e.getInputLength());
+    }
+
+    expect(bytes(0x61, 0x3F, 0x62), "a\ud800b".getBytes());
+    expect(bytes(0x61, 0x3F), "a\ude00".getBytes());
+    expect(bytes(0x00, 0x61, 0xFF, 0xFD),
+           "a\ud800".getBytes(StandardCharsets.UTF_16BE));
+  }
+
+  private static void testByteOrderMarks() throws Exception {
+    Charset utf16 = StandardCharsets.UTF_16;
+    CodingErrorAction report = CodingErrorAction.REPORT;
+
+    expect("A", decode(utf16, report, bytes(0xFE, 0xFF, 0x00, 0x41)));
+    expect("A", decode(utf16, report, bytes(0xFF, 0xFE, 0x41, 0x00)));
+    expect("A", decode(utf16, report, bytes(0x00, 0x41)));
+    expect("\ufeffA", decode(StandardCharsets.UTF_16BE, report,
+                             bytes(0xFE, 0xFF, 0x00, 0x41)));
+
+    // the byte order found lasts until the decoder is reset
+    CharsetDecoder decoder = utf16.newDecoder();
+    CharBuffer out = CharBuffer.allocate(8);
+    decoder.decode(ByteBuffer.wrap(bytes(0xFF, 0xFE, 0x41, 0x00)), out,
+                   false);
+    decoder.decode(ByteBuffer.wrap(bytes(0x42, 0x00)), out, true);
+    out.flip();
+    expect("AB", toString(out));
+
+    decoder.reset();
+    out.clear();
+    decoder.decode(ByteBuffer.wrap(bytes(0x00, 0x43)), out, true);
+    out.flip();
+    expect("C", toString(out));
+
+    // and an encoder writes one mark however its input arrives
+    CharsetEncoder encoder = utf16.newEncoder();
+    ByteBuffer bytes = ByteBuffer.allocate(8);
+    encoder.encode(CharBuffer.wrap(new char[0]), bytes, false);
+    encoder.encode(CharBuffer.wrap(new char[] { 'A' }), bytes, false);
+    encoder.encode(CharBuffer.wrap(new char[] { 'B' }), bytes, true);
+    bytes.flip();
+    expect(bytes(0xFE, 0xFF, 0x00, 0x41, 0x00, 0x42), toArray(bytes));
+  }
+
+  private static void testPieces() throws Exception {
+    Random random = new Random(7);
+    Charset[] charsets = { StandardCharsets.UTF_8, StandardCharsets.UTF_16,
+                           StandardCharsets.UTF_16LE };
+    for (Charset charset: charsets) {
+      String text = randomText(random, 200);
+      byte[] encoded = text.getBytes(charset);
+
+      // feed the decoder a byte at a time
+      CharsetDecoder decoder = charset.newDecoder();
+      ByteBuffer in = ByteBuffer.wrap(encoded);
+      CharBuffer out = CharBuffer.allocate(text.length());
+      for (int i = 1; i <= encoded.length; ++i) {
+        in.limit(i);
+        expect(decoder.decode(in, out, false).isUnderflow());
+      }
+      expect(decoder.decode(in, out, true).isUnderflow());
+      expect(decoder.flush(out).isUnderflow());
+      out.flip();
+      expect(text, toString(out));
+
+      // and the encoder a char at a time
+      char[] chars = text.toCharArray();
+      CharsetEncoder encoder = charset.newEncoder();
+      CharBuffer charsIn = CharBuffer.wrap(chars);
+      ByteBuffer bytesOut = ByteBuffer.allocate(encoded.length);
+      for (int i = 1; i <= chars.length; ++i) {
+        charsIn.limit(i);
+        expect(encoder.encode(charsIn, bytesOut, false).isUnderflow());
+      }
+      expect(encoder.encode(charsIn, bytesOut, true).isUnderflow());
+      expect(encoder.flush(bytesOut).isUnderflow());
+      bytesOut.flip();
+      expect(encoded, toArray(bytesOut));
+
+      // and drain the decoder's output a char at a time
+      decoder.reset();
+      in = ByteBuffer.wrap(encoded);
+      StringBuilder sb = new StringBuilder();
+      CharBuffer small = CharBuffer.allocate(2);
+      while (true) {
+        CoderResult result = decoder.decode(in, small, true);
+        small.flip();
+        sb.append(toString(small));
+        small.clear();
+        if (result.isUnderflow()) break;
+        expect(result.isOverflow());
+      }
+      expect(text, sb.toString());
+    }
+  }
+
+  private static class TrickleInputStream extends InputStream {
+    private final byte[] bytes;
+    private int position;
+
+    public TrickleInputStream(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    public int read() {
+      return position < bytes.length ? bytes[position++] & 0xFF : -1;
+    }
+
+    public int read(byte[] b, int offset, int length) {
+      if (length == 0) return 0;
+      int c = read();
+      if (c < 0) return -1;
+      b[offset] = (byte) c;
+      return 1;
+    }
+  }
+
+  private static String readAll(InputStreamReader reader, int chunk)
+    throws IOException
+  {
+    StringBuilder sb = new StringBuilder();
+    char[] buffer = new char[chunk];
+    int c;
+    while ((c = reader.read(buffer, 0, buffer.length)) >= 0) {
+      expect(c > 0);
+      sb.append(buffer, 0, c);
+    }
+    reader.close();
+    return sb.toString();
+  }
+
+  private static void testStreams() throws Exception {
+    Random random = new Random(11);
+    String text = randomText(random, 20000);
+    byte[] encoded = text.getBytes();
+
+    expect(text, readAll
+           (new InputStreamReader(new ByteArrayInputStream(encoded)), 1));
+    expect(text, readAll
+           (new InputStreamReader(new ByteArrayInputStream(encoded)), 3));
+    expect(text, readAll
+           (new InputStreamReader(new ByteArrayInputStream(encoded)), 50000));
+    expect(text, readAll
+           (new InputStreamReader(new TrickleInputStream(encoded)), 100));
+
+    byte[] utf16 = text.getBytes(StandardCharsets.UTF_16);
+    InputStreamReader reader = new InputStreamReader
+      (new TrickleInputStream(utf16), "UTF-16");
+    expect("UTF-16", reader.getEncoding());
+    expect(text, readAll(reader, 7));
+
+    expect("a\ufffd", readAll
+           (new InputStreamReader
+            (new ByteArrayInputStream(bytes(0x61, 0xF0, 0x9F))), 10));
+
+    // writes which split surrogate pairs
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStreamWriter writer = new OutputStreamWriter(bytes);
+    char[] chars = text.toCharArray();
+    for (int i = 0; i < chars.length; ++i) {
+      writer.write(chars, i, 1);
+    }
+    writer.close();
+    expect(encoded, bytes.toByteArray());
+
+    bytes = new ByteArrayOutputStream();
+    writer = new OutputStreamWriter(bytes, "UTF-16");
+    writer.write(text.substring(0, 1001));
+    writer.write(text, 1001, text.length() - 1001);
+    writer.close();
+    expect(utf16, bytes.toByteArray());
+
+    bytes = new ByteArrayOutputStream();
+    writer = new OutputStreamWriter(bytes, StandardCharsets.US_ASCII);
+    writer.write("a\u00e9\ud800");
+    writer.close();
+    expect(bytes(0x61, 0x3F, 0x3F), bytes.toByteArray());
+
+    bytes = new ByteArrayOutputStream();
+    PrintStream print = new PrintStream(bytes, false, "UTF-16");
+    print.print("a");
+    print.print(12);
+    print.close();
+    expect(bytes(0xFE, 0xFF, 0x00, 0x61, 0x00, 0x31, 0x00, 0x32),
+           bytes.toByteArray());
+
+    bytes = new ByteArrayOutputStream();
+    print = new PrintStream(bytes, false, "ISO-8859-1");
+    print.print("\u00e9");
+    print.close();
+    expect(bytes(0xE9), bytes.toByteArray());
+  }
+
+  public static void main(String[] args) throws Exception {
+    testLookup();
+    testRoundTrips();
+    testMalformed();
+    testByteOrderMarks();
+    testPieces();
+    testStreams();
+  }
+}
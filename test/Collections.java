@@ -1,12 +1,25 @@
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class Collections {
   public static void main(String[] args) {
     testValues();
     testSort();
+    testSetRemove(new HashSet<Integer>());
+    testSetRemove(new LinkedHashSet<Integer>());
+  }
+
+  private static void testSetRemove(Set<Integer> set) {
+    expect(set.add(42));
+    expect(! set.add(42));
+    expect(set.remove(42));
+    expect(! set.remove(42));
+    expect(set.isEmpty());
   }
   
   @SuppressWarnings("rawtypes")
@@ -0,0 +1,95 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks that concurrent puts, replaces and removes on disjoint keys
+ * all take effect while the table is being resized underneath them.
+ */
+public class ConcurrentHashMapResize {
+  private static final int ThreadCount = 4;
+  private static final int KeysPerThread = 5000;
+  private static final int Rounds = 3;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static void work(ConcurrentHashMap<Integer, Integer> map, int base) {
+    for (int round = 0; round < Rounds; ++round) {
+      for (int i = base; i < base + KeysPerThread; ++i) {
+        expect(map.put(i, i) == null);
+      }
+
+      for (int i = base; i < base + KeysPerThread; ++i) {
+        expect(map.get(i) == i);
+        expect(map.replace(i, i, -i));
+        // a key owned by another thread which may or may not be
+        // present right now:
+        int otherKey = (i + KeysPerThread) % (ThreadCount * KeysPerThread);
+        Integer other = map.get(otherKey);
+        expect(other == null || Math.abs(other) == otherKey);
+      }
+
+      for (int i = base; i < base + KeysPerThread; ++i) {
+        if (round == Rounds - 1 && (i & 1) == 0) {
+          continue;
+        }
+        expect(map.remove(i) == -i);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Throwable {
+    // start small so the table is resized many times while the
+    // threads are running
+    final ConcurrentHashMap<Integer, Integer> map
+      = new ConcurrentHashMap<Integer, Integer>(2);
+    final Throwable[] exception = new Throwable[1];
+    Thread[] threads = new Thread[ThreadCount];
+
+    for (int i = 0; i < ThreadCount; ++i) {
+      final int base = i * KeysPerThread;
+      threads[i] = new Thread() {
+          public void run() {
+            try {
+              work(map, base);
+            } catch (Throwable e) {
+              synchronized (exception) {
+                exception[0] = e;
+              }
+              e.printStackTrace();
+            }
+          }
+        };
+      threads[i].start();
+    }
+
+    for (Thread thread: threads) {
+      thread.join();
+    }
+
+    expect(exception[0] == null);
+
+    int expected = ThreadCount * KeysPerThread / 2;
+    expect(map.size() == expected);
+
+    int count = 0;
+    for (Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+         it.hasNext();)
+    {
+      Map.Entry<Integer, Integer> e = it.next();
+      expect(e.getKey() % 2 == 0);
+      expect(e.getValue() == - e.getKey());
+      ++ count;
+    }
+    expect(count == expected);
+
+    for (int i = 0; i < ThreadCount * KeysPerThread; i += 2) {
+      expect(map.containsKey(i));
+    }
+
+    map.clear();
+    expect(map.isEmpty());
+  }
+}
@@ -22,11 +22,24 @@ public class Datagrams {
   }
 
   public static void main(String[] args) throws Exception {
-    test(true);
-    test(false);
+    test(true, false);
+    test(false, false);
+    test(true, true);
+    test(false, true);
   }
 
-  private static void test(boolean send) throws Exception {
+  private static ByteBuffer wrap(byte[] array, boolean direct) {
+    if (direct) {
+      ByteBuffer b = ByteBuffer.allocateDirect(array.length);
+      b.put(array);
+      b.flip();
+      return b;
+    } else {
+      return ByteBuffer.wrap(array);
+    }
+  }
+
+  private static void test(boolean send, boolean direct) throws Exception {
     final String Hostname = "localhost";
     final int InPort = 22043;
     final int OutPort = 22044;
@@ -54,7 +67,9 @@ public class Datagrams {
             (selector, SelectionKey.OP_READ, null);
 
           int state = 0;
-          ByteBuffer inBuffer = ByteBuffer.allocate(Message.length);
+          ByteBuffer inBuffer = direct
+            ? ByteBuffer.allocateDirect(Message.length)
+            : ByteBuffer.allocate(Message.length);
           loop: while (true) {
             selector.select();
 
@@ -62,9 +77,9 @@ public class Datagrams {
             case 0: {
               if (outKey.isWritable()) {
                 if (send) {
-                  out.send(ByteBuffer.wrap(Message), InAddress);
+                  out.send(wrap(Message, direct), InAddress);
                 } else {
-                  out.write(ByteBuffer.wrap(Message));
+                  out.write(wrap(Message, direct));
                 }
                 state = 1;
               }
@@ -74,11 +89,10 @@ public class Datagrams {
               if (inKey.isReadable()) {
                 expect(in.receive(inBuffer).equals(OutAddress));
                 if (! inBuffer.hasRemaining()) {
-                  expect(equal(inBuffer.array(),
-                               inBuffer.arrayOffset(),
-                               Message,
-                               0,
-                               Message.length));
+                  byte[] received = new byte[Message.length];
+                  inBuffer.flip();
+                  inBuffer.get(received);
+                  expect(equal(received, 0, Message, 0, Message.length));
                   break loop;
                 }
               }
@@ -0,0 +1,328 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class FileChannels {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static byte[] pattern(int length) {
+    byte[] array = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      array[i] = (byte) (i * 31);
+    }
+    return array;
+  }
+
+  private static void streamTest(File file) throws Exception {
+    byte[] data = pattern(10000);
+
+    FileOutputStream out = new FileOutputStream(file);
+    FileChannel outChannel = out.getChannel();
+    expect(outChannel == out.getChannel());
+
+    ByteBuffer heap = ByteBuffer.wrap(data, 0, 4000);
+    expect(outChannel.write(heap) == 4000);
+    expect(heap.remaining() == 0);
+
+    // the stream and the channel share a file position
+    out.write(data, 4000, 1000);
+    expect(outChannel.position() == 5000);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(5000);
+    direct.put(data, 5000, 5000);
+    direct.flip();
+    while (direct.hasRemaining()) {
+      outChannel.write(direct);
+    }
+    expect(outChannel.size() == data.length);
+
+    try {
+      outChannel.read(ByteBuffer.allocate(1));
+      expect(false);
+    } catch (NonReadableChannelException e) {
+      // expected
+    }
+
+    out.close();
+    expect(! outChannel.isOpen());
+
+    FileInputStream in = new FileInputStream(file);
+    FileChannel inChannel = in.getChannel();
+    expect(inChannel.size() == data.length);
+
+    direct = ByteBuffer.allocateDirect(data.length);
+    while (direct.hasRemaining()) {
+      expect(inChannel.read(direct) > 0);
+    }
+    expect(inChannel.read(ByteBuffer.allocate(1)) == -1);
+    direct.flip();
+    for (int i = 0; i < data.length; ++i) {
+      expect(direct.get() == data[i]);
+    }
+
+    // positional reads leave the position alone
+    heap = ByteBuffer.allocate(10);
+    expect(inChannel.read(heap, 100) == 10);
+    expect(inChannel.position() == data.length);
+    for (int i = 0; i < 10; ++i) {
+      expect(heap.get(i) == data[100 + i]);
+    }
+
+    inChannel.position(42);
+    expect(in.read() == (data[42] & 0xFF));
+
+    try {
+      inChannel.map(FileChannel.MapMode.READ_WRITE, 0, 10);
+      expect(false);
+    } catch (NonWritableChannelException e) {
+      // expected
+    }
+
+    MappedByteBuffer mapped = inChannel.map
+      (FileChannel.MapMode.READ_ONLY, 0, data.length);
+    expect(mapped.isDirect());
+    expect(mapped.isReadOnly());
+
+    inChannel.close();
+    expect(! inChannel.isOpen());
+
+    try {
+      inChannel.size();
+      expect(false);
+    } catch (ClosedChannelException e) {
+      // expected
+    }
+
+    // the mapping outlives the channel
+    mapped.load();
+    for (int i = 0; i < data.length; ++i) {
+      expect(mapped.get(i) == data[i]);
+    }
+  }
+
+  private static void mapTest(File file) throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    FileChannel channel = raf.getChannel();
+
+    // mapping past the end of the file extends it, and an unaligned
+    // position is handled transparently
+    int size = 3 * 4096;
+    MappedByteBuffer buffer = channel.map
+      (FileChannel.MapMode.READ_WRITE, 1000, size);
+    expect(channel.size() == 1000 + size);
+    expect(buffer.capacity() == size);
+    expect(! buffer.isReadOnly());
+
+    for (int i = 0; i < size; i += 4) {
+      buffer.putInt(i / 4);
+    }
+    buffer.force();
+
+    ByteBuffer check = ByteBuffer.allocate(8);
+    expect(channel.read(check, 1000 + 400) == 8);
+    check.flip();
+    expect(check.getInt() == 100);
+    expect(check.getInt() == 101);
+
+    ByteBuffer slice = ((ByteBuffer) buffer.position(4096)).slice();
+    expect(slice.getInt(0) == 1024);
+    slice.putInt(0, -1);
+    expect(buffer.getInt(4096) == -1);
+
+    // private mappings don't write through
+    MappedByteBuffer copy = channel.map
+      (FileChannel.MapMode.PRIVATE, 1000, size);
+    copy.putInt(0, 12345);
+    expect(buffer.getInt(0) == 0);
+
+    // the RandomAccessFile and its channel share a position
+    raf.seek(1000 + 8);
+    check.clear();
+    expect(channel.read(check) == 8);
+    expect(raf.getFilePointer() == 1000 + 16);
+    check.flip();
+    expect(check.getInt() == 2);
+
+    MappedByteBuffer empty = channel.map(FileChannel.MapMode.READ_ONLY, 0, 0);
+    expect(empty.capacity() == 0);
+
+    raf.close();
+    expect(! channel.isOpen());
+
+    RandomAccessFile ro = new RandomAccessFile(file, "r");
+    try {
+      ro.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, 1000 + size + 1);
+      expect(false);
+    } catch (IOException e) {
+      // expected: can't extend a read-only file
+    }
+    ro.close();
+  }
+
+  private static void write(File file, byte[] data) throws Exception {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void expectContents(File file, byte[] data, int offset,
+                                     int length)
+    throws Exception
+  {
+    expect(file.length() == length);
+    FileChannel channel = new FileInputStream(file).getChannel();
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining()) {
+        expect(channel.read(buffer) > 0);
+      }
+      for (int i = 0; i < length; ++i) {
+        expect(buffer.get(i) == data[offset + i]);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  private static void transferFileTest(File source, File target)
+    throws Exception
+  {
+    byte[] data = pattern(200 * 1000);
+    write(source, data);
+
+    FileChannel in = new FileInputStream(source).getChannel();
+    FileChannel out = new FileOutputStream(target).getChannel();
+    try {
+      expect(in.transferTo(1000, data.length, out) == data.length - 1000);
+      // transferTo leaves the source position alone but advances the
+      // target's
+      expect(in.position() == 0);
+      expect(out.position() == data.length - 1000);
+      expect(in.transferTo(data.length, 10, out) == 0);
+    } finally {
+      in.close();
+      out.close();
+    }
+    expectContents(target, data, 1000, data.length - 1000);
+
+    // a RandomAccessFile target keeps its own position
+    RandomAccessFile raf = new RandomAccessFile(target, "rw");
+    in = new FileInputStream(source).getChannel();
+    try {
+      raf.seek(10);
+      expect(in.transferTo(0, 100, raf.getChannel()) == 100);
+      expect(raf.getFilePointer() == 110);
+    } finally {
+      in.close();
+      raf.close();
+    }
+    byte[] expected = new byte[data.length - 1000];
+    System.arraycopy(data, 1000, expected, 0, expected.length);
+    System.arraycopy(data, 0, expected, 10, 100);
+    expectContents(target, expected, 0, expected.length);
+
+    // transferFrom writes at the given position and advances the source
+    raf = new RandomAccessFile(target, "rw");
+    in = new FileInputStream(source).getChannel();
+    try {
+      in.position(500);
+      expect(raf.getChannel().transferFrom(in, 20, 300) == 300);
+      expect(in.position() == 800);
+      expect(raf.getFilePointer() == 0);
+      expect(raf.getChannel().transferFrom(in, expected.length + 1, 10) == 0);
+    } finally {
+      in.close();
+      raf.close();
+    }
+    System.arraycopy(data, 500, expected, 20, 300);
+    expectContents(target, expected, 0, expected.length);
+  }
+
+  private static void transferSocketTest(File source) throws Exception {
+    final int Port = 22050; // hopefully this port is unused
+    final SocketAddress Address = new InetSocketAddress("localhost", Port);
+    final byte[] data = pattern(1000 * 1000);
+    write(source, data);
+
+    ServerSocketChannel server = ServerSocketChannel.open();
+    try {
+      server.socket().bind(Address);
+
+      SocketChannel client = SocketChannel.open();
+      try {
+        client.connect(Address);
+        final SocketChannel peer = server.accept();
+        final ByteBuffer received = ByteBuffer.allocate(data.length - 10);
+        final Exception[] failure = new Exception[1];
+        Thread reader = new Thread() {
+            public void run() {
+              try {
+                while (received.hasRemaining()) {
+                  if (peer.read(received) < 0) break;
+                }
+              } catch (Exception e) {
+                failure[0] = e;
+              }
+            }
+          };
+        reader.start();
+
+        FileChannel in = new FileInputStream(source).getChannel();
+        try {
+          long total = 0;
+          while (total < data.length - 10) {
+            long n = in.transferTo(10 + total, data.length, client);
+            expect(n > 0);
+            total += n;
+          }
+          expect(total == data.length - 10);
+        } finally {
+          in.close();
+        }
+
+        reader.join();
+        peer.close();
+        expect(failure[0] == null);
+        expect(! received.hasRemaining());
+        for (int i = 0; i < data.length - 10; ++i) {
+          expect(received.get(i) == data[10 + i]);
+        }
+      } finally {
+        client.close();
+      }
+    } finally {
+      server.close();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    File file = File.createTempFile("avian.", null);
+    File other = File.createTempFile("avian.", null);
+    try {
+      streamTest(file);
+      mapTest(file);
+      transferFileTest(file, other);
+      transferSocketTest(file);
+    } finally {
+      expect(file.delete());
+      expect(other.delete());
+    }
+  }
+}
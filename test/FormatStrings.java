@@ -200,6 +200,9 @@ public class FormatStrings {
     _testFormat("Octal `303240`", "Octal `%o`", new Long((long)100000));
     _testFormat("Octal `77`", "Octal `%o`", new Long((long)63));
     _testFormat("Octal `100`", "Octal `%o`", new Long((long)64));
+    _testFormat("Octal `1777777777777777777777`", "Octal `%o`", new Long((long)-1));
+    _testFormat("Octal `1777777777777777777634`", "Octal `%o`", new Long((long)-100));
+    _testFormat("Octal `1000000000000000000000`", "Octal `%o`", new Long(Long.MIN_VALUE));
     _testFormat("Octal `1`", "Octal `%o`", new Short((short)1));
     _testFormat("Octal `0`", "Octal `%o`", new Short((short)0));
     _testFormat("Octal `144`", "Octal `%o`", new Short((short)100));
@@ -258,6 +261,8 @@ public class FormatStrings {
     _testFormat("HexDec `FFFFFFFFFFFFFF9C`", "HexDec `%X`", new Long((long)-100));
     _testFormat("HexDec `fffffffffffe7960`", "HexDec `%x`", new Long((long)-100000));
     _testFormat("HexDec `FFFFFFFFFFFE7960`", "HexDec `%X`", new Long((long)-100000));
+    _testFormat("HexDec `ffffffff00000000`", "HexDec `%x`", new Long(-0x100000000L));
+    _testFormat("HexDec `8000000000000000`", "HexDec `%x`", new Long(Long.MIN_VALUE));
     _testFormat("HexDec `1`", "HexDec `%x`", new Short((short)1));
     _testFormat("HexDec `1`", "HexDec `%X`", new Short((short)1));
     _testFormat("HexDec `0`", "HexDec `%x`", new Short((short)0));
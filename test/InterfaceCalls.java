@@ -0,0 +1,118 @@
+public class InterfaceCalls {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private interface Shape {
+    int sides();
+  }
+
+  private interface Hashed {
+    int hashCode();
+  }
+
+  private interface Wide {
+    long combine(int a, long b, Object c, double d, Object e);
+  }
+
+  private static class A implements Shape { public int sides() { return 1; } }
+  private static class B implements Shape { public int sides() { return 2; } }
+  private static class C implements Shape { public int sides() { return 3; } }
+  private static class D implements Shape { public int sides() { return 4; } }
+  private static class E implements Shape { public int sides() { return 5; } }
+  private static class F implements Shape { public int sides() { return 6; } }
+  private static class G implements Shape { public int sides() { return 7; } }
+  private static class H implements Shape { public int sides() { return 8; } }
+  private static class I implements Shape { public int sides() { return 9; } }
+  private static class J implements Shape { public int sides() { return 10; } }
+
+  // inherits its implementation from a superclass
+  private static class K extends J { }
+
+  private static class Thrower implements Shape {
+    public int sides() {
+      throw new IllegalStateException();
+    }
+  }
+
+  private static class Plain implements Hashed { }
+
+  private static class Combiner implements Wide {
+    public long combine(int a, long b, Object c, double d, Object e) {
+      return a + b + c.hashCode() + (long) d + e.hashCode();
+    }
+  }
+
+  private static int sides(Shape s) {
+    return s.sides();
+  }
+
+  private static int hash(Hashed h) {
+    return h.hashCode();
+  }
+
+  private static long combine(Wide w, Object c, Object e) {
+    return w.combine(1, 2L << 40, c, 3.5, e);
+  }
+
+  public static void main(String[] args) {
+    // monomorphic
+    Shape a = new A();
+    for (int i = 0; i < 100; ++i) {
+      expect(sides(a) == 1);
+    }
+
+    // the site must switch to a new class rather than calling the
+    // cached one
+    expect(sides(new B()) == 2);
+    expect(sides(a) == 1);
+
+    // megamorphic
+    Shape[] shapes = new Shape[] {
+      new A(), new B(), new C(), new D(), new E(), new F(), new G(),
+      new H(), new I(), new J(), new K()
+    };
+    for (int i = 0; i < 100; ++i) {
+      for (int j = 0; j < shapes.length; ++j) {
+        expect(sides(shapes[j]) == Math.min(j + 1, 10));
+      }
+    }
+
+    // garbage collection moves classes and cache entries
+    for (int i = 0; i < 10; ++i) {
+      System.gc();
+      for (int j = 0; j < shapes.length; ++j) {
+        expect(sides(shapes[j]) == Math.min(j + 1, 10));
+      }
+    }
+
+    try {
+      sides(null);
+      expect(false);
+    } catch (NullPointerException e) {
+      // expected
+    }
+
+    try {
+      sides(new Thrower());
+      expect(false);
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    expect(sides(a) == 1);
+
+    // Object.hashCode is native
+    Plain p = new Plain();
+    for (int i = 0; i < 10; ++i) {
+      expect(hash(p) == p.hashCode());
+    }
+
+    Object c = new Object();
+    Object e = "foo";
+    Wide w = new Combiner();
+    for (int i = 0; i < 10; ++i) {
+      expect(combine(w, c, e)
+             == 1 + (2L << 40) + c.hashCode() + 3 + e.hashCode());
+    }
+  }
+}
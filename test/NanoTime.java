@@ -0,0 +1,72 @@
+import java.util.concurrent.locks.LockSupport;
+
+public class NanoTime {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  public static void main(String[] args) throws Exception {
+    { long last = System.nanoTime();
+      for (int i = 0; i < 100000; ++i) {
+        long now = System.nanoTime();
+        expect(now >= last);
+        last = now;
+      }
+    }
+
+    // the clock must resolve intervals well under a millisecond
+    { long start = System.nanoTime();
+      long now;
+      do {
+        now = System.nanoTime();
+      } while (now == start);
+      expect(now - start < 1000 * 1000);
+    }
+
+    // a sub-millisecond park must neither return early nor be rounded
+    // up to something much longer
+    { long timeout = 200 * 1000;
+      long start = System.nanoTime();
+      LockSupport.parkNanos(timeout);
+      long elapsed = System.nanoTime() - start;
+      expect(elapsed >= timeout);
+      expect(elapsed < 1000 * 1000 * 1000);
+    }
+
+    { long start = System.nanoTime();
+      Thread.sleep(5);
+      expect(System.nanoTime() - start >= 5 * 1000 * 1000);
+    }
+
+    // an absolute deadline in the past returns immediately
+    LockSupport.parkUntil(System.currentTimeMillis() - 1000);
+
+    // and one in the near future is honored
+    { long start = System.nanoTime();
+      LockSupport.parkUntil(System.currentTimeMillis() + 10);
+      expect(System.nanoTime() - start >= 1000 * 1000);
+    }
+
+    LockSupport.parkUntil(Long.MIN_VALUE);
+
+    // one too far away to count in nanoseconds waits until unparked
+    { final Thread main = Thread.currentThread();
+      Thread unparker = new Thread() {
+          public void run() {
+            try {
+              Thread.sleep(50);
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            LockSupport.unpark(main);
+          }
+        };
+
+      long start = System.nanoTime();
+      unparker.start();
+      LockSupport.parkUntil(Long.MAX_VALUE);
+      expect(System.nanoTime() - start >= 10 * 1000 * 1000);
+      unparker.join();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+import java.util.Random;
+
+public class NumberStrings {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static void expect(String expected, String actual) {
+    if (! expected.equals(actual)) {
+      throw new RuntimeException("expected " + expected + " got " + actual);
+    }
+  }
+
+  private static void expectFormatError(String s) {
+    try {
+      Integer.parseInt(s);
+      throw new RuntimeException("accepted " + s);
+    } catch (NumberFormatException e) { }
+  }
+
+  private static void testIntegers() {
+    expect("0", Long.toString(0));
+    expect("-1", Integer.toString(-1));
+    expect("123456789", Integer.toString(123456789));
+    expect("-2147483648", Integer.toString(Integer.MIN_VALUE));
+    expect("9223372036854775807", Long.toString(Long.MAX_VALUE));
+    expect("-9223372036854775808", Long.toString(Long.MIN_VALUE));
+    expect("-128", Byte.toString(Byte.MIN_VALUE));
+    expect("32767", Short.toString(Short.MAX_VALUE));
+
+    expect("-zik0zj", Integer.toString(Integer.MIN_VALUE + 1, 36));
+    expect("-1010", Long.toString(-10, 2));
+    expect("ff", Integer.toHexString(255));
+    expect("ffffffff", Integer.toHexString(-1));
+    expect("ffffffffffffffff", Long.toHexString(-1));
+    expect("8000000000000000", Long.toHexString(Long.MIN_VALUE));
+    expect("1777777777777777777777", Long.toOctalString(-1));
+    expect("0", Long.toBinaryString(0));
+    expect("101", Integer.toBinaryString(5));
+
+    StringBuilder sb = new StringBuilder();
+    sb.append(42).append(' ').append(-7L).append(' ').append(Long.MIN_VALUE);
+    expect("42 -7 -9223372036854775808", sb.toString());
+
+    expect(Integer.parseInt("+17") == 17);
+    expect(Integer.parseInt("-0") == 0);
+    expect(Integer.parseInt("2147483647") == Integer.MAX_VALUE);
+    expect(Integer.parseInt("-2147483648") == Integer.MIN_VALUE);
+    expect(Integer.parseInt("7fffffff", 16) == Integer.MAX_VALUE);
+    expect(Long.parseLong("-9223372036854775808") == Long.MIN_VALUE);
+    expect(Long.parseLong("Zz", 36) == 1295);
+    expect(Byte.parseByte("-128") == Byte.MIN_VALUE);
+
+    expectFormatError("");
+    expectFormatError("-");
+    expectFormatError("+");
+    expectFormatError("1a");
+    expectFormatError("--1");
+    expectFormatError("2147483648");
+    expectFormatError("-2147483649");
+    expectFormatError("99999999999");
+
+    try {
+      Long.parseLong("9223372036854775808");
+      throw new RuntimeException();
+    } catch (NumberFormatException e) { }
+
+    try {
+      Byte.parseByte("128");
+      throw new RuntimeException();
+    } catch (NumberFormatException e) { }
+
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; ++i) {
+      long v = random.nextLong() >> random.nextInt(64);
+      expect(Long.parseLong(Long.toString(v)) == v);
+      expect(Long.parseLong(Long.toString(v, 7), 7) == v);
+      expect(Long.toString(v).equals(new StringBuilder().append(v).toString()));
+    }
+  }
+
+  private static void testDoubles() {
+    expect("0.0", Double.toString(0.0));
+    expect("-0.0", Double.toString(-0.0));
+    expect("NaN", Double.toString(Double.NaN));
+    expect("Infinity", Double.toString(Double.POSITIVE_INFINITY));
+    expect("-Infinity", Double.toString(Double.NEGATIVE_INFINITY));
+    expect("1.0", Double.toString(1.0));
+    expect("0.1", Double.toString(0.1));
+    expect("0.30000000000000004", Double.toString(0.1 + 0.2));
+    expect("100.0", Double.toString(100));
+    expect("-123.456", Double.toString(-123.456));
+    expect("9999999.0", Double.toString(9999999));
+    expect("1.0E7", Double.toString(1e7));
+    expect("0.001", Double.toString(1e-3));
+    expect("1.0E-4", Double.toString(1e-4));
+    expect("1.2345678E-5", Double.toString(1.2345678e-5));
+    expect("1.0E23", Double.toString(1e23));
+    expect("9.007199254740991E15", Double.toString(9007199254740991.0));
+    expect("1.7976931348623157E308", Double.toString(Double.MAX_VALUE));
+    expect("2.2250738585072014E-308", Double.toString(2.2250738585072014E-308));
+    expect("4.9E-324", Double.toString(Double.longBitsToDouble(1)));
+    expect("9.9E-324", Double.toString(Double.longBitsToDouble(2)));
+
+    expect("1.0", Float.toString(1f));
+    expect("0.1", Float.toString(0.1f));
+    expect("3.4028235E38", Float.toString(Float.MAX_VALUE));
+    expect("1.1754944E-38", Float.toString(1.17549435E-38f));
+    expect("1.4E-45", Float.toString(Float.intBitsToFloat(1)));
+    expect("1.0E10", Float.toString(1e10f));
+    expect("3.1415927", Float.toString((float) Math.PI));
+
+    StringBuilder sb = new StringBuilder();
+    sb.append(0.5).append(' ').append(-2.5f).append(' ').append(1e100);
+    expect("0.5 -2.5 1.0E100", sb.toString());
+
+    expect(Double.parseDouble("1") == 1.0);
+    expect(Double.parseDouble("-1.5e3") == -1500.0);
+    expect(Double.parseDouble(".25") == 0.25);
+    expect(Double.parseDouble("1e-22") == 1e-22);
+    expect(Double.parseDouble("4.9E-324") == Double.longBitsToDouble(1));
+    expect(Double.parseDouble("1.7976931348623157E308") == Double.MAX_VALUE);
+    expect(Double.parseDouble("123456789012345678901234567890")
+           == 123456789012345678901234567890.0);
+    expect(Float.parseFloat("0.1") == 0.1f);
+    expect(Float.parseFloat("3.4028235E38") == Float.MAX_VALUE);
+    expect(1 / Double.parseDouble("-0.0") == Double.NEGATIVE_INFINITY);
+
+    try {
+      Double.parseDouble("1e");
+      throw new RuntimeException();
+    } catch (NumberFormatException e) { }
+
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; ++i) {
+      double d = Double.longBitsToDouble(random.nextLong());
+      if (d == d) {
+        expect(Double.parseDouble(Double.toString(d)) == d);
+      }
+
+      float f = Float.intBitsToFloat(random.nextInt());
+      if (f == f) {
+        expect(Float.parseFloat(Float.toString(f)) == f);
+      }
+
+      double simple = random.nextInt(1000000) / 1000.0;
+      expect(Double.parseDouble(Double.toString(simple)) == simple);
+    }
+  }
+
+  public static void main(String[] args) {
+    testIntegers();
+    testDoubles();
+  }
+}
@@ -44,6 +44,14 @@ public class Regex {
     expect(!matcher.find());
   }
 
+  private static boolean matches(String regex, int flags, String string) {
+    return Pattern.compile(regex, flags).matcher(string).matches();
+  }
+
+  private static boolean finds(String regex, int flags, String string) {
+    return Pattern.compile(regex, flags).matcher(string).find();
+  }
+
   private static void expectSplit(String regex, String string,
       String... list)
   {
@@ -98,5 +106,74 @@ public class Regex {
     expectGroups("a??(a{3}?)", "aaaa", "aaa");
     expectNoMatch("a(a{3}?)", "aaaaa");
     expectMatch("a(a{3,}?)", "aaaaa");
+
+    // literal prefixes, non-ASCII input and repeated use of a pattern
+    expectFind("ab+c", "xxabbcxabcxab", "abbc", "abc");
+    expectFind("\u00e9[a-z]+", "caf\u00e9s \u00e9t\u00e9", "\u00e9s",
+      "\u00e9t");
+    for (int i = 0; i < 3; ++i) {
+      expectNoMatch("^x*y$", "xxxz");
+      expectMatch("^x*y$", "xxxy");
+      expectFind("x*y$", "xyxxy", "xxy");
+    }
+
+    // the automaton for this has thousands of states, more than the
+    // DFA is willing to build, so matching must fall back gracefully
+    { Pattern p = Pattern.compile("(a|b)*a(a|b){12}");
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 5000; ++i) {
+        sb.append((i * 7) % 3 == 0 ? 'a' : 'b');
+      }
+      String s = sb.toString();
+      expect(p.matcher(s).matches()
+             == (s.charAt(s.length() - 13) == 'a'));
+      expect(p.matcher(s + "abbbbbbbbbbbb").matches());
+      expect(!p.matcher(s + "bbbbbbbbbbbbb").matches());
+    }
+
+    expect(matches("hello", Pattern.CASE_INSENSITIVE, "HeLLo"));
+    expect(!matches("hello", 0, "HeLLo"));
+    expect(matches("[a-c]+x", Pattern.CASE_INSENSITIVE, "AbCX"));
+    expect(!matches("[^a]", Pattern.CASE_INSENSITIVE, "A"));
+    expect(matches("\\x41\\d", Pattern.CASE_INSENSITIVE, "a1"));
+    expect(finds("(?<=b)c", Pattern.CASE_INSENSITIVE, "aBC"));
+    { Matcher m = Pattern.compile("b(a+)", Pattern.CASE_INSENSITIVE)
+        .matcher("xxBaAAyy");
+      expect(m.find());
+      expect(m.start() == 2 && m.end() == 6);
+      expect("aAA".equals(m.group(1)));
+    }
+
+    expect(matches("a.b+", Pattern.LITERAL, "a.b+"));
+    expect(!matches("a.b", Pattern.LITERAL, "axb"));
+    expect(matches("a.B", Pattern.LITERAL | Pattern.CASE_INSENSITIVE,
+                   "A.b"));
+    expect(!matches("a.B", Pattern.LITERAL | Pattern.CASE_INSENSITIVE,
+                    "A!b"));
+
+    expect(!matches("a.b", 0, "a\nb"));
+    expect(matches("a.b", Pattern.DOTALL, "a\nb"));
+    expect(matches("a.*b", Pattern.DOTALL, "a\r\n\nb"));
+
+    expect(!finds("^b", 0, "a\nb"));
+    expect(finds("^b", Pattern.MULTILINE, "a\nb"));
+    expect(!finds("a$", 0, "a\nb"));
+    expect(finds("a$", Pattern.MULTILINE, "a\nb"));
+    expect(finds("^b$", Pattern.MULTILINE, "a\r\nb\r\nc"));
+    { Matcher m = Pattern.compile("^[a-z]+$", Pattern.MULTILINE)
+        .matcher("one\ntwo 2\nthree");
+      expect(m.find());
+      expect("one".equals(m.group()));
+      expect(m.find());
+      expect("three".equals(m.group()));
+      expect(!m.find());
+    }
+
+    try {
+      Pattern.compile("a # comment", Pattern.COMMENTS);
+      expect(false);
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
   }
 }
@@ -0,0 +1,210 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ScheduledThreadPoolExecutorTest {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static boolean await(AtomicInteger counter, int target)
+    throws InterruptedException
+  {
+    long start = System.currentTimeMillis();
+    while (counter.get() < target) {
+      if (System.currentTimeMillis() - start > 5000) {
+        return false;
+      }
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  public static void main(String[] args) throws Exception {
+    orderTest();
+    callableTest();
+    manyTimersTest();
+    fixedRateTest();
+    fixedDelayTest();
+    cancelTest();
+    shutdownTest();
+  }
+
+  private static void orderTest() throws Exception {
+    ScheduledExecutorService executor
+      = Executors.newSingleThreadScheduledExecutor();
+    final List<Integer> order = new ArrayList<Integer>();
+
+    // get the worker started so it does not slow down the scheduling
+    // below
+    executor.submit(new Runnable() {
+        public void run() { }
+      }).get();
+
+    // schedule in reverse so the heap has to reorder them, measuring
+    // each delay from a common base so that the order does not depend
+    // on how long scheduling takes
+    long base = System.nanoTime();
+    for (int i = 4; i >= 0; --i) {
+      final int index = i;
+      long due = base + TimeUnit.MILLISECONDS.toNanos(i * 5);
+      executor.schedule(new Runnable() {
+          public void run() {
+            synchronized (order) {
+              order.add(index);
+            }
+          }
+        }, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    executor.shutdown();
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+    expect(order.size() == 5);
+    for (int i = 0; i < 5; ++i) {
+      expect(order.get(i) == i);
+    }
+  }
+
+  private static void callableTest() throws Exception {
+    ScheduledExecutorService executor
+      = Executors.newSingleThreadScheduledExecutor();
+    long start = System.currentTimeMillis();
+    ScheduledFuture<Integer> future = executor.schedule
+      (new Callable<Integer>() {
+          public Integer call() {
+            return 42;
+          }
+        }, 20, TimeUnit.MILLISECONDS);
+
+    expect(future.getDelay(TimeUnit.MILLISECONDS) <= 20);
+    expect(future.get() == 42);
+    expect(System.currentTimeMillis() - start >= 19);
+    expect(future.getDelay(TimeUnit.MILLISECONDS) <= 0);
+
+    expect(executor.submit(new Callable<Integer>() {
+        public Integer call() {
+          return 7;
+        }
+      }).get() == 7);
+
+    executor.shutdown();
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void manyTimersTest() throws Exception {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
+    final int count = 2000;
+    final AtomicInteger runs = new AtomicInteger();
+    for (int i = 0; i < count; ++i) {
+      executor.schedule(new Runnable() {
+          public void run() {
+            runs.incrementAndGet();
+          }
+        }, i % 20, TimeUnit.MILLISECONDS);
+    }
+
+    expect(await(runs, count));
+    expect(executor.getLargestPoolSize() <= 2);
+
+    executor.shutdown();
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void fixedRateTest() throws Exception {
+    ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    final AtomicInteger runs = new AtomicInteger();
+    ScheduledFuture<?> future = executor.scheduleAtFixedRate(new Runnable() {
+        public void run() {
+          runs.incrementAndGet();
+        }
+      }, 0, 2, TimeUnit.MILLISECONDS);
+
+    expect(await(runs, 5));
+    expect(! future.isDone());
+    expect(future.cancel(false));
+    expect(future.isCancelled());
+
+    executor.shutdown();
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void fixedDelayTest() throws Exception {
+    ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+    final AtomicInteger runs = new AtomicInteger();
+    executor.scheduleWithFixedDelay(new Runnable() {
+        public void run() {
+          if (runs.incrementAndGet() == 3) {
+            // a periodic task stops once it throws
+            throw new RuntimeException();
+          }
+        }
+      }, 1, 1, TimeUnit.MILLISECONDS);
+
+    expect(await(runs, 3));
+    Thread.sleep(20);
+    expect(runs.get() == 3);
+
+    executor.shutdown();
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void cancelTest() throws Exception {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    executor.setRemoveOnCancelPolicy(true);
+    final AtomicInteger runs = new AtomicInteger();
+    Runnable task = new Runnable() {
+        public void run() {
+          runs.incrementAndGet();
+        }
+      };
+
+    List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+    for (int i = 0; i < 100; ++i) {
+      futures.add(executor.schedule(task, 1, TimeUnit.HOURS));
+    }
+    expect(executor.getQueue().size() == 100);
+
+    for (int i = 0; i < 100; i += 2) {
+      expect(futures.get(i).cancel(false));
+    }
+    expect(executor.getQueue().size() == 50);
+
+    List<Runnable> pending = executor.shutdownNow();
+    expect(pending.size() == 50);
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+    expect(runs.get() == 0);
+  }
+
+  private static void shutdownTest() throws Exception {
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    final AtomicInteger delayedRuns = new AtomicInteger();
+    final AtomicInteger periodicRuns = new AtomicInteger();
+
+    executor.schedule(new Runnable() {
+        public void run() {
+          delayedRuns.incrementAndGet();
+        }
+      }, 20, TimeUnit.MILLISECONDS);
+
+    ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(new Runnable() {
+        public void run() {
+          periodicRuns.incrementAndGet();
+        }
+      }, 10, 10, TimeUnit.MILLISECONDS);
+
+    // by default delayed tasks survive shutdown, but periodic ones
+    // do not
+    executor.shutdown();
+    expect(periodic.isCancelled());
+    expect(executor.awaitTermination(5, TimeUnit.SECONDS));
+    expect(delayedRuns.get() == 1);
+    expect(periodicRuns.get() == 0);
+  }
+}
@@ -0,0 +1,154 @@
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+public class Selectors {
+  private static final int Port = 22047; // hopefully this port is unused
+  private static final int ClientCount = 20;
+  private static final byte[] Message = "hello, world!".getBytes();
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static int selectFor(Selector selector, int interest)
+    throws Exception
+  {
+    int count = 0;
+    for (SelectionKey key : selector.selectedKeys()) {
+      if ((key.readyOps() & interest) != 0) {
+        ++ count;
+      }
+    }
+    return count;
+  }
+
+  public static void main(String[] args) throws Exception {
+    SocketAddress address = new InetSocketAddress("localhost", Port);
+
+    ServerSocketChannel server = ServerSocketChannel.open();
+    server.socket().bind(address);
+    server.configureBlocking(false);
+
+    Selector selector = Selector.open();
+    SelectionKey serverKey = server.register
+      (selector, SelectionKey.OP_ACCEPT, null);
+
+    // nothing is ready yet
+    expect(selector.selectNow() == 0);
+
+    SocketChannel[] clients = new SocketChannel[ClientCount];
+    for (int i = 0; i < ClientCount; ++i) {
+      clients[i] = SocketChannel.open();
+      clients[i].connect(address);
+      clients[i].write(ByteBuffer.wrap(Message));
+    }
+
+    SocketChannel[] accepted = new SocketChannel[ClientCount];
+    int acceptedCount = 0;
+    int received = 0;
+    long start = System.currentTimeMillis();
+    while (received < ClientCount * Message.length) {
+      expect(System.currentTimeMillis() - start < 5000);
+
+      selector.select(100);
+      for (SelectionKey key : selector.selectedKeys()) {
+        if (key.isAcceptable()) {
+          expect(key == serverKey);
+          SocketChannel c = server.accept();
+          c.configureBlocking(false);
+          c.register(selector, SelectionKey.OP_READ, acceptedCount);
+          accepted[acceptedCount++] = c;
+        } else if (key.isReadable()) {
+          ByteBuffer buffer = ByteBuffer.allocate(64);
+          int n = ((SocketChannel) key.channel()).read(buffer);
+          expect(n > 0);
+          received += n;
+        }
+      }
+    }
+    expect(acceptedCount == ClientCount);
+    expect(selector.keys().size() == ClientCount + 1);
+
+    // a key with no interest should not be reported, even though
+    // there is data waiting for it
+    SelectionKey key = null;
+    for (SelectionKey k : selector.keys()) {
+      if (k.attachment() != null && ((Integer) k.attachment()) == 0) {
+        key = k;
+      }
+    }
+    expect(key != null);
+
+    key.interestOps(0);
+    for (int i = 0; i < ClientCount; ++i) {
+      clients[i].write(ByteBuffer.wrap(Message));
+    }
+
+    // wait for the data to arrive on every socket but the quiet one
+    start = System.currentTimeMillis();
+    int readable = 0;
+    while (readable < ClientCount - 1) {
+      expect(System.currentTimeMillis() - start < 5000);
+      selector.select(100);
+      readable = selectFor(selector, SelectionKey.OP_READ);
+    }
+    expect(! selector.selectedKeys().contains(key));
+
+    key.interestOps(SelectionKey.OP_READ);
+    selector.selectNow();
+    expect(selector.selectedKeys().contains(key));
+
+    // closing a channel should drop its key
+    accepted[1].close();
+    selector.selectNow();
+    expect(selector.keys().size() == ClientCount);
+    for (SelectionKey k : selector.selectedKeys()) {
+      expect(k.channel() != accepted[1]);
+    }
+
+    // cancelling a key should do the same
+    key.cancel();
+    expect(! key.isValid());
+    selector.selectNow();
+    expect(selector.keys().size() == ClientCount - 1);
+    expect(! selector.selectedKeys().contains(key));
+
+    // wakeup should interrupt a blocking select
+    final Selector s = selector;
+    Thread waker = new Thread() {
+        public void run() {
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          s.wakeup();
+        }
+      };
+    for (Iterator<SelectionKey> it = selector.keys().iterator();
+         it.hasNext();)
+    {
+      it.next().interestOps(0);
+    }
+    start = System.currentTimeMillis();
+    waker.start();
+    expect(selector.select() == 0);
+    expect(System.currentTimeMillis() - start < 5000);
+    waker.join();
+
+    selector.close();
+    expect(! selector.isOpen());
+
+    for (int i = 0; i < ClientCount; ++i) {
+      clients[i].close();
+      accepted[i].close();
+    }
+    server.close();
+  }
+}
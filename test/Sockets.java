@@ -1,5 +1,8 @@
 import java.net.SocketAddress;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.io.IOException;
 
@@ -27,7 +30,164 @@ public class Sockets {
     }
   }
 
+  private static void transfer(SocketChannel from, ByteBuffer src,
+                               SocketChannel to, ByteBuffer dst)
+    throws Exception
+  {
+    while (src.hasRemaining()) {
+      from.write(src);
+    }
+
+    while (dst.hasRemaining()) {
+      expect(to.read(dst) > 0);
+    }
+  }
+
+  public static void testDirectBuffers() throws Exception {
+    final int Port = 22048; // hopefully this port is unused
+    final SocketAddress Address = new InetSocketAddress("localhost", Port);
+    final byte[] Message = "hello, world!".getBytes();
+
+    ServerSocketChannel server = ServerSocketChannel.open();
+    try {
+      server.socket().bind(Address);
+
+      SocketChannel client = SocketChannel.open();
+      try {
+        client.connect(Address);
+        SocketChannel peer = server.accept();
+        try {
+          // direct to direct
+          ByteBuffer src = ByteBuffer.allocateDirect(Message.length);
+          src.put(Message);
+          src.flip();
+          ByteBuffer dst = ByteBuffer.allocateDirect(Message.length);
+          transfer(client, src, peer, dst);
+
+          byte[] received = new byte[Message.length];
+          dst.flip();
+          dst.get(received);
+          expect(new String(received).equals(new String(Message)));
+
+          // heap to direct, starting part way into the buffer
+          dst.clear();
+          dst.position(3);
+          transfer(peer, ByteBuffer.wrap(Message, 3, Message.length - 3),
+                   client, dst);
+
+          dst.position(3);
+          received = new byte[Message.length - 3];
+          dst.get(received);
+          expect(new String(received).equals(new String(Message, 3,
+                                                        Message.length - 3)));
+
+          try {
+            client.read(dst.asReadOnlyBuffer());
+            expect(false);
+          } catch (ReadOnlyBufferException e) {
+            // expected
+          }
+        } finally {
+          peer.close();
+        }
+      } finally {
+        client.close();
+      }
+    } finally {
+      server.close();
+    }
+  }
+
+  private static ByteBuffer buffer(String s, boolean direct) {
+    byte[] bytes = s.getBytes();
+    if (direct) {
+      ByteBuffer b = ByteBuffer.allocateDirect(bytes.length);
+      b.put(bytes);
+      b.flip();
+      return b;
+    } else {
+      // leave some room on either side to exercise the array offset
+      ByteBuffer b = ByteBuffer.wrap(new byte[bytes.length + 4]);
+      b.position(2);
+      b.put(bytes);
+      b.position(2);
+      b.limit(2 + bytes.length);
+      return b.slice();
+    }
+  }
+
+  private static String string(ByteBuffer b) {
+    b.flip();
+    byte[] bytes = new byte[b.remaining()];
+    b.get(bytes);
+    return new String(bytes);
+  }
+
+  public static void testScatterGather(boolean blocking) throws Exception {
+    final int Port = 22049; // hopefully this port is unused
+    final SocketAddress Address = new InetSocketAddress("localhost", Port);
+
+    ServerSocketChannel server = ServerSocketChannel.open();
+    try {
+      server.socket().bind(Address);
+
+      SocketChannel client = SocketChannel.open();
+      try {
+        client.connect(Address);
+        SocketChannel peer = server.accept();
+        try {
+          client.configureBlocking(blocking);
+          peer.configureBlocking(blocking);
+
+          ByteBuffer[] message = new ByteBuffer[] {
+            buffer("unused", false),
+            buffer("header:", false),
+            buffer("body:", true),
+            buffer("trailer", false)
+          };
+
+          long total = 0;
+          while (message[3].hasRemaining()) {
+            long n = client.write(message, 1, 3);
+            expect(n >= 0);
+            total += n;
+          }
+          expect(total == "header:body:trailer".length());
+          expect(message[0].remaining() == "unused".length());
+
+          ByteBuffer[] parts = new ByteBuffer[] {
+            ByteBuffer.allocate(7),
+            ByteBuffer.allocateDirect(5),
+            ByteBuffer.allocate(16)
+          };
+
+          total = 0;
+          long start = System.currentTimeMillis();
+          while (total < "header:body:trailer".length()) {
+            expect(System.currentTimeMillis() - start < 5000);
+            long n = peer.read(parts);
+            expect(n >= 0);
+            total += n;
+          }
+
+          expect(string(parts[0]).equals("header:"));
+          expect(string(parts[1]).equals("body:"));
+          expect(string(parts[2]).equals("trailer"));
+        } finally {
+          peer.close();
+        }
+      } finally {
+        client.close();
+      }
+    } finally {
+      server.close();
+    }
+  }
+
   public static void main(String[] args) throws Exception {
     testFailedBind();
+    testDirectBuffers();
+    testScatterGather(true);
+    testScatterGather(false);
   }
 }
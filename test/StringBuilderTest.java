@@ -6,6 +6,9 @@ public class StringBuilderTest {
     verifyAppendStrLength();
     verifyAppendCharLength();
     verifySubstring();
+    verifyAppendPrimitives();
+    verifyEditing();
+    verifyCapacity();
   }
   
   private static void verify(String srcStr, int iterations, String result) {
@@ -62,4 +65,79 @@ public class StringBuilderTest {
     String endSubString = sb.substring(fooStr.length());
     verify(fooStr, endSubString);
   }
+
+  private static void verifyAppendPrimitives() {
+    long[] values = { 0, 7, -7, 10, -10, 99, 100, 123456789, -987654321,
+                      Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE,
+                      Long.MIN_VALUE, 1000000000000000000L,
+                      -999999999999999999L };
+    for (long v: values) {
+      verify(Long.toString(v), new StringBuilder().append(v).toString());
+      int i = (int) v;
+      verify(Integer.toString(i), new StringBuilder().append(i).toString());
+    }
+
+    StringBuilder sb = new StringBuilder(2);
+    sb.append('x').append(42).append(true).append(-1L).append((Object) null)
+      .append(false);
+    verify("x42true-1nullfalse", sb.toString());
+  }
+
+  private static void verifyEditing() {
+    StringBuilder sb = new StringBuilder("hello world");
+    sb.insert(5, ",");
+    verify("hello, world", sb.toString());
+    sb.insert(0, '>').insert(sb.length(), "!");
+    verify(">hello, world!", sb.toString());
+    sb.delete(0, 1).deleteCharAt(5);
+    verify("hello world!", sb.toString());
+    sb.replace(0, 5, "goodbye");
+    verify("goodbye world!", sb.toString());
+    sb.replace(8, 13, "all");
+    verify("goodbye all!", sb.toString());
+    sb.replace(7, 100, "");
+    verify("goodbye", sb.toString());
+    sb.setCharAt(0, 'G');
+    verify("Goodbye", sb.toString());
+    verify("o", String.valueOf(sb.charAt(1)));
+    if (sb.indexOf("od") != 2 || sb.lastIndexOf("o") != 2) {
+      throw new IllegalStateException();
+    }
+
+    sb.setLength(4);
+    verify("Good", sb.toString());
+    sb.setLength(6);
+    verify("Good\0\0", sb.toString());
+
+    try {
+      sb.charAt(6);
+      throw new IllegalStateException();
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  private static void verifyCapacity() {
+    StringBuilder sb = new StringBuilder(100);
+    if (sb.capacity() != 100) {
+      throw new IllegalStateException();
+    }
+
+    for (int i = 0; i < 100; ++i) {
+      sb.append('a');
+    }
+    if (sb.capacity() != 100) {
+      throw new IllegalStateException();
+    }
+
+    sb.append('b');
+    if (sb.capacity() < 101) {
+      throw new IllegalStateException();
+    }
+
+    sb.trimToSize();
+    if (sb.capacity() != 101) {
+      throw new IllegalStateException();
+    }
+  }
 }
@@ -114,6 +114,71 @@ public class Strings {
     expect("\0078".matches("\\078"));
   }
 
+  private static int naiveIndexOf(String haystack, String needle, int start) {
+    for (int i = Math.max(start, 0);
+         i <= haystack.length() - needle.length(); ++i)
+    {
+      if (haystack.regionMatches(i, needle, 0, needle.length())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static void testIndexOf() throws Exception {
+    expect("hello".indexOf("") == 0);
+    expect("hello".indexOf("", 3) == 3);
+    expect("hello".indexOf("", 9) == 5);
+    expect("hello".indexOf("lo", -4) == 3);
+    expect("hello".indexOf("hello!") == -1);
+    expect("hello".indexOf('l', -1) == 2);
+    expect("hello".indexOf('l', 4) == -1);
+    expect("caf\u00e9".indexOf('\u00e9') == 3);
+    expect("cafe".indexOf("f\u00e9") == -1);
+    expect("cafe".indexOf(0x1F600) == -1);
+
+    expect("a.b.c".replace(".", "::").equals("a::b::c"));
+    expect("aaa".replace("aa", "b").equals("ba"));
+    { String s = "no dots";
+      expect(s.replace(".", "!") == s);
+    }
+    expect("abc".contains("bc"));
+    expect(! "abc".contains("cb"));
+
+    // exercise each combination of byte- and char-backed strings with
+    // short and long needles, using a tiny alphabet so that partial
+    // matches are frequent
+    java.util.Random random = new java.util.Random(42);
+    for (int round = 0; round < 2000; ++round) {
+      int length = random.nextInt(round < 1000 ? 40 : 400);
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; ++i) {
+        bytes[i] = (byte) ('a' + random.nextInt(3));
+      }
+      String asBytes = new String(bytes, "UTF-8");
+      String asChars = new String(asBytes.toCharArray());
+
+      int start = random.nextInt(length + 1);
+      int needleLength = random.nextInt(Math.min(length - start, 12) + 1);
+      String needle = asBytes.substring(start, start + needleLength);
+      if (random.nextInt(2) == 0 && needleLength > 0) {
+        // most likely not present at all
+        needle = needle.substring(1) + "b";
+      }
+      if (needle.length() == 0) {
+        continue;
+      }
+      String needleChars = new String(needle.toCharArray());
+
+      int from = random.nextInt(length + 2) - 1;
+      int expected = naiveIndexOf(asBytes, needle, from);
+      expect(asBytes.indexOf(needle, from) == expected);
+      expect(asBytes.indexOf(needleChars, from) == expected);
+      expect(asChars.indexOf(needle, from) == expected);
+      expect(asChars.indexOf(needleChars, from) == expected);
+    }
+  }
+
   public static void main(String[] args) throws Exception {
     expect(new String(new byte[] { 99, 111, 109, 46, 101, 99, 111, 118, 97,
                                    116, 101, 46, 110, 97, 116, 46, 98, 117,
@@ -166,6 +231,23 @@ public class Strings {
     expect(arraysEqual("".split("",  1), new String[] { "" }));
     expect(arraysEqual("".split("", -1), new String[] { "" }));
 
+    // single character separators
+    expect(arraysEqual("a,b,,c,,".split(","),
+                       new String[] { "a", "b", "", "c" }));
+    expect(arraysEqual("a,b,,c,,".split(",", -1),
+                       new String[] { "a", "b", "", "c", "", "" }));
+    expect(arraysEqual("a,b,,c,,".split(",", 2),
+                       new String[] { "a", "b,,c,," }));
+    expect(arraysEqual("a,b".split(",", 1), new String[] { "a,b" }));
+    expect(arraysEqual(",a".split(","), new String[] { "", "a" }));
+    expect(arraysEqual(",,,".split(","), new String[] { }));
+    expect(arraysEqual("abc".split(","), new String[] { "abc" }));
+    expect(arraysEqual("1.2.3".split("\\."), new String[] { "1", "2", "3" }));
+    expect(arraysEqual("a1b2c".split("\\d"), new String[] { "a", "b", "c" }));
+    for (int i = 0; i < 3; ++i) {
+      expect(arraysEqual("a  b".split(" +"), new String[] { "a", "b" }));
+    }
+
     expect("foo_foofoo__foo".replaceAll("_", "__")
            .equals("foo__foofoo____foo"));
 
@@ -221,6 +303,8 @@ public class Strings {
 
     testTrivialPattern();
 
+    testIndexOf();
+
     { String s = "hello, world!";
       java.nio.CharBuffer buffer = java.nio.CharBuffer.allocate(s.length());
       new java.io.InputStreamReader
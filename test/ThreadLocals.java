@@ -0,0 +1,102 @@
+public class ThreadLocals {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static class Counter extends ThreadLocal<Integer> {
+    public int initialized;
+
+    protected Integer initialValue() {
+      ++ initialized;
+      return 42;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    { ThreadLocal<String> local = new ThreadLocal<String>();
+      expect(local.get() == null);
+      local.set("foo");
+      expect("foo".equals(local.get()));
+      local.set(null);
+      expect(local.get() == null);
+      local.remove();
+      expect(local.get() == null);
+    }
+
+    { Counter counter = new Counter();
+      expect(counter.get() == 42);
+      expect(counter.get() == 42);
+      expect(counter.initialized == 1);
+
+      counter.set(7);
+      expect(counter.get() == 7);
+
+      // removing a value causes initialValue to be called again
+      counter.remove();
+      expect(counter.get() == 42);
+      expect(counter.initialized == 2);
+
+      // a null value is still a value
+      counter.set(null);
+      expect(counter.get() == null);
+      expect(counter.initialized == 2);
+    }
+
+    // enough locals to force the table to grow several times, with
+    // some removed along the way
+    { ThreadLocal<Integer>[] locals = new ThreadLocal[1000];
+      for (int i = 0; i < locals.length; ++i) {
+        locals[i] = new ThreadLocal<Integer>();
+        locals[i].set(i);
+      }
+      for (int i = 0; i < locals.length; i += 3) {
+        locals[i].remove();
+      }
+      for (int i = 0; i < locals.length; ++i) {
+        expect(i % 3 == 0 ? locals[i].get() == null : locals[i].get() == i);
+      }
+    }
+
+    // discarded locals are eventually expunged without disturbing live
+    // ones
+    { ThreadLocal<Integer> live = new ThreadLocal<Integer>();
+      live.set(-1);
+      for (int i = 0; i < 100000; ++i) {
+        new ThreadLocal<Object>().set(new byte[64]);
+        if (i % 1000 == 0) {
+          System.gc();
+        }
+      }
+      expect(live.get() == -1);
+    }
+
+    { final ThreadLocal<String> local = new ThreadLocal<String>();
+      final InheritableThreadLocal<String> inherited
+        = new InheritableThreadLocal<String>() {
+            protected String childValue(String parentValue) {
+              return parentValue + "bar";
+            }
+          };
+      local.set("foo");
+      inherited.set("foo");
+
+      final Object[] results = new Object[3];
+      Thread thread = new Thread() {
+          public void run() {
+            results[0] = local.get();
+            results[1] = inherited.get();
+            inherited.set("baz");
+            results[2] = inherited.get();
+          }
+        };
+      thread.start();
+      thread.join();
+
+      expect(results[0] == null);
+      expect("foobar".equals(results[1]));
+      expect("baz".equals(results[2]));
+      expect("foo".equals(local.get()));
+      expect("foo".equals(inherited.get()));
+    }
+  }
+}
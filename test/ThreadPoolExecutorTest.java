@@ -0,0 +1,287 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class ThreadPoolExecutorTest {
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  public static void main(String[] args) throws Exception {
+    fixedPoolTest();
+    invokeTest();
+    singleThreadOrderTest();
+    cachedPoolReuseTest();
+    keepAliveTest();
+    rejectionTest();
+    failingTaskTest();
+    shutdownNowTest();
+  }
+
+  private static Callable<Integer> square(final int n) {
+    return new Callable<Integer>() {
+      public Integer call() {
+        return n * n;
+      }
+    };
+  }
+
+  private static void fixedPoolTest() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 100; ++i) {
+      futures.add(pool.submit(square(i)));
+    }
+
+    for (int i = 0; i < 100; ++i) {
+      expect(futures.get(i).get() == i * i);
+    }
+
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) pool;
+    expect(executor.getPoolSize() <= 4);
+    expect(executor.getLargestPoolSize() <= 4);
+
+    pool.shutdown();
+    expect(pool.isShutdown());
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+    expect(pool.isTerminated());
+    expect(executor.getCompletedTaskCount() == 100);
+
+    try {
+      pool.submit(square(1));
+      expect(false);
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+  }
+
+  private static void invokeTest() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 10; ++i) {
+      tasks.add(square(i));
+    }
+
+    List<Future<Integer>> futures = pool.invokeAll(tasks);
+    for (int i = 0; i < 10; ++i) {
+      expect(futures.get(i).isDone());
+      expect(futures.get(i).get() == i * i);
+    }
+
+    int result = pool.invokeAny(tasks);
+    expect(Math.sqrt(result) == (int) Math.sqrt(result));
+
+    pool.shutdown();
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void singleThreadOrderTest() throws Exception {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    final List<Integer> order = new ArrayList<Integer>();
+    final Thread[] thread = new Thread[1];
+    for (int i = 0; i < 50; ++i) {
+      final int index = i;
+      pool.execute(new Runnable() {
+          public void run() {
+            synchronized (order) {
+              if (thread[0] == null) {
+                thread[0] = Thread.currentThread();
+              }
+              expect(thread[0] == Thread.currentThread());
+              order.add(index);
+            }
+          }
+        });
+    }
+
+    pool.shutdown();
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+    expect(order.size() == 50);
+    for (int i = 0; i < 50; ++i) {
+      expect(order.get(i) == i);
+    }
+  }
+
+  private static void cachedPoolReuseTest() throws Exception {
+    ThreadPoolExecutor pool
+      = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+
+    for (int i = 0; i < 20; ++i) {
+      expect(pool.submit(square(i)).get() == i * i);
+      // give the worker a chance to start polling for the next task
+      Thread.sleep(1);
+    }
+
+    // idle workers should have been reused rather than a new thread
+    // being started for every task
+    expect(pool.getLargestPoolSize() < 20);
+
+    pool.shutdown();
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void keepAliveTest() throws Exception {
+    final Object lock = new Object();
+    final boolean[] release = new boolean[1];
+    ThreadPoolExecutor pool = new ThreadPoolExecutor
+      (1, 4, 10, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>());
+
+    Runnable blocker = new Runnable() {
+        public void run() {
+          synchronized (lock) {
+            while (! release[0]) {
+              try {
+                lock.wait();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            }
+          }
+        }
+      };
+
+    for (int i = 0; i < 4; ++i) {
+      pool.execute(blocker);
+    }
+    expect(pool.getPoolSize() == 4);
+
+    synchronized (lock) {
+      release[0] = true;
+      lock.notifyAll();
+    }
+
+    // the non-core workers should be reaped once idle
+    long start = System.currentTimeMillis();
+    while (pool.getPoolSize() > 1
+           && System.currentTimeMillis() - start < 5000)
+    {
+      Thread.sleep(5);
+    }
+    expect(pool.getPoolSize() == 1);
+
+    pool.allowCoreThreadTimeOut(true);
+    start = System.currentTimeMillis();
+    while (pool.getPoolSize() > 0
+           && System.currentTimeMillis() - start < 5000)
+    {
+      Thread.sleep(5);
+    }
+    expect(pool.getPoolSize() == 0);
+
+    pool.shutdown();
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void rejectionTest() throws Exception {
+    final Object lock = new Object();
+    final boolean[] release = new boolean[1];
+    final int[] callerRuns = new int[1];
+    Runnable blocker = new Runnable() {
+        public void run() {
+          synchronized (lock) {
+            while (! release[0]) {
+              try {
+                lock.wait();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            }
+          }
+        }
+      };
+
+    ThreadPoolExecutor pool = new ThreadPoolExecutor
+      (1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(1));
+
+    pool.execute(blocker);
+    pool.execute(blocker);
+    try {
+      pool.execute(blocker);
+      expect(false);
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+
+    pool.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+    pool.execute(blocker);
+
+    pool.setRejectedExecutionHandler
+      (new ThreadPoolExecutor.CallerRunsPolicy());
+    pool.execute(new Runnable() {
+        public void run() {
+          ++ callerRuns[0];
+        }
+      });
+    expect(callerRuns[0] == 1);
+
+    synchronized (lock) {
+      release[0] = true;
+      lock.notifyAll();
+    }
+
+    pool.shutdown();
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+    expect(pool.getCompletedTaskCount() == 2);
+  }
+
+  private static void failingTaskTest() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(1);
+    Future<Integer> failure = pool.submit(new Callable<Integer>() {
+        public Integer call() {
+          throw new IllegalStateException();
+        }
+      });
+
+    try {
+      failure.get();
+      expect(false);
+    } catch (ExecutionException e) {
+      expect(e.getCause() instanceof IllegalStateException);
+    }
+
+    expect(pool.submit(square(3)).get() == 9);
+
+    pool.shutdown();
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  private static void shutdownNowTest() throws Exception {
+    final Object lock = new Object();
+    final boolean[] interrupted = new boolean[1];
+    ExecutorService pool = Executors.newFixedThreadPool(1);
+
+    pool.execute(new Runnable() {
+        public void run() {
+          synchronized (lock) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              interrupted[0] = true;
+            }
+          }
+        }
+      });
+
+    for (int i = 0; i < 5; ++i) {
+      pool.submit(square(i));
+    }
+
+    Thread.sleep(10);
+
+    List<Runnable> pending = pool.shutdownNow();
+    expect(pending.size() == 5);
+    expect(pool.awaitTermination(5, TimeUnit.SECONDS));
+    expect(interrupted[0]);
+  }
+}
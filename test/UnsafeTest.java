@@ -134,6 +134,57 @@ public class UnsafeTest {
              == 1.23456789012345D);
   }
 
+  private static boolean swapSame(Unsafe u, int[] array, long offset,
+                                  int value) {
+    return u.compareAndSwapInt(array, offset, value, value);
+  }
+
+  private static void unsafeAtomic(Unsafe u) {
+    int[] ints = new int[2];
+    long intOffset = u.arrayBaseOffset(int[].class)
+      + u.arrayIndexScale(int[].class);
+    long[] longs = new long[2];
+    long longOffset = u.arrayBaseOffset(long[].class)
+      + u.arrayIndexScale(long[].class);
+
+    // the expected and new values stay live after each operation, so
+    // the compiler must not lose them to the result
+    int expected = 5;
+    int update = 7;
+    ints[1] = 5;
+    expect(u.compareAndSwapInt(ints, intOffset, expected, update));
+    expect(! u.compareAndSwapInt(ints, intOffset, expected, update));
+    expect(ints[1] == 7 && ints[0] == 0 && expected == 5 && update == 7);
+
+    expect(swapSame(u, ints, intOffset, 7));
+    expect(! swapSame(u, ints, intOffset, 8));
+    expect(ints[1] == 7);
+
+    int delta = -10;
+    expect(u.getAndAddInt(ints, intOffset, delta) == 7);
+    expect(ints[1] == -3 && delta == -10);
+
+    long expectedLong = 1L << 40;
+    longs[1] = expectedLong;
+    expect(u.compareAndSwapLong(longs, longOffset, expectedLong, -1L));
+    expect(u.getAndAddLong(longs, longOffset, expectedLong) == -1L);
+    expect(longs[1] == expectedLong - 1 && longs[0] == 0);
+
+    long memory = u.allocateMemory(16);
+    try {
+      u.putInt(memory, 41);
+      expect(u.getAndAddInt(null, memory, 1) == 41);
+      expect(u.compareAndSwapInt(null, memory, 42, 43));
+      expect(u.getInt(memory) == 43);
+
+      u.putLong(memory + 8, -1L);
+      expect(u.getAndAddLong(null, memory + 8, 1L) == -1L);
+      expect(u.getLong(memory + 8) == 0);
+    } finally {
+      u.freeMemory(memory);
+    }
+  }
+
   public static void main(String[] args) {
     System.out.println("method count is "
                        + Unsafe.class.getDeclaredMethods().length);
@@ -143,5 +194,6 @@ public class UnsafeTest {
     unsafeCatch(u);
     unsafeMemory(u);
     unsafeArray(u);
+    unsafeAtomic(u);
   }
 }
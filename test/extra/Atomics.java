@@ -0,0 +1,123 @@
+package extra;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Atomics {
+  private static final int Iterations = 10000000;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static long uncontended(AtomicInteger counter) {
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < Iterations; ++i) {
+      counter.incrementAndGet();
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long uncontendedCAS(AtomicInteger counter) {
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < Iterations; ++i) {
+      int v = counter.get();
+      counter.compareAndSet(v, v + 1);
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long run(Thread[] threads) throws Exception {
+    long start = System.currentTimeMillis();
+    for (Thread thread: threads) {
+      thread.start();
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long contended(final AtomicInteger counter, int threadCount)
+    throws Exception
+  {
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; ++i) {
+      threads[i] = new Thread() {
+          public void run() {
+            for (int j = 0; j < Iterations / 10; ++j) {
+              counter.incrementAndGet();
+            }
+          }
+        };
+    }
+    return run(threads);
+  }
+
+  private static long contendedLong(final AtomicLong counter, int threadCount)
+    throws Exception
+  {
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; ++i) {
+      threads[i] = new Thread() {
+          public void run() {
+            for (int j = 0; j < Iterations / 10; ++j) {
+              long v;
+              do {
+                v = counter.get();
+              } while (! counter.compareAndSet(v, v + 1));
+            }
+          }
+        };
+    }
+    return run(threads);
+  }
+
+  private static long contendedReference(final AtomicReference<Integer> value,
+                                         int threadCount)
+    throws Exception
+  {
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; ++i) {
+      threads[i] = new Thread() {
+          public void run() {
+            for (int j = 0; j < Iterations / 100; ++j) {
+              Integer v;
+              do {
+                v = value.get();
+              } while (! value.compareAndSet(v, v + 1));
+            }
+          }
+        };
+    }
+    return run(threads);
+  }
+
+  public static void main(String[] args) throws Exception {
+    AtomicInteger counter = new AtomicInteger();
+
+    // warm up
+    uncontended(counter);
+
+    System.out.println("uncontended incrementAndGet: "
+                       + uncontended(counter) + "ms");
+    System.out.println("uncontended compareAndSet: "
+                       + uncontendedCAS(counter) + "ms");
+
+    counter.set(0);
+    System.out.println("contended incrementAndGet (4 threads): "
+                       + contended(counter, 4) + "ms");
+    expect(counter.get() == 4 * (Iterations / 10));
+
+    AtomicLong longCounter = new AtomicLong();
+    System.out.println("contended long compareAndSet (4 threads): "
+                       + contendedLong(longCounter, 4) + "ms");
+    expect(longCounter.get() == 4 * (Iterations / 10));
+
+    AtomicReference<Integer> reference = new AtomicReference<Integer>(0);
+    System.out.println("contended reference compareAndSet (4 threads): "
+                       + contendedReference(reference, 4) + "ms");
+    expect(reference.get() == 4 * (Iterations / 100));
+  }
+}
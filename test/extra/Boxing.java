@@ -0,0 +1,83 @@
+package extra;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exercises autoboxing as collections of wrappers and generic code
+ * tend to: counting small keys in a map, summing a list of longs, and
+ * boxing values only to unbox them again.
+ *
+ * roundTrips unboxes each box straight away, and throughLocal keeps it
+ * in a local first, as autoboxing assignments do; the JIT skips both
+ * calls in either case.  The map and list cases keep their boxes in
+ * collections, so they measure the cost of the boxes themselves.
+ */
+public class Boxing {
+  private static final int Iterations = 10000000;
+
+  private static int roundTrips(int n) {
+    int sum = 0;
+    for (int i = 0; i < n; ++i) {
+      sum += Integer.valueOf(i * 1000).intValue();
+    }
+    return sum;
+  }
+
+  private static int throughLocal(int n) {
+    int sum = 0;
+    for (int i = 0; i < n; ++i) {
+      Integer boxed = i * 1000;
+      sum += boxed;
+    }
+    return sum;
+  }
+
+  private static int count(int n) {
+    Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+    for (int i = 0; i < n; ++i) {
+      int key = i % 100;
+      Integer count = counts.get(key);
+      counts.put(key, count == null ? 1 : count + 1);
+    }
+    return counts.get(7);
+  }
+
+  private static long sum(int n) {
+    List<Long> list = new ArrayList<Long>();
+    for (int i = 0; i < n; ++i) {
+      list.add((long) (i % 128));
+    }
+    long sum = 0;
+    for (long v: list) {
+      sum += v;
+    }
+    return sum;
+  }
+
+  public static void main(String[] args) {
+    for (int round = 0; round < 3; ++round) {
+      long start = System.currentTimeMillis();
+      int r = roundTrips(Iterations * 10);
+      System.out.println("round trips: " + r + " in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      r = throughLocal(Iterations * 10);
+      System.out.println("through a local: " + r + " in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      int c = count(Iterations);
+      System.out.println("map counts: " + c + " in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      long s = sum(Iterations / 10);
+      System.out.println("list sum: " + s + " in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package extra;
+
+/**
+ * Times the kind of string concatenation javac compiles to
+ * StringBuilder appends, along with some indexed access and editing.
+ */
+public class Concatenation {
+  private static final int Iterations = 1000000;
+
+  public static void main(String[] args) {
+    for (int round = 0; round < 3; ++round) {
+      long start = System.currentTimeMillis();
+      int total = 0;
+      for (int i = 0; i < Iterations; ++i) {
+        String s = "item " + i + " of " + Iterations + ": " + (i * 31L)
+          + (i % 2 == 0);
+        total += s.length();
+      }
+      System.out.println("concatenation: " + total + " chars in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < Iterations; ++i) {
+        sb.append(i).append(',');
+      }
+      int commas = 0;
+      for (int i = 0; i < sb.length(); ++i) {
+        if (sb.charAt(i) == ',') {
+          ++ commas;
+        }
+      }
+      for (int i = 0; i < 1000; ++i) {
+        sb.setCharAt(i * 7, ';');
+      }
+      System.out.println("build and scan: " + commas + " commas in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package extra;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures a mix of puts, gets, replaces and removes from several
+ * threads at once on a map which starts small and grows as they run.
+ */
+public class ConcurrentHashMapThroughput {
+  private static final int ThreadCount = 4;
+  private static final int KeysPerThread = 10000;
+  private static final int Rounds = 5;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static void work(ConcurrentHashMap<Integer, Integer> map, int base) {
+    for (int round = 0; round < Rounds; ++round) {
+      for (int i = base; i < base + KeysPerThread; ++i) {
+        map.put(i, i);
+      }
+
+      for (int i = base; i < base + KeysPerThread; ++i) {
+        expect(map.get(i) == i);
+        map.replace(i, i, -i);
+        map.get((i + KeysPerThread) % (ThreadCount * KeysPerThread));
+      }
+
+      for (int i = base; i < base + KeysPerThread; ++i) {
+        map.remove(i);
+      }
+    }
+  }
+
+  private static long run() throws InterruptedException {
+    final ConcurrentHashMap<Integer, Integer> map
+      = new ConcurrentHashMap<Integer, Integer>(2);
+    Thread[] threads = new Thread[ThreadCount];
+
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < ThreadCount; ++i) {
+      final int base = i * KeysPerThread;
+      threads[i] = new Thread() {
+          public void run() {
+            work(map, base);
+          }
+        };
+      threads[i].start();
+    }
+
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    long operations = (long) ThreadCount * KeysPerThread * Rounds * 5;
+    for (int i = 0; i < 3; ++i) {
+      System.out.println(operations + " operations in " + run() + "ms");
+    }
+  }
+}
@@ -0,0 +1,387 @@
+package extra;
+
+/**
+ * Makes interface calls from a single call site to receivers of many
+ * different classes, each of which implements several interfaces, as
+ * e.g. code iterating over collections of plugins or visitors does.
+ * Such a site soon stops caching particular classes and is given a
+ * table of them instead; compare the times for different numbers of
+ * classes.
+ */
+public class InterfaceDispatch {
+  private static final int Iterations = 12000000;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private interface Shape { int area(); }
+
+  private interface Named { String name(); }
+  private interface Sized { int size(); }
+  private interface Ordered { int order(); }
+  private interface Tagged { Object tag(); }
+  private interface Visited { void visit(); }
+  private interface Closed { void close(); }
+
+  private static abstract class Base
+    implements Named, Sized, Ordered, Tagged, Visited, Closed
+  {
+    public String name() { return null; }
+    public int size() { return 0; }
+    public int order() { return 0; }
+    public Object tag() { return null; }
+    public void visit() { }
+    public void close() { }
+  }
+
+  private static class S0 extends Base implements Shape {
+    public int area() { return 0; }
+  }
+
+  private static class S1 extends Base implements Shape {
+    public int area() { return 1; }
+  }
+
+  private static class S2 extends Base implements Shape {
+    public int area() { return 2; }
+  }
+
+  private static class S3 extends Base implements Shape {
+    public int area() { return 3; }
+  }
+
+  private static class S4 extends Base implements Shape {
+    public int area() { return 4; }
+  }
+
+  private static class S5 extends Base implements Shape {
+    public int area() { return 5; }
+  }
+
+  private static class S6 extends Base implements Shape {
+    public int area() { return 6; }
+  }
+
+  private static class S7 extends Base implements Shape {
+    public int area() { return 7; }
+  }
+
+  private static class S8 extends Base implements Shape {
+    public int area() { return 8; }
+  }
+
+  private static class S9 extends Base implements Shape {
+    public int area() { return 9; }
+  }
+
+  private static class S10 extends Base implements Shape {
+    public int area() { return 10; }
+  }
+
+  private static class S11 extends Base implements Shape {
+    public int area() { return 11; }
+  }
+
+  private static class S12 extends Base implements Shape {
+    public int area() { return 12; }
+  }
+
+  private static class S13 extends Base implements Shape {
+    public int area() { return 13; }
+  }
+
+  private static class S14 extends Base implements Shape {
+    public int area() { return 14; }
+  }
+
+  private static class S15 extends Base implements Shape {
+    public int area() { return 15; }
+  }
+
+  private static class S16 extends Base implements Shape {
+    public int area() { return 16; }
+  }
+
+  private static class S17 extends Base implements Shape {
+    public int area() { return 17; }
+  }
+
+  private static class S18 extends Base implements Shape {
+    public int area() { return 18; }
+  }
+
+  private static class S19 extends Base implements Shape {
+    public int area() { return 19; }
+  }
+
+  private static class S20 extends Base implements Shape {
+    public int area() { return 20; }
+  }
+
+  private static class S21 extends Base implements Shape {
+    public int area() { return 21; }
+  }
+
+  private static class S22 extends Base implements Shape {
+    public int area() { return 22; }
+  }
+
+  private static class S23 extends Base implements Shape {
+    public int area() { return 23; }
+  }
+
+  private static class S24 extends Base implements Shape {
+    public int area() { return 24; }
+  }
+
+  private static class S25 extends Base implements Shape {
+    public int area() { return 25; }
+  }
+
+  private static class S26 extends Base implements Shape {
+    public int area() { return 26; }
+  }
+
+  private static class S27 extends Base implements Shape {
+    public int area() { return 27; }
+  }
+
+  private static class S28 extends Base implements Shape {
+    public int area() { return 28; }
+  }
+
+  private static class S29 extends Base implements Shape {
+    public int area() { return 29; }
+  }
+
+  private static class S30 extends Base implements Shape {
+    public int area() { return 30; }
+  }
+
+  private static class S31 extends Base implements Shape {
+    public int area() { return 31; }
+  }
+
+  private static class S32 extends Base implements Shape {
+    public int area() { return 32; }
+  }
+
+  private static class S33 extends Base implements Shape {
+    public int area() { return 33; }
+  }
+
+  private static class S34 extends Base implements Shape {
+    public int area() { return 34; }
+  }
+
+  private static class S35 extends Base implements Shape {
+    public int area() { return 35; }
+  }
+
+  private static class S36 extends Base implements Shape {
+    public int area() { return 36; }
+  }
+
+  private static class S37 extends Base implements Shape {
+    public int area() { return 37; }
+  }
+
+  private static class S38 extends Base implements Shape {
+    public int area() { return 38; }
+  }
+
+  private static class S39 extends Base implements Shape {
+    public int area() { return 39; }
+  }
+
+  private static class S40 extends Base implements Shape {
+    public int area() { return 40; }
+  }
+
+  private static class S41 extends Base implements Shape {
+    public int area() { return 41; }
+  }
+
+  private static class S42 extends Base implements Shape {
+    public int area() { return 42; }
+  }
+
+  private static class S43 extends Base implements Shape {
+    public int area() { return 43; }
+  }
+
+  private static class S44 extends Base implements Shape {
+    public int area() { return 44; }
+  }
+
+  private static class S45 extends Base implements Shape {
+    public int area() { return 45; }
+  }
+
+  private static class S46 extends Base implements Shape {
+    public int area() { return 46; }
+  }
+
+  private static class S47 extends Base implements Shape {
+    public int area() { return 47; }
+  }
+
+  private static class S48 extends Base implements Shape {
+    public int area() { return 48; }
+  }
+
+  private static class S49 extends Base implements Shape {
+    public int area() { return 49; }
+  }
+
+  private static class S50 extends Base implements Shape {
+    public int area() { return 50; }
+  }
+
+  private static class S51 extends Base implements Shape {
+    public int area() { return 51; }
+  }
+
+  private static class S52 extends Base implements Shape {
+    public int area() { return 52; }
+  }
+
+  private static class S53 extends Base implements Shape {
+    public int area() { return 53; }
+  }
+
+  private static class S54 extends Base implements Shape {
+    public int area() { return 54; }
+  }
+
+  private static class S55 extends Base implements Shape {
+    public int area() { return 55; }
+  }
+
+  private static class S56 extends Base implements Shape {
+    public int area() { return 56; }
+  }
+
+  private static class S57 extends Base implements Shape {
+    public int area() { return 57; }
+  }
+
+  private static class S58 extends Base implements Shape {
+    public int area() { return 58; }
+  }
+
+  private static class S59 extends Base implements Shape {
+    public int area() { return 59; }
+  }
+
+  private static class S60 extends Base implements Shape {
+    public int area() { return 60; }
+  }
+
+  private static class S61 extends Base implements Shape {
+    public int area() { return 61; }
+  }
+
+  private static class S62 extends Base implements Shape {
+    public int area() { return 62; }
+  }
+
+  private static class S63 extends Base implements Shape {
+    public int area() { return 63; }
+  }
+  private static int sum(Shape[] shapes, int n) {
+    int total = 0;
+    for (int i = 0; i < n; ++i) {
+      total += shapes[i % shapes.length].area();
+    }
+    return total;
+  }
+
+  public static void main(String[] args) {
+    Shape[] all = {
+      new S0(),
+      new S1(),
+      new S2(),
+      new S3(),
+      new S4(),
+      new S5(),
+      new S6(),
+      new S7(),
+      new S8(),
+      new S9(),
+      new S10(),
+      new S11(),
+      new S12(),
+      new S13(),
+      new S14(),
+      new S15(),
+      new S16(),
+      new S17(),
+      new S18(),
+      new S19(),
+      new S20(),
+      new S21(),
+      new S22(),
+      new S23(),
+      new S24(),
+      new S25(),
+      new S26(),
+      new S27(),
+      new S28(),
+      new S29(),
+      new S30(),
+      new S31(),
+      new S32(),
+      new S33(),
+      new S34(),
+      new S35(),
+      new S36(),
+      new S37(),
+      new S38(),
+      new S39(),
+      new S40(),
+      new S41(),
+      new S42(),
+      new S43(),
+      new S44(),
+      new S45(),
+      new S46(),
+      new S47(),
+      new S48(),
+      new S49(),
+      new S50(),
+      new S51(),
+      new S52(),
+      new S53(),
+      new S54(),
+      new S55(),
+      new S56(),
+      new S57(),
+      new S58(),
+      new S59(),
+      new S60(),
+      new S61(),
+      new S62(),
+      new S63()
+    };
+
+    int[] counts = { 12, 32, 64 };
+    for (int round = 0; round < 3; ++round) {
+      for (int count: counts) {
+        Shape[] shapes = new Shape[count];
+        System.arraycopy(all, 0, shapes, 0, count);
+
+        int expected = 0;
+        for (int i = 0; i < Iterations; ++i) {
+          expected += i % count;
+        }
+
+        long start = System.currentTimeMillis();
+        expect(sum(shapes, Iterations) == expected);
+        System.out.println(count + " classes: " + Iterations + " calls in "
+                           + (System.currentTimeMillis() - start) + "ms");
+      }
+    }
+  }
+}
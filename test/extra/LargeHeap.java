@@ -0,0 +1,89 @@
+package extra;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the heap with a live set larger than 4GB and collects it
+ * repeatedly.  Run with a large enough limit, e.g.:
+ *
+ *   avian -Xmx8g extra.LargeHeap [live set size in megabytes]
+ */
+public class LargeHeap {
+  private static final long MB = 1024 * 1024;
+
+  // large enough to be allocated as a fixed object
+  private static final int LargeArrayLength = (int) (MB / 8);
+
+  // small enough to live in the moving generations
+  private static final int SmallArrayLength = 512;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static long[] fill(long[] array, long seed) {
+    for (int i = 0; i < array.length; i += 64) {
+      array[i] = seed + i;
+    }
+    return array;
+  }
+
+  private static void check(long[] array, long seed) {
+    for (int i = 0; i < array.length; i += 64) {
+      expect(array[i] == seed + i);
+    }
+  }
+
+  private static void check(List<long[]> arrays) {
+    for (int i = 0; i < arrays.size(); ++i) {
+      check(arrays.get(i), i);
+    }
+  }
+
+  public static void main(String[] args) {
+    long size = (args.length > 0 ? Long.parseLong(args[0]) : 6 * 1024) * MB;
+
+    expect(Runtime.getRuntime().totalMemory() >= size);
+
+    long start = System.currentTimeMillis();
+
+    // most of the live set is in large arrays, with a tenth of it in
+    // small ones so that gen2 grows along with the fixed objects
+    List<long[]> large = new ArrayList<long[]>();
+    List<long[]> small = new ArrayList<long[]>();
+    long largeBytes = (size / 10) * 9;
+    for (long n = 0; n < largeBytes; n += MB) {
+      large.add(fill(new long[LargeArrayLength], large.size()));
+    }
+    for (long n = 0; n < size - largeBytes; n += SmallArrayLength * 8) {
+      small.add(fill(new long[SmallArrayLength], small.size()));
+    }
+
+    System.out.println("filled " + (size / MB) + "MB in "
+                       + (System.currentTimeMillis() - start) + "ms");
+
+    for (int i = 0; i < 3; ++i) {
+      start = System.currentTimeMillis();
+      System.gc();
+      System.out.println("collected in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      check(large);
+      check(small);
+
+      // replace every other array so the next collection has garbage
+      // to reclaim as well as a large set of survivors to keep
+      for (int j = i % 2; j < large.size(); j += 2) {
+        large.set(j, null);
+        large.set(j, fill(new long[LargeArrayLength], j));
+      }
+      for (int j = i % 2; j < small.size(); j += 2) {
+        small.set(j, fill(new long[SmallArrayLength], j));
+      }
+    }
+
+    check(large);
+    check(small);
+  }
+}
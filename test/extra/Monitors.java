@@ -0,0 +1,126 @@
+package extra;
+
+public class Monitors {
+  private static final int Iterations = 1000000;
+
+  private static int counter;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static long uncontended(Object lock) {
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < Iterations; ++i) {
+      synchronized (lock) {
+        ++ counter;
+      }
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long uncontendedFresh() {
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < Iterations / 10; ++i) {
+      Object lock = new Object();
+      synchronized (lock) {
+        ++ counter;
+      }
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long nested(Object lock) {
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < Iterations; ++i) {
+      synchronized (lock) {
+        synchronized (lock) {
+          ++ counter;
+        }
+      }
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long contended(final Object lock, int threadCount)
+    throws Exception
+  {
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; ++i) {
+      threads[i] = new Thread() {
+          public void run() {
+            for (int j = 0; j < Iterations / 10; ++j) {
+              synchronized (lock) {
+                ++ counter;
+              }
+            }
+          }
+        };
+    }
+
+    long start = System.currentTimeMillis();
+    for (Thread thread: threads) {
+      thread.start();
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long waitNotify() throws Exception {
+    final Object lock = new Object();
+    final int[] turn = new int[1];
+    final int rounds = Iterations / 100;
+
+    Thread other = new Thread() {
+        public void run() {
+          try {
+            synchronized (lock) {
+              for (int i = 0; i < rounds; ++i) {
+                while (turn[0] == 0) {
+                  lock.wait();
+                }
+                turn[0] = 0;
+                lock.notifyAll();
+              }
+            }
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+
+    long start = System.currentTimeMillis();
+    other.start();
+    synchronized (lock) {
+      for (int i = 0; i < rounds; ++i) {
+        turn[0] = 1;
+        lock.notifyAll();
+        while (turn[0] == 1) {
+          lock.wait();
+        }
+      }
+    }
+    other.join();
+    return System.currentTimeMillis() - start;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Object lock = new Object();
+
+    // warm up
+    uncontended(lock);
+
+    System.out.println("uncontended: " + uncontended(lock) + "ms");
+    System.out.println("uncontended (nested): " + nested(lock) + "ms");
+    System.out.println("uncontended (fresh objects): " + uncontendedFresh()
+                       + "ms");
+
+    counter = 0;
+    System.out.println("contended (4 threads): " + contended(lock, 4) + "ms");
+    expect(counter == 4 * (Iterations / 10));
+
+    System.out.println("wait/notify: " + waitNotify() + "ms");
+  }
+}
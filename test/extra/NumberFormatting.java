@@ -0,0 +1,93 @@
+package extra;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Converts numbers to and from text the way loggers, serializers and
+ * report generators do: building lines of integers and doubles in a
+ * StringBuilder, printing them to a stream, and parsing them back.
+ */
+public class NumberFormatting {
+  private static final int Iterations = 200000;
+
+  private static long[] longs(Random random) {
+    long[] values = new long[Iterations];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = random.nextLong() >> random.nextInt(64);
+    }
+    return values;
+  }
+
+  private static double[] doubles(Random random) {
+    double[] values = new double[Iterations];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = i % 2 == 0
+        ? random.nextInt(1000000) / 100.0
+        : random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+    }
+    return values;
+  }
+
+  private static int append(long[] longs, double[] doubles) {
+    int length = 0;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < longs.length; ++i) {
+      sb.setLength(0);
+      sb.append(longs[i]).append(',').append(doubles[i]);
+      length += sb.length();
+    }
+    return length;
+  }
+
+  private static int print(long[] longs, double[] doubles) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes);
+    for (int i = 0; i < longs.length; ++i) {
+      out.print(longs[i]);
+      out.println(doubles[i]);
+    }
+    return bytes.size();
+  }
+
+  private static double parse(String[] longs, String[] doubles) {
+    double sum = 0;
+    for (int i = 0; i < longs.length; ++i) {
+      sum += Long.parseLong(longs[i]) + Integer.parseInt(longs[i].substring
+                                                         (0, 1 + (i % 9)));
+      sum += Double.parseDouble(doubles[i]);
+    }
+    return sum;
+  }
+
+  public static void main(String[] args) {
+    Random random = new Random(42);
+    long[] longs = longs(random);
+    double[] doubles = doubles(random);
+
+    String[] longStrings = new String[Iterations];
+    String[] doubleStrings = new String[Iterations];
+    for (int i = 0; i < Iterations; ++i) {
+      longStrings[i] = Long.toString(Math.abs(longs[i]) + 1000000000L);
+      doubleStrings[i] = Double.toString(doubles[i]);
+    }
+
+    for (int round = 0; round < 3; ++round) {
+      long start = System.currentTimeMillis();
+      int n = append(longs, doubles);
+      System.out.println("append: " + n + " chars in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      n = print(longs, doubles);
+      System.out.println("print: " + n + " bytes in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      double s = parse(longStrings, doubleStrings);
+      System.out.println("parse: " + s + " in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package extra;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a large, richly connected live set, churns through it, and
+ * checks that it survives collection intact.  Compare pause times with
+ * and without parallel collection, e.g.:
+ *
+ *   avian -Davian.gc.verbose=true extra.ParallelCollection
+ *   avian -Davian.gc.threads=4 -Davian.gc.verbose=true \
+ *     extra.ParallelCollection
+ *
+ * The test suite runs a shortened version by also passing
+ * -Dextra.ParallelCollection.short=true.
+ */
+public class ParallelCollection {
+  private static final boolean Short = "true".equals
+    (System.getProperty("extra.ParallelCollection.short"));
+  private static final int TreeDepth = Short ? 14 : 18;
+  private static final int MapSize = Short ? 10000 : 100000;
+  private static final int Rounds = Short ? 3 : 10;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static class Node {
+    public final int value;
+    public Node left;
+    public Node right;
+    public Object payload;
+
+    public Node(int value) {
+      this.value = value;
+    }
+  }
+
+  private static Node tree(int depth, int value) {
+    Node n = new Node(value);
+    if (depth > 0) {
+      n.left = tree(depth - 1, value * 2);
+      n.right = tree(depth - 1, (value * 2) + 1);
+    }
+    n.payload = (value % 7 == 0) ? (Object) new int[value % 32] : "x";
+    return n;
+  }
+
+  private static long checksum(Node n) {
+    long sum = 0;
+    while (n != null) {
+      sum += n.value;
+      if (n.payload instanceof int[]) {
+        sum += ((int[]) n.payload).length;
+      }
+      sum += checksum(n.left);
+      n = n.right;
+    }
+    return sum;
+  }
+
+  public static void main(String[] args) {
+    Node root = tree(TreeDepth, 1);
+    long expected = checksum(root);
+
+    Map<Integer, Object[]> map = new HashMap<Integer, Object[]>();
+    for (int i = 0; i < MapSize; ++i) {
+      map.put(i, new Object[] { Integer.valueOf(i), String.valueOf(i) });
+    }
+
+    long total = 0;
+    for (int round = 0; round < Rounds; ++round) {
+      // replace part of the live set so the collector has both garbage
+      // to skip and new objects to copy
+      for (int i = round; i < MapSize; i += Rounds) {
+        map.put(i, new Object[] { Integer.valueOf(i), String.valueOf(i) });
+      }
+      root.left = tree(TreeDepth - 1, 2);
+
+      long start = System.currentTimeMillis();
+      System.gc();
+      long elapsed = System.currentTimeMillis() - start;
+      total += elapsed;
+
+      expect(checksum(root) == expected);
+      for (int i = 0; i < MapSize; i += 997) {
+        Object[] a = map.get(i);
+        expect(a[0].equals(i) && a[1].equals(String.valueOf(i)));
+      }
+    }
+
+    System.out.println("average collection: " + (total / Rounds) + "ms");
+  }
+}
@@ -0,0 +1,119 @@
+package extra;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares case-insensitive matching compiled into the pattern with the
+ * usual workaround of lower-casing each input before matching, and
+ * multi-line anchors with splitting the input into lines first.
+ */
+public class RegexFlags {
+  private static final int Lines = 20000;
+
+  private static final String[] Patterns = {
+    "error .*timeout",
+    "warn [a-z]+service",
+    "(get|post) /api/v[0-9]+/orders",
+    "connection (reset|refused)",
+    "checksum mismatch",
+    "login failed for [a-z]+"
+  };
+
+  private static String line(int i) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(i % 7 == 2 ? "Warn " : "Info ")
+      .append(i % 3 == 0 ? "GET" : "Post").append(" /Api/V1/Items/")
+      .append(i).append(" Latency=").append(i % 1000).append("ms User=Alice")
+      .append(i % 1000);
+    if (i % 500 == 0) {
+      sb.append(" ERROR Upstream Timeout");
+    }
+    return sb.toString();
+  }
+
+  private static int lowerCased(String[] lines, Pattern[] patterns) {
+    int count = 0;
+    for (String line: lines) {
+      String lower = line.toLowerCase();
+      for (Pattern p: patterns) {
+        if (p.matcher(lower).find()) {
+          ++ count;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int compiled(String[] lines, Pattern[] patterns) {
+    int count = 0;
+    for (String line: lines) {
+      for (Pattern p: patterns) {
+        if (p.matcher(line).find()) {
+          ++ count;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int split(String text, Pattern p) {
+    int count = 0;
+    for (String line: text.split("\n")) {
+      if (p.matcher(line).find()) {
+        ++ count;
+      }
+    }
+    return count;
+  }
+
+  private static int multiLine(String text, Pattern p) {
+    int count = 0;
+    for (Matcher m = p.matcher(text); m.find(); ) {
+      ++ count;
+    }
+    return count;
+  }
+
+  public static void main(String[] args) {
+    String[] lines = new String[Lines];
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < Lines; ++i) {
+      lines[i] = line(i);
+      text.append(lines[i]).append('\n');
+    }
+
+    Pattern[] plain = new Pattern[Patterns.length];
+    Pattern[] folded = new Pattern[Patterns.length];
+    for (int i = 0; i < Patterns.length; ++i) {
+      plain[i] = Pattern.compile(Patterns[i]);
+      folded[i] = Pattern.compile(Patterns[i], Pattern.CASE_INSENSITIVE);
+    }
+
+    String anchored = "^Warn .*User=Alice[0-9]+$";
+    Pattern single = Pattern.compile(anchored);
+    Pattern multi = Pattern.compile(anchored, Pattern.MULTILINE);
+
+    for (int round = 0; round < 3; ++round) {
+      long start = System.currentTimeMillis();
+      int count = lowerCased(lines, plain);
+      System.out.println("lower-cased: " + count + " matches in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      count = compiled(lines, folded);
+      System.out.println("CASE_INSENSITIVE: " + count + " matches in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      count = split(text.toString(), single);
+      System.out.println("split lines: " + count + " matches in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      count = multiLine(text.toString(), multi);
+      System.out.println("MULTILINE: " + count + " matches in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package extra;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans a synthetic log with a couple of dozen patterns, most of which
+ * match few or no lines, which is the case the regex engine's DFA is
+ * meant to speed up.
+ */
+public class RegexScan {
+  private static final int Lines = 20000;
+
+  private static final String[] Patterns = {
+    "ERROR .*timeout",
+    "WARN [a-z]+Service",
+    "user=[a-z]+[0-9]{3}",
+    "status=5[0-9][0-9]",
+    "(GET|POST) /api/v[0-9]+/orders",
+    "latency=[0-9]{4,}ms",
+    "OutOfMemoryError",
+    "Connection (reset|refused)",
+    "session=[0-9a-f]{8}-",
+    "retry(ing)? in [0-9]+s",
+    "disk [a-z0-9]+ (full|degraded)",
+    "[Dd]eadlock",
+    "shard-[0-9]+ unavailable",
+    "cache (miss|evict)ed",
+    "took [0-9]+\\.[0-9]+s",
+    "thread-pool-[0-9]+ saturated",
+    "SSL(Handshake)?Exception",
+    "checksum mismatch",
+    "queue depth [0-9]{5,}",
+    "login failed for [a-z]+",
+    "GC pause [0-9]{3,}ms",
+    "null(Pointer)?Exception",
+    "replica [0-9]+ lagging",
+    "quota exceeded"
+  };
+
+  private static String line(int i) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("2015-06-").append(10 + (i % 20)).append(" 12:")
+      .append(10 + (i % 50)).append(":").append(10 + (i % 49));
+    switch (i % 7) {
+    case 0: sb.append(" INFO "); break;
+    case 1: sb.append(" DEBUG "); break;
+    case 2: sb.append(" WARN "); break;
+    default: sb.append(" INFO "); break;
+    }
+    sb.append("[worker-").append(i % 16).append("] ");
+    sb.append(i % 3 == 0 ? "GET" : "POST").append(" /api/v1/items/")
+      .append(i).append(" status=").append(i % 97 == 0 ? 503 : 200)
+      .append(" latency=").append(i % 1000).append("ms user=alice")
+      .append(i % 1000);
+    if (i % 500 == 0) {
+      sb.append(" ERROR upstream timeout");
+    }
+    return sb.toString();
+  }
+
+  public static void main(String[] args) {
+    String[] lines = new String[Lines];
+    for (int i = 0; i < Lines; ++i) {
+      lines[i] = line(i);
+    }
+
+    Pattern[] patterns = new Pattern[Patterns.length];
+    for (int i = 0; i < Patterns.length; ++i) {
+      patterns[i] = Pattern.compile(Patterns[i]);
+    }
+
+    for (int round = 0; round < 3; ++round) {
+      long start = System.currentTimeMillis();
+      int count = 0;
+      for (String line: lines) {
+        for (Pattern p: patterns) {
+          Matcher m = p.matcher(line);
+          if (m.find()) {
+            ++ count;
+          }
+        }
+      }
+      System.out.println(count + " matches in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
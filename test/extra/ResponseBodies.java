@@ -0,0 +1,85 @@
+package extra;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Builds multi-megabyte response bodies in a ByteArrayOutputStream the
+ * way a server does, from a mix of single bytes, short header-sized
+ * writes and large chunks, and then sends each one on.
+ * <p>
+ * The toByteArray case holds two arrays of over 4MB each per body.
+ * Under glibc that goes past malloc's default trim threshold, so the
+ * memory is returned to the system and faulted back in for every
+ * body; run with MALLOC_TRIM_THRESHOLD_ set to e.g. 67108864 to time
+ * the copy alone.
+ * </p>
+ */
+public class ResponseBodies {
+  private static final int Bodies = 20;
+  private static final int BodySize = 4 * 1024 * 1024;
+
+  private static class Sink extends OutputStream {
+    public long length;
+
+    public void write(int c) {
+      ++ length;
+    }
+
+    public void write(byte[] b, int offset, int length) {
+      this.length += length;
+    }
+  }
+
+  private static void body(ByteArrayOutputStream out, byte[] chunk) {
+    int i = 0;
+    while (out.size() < BodySize) {
+      switch (i++ % 3) {
+      case 0:
+        for (int j = 0; j < 64; ++j) {
+          out.write(chunk[j]);
+        }
+        break;
+
+      case 1:
+        out.write(chunk, 0, 40);
+        break;
+
+      default:
+        out.write(chunk, 0, chunk.length);
+        break;
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    byte[] chunk = new byte[16 * 1024];
+    for (int i = 0; i < chunk.length; ++i) {
+      chunk[i] = (byte) i;
+    }
+
+    for (int round = 0; round < 3; ++round) {
+      Sink sink = new Sink();
+      long start = System.currentTimeMillis();
+      for (int i = 0; i < Bodies; ++i) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body(out, chunk);
+        out.writeTo(sink);
+      }
+      System.out.println("writeTo: " + sink.length + " bytes in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      sink = new Sink();
+      start = System.currentTimeMillis();
+      for (int i = 0; i < Bodies; ++i) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream
+          (BodySize + chunk.length);
+        body(out, chunk);
+        sink.write(out.toByteArray());
+      }
+      System.out.println("toByteArray: " + sink.length + " bytes in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
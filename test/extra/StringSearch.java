@@ -0,0 +1,49 @@
+package extra;
+
+/**
+ * Times String.indexOf and contains with short and long needles over
+ * both byte-backed (e.g. literal) and char-backed (e.g. built) strings.
+ */
+public class StringSearch {
+  private static final int Iterations = 2000;
+
+  private static String text(int length) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; sb.length() < length; ++i) {
+      sb.append("lorem ipsum dolor sit amet ").append(i % 97).append(' ');
+    }
+    return sb.toString();
+  }
+
+  private static long run(String label, String haystack, String needle) {
+    long start = System.currentTimeMillis();
+    int found = 0;
+    for (int i = 0; i < Iterations; ++i) {
+      if (haystack.indexOf(needle) >= 0) {
+        ++ found;
+      }
+      if (haystack.contains(needle)) {
+        ++ found;
+      }
+    }
+    long elapsed = System.currentTimeMillis() - start;
+    System.out.println(label + ": " + found + " hits in " + elapsed + "ms");
+    return elapsed;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String chars = text(64 * 1024);
+    String bytes = new String(chars.getBytes("UTF-8"), "UTF-8");
+    String tail = "consectetur adipiscing elit";
+    chars = chars + tail;
+    bytes = bytes + tail;
+
+    for (int round = 0; round < 3; ++round) {
+      run("char[] short", chars, "elit");
+      run("char[] long", chars, tail);
+      run("byte[] short", bytes, "elit");
+      run("byte[] long", bytes, tail);
+      run("char[] missing", chars, "dolor sat");
+    }
+  }
+}
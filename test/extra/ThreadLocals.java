@@ -0,0 +1,46 @@
+package extra;
+
+public class ThreadLocals {
+  private static final int Iterations = 10000000;
+
+  private static void expect(boolean v) {
+    if (! v) throw new RuntimeException();
+  }
+
+  private static long get(ThreadLocal<Integer> local) {
+    long start = System.currentTimeMillis();
+    int sum = 0;
+    for (int i = 0; i < Iterations; ++i) {
+      sum += local.get();
+    }
+    expect(sum == Iterations);
+    return System.currentTimeMillis() - start;
+  }
+
+  private static long set(ThreadLocal<Integer> local) {
+    Integer one = 1;
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < Iterations; ++i) {
+      local.set(one);
+    }
+    return System.currentTimeMillis() - start;
+  }
+
+  public static void main(String[] args) {
+    ThreadLocal<Integer> local = new ThreadLocal<Integer>();
+    local.set(1);
+
+    // populate the table so lookups aren't trivially uncontended
+    ThreadLocal[] others = new ThreadLocal[64];
+    for (int i = 0; i < others.length; ++i) {
+      others[i] = new ThreadLocal();
+      others[i].set(i);
+    }
+
+    // warm up
+    get(local);
+
+    System.out.println("get: " + get(local) + "ms");
+    System.out.println("set: " + set(local) + "ms");
+  }
+}
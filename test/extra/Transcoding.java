@@ -0,0 +1,93 @@
+package extra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Converts text to and from UTF-8 the way parsers and servers do:
+ * encoding and decoding whole strings, and streaming through a Reader
+ * and a Writer.  The text is mostly ASCII with some accented and CJK
+ * characters mixed in.
+ */
+public class Transcoding {
+  private static final int Lines = 20000;
+
+  private static String line(Random random) {
+    StringBuilder sb = new StringBuilder();
+    int length = 20 + random.nextInt(60);
+    for (int i = 0; i < length; ++i) {
+      int r = random.nextInt(100);
+      if (r < 90) {
+        sb.append((char) (' ' + random.nextInt(95)));
+      } else if (r < 97) {
+        sb.append((char) (0xC0 + random.nextInt(0x40)));
+      } else {
+        sb.append((char) (0x4E00 + random.nextInt(0x5000)));
+      }
+    }
+    return sb.toString();
+  }
+
+  private static int strings(String[] lines) throws IOException {
+    int length = 0;
+    for (int i = 0; i < lines.length; ++i) {
+      byte[] bytes = lines[i].getBytes("UTF-8");
+      length += new String(bytes, "UTF-8").length();
+    }
+    return length;
+  }
+
+  private static byte[] write(String[] lines) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Writer out = new OutputStreamWriter(bytes);
+    for (int i = 0; i < lines.length; ++i) {
+      out.write(lines[i]);
+      out.write('\n');
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static int read(byte[] bytes) throws IOException {
+    Reader in = new InputStreamReader(new ByteArrayInputStream(bytes));
+    char[] buffer = new char[4096];
+    int length = 0;
+    int c;
+    while ((c = in.read(buffer, 0, buffer.length)) >= 0) {
+      length += c;
+    }
+    in.close();
+    return length;
+  }
+
+  public static void main(String[] args) throws IOException {
+    Random random = new Random(42);
+    String[] lines = new String[Lines];
+    for (int i = 0; i < Lines; ++i) {
+      lines[i] = line(random);
+    }
+
+    for (int round = 0; round < 3; ++round) {
+      long start = System.currentTimeMillis();
+      int n = strings(lines);
+      System.out.println("strings: " + n + " chars in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      byte[] bytes = write(lines);
+      System.out.println("write: " + bytes.length + " bytes in "
+                         + (System.currentTimeMillis() - start) + "ms");
+
+      start = System.currentTimeMillis();
+      n = read(bytes);
+      System.out.println("read: " + n + " chars in "
+                         + (System.currentTimeMillis() - start) + "ms");
+    }
+  }
+}
@@ -129,3 +129,15 @@
 -keepclassmembers class java.lang.ClassLoader {
    public java.lang.Class loadClass(java.lang.String);
  }
+
+# FileChannel.map constructs these via JNI:
+
+-keep class java.nio.MappedByteBuffer {
+   private <init>(long, long, boolean, long, int, boolean);
+ }
+
+# FileChannel.transferTo reads this via JNI:
+
+-keepclassmembers class java.nio.channels.SocketChannel {
+   int socket;
+ }